@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Generates deterministic, sorted {@link KeyValue} data sets shared by the benchmarks in this
+ * module. Rows share a common prefix, as real row keys usually do, so that the prefix-oriented
+ * encoders and comparators are exercised the way they are in production.
+ */
+@InterfaceAudience.Private
+public final class BenchmarkCells {
+
+  public static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final long SEED = 0x5EEDL;
+
+  private BenchmarkCells() {
+  }
+
+  /**
+   * @return <code>rows * qualifiers</code> cells in {@link CellComparatorImpl} order
+   */
+  public static List<KeyValue> sortedCells(int rows, int qualifiers, int valueLength) {
+    Random rand = new Random(SEED);
+    List<KeyValue> cells = new ArrayList<>(rows * qualifiers);
+    for (int r = 0; r < rows; r++) {
+      byte[] row = row(r);
+      for (int q = 0; q < qualifiers; q++) {
+        byte[] value = new byte[valueLength];
+        rand.nextBytes(value);
+        KeyValue kv = new KeyValue(row, FAMILY, qualifier(q), r + 1L, value);
+        kv.setSequenceId(r + 1L);
+        cells.add(kv);
+      }
+    }
+    return cells;
+  }
+
+  public static byte[] row(int index) {
+    return Bytes.toBytes(String.format("user-row-%010d", index));
+  }
+
+  public static byte[] qualifier(int index) {
+    return Bytes.toBytes(String.format("q%04d", index));
+  }
+}
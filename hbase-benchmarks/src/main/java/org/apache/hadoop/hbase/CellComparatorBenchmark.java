@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link CellComparatorImpl#compare(Cell, Cell)} for the comparisons that dominate
+ * memstore inserts and scanner heaps: cells that differ in row, in qualifier only, or in
+ * timestamp only, for both on-heap {@link KeyValue} and off-heap {@link ByteBufferKeyValue}.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellComparatorBenchmark {
+
+  @Param({ "true", "false" })
+  public boolean offheap;
+
+  private Cell left;
+  private Cell rightRow;
+  private Cell rightQualifier;
+  private Cell rightTimestamp;
+
+  @Setup
+  public void setup() {
+    byte[] value = Bytes.toBytes("value");
+    left = cell(new KeyValue(BenchmarkCells.row(1), BenchmarkCells.FAMILY,
+        BenchmarkCells.qualifier(1), 10L, value));
+    rightRow = cell(new KeyValue(BenchmarkCells.row(2), BenchmarkCells.FAMILY,
+        BenchmarkCells.qualifier(1), 10L, value));
+    rightQualifier = cell(new KeyValue(BenchmarkCells.row(1), BenchmarkCells.FAMILY,
+        BenchmarkCells.qualifier(2), 10L, value));
+    rightTimestamp = cell(new KeyValue(BenchmarkCells.row(1), BenchmarkCells.FAMILY,
+        BenchmarkCells.qualifier(1), 9L, value));
+  }
+
+  private Cell cell(KeyValue kv) {
+    if (!offheap) {
+      return kv;
+    }
+    ByteBuffer buf = ByteBuffer.allocateDirect(kv.getLength());
+    buf.put(kv.getBuffer(), kv.getOffset(), kv.getLength());
+    return new ByteBufferKeyValue(buf, 0, kv.getLength(), kv.getSequenceId());
+  }
+
+  @Benchmark
+  public int compareDifferentRow() {
+    return CellComparatorImpl.COMPARATOR.compare(left, rightRow);
+  }
+
+  @Benchmark
+  public int compareDifferentQualifier() {
+    return CellComparatorImpl.COMPARATOR.compare(left, rightQualifier);
+  }
+
+  @Benchmark
+  public int compareDifferentTimestamp() {
+    return CellComparatorImpl.COMPARATOR.compare(left, rightTimestamp);
+  }
+
+  @Benchmark
+  public int compareRows() {
+    return CellComparatorImpl.COMPARATOR.compareRows(left, rightRow);
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.encoding;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.nio.SingleByteBuff;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link DataBlockEncoder.EncodedSeeker} of each encoding on a single encoded data
+ * block: random seeks with {@code seekToKeyInBlock}, both at and before the key, and a full
+ * sequential walk with {@code next()}.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataBlockEncoderSeekBenchmark {
+
+  private static final int ENCODED_DATA_OFFSET =
+      HConstants.HFILEBLOCK_HEADER_SIZE + DataBlockEncoding.ID_SIZE;
+
+  @Param({ "PREFIX", "FAST_DIFF", "ROW_INDEX_V1" })
+  public DataBlockEncoding encoding;
+
+  /** Roughly one 64KB data block worth of cells. */
+  @Param({ "64" })
+  public int rows;
+
+  @Param({ "10" })
+  public int qualifiers;
+
+  @Param({ "false", "true" })
+  public boolean offheap;
+
+  private List<KeyValue> cells;
+  private DataBlockEncoder.EncodedSeeker seeker;
+  private ByteBuffer encodedBlock;
+  private Random random;
+
+  @Setup
+  public void setup() throws IOException {
+    cells = BenchmarkCells.sortedCells(rows, qualifiers, 64);
+    DataBlockEncoder encoder = encoding.getEncoder();
+    HFileContext meta = new HFileContextBuilder().withHBaseCheckSum(false)
+        .withIncludesMvcc(true).withIncludesTags(false)
+        .withCompression(Compression.Algorithm.NONE).build();
+    HFileBlockEncodingContext encodingContext =
+        encoder.newDataBlockEncodingContext(encoding, HConstants.HFILEBLOCK_DUMMY_HEADER, meta);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    baos.write(HConstants.HFILEBLOCK_DUMMY_HEADER);
+    DataOutputStream dos = new DataOutputStream(baos);
+    encoder.startBlockEncoding(encodingContext, dos);
+    for (KeyValue kv : cells) {
+      encoder.encode(kv, encodingContext, dos);
+    }
+    encoder.endBlockEncoding(encodingContext, dos, baos.getBuffer());
+    byte[] encoded = baos.toByteArray();
+    int length = encoded.length - ENCODED_DATA_OFFSET;
+    encodedBlock = offheap ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+    encodedBlock.put(encoded, ENCODED_DATA_OFFSET, length);
+    encodedBlock.rewind();
+    seeker = encoder.createSeeker(CellComparatorImpl.COMPARATOR,
+        encoder.newDataBlockDecodingContext(meta));
+    seeker.setCurrentBuffer(new SingleByteBuff(encodedBlock));
+    random = new Random(42L);
+  }
+
+  @Benchmark
+  public int seekToKeyInBlock() {
+    KeyValue key = cells.get(random.nextInt(cells.size()));
+    return seeker.seekToKeyInBlock(key, false);
+  }
+
+  @Benchmark
+  public int seekBeforeKeyInBlock() {
+    KeyValue key = cells.get(1 + random.nextInt(cells.size() - 1));
+    return seeker.seekToKeyInBlock(key, true);
+  }
+
+  @Benchmark
+  public int sequentialNext() {
+    seeker.rewind();
+    int count = 1;
+    while (seeker.next()) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link HFileScanner#seekTo(org.apache.hadoop.hbase.Cell)} through
+ * {@link HFileReaderImpl} on a local HFile whose blocks are all resident in the block cache, so
+ * the numbers reflect index lookup, block cache access and in-block seeking rather than disk I/O.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HFileReaderSeekBenchmark {
+
+  @Param({ "NONE", "FAST_DIFF", "ROW_INDEX_V1" })
+  public DataBlockEncoding encoding;
+
+  @Param({ "100000" })
+  public int rows;
+
+  private List<KeyValue> cells;
+  private File dir;
+  private HFile.Reader reader;
+  private HFileScanner scanner;
+  private Random random;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    Configuration conf = HBaseConfiguration.create();
+    cells = BenchmarkCells.sortedCells(rows, 1, 32);
+    dir = Files.createTempDirectory("hfile-seek-benchmark").toFile();
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path path = new Path(dir.getAbsolutePath(), "hfile");
+    HFileContext context = new HFileContextBuilder().withDataBlockEncoding(encoding)
+        .withIncludesMvcc(true).build();
+    HFile.Writer writer = HFile.getWriterFactoryNoCache(conf).withPath(fs, path)
+        .withFileContext(context).create();
+    try {
+      for (KeyValue kv : cells) {
+        writer.append(kv);
+      }
+    } finally {
+      writer.close();
+    }
+    CacheConfig cacheConf = new CacheConfig(conf, BlockCacheFactory.createBlockCache(conf));
+    reader = HFile.createReader(fs, path, cacheConf, true, conf);
+    scanner = reader.getScanner(true, true);
+    // Read the whole file once so that measured seeks hit the block cache
+    scanner.seekTo();
+    while (scanner.next()) {
+      scanner.getCell();
+    }
+    random = new Random(42L);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    scanner.close();
+    reader.close(true);
+    FileSystem.getLocal(HBaseConfiguration.create())
+        .delete(new Path(dir.getAbsolutePath()), true);
+  }
+
+  @Benchmark
+  public int randomSeekTo() throws IOException {
+    return scanner.seekTo(cells.get(random.nextInt(cells.size())));
+  }
+}
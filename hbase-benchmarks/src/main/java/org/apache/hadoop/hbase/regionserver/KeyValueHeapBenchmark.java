@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeepDeletedCells;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.CollectionBackedScanner;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost per cell of merging several sorted sources, first through a bare
+ * {@link KeyValueHeap} and then through a {@link StoreScanner}, which adds the query matcher on
+ * top of the heap. Each source stands in for one store file or memstore segment.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyValueHeapBenchmark {
+
+  private static final int ROWS = 10000;
+  private static final int QUALIFIERS = 4;
+
+  @Param({ "1", "4", "16" })
+  public int sources;
+
+  private List<List<Cell>> sourceCells;
+  private ScanInfo scanInfo;
+
+  @Setup
+  public void setup() {
+    List<KeyValue> cells = BenchmarkCells.sortedCells(ROWS, QUALIFIERS, 16);
+    sourceCells = new ArrayList<>(sources);
+    for (int i = 0; i < sources; i++) {
+      sourceCells.add(new ArrayList<>(cells.size() / sources + 1));
+    }
+    // Interleave rows across the sources, so every next() has to consult the heap
+    for (int i = 0; i < cells.size(); i++) {
+      sourceCells.get((i / QUALIFIERS) % sources).add(cells.get(i));
+    }
+    Configuration conf = HBaseConfiguration.create();
+    scanInfo = new ScanInfo(conf, BenchmarkCells.FAMILY, 0, Integer.MAX_VALUE, Long.MAX_VALUE,
+        KeepDeletedCells.FALSE, HConstants.DEFAULT_BLOCKSIZE, 0, CellComparator.getInstance(),
+        false);
+  }
+
+  private List<KeyValueScanner> scanners() {
+    List<KeyValueScanner> scanners = new ArrayList<>(sources);
+    for (List<Cell> cells : sourceCells) {
+      scanners.add(new CollectionBackedScanner(cells, CellComparator.getInstance()));
+    }
+    return scanners;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS * QUALIFIERS)
+  public void keyValueHeapNext(Blackhole bh) throws IOException {
+    KeyValueHeap heap = new KeyValueHeap(scanners(), CellComparator.getInstance());
+    try {
+      Cell cell;
+      while ((cell = heap.next()) != null) {
+        bh.consume(cell);
+      }
+    } finally {
+      heap.close();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS * QUALIFIERS)
+  public void storeScannerNext(Blackhole bh) throws IOException {
+    StoreScanner scanner =
+        new StoreScanner(scanInfo, ScanType.COMPACT_RETAIN_DELETES, scanners());
+    try {
+      List<Cell> results = new ArrayList<>();
+      boolean more;
+      do {
+        more = scanner.next(results);
+        bh.consume(results);
+        results.clear();
+      } while (more);
+    } finally {
+      scanner.close();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.MemoryCompactionPolicy;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.apache.hadoop.hbase.wal.WALFactory;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MemStore#add(org.apache.hadoop.hbase.Cell, MemStoreSizing)} of
+ * {@link DefaultMemStore} against {@link CompactingMemStore} under each in-memory compaction
+ * policy. The memstore is snapshotted and cleared whenever it reaches the region flush size, the
+ * way a flush would, so a long measurement runs at a steady state instead of filling the heap.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+public class MemStoreAddBenchmark {
+
+  private static final long FLUSH_SIZE = 128L * 1024 * 1024;
+
+  /** DEFAULT for {@link DefaultMemStore}, otherwise a {@link MemoryCompactionPolicy} name. */
+  @Param({ "DEFAULT", "NONE", "BASIC", "EAGER" })
+  public String memstoreType;
+
+  @Param({ "false", "true" })
+  public boolean mslab;
+
+  private File dir;
+  private WAL wal;
+  private HRegion region;
+  private MemStore memstore;
+  private MemStoreSizing memstoreSizing;
+  private byte[] value;
+  private long sequence;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setBoolean(MemStoreLAB.USEMSLAB_KEY, mslab);
+    conf.setLong(HConstants.HREGION_MEMSTORE_FLUSH_SIZE, FLUSH_SIZE);
+    if (mslab) {
+      ChunkCreator.initialize(MemStoreLAB.CHUNK_SIZE_DEFAULT, false, 4 * FLUSH_SIZE, 0.2f,
+          MemStoreLAB.POOL_INITIAL_SIZE_DEFAULT, null);
+    }
+    dir = Files.createTempDirectory("memstore-add-benchmark").toFile();
+    Path rootDir = new Path(dir.getAbsolutePath());
+    conf.set(HConstants.HBASE_DIR, rootDir.toString());
+    TableDescriptor htd = TableDescriptorBuilder.newBuilder(TableName.valueOf("benchmark"))
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.of(BenchmarkCells.FAMILY)).build();
+    RegionInfo info = RegionInfoBuilder.newBuilder(htd.getTableName()).build();
+    wal = new WALFactory(conf, "memstore-add-benchmark").getWAL(info);
+    region = HRegion.createHRegion(info, rootDir, conf, htd, wal, true);
+    HStore store = region.getStore(BenchmarkCells.FAMILY);
+    if ("DEFAULT".equals(memstoreType)) {
+      memstore = new DefaultMemStore(conf, CellComparator.getInstance(),
+          region.getRegionServicesForStores());
+    } else {
+      memstore = new CompactingMemStore(conf, CellComparator.getInstance(), store,
+          region.getRegionServicesForStores(), MemoryCompactionPolicy.valueOf(memstoreType));
+    }
+    memstoreSizing = new NonThreadSafeMemStoreSizing();
+    value = Bytes.toBytes("benchmark-value-of-32-bytes-long");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    region.close();
+    wal.close();
+    FileSystem.getLocal(HBaseConfiguration.create())
+        .delete(new Path(dir.getAbsolutePath()), true);
+  }
+
+  @Benchmark
+  public void add() throws IOException {
+    long seq = ++sequence;
+    KeyValue kv = new KeyValue(Bytes.toBytes(seq), BenchmarkCells.FAMILY,
+        BenchmarkCells.qualifier((int) (seq & 0x7)), seq, value);
+    kv.setSequenceId(seq);
+    memstore.add(kv, memstoreSizing);
+    if (memstoreSizing.getDataSize() >= FLUSH_SIZE) {
+      MemStoreSnapshot snapshot = memstore.snapshot();
+      memstore.clearSnapshot(snapshot.getId());
+      memstoreSizing = new NonThreadSafeMemStoreSizing();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures write transaction throughput through a single {@link MultiVersionConcurrencyControl},
+ * as every mutation of one hot region goes, at growing numbers of writer threads. Compare the
+ * per-thread-count methods to see how begin/complete scales; other counts can be run with
+ * {@code -t}.
+ */
+@InterfaceAudience.Private
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiVersionConcurrencyControlBenchmark {
+
+  private MultiVersionConcurrencyControl mvcc;
+  // Stands in for the WAL ring buffer sequence claimed in begin(Runnable)
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup
+  public void setup() {
+    mvcc = new MultiVersionConcurrencyControl();
+  }
+
+  private void write() {
+    mvcc.completeAndWait(mvcc.begin());
+  }
+
+  private void writeWithAction() {
+    mvcc.completeAndWait(mvcc.begin(sequence::incrementAndGet));
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void completeAndWait1() {
+    write();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void completeAndWait8() {
+    write();
+  }
+
+  @Benchmark
+  @Threads(32)
+  public void completeAndWait32() {
+    write();
+  }
+
+  @Benchmark
+  @Threads(128)
+  public void completeAndWait128() {
+    write();
+  }
+
+  @Benchmark
+  @Threads(32)
+  public void completeAndWaitWithAction32() {
+    writeWithAction();
+  }
+
+  @Benchmark
+  @Threads(128)
+  public void completeAndWaitWithAction128() {
+    writeWithAction();
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.IterationType;
+
+/**
+ * Compares the indexes an active memstore segment can keep its cells in, see
+ * {@link MutableSegment.IndexType}: inserts in random order, from one thread and from several,
+ * and point lookups. The retained index heap per cell is reported next to the timings, see
+ * {@link IndexStats}; run with {@code -prof gc} for the allocation rate of the inserts.
+ */
+@InterfaceAudience.Private
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutableSegmentIndexBenchmark {
+
+  private static final int CELLS = 100000;
+  private static final int HEAP_COPIES = 10;
+
+  @Param({ "CSLM_MAP", "BTREE_MAP" })
+  public MutableSegment.IndexType indexType;
+
+  private List<Cell> shuffled;
+  private NavigableMap<Cell, Cell> lookupMap;
+  private NavigableMap<Cell, Cell> sharedMap;
+  private long retainedHeapPerCell;
+
+  /**
+   * Retained heap per cell of the index, reported as a secondary result of the benchmarks. JMH
+   * sums event counters over the threads and the measurement iterations, so each one reports its
+   * share.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class IndexStats {
+    private long retainedHeapPerCell;
+    private int shares;
+
+    @Setup(Level.Iteration)
+    public void setup(MutableSegmentIndexBenchmark benchmark, IterationParams iterationParams,
+        ThreadParams threadParams) {
+      retainedHeapPerCell = benchmark.retainedHeapPerCell;
+      shares = threadParams.getThreadCount() *
+          (iterationParams.getType() == IterationType.MEASUREMENT ? iterationParams.getCount() : 1);
+    }
+
+    public double retainedHeapPerCell() {
+      return (double) retainedHeapPerCell / shares;
+    }
+  }
+
+  private NavigableMap<Cell, Cell> newMap() {
+    switch (indexType) {
+      case BTREE_MAP:
+        return new CellBTreeMap(CellComparator.getInstance().getSimpleComparator());
+      default:
+        return new ConcurrentSkipListMap<>(CellComparator.getInstance().getSimpleComparator());
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  @Setup
+  public void setup() {
+    shuffled = new ArrayList<>(BenchmarkCells.sortedCells(CELLS, 1, 8));
+    Collections.shuffle(shuffled, new Random(42));
+    // Several copies of the index over the same cells, so the heap they hold stands out of the
+    // noise of everything else the JVM allocates meanwhile
+    List<NavigableMap<Cell, Cell>> maps = new ArrayList<>(HEAP_COPIES);
+    long before = usedHeap();
+    for (int i = 0; i < HEAP_COPIES; i++) {
+      NavigableMap<Cell, Cell> map = newMap();
+      for (Cell cell : shuffled) {
+        map.put(cell, cell);
+      }
+      maps.add(map);
+    }
+    long after = usedHeap();
+    retainedHeapPerCell = (after - before) / ((long) HEAP_COPIES * CELLS);
+    lookupMap = maps.get(0);
+  }
+
+  @Setup(Level.Iteration)
+  public void newSharedMap() {
+    sharedMap = newMap();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CELLS)
+  public NavigableMap<Cell, Cell> insert(IndexStats stats) {
+    NavigableMap<Cell, Cell> map = newMap();
+    for (Cell cell : shuffled) {
+      map.put(cell, cell);
+    }
+    return map;
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Cell concurrentInsert(IndexStats stats) {
+    Cell cell = shuffled.get(ThreadLocalRandom.current().nextInt(CELLS));
+    return sharedMap.put(cell, cell);
+  }
+
+  @Benchmark
+  public Cell get(IndexStats stats) {
+    return lookupMap.get(shuffled.get(ThreadLocalRandom.current().nextInt(CELLS)));
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.wal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.codec.Codec;
+import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
+import org.apache.hadoop.hbase.io.util.LRUDictionary;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link WALCellCodec} encode and decode of a batch of cells, with and without WAL
+ * dictionary compression. A new {@link CompressionContext} is used for every batch, matching the
+ * per-file dictionary lifetime of a WAL writer or reader.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WALCellCodecBenchmark {
+
+  private static final int CELLS = 1000;
+
+  @Param({ "false", "true" })
+  public boolean compression;
+
+  @Param({ "100" })
+  public int valueLength;
+
+  private Configuration conf;
+  private List<KeyValue> cells;
+  private byte[] encoded;
+  private ByteArrayOutputStream out;
+
+  @Setup
+  public void setup() throws Exception {
+    conf = new Configuration(false);
+    cells = BenchmarkCells.sortedCells(CELLS / 10, 10, valueLength);
+    out = new ByteArrayOutputStream(CELLS * (valueLength + 64));
+    encode();
+    encoded = out.toByteArray();
+  }
+
+  private WALCellCodec codec() throws Exception {
+    return new WALCellCodec(conf,
+        compression ? new CompressionContext(LRUDictionary.class, false, false) : null);
+  }
+
+  private void encode() throws Exception {
+    out.reset();
+    Codec.Encoder encoder = codec().getEncoder(out);
+    for (KeyValue kv : cells) {
+      encoder.write(kv);
+    }
+    encoder.flush();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CELLS)
+  public int encodeCells() throws Exception {
+    encode();
+    return out.size();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CELLS)
+  public void decodeCells(Blackhole bh) throws Exception {
+    Codec.Decoder decoder = codec().getDecoder(new ByteArrayInputStream(encoded));
+    while (decoder.advance()) {
+      bh.consume(decoder.current());
+    }
+  }
+}
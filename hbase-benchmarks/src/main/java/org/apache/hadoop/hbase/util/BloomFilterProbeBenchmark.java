@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.nio.SingleByteBuff;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+/**
+ * Measures the checks of a row against a single Bloom filter chunk of each
+ * {@link BloomFilterFormat}, for rows in the chunk and rows not in it. The chunk is filled up to
+ * its capacity for the error rate, and its bits per key and actual error rate are reported next to
+ * the timings, see {@link ChunkStats}.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BloomFilterProbeBenchmark {
+
+  private static final int ROWS = 4096;
+
+  @Param({ "CLASSIC", "BLOCKED", "XOR" })
+  public BloomFilterFormat format;
+
+  /** The default size of a Bloom filter chunk. */
+  @Param({ "131072" })
+  public int chunkSize;
+
+  @Param({ "0.01" })
+  public float errorRate;
+
+  @Param({ "false", "true" })
+  public boolean offheap;
+
+  private BloomFilterChunk chunk;
+  private ByteBuff bloom;
+  private Hash hash;
+  private KeyValue[] present;
+  private KeyValue[] absent;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    chunk = BloomFilterUtil.createBySize(chunkSize, errorRate, Hash.MURMUR_HASH3, 0,
+      BloomType.ROW, format);
+    chunk.allocBloom();
+    int keys = (int) chunk.getMaxKeys();
+    for (int i = 0; i < keys; i++) {
+      chunk.add(new KeyValue(Bytes.toBytes(String.format("present-%010d", i)), null, null));
+    }
+    chunk.compactBloom();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    chunk.writeBloom(new DataOutputStream(out));
+    byte[] bytes = out.toByteArray();
+    ByteBuffer buf =
+        offheap ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+    buf.put(bytes);
+    buf.rewind();
+    bloom = new SingleByteBuff(buf);
+    hash = Hash.getInstance(Hash.MURMUR_HASH3);
+
+    // probe rows scattered over the whole chunk
+    present = new KeyValue[ROWS];
+    absent = new KeyValue[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      int row = (int) ((long) i * keys / ROWS);
+      present[i] = new KeyValue(Bytes.toBytes(String.format("present-%010d", row)), null, null);
+      absent[i] = new KeyValue(Bytes.toBytes(String.format("absent-%010d", row)), null, null);
+    }
+  }
+
+  /**
+   * Bits per key and actual error rate of the chunk, reported as secondary results of the checks.
+   * JMH sums event counters over the measurement iterations, so each one reports its share.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class ChunkStats {
+    private BloomFilterChunk chunk;
+    private int iterations;
+
+    @Setup(Level.Iteration)
+    public void setup(BloomFilterProbeBenchmark benchmark, IterationParams params) {
+      chunk = benchmark.chunk;
+      iterations = params.getType() == IterationType.MEASUREMENT ? params.getCount() : 1;
+    }
+
+    public double bitsPerKey() {
+      return chunk.getByteSize() * 8.0 / chunk.getKeyCount() / iterations;
+    }
+
+    public double errorRate() {
+      return chunk.actualErrorRate() / iterations;
+    }
+  }
+
+  private boolean contains(KeyValue kv) {
+    return BloomFilterUtil.contains(kv, bloom, 0, (int) chunk.getByteSize(), hash,
+      chunk.getHashCount(), BloomType.ROW, format);
+  }
+
+  @Benchmark
+  public boolean containsPresent(ChunkStats stats) {
+    next = (next + 1) & (ROWS - 1);
+    return contains(present[next]);
+  }
+
+  @Benchmark
+  public boolean containsAbsent(ChunkStats stats) {
+    next = (next + 1) & (ROWS - 1);
+    return contains(absent[next]);
+  }
+}
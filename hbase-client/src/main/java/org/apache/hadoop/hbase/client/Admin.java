@@ -2232,4 +2232,23 @@ public interface Admin extends Abortable, Closeable {
   default List<Boolean> hasUserPermissions(List<Permission> permissions) throws IOException {
     return hasUserPermissions(null, permissions);
   }
+
+  /**
+   * Retrieves the slow/large RPC log entries kept in memory by the given RegionServers.
+   * @param serverNames Server names to get the slow log responses from
+   * @param slowLogQueryFilter filter to be used if provided
+   * @return the matching entries, newest first within each server
+   * @throws IOException if a remote or network exception occurs
+   */
+  List<SlowLogRecord> getSlowLogResponses(Set<ServerName> serverNames,
+      SlowLogQueryFilter slowLogQueryFilter) throws IOException;
+
+  /**
+   * Clears the slow/large RPC log entries kept in memory by the given RegionServers.
+   * @param serverNames Set of Server names to clean the slow log responses from
+   * @return for each server, in iteration order, whether its entries were cleared; false means
+   *         the server keeps no entries at all
+   * @throws IOException if a remote or network exception occurs
+   */
+  List<Boolean> clearSlowLogResponses(Set<ServerName> serverNames) throws IOException;
 }
@@ -1484,4 +1484,22 @@ public interface AsyncAdmin {
   default CompletableFuture<List<Boolean>> hasUserPermissions(List<Permission> permissions) {
     return hasUserPermissions(null, permissions);
   }
+
+  /**
+   * Retrieves the slow/large RPC log entries kept in memory by the given RegionServers.
+   * @param serverNames Server names to get the slow log responses from
+   * @param slowLogQueryFilter filter to be used if provided
+   * @return the matching entries, newest first within each server, wrapped by a
+   *         {@link CompletableFuture}
+   */
+  CompletableFuture<List<SlowLogRecord>> getSlowLogResponses(Set<ServerName> serverNames,
+      SlowLogQueryFilter slowLogQueryFilter);
+
+  /**
+   * Clears the slow/large RPC log entries kept in memory by the given RegionServers.
+   * @param serverNames Set of Server names to clean the slow log responses from
+   * @return for each server, in iteration order, whether its entries were cleared, wrapped by a
+   *         {@link CompletableFuture}
+   */
+  CompletableFuture<List<Boolean>> clearSlowLogResponses(Set<ServerName> serverNames);
 }
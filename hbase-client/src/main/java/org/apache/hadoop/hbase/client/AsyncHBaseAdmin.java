@@ -826,4 +826,15 @@ class AsyncHBaseAdmin implements AsyncAdmin {
       List<Permission> permissions) {
     return wrap(rawAdmin.hasUserPermissions(userName, permissions));
   }
+
+  @Override
+  public CompletableFuture<List<SlowLogRecord>> getSlowLogResponses(
+      final Set<ServerName> serverNames, final SlowLogQueryFilter slowLogQueryFilter) {
+    return wrap(rawAdmin.getSlowLogResponses(serverNames, slowLogQueryFilter));
+  }
+
+  @Override
+  public CompletableFuture<List<Boolean>> clearSlowLogResponses(Set<ServerName> serverNames) {
+    return wrap(rawAdmin.clearSlowLogResponses(serverNames));
+  }
 }
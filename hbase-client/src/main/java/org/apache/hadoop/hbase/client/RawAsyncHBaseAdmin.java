@@ -120,6 +120,8 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.AccessControlProtos.Rev
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.AdminService;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearCompactionQueuesRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearCompactionQueuesResponse;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearSlowLogResponseRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearSlowLogResponses;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearRegionBlockCacheRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearRegionBlockCacheResponse;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.CompactRegionRequest;
@@ -137,6 +139,8 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.GetRegionLo
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.RollWALWriterRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.RollWALWriterResponse;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.StopServerRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.SlowLogResponseRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.SlowLogResponses;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.StopServerResponse;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.UpdateConfigurationRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.UpdateConfigurationResponse;
@@ -3856,4 +3860,68 @@ class RawAsyncHBaseAdmin implements AsyncAdmin {
               resp -> resp.getHasUserPermissionList()))
         .call();
   }
+
+  @Override
+  public CompletableFuture<List<SlowLogRecord>> getSlowLogResponses(
+      final Set<ServerName> serverNames, final SlowLogQueryFilter slowLogQueryFilter) {
+    if (serverNames == null || serverNames.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    List<CompletableFuture<List<SlowLogRecord>>> futures = serverNames.stream()
+      .map(serverName -> getSlowLogResponseFromServer(serverName, slowLogQueryFilter))
+      .collect(Collectors.toList());
+    CompletableFuture<List<SlowLogRecord>> future = new CompletableFuture<>();
+    addListener(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])),
+      (ret, err) -> {
+        if (err != null) {
+          future.completeExceptionally(unwrapCompletionException(err));
+        } else {
+          future.complete(futures.stream().map(CompletableFuture::join).flatMap(List::stream)
+            .collect(Collectors.toList()));
+        }
+      });
+    return future;
+  }
+
+  private CompletableFuture<List<SlowLogRecord>> getSlowLogResponseFromServer(
+      final ServerName serverName, final SlowLogQueryFilter slowLogQueryFilter) {
+    return this.<List<SlowLogRecord>> newAdminCaller()
+      .action((controller, stub) -> this
+        .<SlowLogResponseRequest, SlowLogResponses, List<SlowLogRecord>> adminCall(controller,
+          stub, RequestConverter.buildSlowLogResponseRequest(slowLogQueryFilter),
+          (s, c, req, done) -> s.getSlowLogResponses(c, req, done),
+          ProtobufUtil::toSlowLogRecords))
+      .serverName(serverName).call();
+  }
+
+  @Override
+  public CompletableFuture<List<Boolean>> clearSlowLogResponses(
+      final Set<ServerName> serverNames) {
+    if (serverNames == null || serverNames.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    List<CompletableFuture<Boolean>> futures = serverNames.stream()
+      .map(this::clearSlowLogsResponses).collect(Collectors.toList());
+    CompletableFuture<List<Boolean>> future = new CompletableFuture<>();
+    addListener(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])),
+      (ret, err) -> {
+        if (err != null) {
+          future.completeExceptionally(unwrapCompletionException(err));
+        } else {
+          future.complete(futures.stream().map(CompletableFuture::join)
+            .collect(Collectors.toList()));
+        }
+      });
+    return future;
+  }
+
+  private CompletableFuture<Boolean> clearSlowLogsResponses(final ServerName serverName) {
+    return this.<Boolean> newAdminCaller()
+      .action((controller, stub) -> this
+        .<ClearSlowLogResponseRequest, ClearSlowLogResponses, Boolean> adminCall(controller, stub,
+          RequestConverter.buildClearSlowLogResponseRequest(),
+          (s, c, req, done) -> s.clearSlowLogsResponses(c, req, done),
+          ClearSlowLogResponses::getIsCleaned))
+      .serverName(serverName).call();
+  }
 }
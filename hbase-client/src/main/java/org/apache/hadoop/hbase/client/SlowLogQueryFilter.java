@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Selects the slow/large RPC log entries returned by
+ * {@link Admin#getSlowLogResponses(java.util.Set, SlowLogQueryFilter)}. Every filter that is set
+ * must match for an entry to be returned; the default filter returns the latest
+ * {@value #DEFAULT_LIMIT} entries of either type.
+ */
+@InterfaceAudience.Public
+public class SlowLogQueryFilter {
+
+  public static final int DEFAULT_LIMIT = 10;
+
+  /**
+   * The reason an RPC call was recorded.
+   */
+  public enum Type {
+    SLOW_LOG,
+    LARGE_LOG,
+    ALL
+  }
+
+  private String regionName;
+  private String tableName;
+  private String clientAddress;
+  private String userName;
+  private int limit = DEFAULT_LIMIT;
+  private Type type = Type.ALL;
+
+  public String getRegionName() {
+    return regionName;
+  }
+
+  public SlowLogQueryFilter setRegionName(String regionName) {
+    this.regionName = regionName;
+    return this;
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  public SlowLogQueryFilter setTableName(String tableName) {
+    this.tableName = tableName;
+    return this;
+  }
+
+  public String getClientAddress() {
+    return clientAddress;
+  }
+
+  public SlowLogQueryFilter setClientAddress(String clientAddress) {
+    this.clientAddress = clientAddress;
+    return this;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public SlowLogQueryFilter setUserName(String userName) {
+    this.userName = userName;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of entries returned by each RegionServer
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  public SlowLogQueryFilter setLimit(int limit) {
+    this.limit = limit;
+    return this;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public SlowLogQueryFilter setType(Type type) {
+    this.type = type;
+    return this;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SlowLogQueryFilter)) {
+      return false;
+    }
+    SlowLogQueryFilter that = (SlowLogQueryFilter) o;
+    return new EqualsBuilder()
+      .append(limit, that.limit)
+      .append(regionName, that.regionName)
+      .append(tableName, that.tableName)
+      .append(clientAddress, that.clientAddress)
+      .append(userName, that.userName)
+      .append(type, that.type)
+      .isEquals();
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashCodeBuilder(17, 37)
+      .append(regionName)
+      .append(tableName)
+      .append(clientAddress)
+      .append(userName)
+      .append(limit)
+      .append(type)
+      .toHashCode();
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this)
+      .append("regionName", regionName)
+      .append("tableName", tableName)
+      .append("clientAddress", clientAddress)
+      .append("userName", userName)
+      .append("limit", limit)
+      .append("type", type)
+      .toString();
+  }
+}
@@ -0,0 +1,351 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.hadoop.hbase.util.GsonUtil;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.gson.Gson;
+
+/**
+ * A slow or large RPC call, as recorded in the in-memory ring buffer of a RegionServer.
+ * @see Admin#getSlowLogResponses(java.util.Set, SlowLogQueryFilter)
+ */
+@InterfaceAudience.Public
+public final class SlowLogRecord {
+
+  private static final Gson GSON = GsonUtil.createGson().setPrettyPrinting().create();
+
+  private final long startTime;
+  private final int processingTime;
+  private final int queueTime;
+  private final long responseSize;
+  private final String clientAddress;
+  private final String serverClass;
+  private final String methodName;
+  private final String callDetails;
+  private final String param;
+  private final String regionName;
+  private final String tableName;
+  private final String userName;
+  private final int multiGetsCount;
+  private final int multiMutationsCount;
+  private final int multiServiceCalls;
+  private final SlowLogQueryFilter.Type type;
+
+  private SlowLogRecord(final long startTime, final int processingTime, final int queueTime,
+      final long responseSize, final String clientAddress, final String serverClass,
+      final String methodName, final String callDetails, final String param,
+      final String regionName, final String tableName, final String userName,
+      final int multiGetsCount, final int multiMutationsCount, final int multiServiceCalls,
+      final SlowLogQueryFilter.Type type) {
+    this.startTime = startTime;
+    this.processingTime = processingTime;
+    this.queueTime = queueTime;
+    this.responseSize = responseSize;
+    this.clientAddress = clientAddress;
+    this.serverClass = serverClass;
+    this.methodName = methodName;
+    this.callDetails = callDetails;
+    this.param = param;
+    this.regionName = regionName;
+    this.tableName = tableName;
+    this.userName = userName;
+    this.multiGetsCount = multiGetsCount;
+    this.multiMutationsCount = multiMutationsCount;
+    this.multiServiceCalls = multiServiceCalls;
+    this.type = type;
+  }
+
+  /**
+   * @return time the call was initiated, in ms since the epoch
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return duration the call took to run, in ms
+   */
+  public int getProcessingTime() {
+    return processingTime;
+  }
+
+  /**
+   * @return duration the call spent on the queue prior to being run, in ms
+   */
+  public int getQueueTime() {
+    return queueTime;
+  }
+
+  /**
+   * @return size of the response, in bytes
+   */
+  public long getResponseSize() {
+    return responseSize;
+  }
+
+  public String getClientAddress() {
+    return clientAddress;
+  }
+
+  public String getServerClass() {
+    return serverClass;
+  }
+
+  public String getMethodName() {
+    return methodName;
+  }
+
+  public String getCallDetails() {
+    return callDetails;
+  }
+
+  /**
+   * @return the text form of the request, truncated the same way as in the RegionServer log
+   */
+  public String getParam() {
+    return param;
+  }
+
+  /**
+   * @return the region the call was made against, or an empty string when the call does not
+   *         target a region
+   */
+  public String getRegionName() {
+    return regionName;
+  }
+
+  /**
+   * @return the table the call was made against, or an empty string when it is not known
+   */
+  public String getTableName() {
+    return tableName;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public int getMultiGetsCount() {
+    return multiGetsCount;
+  }
+
+  public int getMultiMutationsCount() {
+    return multiMutationsCount;
+  }
+
+  public int getMultiServiceCalls() {
+    return multiServiceCalls;
+  }
+
+  /**
+   * @return whether the call was recorded for being too slow or for its response being too large
+   */
+  public SlowLogQueryFilter.Type getType() {
+    return type;
+  }
+
+  public static class SlowLogRecordBuilder {
+    private long startTime;
+    private int processingTime;
+    private int queueTime;
+    private long responseSize;
+    private String clientAddress;
+    private String serverClass;
+    private String methodName;
+    private String callDetails;
+    private String param;
+    private String regionName;
+    private String tableName;
+    private String userName;
+    private int multiGetsCount;
+    private int multiMutationsCount;
+    private int multiServiceCalls;
+    private SlowLogQueryFilter.Type type;
+
+    public SlowLogRecordBuilder setStartTime(long startTime) {
+      this.startTime = startTime;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setProcessingTime(int processingTime) {
+      this.processingTime = processingTime;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setQueueTime(int queueTime) {
+      this.queueTime = queueTime;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setResponseSize(long responseSize) {
+      this.responseSize = responseSize;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setClientAddress(String clientAddress) {
+      this.clientAddress = clientAddress;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setServerClass(String serverClass) {
+      this.serverClass = serverClass;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setMethodName(String methodName) {
+      this.methodName = methodName;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setCallDetails(String callDetails) {
+      this.callDetails = callDetails;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setParam(String param) {
+      this.param = param;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setRegionName(String regionName) {
+      this.regionName = regionName;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setTableName(String tableName) {
+      this.tableName = tableName;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setUserName(String userName) {
+      this.userName = userName;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setMultiGetsCount(int multiGetsCount) {
+      this.multiGetsCount = multiGetsCount;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setMultiMutationsCount(int multiMutationsCount) {
+      this.multiMutationsCount = multiMutationsCount;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setMultiServiceCalls(int multiServiceCalls) {
+      this.multiServiceCalls = multiServiceCalls;
+      return this;
+    }
+
+    public SlowLogRecordBuilder setType(SlowLogQueryFilter.Type type) {
+      this.type = type;
+      return this;
+    }
+
+    public SlowLogRecord build() {
+      return new SlowLogRecord(startTime, processingTime, queueTime, responseSize,
+        clientAddress, serverClass, methodName, callDetails, param, regionName, tableName,
+        userName, multiGetsCount, multiMutationsCount, multiServiceCalls, type);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SlowLogRecord)) {
+      return false;
+    }
+    SlowLogRecord that = (SlowLogRecord) o;
+    return new EqualsBuilder()
+      .append(startTime, that.startTime)
+      .append(processingTime, that.processingTime)
+      .append(queueTime, that.queueTime)
+      .append(responseSize, that.responseSize)
+      .append(multiGetsCount, that.multiGetsCount)
+      .append(multiMutationsCount, that.multiMutationsCount)
+      .append(multiServiceCalls, that.multiServiceCalls)
+      .append(clientAddress, that.clientAddress)
+      .append(serverClass, that.serverClass)
+      .append(methodName, that.methodName)
+      .append(callDetails, that.callDetails)
+      .append(param, that.param)
+      .append(regionName, that.regionName)
+      .append(tableName, that.tableName)
+      .append(userName, that.userName)
+      .append(type, that.type)
+      .isEquals();
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashCodeBuilder(17, 37)
+      .append(startTime)
+      .append(processingTime)
+      .append(queueTime)
+      .append(responseSize)
+      .append(clientAddress)
+      .append(serverClass)
+      .append(methodName)
+      .append(callDetails)
+      .append(param)
+      .append(regionName)
+      .append(tableName)
+      .append(userName)
+      .append(multiGetsCount)
+      .append(multiMutationsCount)
+      .append(multiServiceCalls)
+      .append(type)
+      .toHashCode();
+  }
+
+  /**
+   * @return the record as a pretty printed JSON document, as shown by the shell
+   */
+  public String toJsonPrettyPrint() {
+    return GSON.toJson(this);
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this)
+      .append("startTime", startTime)
+      .append("processingTime", processingTime)
+      .append("queueTime", queueTime)
+      .append("responseSize", responseSize)
+      .append("clientAddress", clientAddress)
+      .append("serverClass", serverClass)
+      .append("methodName", methodName)
+      .append("callDetails", callDetails)
+      .append("param", param)
+      .append("regionName", regionName)
+      .append("tableName", tableName)
+      .append("userName", userName)
+      .append("multiGetsCount", multiGetsCount)
+      .append("multiMutationsCount", multiMutationsCount)
+      .append("multiServiceCalls", multiServiceCalls)
+      .append("type", type)
+      .toString();
+  }
+}
@@ -49,6 +49,12 @@ public class ServerSideScanMetrics {
   public static final String COUNT_OF_ROWS_SCANNED_KEY_METRIC_NAME = "ROWS_SCANNED";
   public static final String COUNT_OF_ROWS_FILTERED_KEY_METRIC_NAME = "ROWS_FILTERED";
 
+  /**
+   * Prefix of the per-filter counters. Their names depend on the filters of the scan, so they are
+   * created the first time they are added to rather than up front.
+   */
+  public static final String FILTER_METRIC_NAME_PREFIX = "FILTER_";
+
   /**
    * number of rows filtered during scan RPC
    */
@@ -88,11 +94,16 @@ public class ServerSideScanMetrics {
   }
 
   /**
+   * Counters named with {@link #FILTER_METRIC_NAME_PREFIX} are created if missing, others are
+   * ignored if they do not exist.
    * @param counterName
    * @param delta
    */
   public void addToCounter(String counterName, long delta) {
     AtomicLong c = this.counters.get(counterName);
+    if (c == null && counterName.startsWith(FILTER_METRIC_NAME_PREFIX)) {
+      c = createCounter(counterName);
+    }
     if (c != null) {
       c.addAndGet(delta);
     }
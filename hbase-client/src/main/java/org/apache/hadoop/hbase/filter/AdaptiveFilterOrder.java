@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.metrics.ServerSideScanMetrics;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.common.collect.ImmutableSet;
+
+/**
+ * Evaluation order of the sub-filters of a {@link FilterListWithAND}, adapted to the pass rate and
+ * cost observed while scanning.
+ * <p>
+ * Every {@link #SAMPLE_INTERVAL}th cell is also passed to every reorderable sub-filter, timing each
+ * call. Every {@link #SAMPLES_PER_REORDER} samples the reorderable sub-filters are sorted by their
+ * average cost divided by their reject rate, so that the cheap and selective ones are evaluated
+ * first, and the samples are halved so that the order follows changes in the data.
+ * <p>
+ * Because {@link FilterListWithAND#filterCell(Cell)} stops at the first sub-filter that does not
+ * include the cell, reordering changes which sub-filters see which cells. Only sub-filters whose
+ * {@link Filter#filterCell(Cell)} keeps no state across cells are reordered, and only among
+ * themselves: every other sub-filter keeps its position and still sees exactly the cells passed by
+ * the sub-filters before it. The returned code may differ, e.g. NEXT_ROW instead of SKIP, but any
+ * step a sub-filter asks for is also valid for the whole list, and the hint still comes from the
+ * sub-filters that asked for one.
+ */
+@InterfaceAudience.Private
+public class AdaptiveFilterOrder {
+
+  /** Cells between two samples, a power of two. */
+  static final int SAMPLE_INTERVAL = 64;
+
+  /** Samples between two reorderings. */
+  static final int SAMPLES_PER_REORDER = 16;
+
+  /**
+   * Filters whose filterCell neither depends on nor changes which cells they have seen before. The
+   * classes must match exactly as sub-classes may add state.
+   */
+  private static final Set<Class<? extends Filter>> REORDERABLE = ImmutableSet.of(
+    ValueFilter.class, QualifierFilter.class, FamilyFilter.class, RowFilter.class,
+    PrefixFilter.class, ColumnPrefixFilter.class, MultipleColumnPrefixFilter.class,
+    ColumnRangeFilter.class, TimestampsFilter.class);
+
+  private final List<Filter> filters;
+  private int[] order = new int[0];
+  private boolean[] reorderable = new boolean[0];
+  private String[] metricNames = new String[0];
+
+  // Halved on each reordering, used to rank the sub-filters.
+  private long[] sampledCells = new long[0];
+  private long[] passedCells = new long[0];
+  private long[] sampledNanos = new long[0];
+
+  // Not yet added to the scan metrics.
+  private long[] pendingSampledCells = new long[0];
+  private long[] pendingPassedCells = new long[0];
+  private long[] pendingSampledNanos = new long[0];
+
+  private long cells;
+  private int samples;
+
+  AdaptiveFilterOrder(List<Filter> filters) {
+    this.filters = filters;
+    filtersAdded();
+  }
+
+  /**
+   * Appends the sub-filters added to the list since the last call to the end of the order.
+   */
+  void filtersAdded() {
+    int from = order.length;
+    int n = filters.size();
+    order = Arrays.copyOf(order, n);
+    reorderable = Arrays.copyOf(reorderable, n);
+    metricNames = Arrays.copyOf(metricNames, n);
+    sampledCells = Arrays.copyOf(sampledCells, n);
+    passedCells = Arrays.copyOf(passedCells, n);
+    sampledNanos = Arrays.copyOf(sampledNanos, n);
+    pendingSampledCells = Arrays.copyOf(pendingSampledCells, n);
+    pendingPassedCells = Arrays.copyOf(pendingPassedCells, n);
+    pendingSampledNanos = Arrays.copyOf(pendingSampledNanos, n);
+    for (int i = from; i < n; i++) {
+      Filter filter = filters.get(i);
+      order[i] = i;
+      reorderable[i] = REORDERABLE.contains(filter.getClass());
+      metricNames[i] = ServerSideScanMetrics.FILTER_METRIC_NAME_PREFIX + i + "_"
+          + filter.getClass().getSimpleName();
+    }
+  }
+
+  /**
+   * Called for each cell before it is passed to the sub-filters.
+   * @return the order in which to evaluate the sub-filters, indexes into the filter list
+   */
+  int[] nextCell(Cell c) throws IOException {
+    if ((++cells & (SAMPLE_INTERVAL - 1)) == 0) {
+      sample(c);
+    }
+    return order;
+  }
+
+  private void sample(Cell c) throws IOException {
+    for (int i = 0; i < order.length; i++) {
+      if (!reorderable[i]) {
+        continue;
+      }
+      long start = System.nanoTime();
+      ReturnCode rc = filters.get(i).filterCell(c);
+      long nanos = System.nanoTime() - start;
+      boolean passed = FilterListBase.isInReturnCodes(rc, ReturnCode.INCLUDE,
+        ReturnCode.INCLUDE_AND_NEXT_COL, ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW);
+      sampledCells[i]++;
+      sampledNanos[i] += nanos;
+      pendingSampledCells[i]++;
+      pendingSampledNanos[i] += nanos;
+      if (passed) {
+        passedCells[i]++;
+        pendingPassedCells[i]++;
+      }
+    }
+    if (++samples % SAMPLES_PER_REORDER == 0) {
+      reorder();
+    }
+  }
+
+  private void reorder() {
+    double[] ranks = new double[order.length];
+    for (int i = 0; i < order.length; i++) {
+      if (reorderable[i] && sampledCells[i] > 0) {
+        // The reject rate is smoothed so that a filter that passed every sample still has a rank.
+        double rejectRate = (sampledCells[i] - passedCells[i] + 1.0) / (sampledCells[i] + 2.0);
+        ranks[i] = sampledNanos[i] / (double) sampledCells[i] / rejectRate;
+      }
+      sampledCells[i] >>= 1;
+      passedCells[i] >>= 1;
+      sampledNanos[i] >>= 1;
+    }
+    // Stable insertion sort of each run of reorderable filters, the others stay where they are.
+    for (int start = 0; start < order.length; start++) {
+      if (!reorderable[order[start]]) {
+        continue;
+      }
+      int end = start + 1;
+      while (end < order.length && reorderable[order[end]]) {
+        int filter = order[end];
+        int j = end - 1;
+        while (j >= start && ranks[order[j]] > ranks[filter]) {
+          order[j + 1] = order[j];
+          j--;
+        }
+        order[j + 1] = filter;
+        end++;
+      }
+      start = end;
+    }
+  }
+
+  /**
+   * Adds the sample counts and time of each reorderable sub-filter since the last call to the
+   * given scan metrics, under names starting with
+   * {@link ServerSideScanMetrics#FILTER_METRIC_NAME_PREFIX}.
+   */
+  public void addToMetrics(ServerSideScanMetrics metrics) {
+    for (int i = 0; i < order.length; i++) {
+      if (pendingSampledCells[i] == 0) {
+        continue;
+      }
+      metrics.addToCounter(metricNames[i] + "_SAMPLED_CELLS", pendingSampledCells[i]);
+      metrics.addToCounter(metricNames[i] + "_PASSED_CELLS", pendingPassedCells[i]);
+      metrics.addToCounter(metricNames[i] + "_SAMPLED_NANOS", pendingSampledNanos[i]);
+      pendingSampledCells[i] = 0;
+      pendingPassedCells[i] = 0;
+      pendingSampledNanos[i] = 0;
+    }
+  }
+
+  /**
+   * @return the current evaluation order, as indexes into the filter list
+   */
+  public int[] getOrder() {
+    return order.clone();
+  }
+}
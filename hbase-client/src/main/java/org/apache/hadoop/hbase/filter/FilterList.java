@@ -141,6 +141,20 @@ final public class FilterList extends FilterBase {
     addFilter(Collections.singletonList(filter));
   }
 
+  /**
+   * Lets a {@link Operator#MUST_PASS_ALL} list evaluate its cheap and selective sub-filters first,
+   * based on the pass rate and cost observed while scanning. Results are the same as with the
+   * given order. Only meant to be called on the server side.
+   * @return the adapted order, or null for a {@link Operator#MUST_PASS_ONE} list
+   */
+  @InterfaceAudience.Private
+  public AdaptiveFilterOrder enableAdaptiveOrder() {
+    if (filterListBase instanceof FilterListWithAND) {
+      return ((FilterListWithAND) filterListBase).enableAdaptiveOrder();
+    }
+    return null;
+  }
+
   @Override
   public void reset() throws IOException {
     filterListBase.reset();
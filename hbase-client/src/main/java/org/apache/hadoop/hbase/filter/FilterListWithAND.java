@@ -36,6 +36,7 @@ import java.util.Objects;
 public class FilterListWithAND extends FilterListBase {
 
   private List<Filter> seekHintFilters = new ArrayList<>();
+  private AdaptiveFilterOrder adaptiveOrder;
 
   public FilterListWithAND(List<Filter> filters) {
     super(filters);
@@ -52,6 +53,20 @@ public class FilterListWithAND extends FilterListBase {
     }
     this.filters.addAll(filters);
     this.subFiltersIncludedCell.addAll(Collections.nCopies(filters.size(), true));
+    if (adaptiveOrder != null) {
+      adaptiveOrder.filtersAdded();
+    }
+  }
+
+  /**
+   * Evaluates the sub-filters in an order adapted to their observed pass rate and cost from now
+   * on, see {@link AdaptiveFilterOrder}.
+   */
+  AdaptiveFilterOrder enableAdaptiveOrder() {
+    if (adaptiveOrder == null) {
+      adaptiveOrder = new AdaptiveFilterOrder(filters);
+    }
+    return adaptiveOrder;
   }
 
   @Override
@@ -167,8 +182,9 @@ public class FilterListWithAND extends FilterListBase {
     }
     ReturnCode rc = ReturnCode.INCLUDE;
     this.seekHintFilters.clear();
+    int[] order = adaptiveOrder == null ? null : adaptiveOrder.nextCell(c);
     for (int i = 0, n = filters.size(); i < n; i++) {
-      Filter filter = filters.get(i);
+      Filter filter = filters.get(order == null ? i : order[i]);
       if (filter.filterAllRemaining()) {
         return ReturnCode.NEXT_ROW;
       }
@@ -81,6 +81,8 @@ import org.apache.hadoop.hbase.client.RegionInfoBuilder;
 import org.apache.hadoop.hbase.client.RegionLoadStats;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.SlowLogQueryFilter;
+import org.apache.hadoop.hbase.client.SlowLogRecord;
 import org.apache.hadoop.hbase.client.SnapshotDescription;
 import org.apache.hadoop.hbase.client.SnapshotType;
 import org.apache.hadoop.hbase.client.TableDescriptor;
@@ -138,6 +140,7 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.GetStoreFil
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.GetStoreFileResponse;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.OpenRegionRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ServerInfo;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.SlowLogResponses;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.WarmupRegionRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.CellProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
@@ -179,6 +182,7 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.QuotaProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.RegionServerStatusProtos.RegionServerReportRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.RegionServerStatusProtos.RegionServerStartupRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.SnapshotProtos;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.TooSlowLog.SlowLogPayload;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.BulkLoadDescriptor;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.CompactionDescriptor;
@@ -3298,4 +3302,38 @@ public final class ProtobufUtil {
     }
     return Collections.emptySet();
   }
+
+  /**
+   * Convert the slow/large RPC log entries returned by a RegionServer to client side records
+   * @param slowLogResponses the response of a GetSlowLogResponses call
+   * @return the records, in the order the RegionServer returned them
+   */
+  public static List<SlowLogRecord> toSlowLogRecords(final SlowLogResponses slowLogResponses) {
+    List<SlowLogRecord> records = new ArrayList<>(slowLogResponses.getSlowLogPayloadsCount());
+    for (SlowLogPayload payload : slowLogResponses.getSlowLogPayloadsList()) {
+      records.add(toSlowLogRecord(payload));
+    }
+    return records;
+  }
+
+  private static SlowLogRecord toSlowLogRecord(final SlowLogPayload payload) {
+    return new SlowLogRecord.SlowLogRecordBuilder()
+      .setStartTime(payload.getStartTime())
+      .setProcessingTime(payload.getProcessingTime())
+      .setQueueTime(payload.getQueueTime())
+      .setResponseSize(payload.getResponseSize())
+      .setClientAddress(payload.getClientAddress())
+      .setServerClass(payload.getServerClass())
+      .setMethodName(payload.getMethodName())
+      .setCallDetails(payload.getCallDetails())
+      .setParam(payload.getParam())
+      .setRegionName(payload.getRegionName())
+      .setTableName(payload.getTableName())
+      .setUserName(payload.getUserName())
+      .setMultiGetsCount(payload.getMultiGets())
+      .setMultiMutationsCount(payload.getMultiMutations())
+      .setMultiServiceCalls(payload.getMultiServiceCalls())
+      .setType(SlowLogQueryFilter.Type.valueOf(payload.getType().name()))
+      .build();
+  }
 }
@@ -32,6 +32,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.nio.ByteBuff;
 import org.apache.hadoop.hbase.nio.SingleByteBuff;
+import org.apache.hadoop.hbase.util.UnsafeAccess;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -200,6 +201,25 @@ public class ByteBuffAllocator {
     }
   }
 
+  /**
+   * Allocate a direct ByteBuffer whose address is a multiple of the given alignment, as direct IO
+   * requires. It does not come from the pool, the caller keeps it for as long as it is needed and
+   * leaves freeing it to the JVM.
+   * @param size capacity of the returned buffer
+   * @param alignment a power of two
+   * @return an aligned direct ByteBuffer of the given capacity
+   */
+  public static ByteBuffer allocateAlignedDirect(int size, int alignment) {
+    if (size < 0 || alignment <= 0 || Integer.bitCount(alignment) != 1) {
+      throw new IllegalArgumentException("size=" + size + ", alignment=" + alignment);
+    }
+    ByteBuffer raw = ByteBuffer.allocateDirect(size + alignment - 1);
+    long address = UnsafeAccess.directBufferAddress(raw);
+    int shift = (int) (-address & (alignment - 1));
+    raw.position(shift).limit(shift + size);
+    return raw.slice();
+  }
+
   /**
    * Initialize an {@link ByteBuffAllocator} which only allocate ByteBuffer from on-heap, it's
    * designed for testing purpose or disabled reservoir case.
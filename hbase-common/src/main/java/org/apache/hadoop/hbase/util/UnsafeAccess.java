@@ -471,4 +471,13 @@ public final class UnsafeAccess {
   public static byte toByte(Object ref, long offset) {
     return theUnsafe.getByte(ref, offset);
   }
+
+  /**
+   * Returns the native address of the first byte of a direct buffer, whatever its position
+   * @param buf a direct buffer
+   * @return the address of the buffer
+   */
+  public static long directBufferAddress(ByteBuffer buf) {
+    return ((DirectBuffer) buf).address();
+  }
 }
@@ -34,6 +34,7 @@ import org.apache.hadoop.hbase.nio.MultiByteBuff;
 import org.apache.hadoop.hbase.nio.SingleByteBuff;
 import org.apache.hadoop.hbase.testclassification.RPCTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.UnsafeAccess;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -402,4 +403,21 @@ public class TestByteBuffAllocator {
     alloc1.allocate(1024);
     Assert.assertEquals(getHeapAllocationRatio(HEAP, HEAP, alloc1), 1024f / (1024f + 2048f), 1e-6);
   }
+
+  @Test
+  public void testAllocateAlignedDirect() {
+    for (int alignment : new int[] { 1, 512, 4096 }) {
+      ByteBuffer buf = ByteBuffAllocator.allocateAlignedDirect(10000, alignment);
+      assertTrue(buf.isDirect());
+      assertEquals(0, buf.position());
+      assertEquals(10000, buf.capacity());
+      assertEquals(0, UnsafeAccess.directBufferAddress(buf) % alignment);
+    }
+    try {
+      ByteBuffAllocator.allocateAlignedDirect(10000, 1000);
+      fail("The alignment must be a power of two");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
 }
@@ -173,6 +173,24 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
    */
   void updateFlushTime(long t);
 
+  /**
+   * Update the histogram of the time it took to flush the snapshot of a single store
+   * @param t time it took, in milliseconds
+   */
+  void updateFlushStoreTime(long t);
+
+  /**
+   * Update the histogram of the time it took to replay a recovered edits file on region open
+   * @param t time it took, in milliseconds
+   */
+  void updateRecoveredEditsReplayTime(long t);
+
+  /**
+   * Increment the number of recovered edits replayed into regions being opened
+   * @param edits the number of cells replayed since the last increment
+   */
+  void incrRecoveredEditsReplayed(long edits);
+
   /**
    * Update the flush memstore size histogram
    * @param bytes the number of bytes in the memstore
@@ -311,6 +329,11 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
       + "larger than throttle threshold (2.5GB by default)";
   String SMALL_COMPACTION_QUEUE_LENGTH_DESC = "Length of the queue for compactions with input size "
       + "smaller than throttle threshold (2.5GB by default)";
+  String COMPACTION_QUEUE_MAX_URGENCY = "compactionQueueMaxUrgency";
+  String COMPACTION_QUEUE_MAX_URGENCY_DESC = "Urgency of the most urgent queued compaction.";
+  String LENT_COMPACTIONS_COUNT = "lentCompactionsCount";
+  String LENT_COMPACTIONS_COUNT_DESC = "Number of compactions with input size larger than "
+      + "throttle threshold run by the small compaction threads because they were too urgent";
   String FLUSH_QUEUE_LENGTH = "flushQueueLength";
   String FLUSH_QUEUE_LENGTH_DESC = "Length of the queue for region flushes";
   String BLOCK_CACHE_FREE_SIZE = "blockCacheFreeSize";
@@ -380,6 +403,11 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String L2_CACHE_HIT_COUNT_DESC = "L2 cache hit count.";
   String L2_CACHE_MISS_COUNT = "l2CacheMissCount";
   String L2_CACHE_MISS_COUNT_DESC = "L2 cache miss count.";
+  String L2_CACHE_ADMITTED_COUNT = "l2CacheAdmittedCount";
+  String L2_CACHE_ADMITTED_COUNT_DESC = "Number of blocks admitted by the L2 cache admission filter.";
+  String L2_CACHE_REJECTED_ADMISSION_COUNT = "l2CacheRejectedAdmissionCount";
+  String L2_CACHE_REJECTED_ADMISSION_COUNT_DESC =
+      "Number of blocks rejected by the L2 cache admission filter.";
   String L2_CACHE_HIT_RATIO = "l2CacheHitRatio";
   String L2_CACHE_HIT_RATIO_DESC = "L2 cache hit ratio.";
   String L2_CACHE_MISS_RATIO = "l2CacheMissRatio";
@@ -491,6 +519,15 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
 
   String FLUSH_TIME = "flushTime";
   String FLUSH_TIME_DESC = "Histogram for the time in millis for memstore flush";
+  String FLUSH_STORE_TIME = "flushStoreTime";
+  String FLUSH_STORE_TIME_DESC =
+      "Histogram for the time in millis to flush the memstore snapshot of a single store";
+  String RECOVERED_EDITS_REPLAY_TIME = "recoveredEditsReplayTime";
+  String RECOVERED_EDITS_REPLAY_TIME_DESC =
+      "Histogram for the time in millis to replay a recovered edits file on region open";
+  String RECOVERED_EDITS_REPLAYED = "recoveredEditsReplayed";
+  String RECOVERED_EDITS_REPLAYED_DESC =
+      "The number of cells replayed from recovered edits files on region open";
   String FLUSH_MEMSTORE_SIZE = "flushMemstoreSize";
   String FLUSH_MEMSTORE_SIZE_DESC = "Histogram for number of bytes in the memstore for a flush";
   String FLUSH_OUTPUT_SIZE = "flushOutputSize";
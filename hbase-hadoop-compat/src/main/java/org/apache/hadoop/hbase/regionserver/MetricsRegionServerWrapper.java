@@ -225,6 +225,16 @@ public interface MetricsRegionServerWrapper {
 
   int getLargeCompactionQueueSize();
 
+  /**
+   * Get the urgency of the most urgent queued compaction.
+   */
+  double getCompactionQueueMaxUrgency();
+
+  /**
+   * Get the number of large compactions run by the small compaction threads.
+   */
+  long getLentCompactionsCount();
+
   /**
    * Get the size of the flush queue.
    */
@@ -322,6 +332,16 @@ public interface MetricsRegionServerWrapper {
    */
   long getL2CacheMissCount();
 
+  /**
+   * Number of blocks the L2 cache admission filter let in.
+   */
+  long getL2CacheAdmittedCount();
+
+  /**
+   * Number of blocks the L2 cache admission filter turned away.
+   */
+  long getL2CacheRejectedAdmissionCount();
+
   /**
    * Hit ratio of L2 cache.
    */
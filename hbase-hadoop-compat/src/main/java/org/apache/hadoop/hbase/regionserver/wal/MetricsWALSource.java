@@ -75,6 +75,10 @@ public interface MetricsWALSource extends BaseSource {
       "How many times a roll was requested due to file size roll threshold.";
   String WRITTEN_BYTES = "writtenBytes";
   String WRITTEN_BYTES_DESC = "Size (in bytes) of the data written to the WAL.";
+  // per WAL group gauges, named group_<group>_metric_<name>
+  String GROUP_REGION_COUNT = "regionCount";
+  String GROUP_APPENDED_BYTES = "appendedBytes";
+  String GROUP_SYNC_TIME = "syncTime";
 
   /**
    * Add the append size.
@@ -116,4 +120,9 @@ public interface MetricsWALSource extends BaseSource {
   void incrementWrittenBytes(long val);
 
   long getWrittenBytes();
+
+  /**
+   * Update the load of a WAL group, as seen over the last load window.
+   */
+  void updateGroupLoad(String group, long regionCount, long appendedBytes, long syncTime);
 }
@@ -62,6 +62,9 @@ public class MetricsRegionServerSourceImpl
 
   // flush related metrics
   private final MetricHistogram flushTimeHisto;
+  private final MetricHistogram flushStoreTimeHisto;
+  private final MetricHistogram recoveredEditsReplayTimeHisto;
+  private final MutableFastCounter recoveredEditsReplayed;
   private final MetricHistogram flushMemstoreSizeHisto;
   private final MetricHistogram flushOutputSizeHisto;
   private final MutableFastCounter flushedMemstoreBytes;
@@ -127,6 +130,12 @@ public class MetricsRegionServerSourceImpl
     scanTimeHisto = getMetricsRegistry().newTimeHistogram(SCAN_TIME_KEY);
 
     flushTimeHisto = getMetricsRegistry().newTimeHistogram(FLUSH_TIME, FLUSH_TIME_DESC);
+    flushStoreTimeHisto =
+        getMetricsRegistry().newTimeHistogram(FLUSH_STORE_TIME, FLUSH_STORE_TIME_DESC);
+    recoveredEditsReplayTimeHisto = getMetricsRegistry()
+        .newTimeHistogram(RECOVERED_EDITS_REPLAY_TIME, RECOVERED_EDITS_REPLAY_TIME_DESC);
+    recoveredEditsReplayed = getMetricsRegistry()
+        .newCounter(RECOVERED_EDITS_REPLAYED, RECOVERED_EDITS_REPLAYED_DESC, 0L);
     flushMemstoreSizeHisto = getMetricsRegistry()
         .newSizeHistogram(FLUSH_MEMSTORE_SIZE, FLUSH_MEMSTORE_SIZE_DESC);
     flushOutputSizeHisto = getMetricsRegistry().newSizeHistogram(FLUSH_OUTPUT_SIZE,
@@ -264,6 +273,21 @@ public class MetricsRegionServerSourceImpl
     flushTimeHisto.add(t);
   }
 
+  @Override
+  public void updateFlushStoreTime(long t) {
+    flushStoreTimeHisto.add(t);
+  }
+
+  @Override
+  public void updateRecoveredEditsReplayTime(long t) {
+    recoveredEditsReplayTimeHisto.add(t);
+  }
+
+  @Override
+  public void incrRecoveredEditsReplayed(long edits) {
+    recoveredEditsReplayed.incr(edits);
+  }
+
   @Override
   public void updateFlushMemStoreSize(long bytes) {
     flushMemstoreSizeHisto.add(bytes);
@@ -518,6 +542,10 @@ public class MetricsRegionServerSourceImpl
                     SMALL_COMPACTION_QUEUE_LENGTH_DESC), rsWrap.getSmallCompactionQueueSize())
             .addGauge(Interns.info(LARGE_COMPACTION_QUEUE_LENGTH,
                     LARGE_COMPACTION_QUEUE_LENGTH_DESC), rsWrap.getLargeCompactionQueueSize())
+            .addGauge(Interns.info(COMPACTION_QUEUE_MAX_URGENCY,
+                    COMPACTION_QUEUE_MAX_URGENCY_DESC), rsWrap.getCompactionQueueMaxUrgency())
+            .addCounter(Interns.info(LENT_COMPACTIONS_COUNT, LENT_COMPACTIONS_COUNT_DESC),
+                    rsWrap.getLentCompactionsCount())
             .addGauge(Interns.info(FLUSH_QUEUE_LENGTH, FLUSH_QUEUE_LENGTH_DESC),
                     rsWrap.getFlushQueueSize())
             .addGauge(Interns.info(BLOCK_CACHE_FREE_SIZE, BLOCK_CACHE_FREE_DESC),
@@ -542,6 +570,11 @@ public class MetricsRegionServerSourceImpl
                     rsWrap.getL2CacheHitCount())
             .addGauge(Interns.info(L2_CACHE_MISS_COUNT, L2_CACHE_MISS_COUNT_DESC),
                     rsWrap.getL2CacheMissCount())
+            .addGauge(Interns.info(L2_CACHE_ADMITTED_COUNT, L2_CACHE_ADMITTED_COUNT_DESC),
+                    rsWrap.getL2CacheAdmittedCount())
+            .addGauge(Interns.info(L2_CACHE_REJECTED_ADMISSION_COUNT,
+                    L2_CACHE_REJECTED_ADMISSION_COUNT_DESC),
+                    rsWrap.getL2CacheRejectedAdmissionCount())
             .addGauge(Interns.info(L2_CACHE_HIT_RATIO, L2_CACHE_HIT_RATIO_DESC),
                     rsWrap.getL2CacheHitRatio())
             .addGauge(Interns.info(L2_CACHE_MISS_RATIO, L2_CACHE_MISS_RATIO_DESC),
@@ -139,4 +139,13 @@ public class MetricsWALSourceImpl extends BaseSourceImpl implements MetricsWALSo
     return writtenBytes.value();
   }
 
+  @Override
+  public void updateGroupLoad(String group, long regionCount, long appendedBytes,
+      long syncTime) {
+    String prefix = "group_" + group + "_metric_";
+    getMetricsRegistry().getGauge(prefix + GROUP_REGION_COUNT, 0L).set(regionCount);
+    getMetricsRegistry().getGauge(prefix + GROUP_APPENDED_BYTES, 0L).set(appendedBytes);
+    getMetricsRegistry().getGauge(prefix + GROUP_SYNC_TIME, 0L).set(syncTime);
+  }
+
 }
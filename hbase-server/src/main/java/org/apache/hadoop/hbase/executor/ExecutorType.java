@@ -50,7 +50,11 @@ public enum ExecutorType {
   RS_REFRESH_PEER(31),
   RS_REPLAY_SYNC_REPLICATION_WAL(32),
   RS_SWITCH_RPC_THROTTLE(33),
-  RS_IN_MEMORY_COMPACTION(34);
+  RS_IN_MEMORY_COMPACTION(34),
+  RS_FLUSH_STORES(35),
+  RS_COMPACTION_RANGES(36),
+  RS_BLOCK_COMPRESSION(37),
+  RS_BLOCK_READ_AHEAD(38);
 
   ExecutorType(int value) {
   }
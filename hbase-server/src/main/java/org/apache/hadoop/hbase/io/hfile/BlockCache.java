@@ -43,6 +43,18 @@ public interface BlockCache extends Iterable<CachedBlock> {
    */
   void cacheBlock(BlockCacheKey cacheKey, Cacheable buf);
 
+  /**
+   * Add a block that is cached ahead of any read of it, as done by cache-on-write and by prefetch
+   * on open. A cache filtering what it admits by how often blocks were requested must admit such a
+   * block regardless, since nobody could have asked for it yet.
+   * @param cacheKey The block's cache key.
+   * @param buf The block contents wrapped in a ByteBuffer.
+   * @param inMemory Whether block should be treated as in-memory
+   */
+  default void cacheBlockAhead(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+    cacheBlock(cacheKey, buf, inMemory);
+  }
+
   /**
    * Fetch block from cache.
    * @param cacheKey Block to fetch.
@@ -43,7 +43,7 @@ public final class BlockCacheFactory {
    */
 
   /**
-   * Configuration key to cache block policy (Lru, TinyLfu).
+   * Configuration key to cache block policy (Lru, TinyLfu, Clock).
    */
   public static final String BLOCKCACHE_POLICY_KEY = "hfile.block.cache.policy";
   public static final String BLOCKCACHE_POLICY_DEFAULT = "LRU";
@@ -145,6 +145,8 @@ public final class BlockCacheFactory {
       return new LruBlockCache(cacheSize, blockSize, true, c);
     } else if (policy.equalsIgnoreCase("TinyLFU")) {
       return new TinyLfuBlockCache(cacheSize, blockSize, ForkJoinPool.commonPool(), c);
+    } else if (policy.equalsIgnoreCase("Clock")) {
+      return new ClockBlockCache(cacheSize, blockSize, c);
     } else {
       throw new IllegalArgumentException("Unknown policy: " + policy);
     }
@@ -0,0 +1,263 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Read-ahead of the blocks following the current one of a scanner going through an HFile block
+ * after block. Once the scanner moved to the next block {@value #SEQUENTIAL_MOVES} times in a
+ * row, the blocks after the one it moved to are read on the {@link Pool} of the region server,
+ * each read being chained to the previous one which tells where the next block starts. The
+ * scanner then takes them in order instead of reading them itself.
+ * <p>
+ * The number of blocks read ahead starts at one. It doubles each time the scanner has to wait for
+ * a block still being read, up to {@value #READ_AHEAD_MAX_BLOCKS_KEY}, and goes down by one after
+ * as many blocks as read ahead were all found ready, so that it follows how fast the scanner
+ * consumes them. No more blocks are read ahead while the ones of all the scanners reach
+ * {@value #READ_AHEAD_MAX_SIZE_KEY}. The blocks read ahead are dropped when the scanner is
+ * repositioned.
+ */
+@InterfaceAudience.Private
+public class BlockReadAhead {
+
+  /**
+   * Number of threads of a region server reading ahead for all its scanners; 0, the default,
+   * disables read-ahead.
+   */
+  public static final String READ_AHEAD_THREADS_KEY = "hbase.hfile.readahead.threads";
+  public static final int DEFAULT_READ_AHEAD_THREADS = 0;
+
+  /** Maximum number of blocks a single scanner reads ahead. */
+  public static final String READ_AHEAD_MAX_BLOCKS_KEY = "hbase.hfile.readahead.max.blocks";
+  public static final int DEFAULT_READ_AHEAD_MAX_BLOCKS = 8;
+
+  /** Maximum size of the blocks read ahead and not taken yet by all the scanners of a server. */
+  public static final String READ_AHEAD_MAX_SIZE_KEY = "hbase.hfile.readahead.max.size";
+  public static final long DEFAULT_READ_AHEAD_MAX_SIZE = 64L * 1024 * 1024;
+
+  /** Number of moves to the next block in a row after which a scanner reads ahead. */
+  static final int SEQUENTIAL_MOVES = 2;
+
+  /** Where the blocks are read from. */
+  interface BlockSource {
+    /**
+     * @return the block following the given one, or null if there are no more data blocks
+     */
+    HFileBlock readNext(HFileBlock block) throws IOException;
+  }
+
+  /**
+   * What the scanners of a region server share to read ahead: the threads, and the memory the
+   * blocks read ahead may hold before their scanners take them.
+   */
+  public static final class Pool {
+    private final ExecutorService executor;
+    private final int maxBlocks;
+    private final long maxBytes;
+    /** Size reserved by the reads in flight and the blocks read but not taken yet. */
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    public Pool(ExecutorService executor, int maxBlocks, long maxBytes) {
+      this.executor = executor;
+      this.maxBlocks = maxBlocks;
+      this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return a pool reading ahead on the executor within the limits of the configuration, or null
+     *         if the configuration disables read-ahead
+     */
+    public static Pool create(ExecutorService executor, Configuration conf) {
+      int maxBlocks = conf.getInt(READ_AHEAD_MAX_BLOCKS_KEY, DEFAULT_READ_AHEAD_MAX_BLOCKS);
+      long maxBytes = conf.getLong(READ_AHEAD_MAX_SIZE_KEY, DEFAULT_READ_AHEAD_MAX_SIZE);
+      return maxBlocks > 0 && maxBytes > 0 ? new Pool(executor, maxBlocks, maxBytes) : null;
+    }
+
+    /**
+     * @return whether the size could be reserved without going over the maximum
+     */
+    boolean reserve(long size) {
+      long reserved;
+      do {
+        reserved = reservedBytes.get();
+        if (reserved + size > maxBytes) {
+          return false;
+        }
+      } while (!reservedBytes.compareAndSet(reserved, reserved + size));
+      return true;
+    }
+
+    void release(long size) {
+      reservedBytes.addAndGet(-size);
+    }
+
+    @VisibleForTesting
+    long getReservedBytes() {
+      return reservedBytes.get();
+    }
+  }
+
+  /** A read in flight, with the size it reserved in the pool. */
+  private static final class Read {
+    final CompletableFuture<HFileBlock> future;
+    final long size;
+
+    Read(CompletableFuture<HFileBlock> future, long size) {
+      this.future = future;
+      this.size = size;
+    }
+  }
+
+  private final Pool pool;
+  private final BlockSource source;
+  /** Reads of the blocks following the last one taken, in file order. */
+  private final Deque<Read> inFlight = new ArrayDeque<>();
+  /** Bumped when the reads in flight are dropped, so that the ones chained to them stop. */
+  private final AtomicInteger generation = new AtomicInteger();
+  private int window = 1;
+  private int readyInARow;
+  private int sequentialMoves;
+  /** The offset of the data block the scanner last moved to. */
+  private long lastOffset = -1;
+  private long takenCount;
+
+  BlockReadAhead(Pool pool, BlockSource source) {
+    this.pool = pool;
+    this.source = source;
+  }
+
+  /**
+   * Called when the scanner is about to move from the given block to the next one.
+   */
+  void moving(HFileBlock from) {
+    if (from.getOffset() == lastOffset) {
+      sequentialMoves++;
+    } else {
+      // Repositioned since the last move
+      discard();
+      sequentialMoves = 1;
+    }
+  }
+
+  /**
+   * @return the block at the offset if it was read ahead, or null for the scanner to read it
+   */
+  HFileBlock take(long offset) {
+    Read head = inFlight.poll();
+    if (head == null) {
+      return null;
+    }
+    boolean ready = head.future.isDone();
+    HFileBlock block;
+    try {
+      block = head.future.join();
+    } catch (CompletionException | CancellationException e) {
+      // The scanner reads the block again and gets the error if it persists
+      block = null;
+    }
+    // From now on the block is the scanner's, or released
+    pool.release(head.size);
+    if (block == null || block.getOffset() != offset) {
+      if (block != null) {
+        block.release();
+      }
+      discard();
+      return null;
+    }
+    if (!ready) {
+      window = Math.min(window * 2, pool.maxBlocks);
+      readyInARow = 0;
+    } else if (++readyInARow >= window && window > 1) {
+      window--;
+      readyInARow = 0;
+    }
+    takenCount++;
+    return block;
+  }
+
+  /**
+   * Called with the data block the scanner moved to. Reads ahead the blocks after it if the
+   * scanner is going through the file sequentially, as long as the pool has room for blocks of
+   * the same size.
+   */
+  void moved(HFileBlock block) {
+    lastOffset = block.getOffset();
+    if (sequentialMoves < SEQUENTIAL_MOVES) {
+      return;
+    }
+    int gen = generation.get();
+    long size = block.heapSize();
+    while (inFlight.size() < window && pool.reserve(size)) {
+      Read last = inFlight.peekLast();
+      inFlight.add(new Read(last == null
+          ? CompletableFuture.supplyAsync(() -> readNext(block, gen), pool.executor)
+          : last.future.thenApplyAsync(prev -> readNext(prev, gen), pool.executor), size));
+    }
+  }
+
+  private HFileBlock readNext(HFileBlock block, int gen) {
+    if (block == null || generation.get() != gen) {
+      return null;
+    }
+    try {
+      return source.readNext(block);
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * Drops the blocks read ahead, releasing them once read.
+   */
+  void discard() {
+    generation.incrementAndGet();
+    Read read;
+    while ((read = inFlight.poll()) != null) {
+      long size = read.size;
+      read.future.whenComplete((block, e) -> {
+        if (block != null) {
+          block.release();
+        }
+        pool.release(size);
+      });
+    }
+  }
+
+  @VisibleForTesting
+  int getWindow() {
+    return window;
+  }
+
+  @VisibleForTesting
+  long getTakenCount() {
+    return takenCount;
+  }
+}
@@ -131,6 +131,9 @@ public class CacheConfig {
 
   private final ByteBuffAllocator byteBuffAllocator;
 
+  // Read-ahead shared by the scanners of the region server, null if they do not read ahead
+  private final BlockReadAhead.Pool blockReadAheadPool;
+
   /**
    * Create a cache configuration using the specified configuration object and
    * defaults for family level settings. Only use if no column family context.
@@ -152,6 +155,18 @@ public class CacheConfig {
    */
   public CacheConfig(Configuration conf, ColumnFamilyDescriptor family, BlockCache blockCache,
       ByteBuffAllocator byteBuffAllocator) {
+    this(conf, family, blockCache, byteBuffAllocator, null);
+  }
+
+  /**
+   * Create a cache configuration using the specified configuration object and
+   * family descriptor.
+   * @param conf hbase configuration
+   * @param family column family configuration
+   * @param blockReadAheadPool read-ahead of the scanners, or null if they do not read ahead
+   */
+  public CacheConfig(Configuration conf, ColumnFamilyDescriptor family, BlockCache blockCache,
+      ByteBuffAllocator byteBuffAllocator, BlockReadAhead.Pool blockReadAheadPool) {
     this.cacheDataOnRead = conf.getBoolean(CACHE_DATA_ON_READ_KEY, DEFAULT_CACHE_DATA_ON_READ) &&
         (family == null ? true : family.isBlockCacheEnabled());
     this.inMemory = family == null ? DEFAULT_IN_MEMORY : family.isInMemory();
@@ -176,6 +191,7 @@ public class CacheConfig {
         (family == null ? false : family.isPrefetchBlocksOnOpen());
     this.blockCache = blockCache;
     this.byteBuffAllocator = byteBuffAllocator;
+    this.blockReadAheadPool = blockReadAheadPool;
     LOG.info("Created cacheConfig: " + this + (family == null ? "" : " for family " + family) +
         " with blockCache=" + blockCache);
   }
@@ -196,6 +212,7 @@ public class CacheConfig {
     this.dropBehindCompaction = cacheConf.dropBehindCompaction;
     this.blockCache = cacheConf.blockCache;
     this.byteBuffAllocator = cacheConf.byteBuffAllocator;
+    this.blockReadAheadPool = cacheConf.blockReadAheadPool;
   }
 
   private CacheConfig() {
@@ -210,6 +227,7 @@ public class CacheConfig {
     this.dropBehindCompaction = false;
     this.blockCache = null;
     this.byteBuffAllocator = ByteBuffAllocator.HEAP;
+    this.blockReadAheadPool = null;
   }
 
   /**
@@ -375,6 +393,10 @@ public class CacheConfig {
     return this.byteBuffAllocator;
   }
 
+  public Optional<BlockReadAhead.Pool> getBlockReadAheadPool() {
+    return Optional.ofNullable(this.blockReadAheadPool);
+  }
+
   @Override
   public String toString() {
     return "cacheDataOnRead=" + shouldCacheDataOnRead() + ", cacheDataOnWrite="
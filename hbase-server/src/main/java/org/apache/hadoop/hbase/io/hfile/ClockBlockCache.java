@@ -0,0 +1,674 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.apache.hadoop.util.StringUtils;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.hbase.thirdparty.com.google.common.base.MoreObjects;
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A lock-striped, heap-size aware block cache using CLOCK eviction.
+ * <p>
+ * Blocks are looked up through a single {@link ConcurrentHashMap}, but the eviction bookkeeping
+ * is split into a power of two number of segments, chosen by the hash of the block key. Every
+ * segment owns a fixed share of the cache capacity, a lock, and a ring of slots that a clock
+ * hand sweeps over. A read only bumps a small saturating frequency counter on the entry and never
+ * takes a lock. When an insert pushes a segment over its share, the inserting thread sweeps that
+ * segment's hand: entries with a non zero frequency are given a second chance and have their
+ * counter decremented, the others are evicted. This keeps the cost of eviction proportional to
+ * the number of blocks evicted, bounded by one segment, and free of any per pass allocation, in
+ * contrast to {@link LruBlockCache} which walks the whole map and sorts the candidates.
+ * <p>
+ * New blocks start with a zero frequency so blocks which are read only once (e.g. by a scan)
+ * are the first ones to go, much like the probationary queue of S3-FIFO. In-memory blocks start
+ * with the maximum frequency and so survive a few more sweeps.
+ * <p>
+ * Like {@link LruBlockCache}, blocks are always cached on heap and blocks evicted because of a
+ * lack of space are handed to the victim cache, if one is set.
+ */
+@InterfaceAudience.Private
+public class ClockBlockCache implements FirstLevelBlockCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClockBlockCache.class);
+
+  /**
+   * Number of segments, and so of eviction locks, the cache is split into. Rounded up to a power
+   * of two and reduced for small caches so that every segment holds a reasonable number of blocks.
+   */
+  static final String CLOCK_SEGMENTS_CONFIG_NAME = "hbase.clock.blockcache.segments";
+  static final int DEFAULT_CLOCK_SEGMENTS = 16;
+
+  /**
+   * Fraction of its share a segment is brought down to once it overflows, so that eviction
+   * happens in small batches rather than on every insert.
+   */
+  static final String CLOCK_MIN_FACTOR_CONFIG_NAME = "hbase.clock.blockcache.min.factor";
+  static final float DEFAULT_CLOCK_MIN_FACTOR = 0.95f;
+
+  private static final String CLOCK_MAX_BLOCK_SIZE = "hbase.clock.max.block.size";
+  private static final long DEFAULT_MAX_BLOCK_SIZE = 16L * 1024L * 1024L;
+
+  /** Each segment should be able to hold at least this many blocks of the configured size */
+  private static final int MIN_BLOCKS_PER_SEGMENT = 16;
+
+  /** Number of sweeps a block that keeps being read survives without being read again */
+  static final int MAX_FREQUENCY = 3;
+
+  private static final int STAT_THREAD_PERIOD_SECONDS = 5 * 60;
+
+  private final ConcurrentHashMap<BlockCacheKey, ClockEntry> map;
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final float minFactor;
+  private final long maxBlockSize;
+  private final CacheStats stats;
+  private final LongAdder dataBlockSize = new LongAdder();
+  private final LongAdder dataBlockElements = new LongAdder();
+  private final ScheduledExecutorService statsThreadPool;
+
+  private volatile long maxSize;
+  private volatile long segmentMaxSize;
+
+  private BlockCache victimHandler;
+
+  /**
+   * Creates a block cache.
+   * @param maxSize maximum size of this cache, in bytes
+   * @param blockSize expected average size of blocks, in bytes
+   * @param conf additional configuration
+   */
+  public ClockBlockCache(long maxSize, long blockSize, Configuration conf) {
+    this(maxSize, blockSize, conf.getInt(CLOCK_SEGMENTS_CONFIG_NAME, DEFAULT_CLOCK_SEGMENTS),
+        conf.getFloat(CLOCK_MIN_FACTOR_CONFIG_NAME, DEFAULT_CLOCK_MIN_FACTOR),
+        conf.getLong(CLOCK_MAX_BLOCK_SIZE, DEFAULT_MAX_BLOCK_SIZE));
+  }
+
+  /**
+   * Creates a block cache.
+   * @param maxSize maximum size of this cache, in bytes
+   * @param blockSize expected average size of blocks, in bytes
+   * @param segmentCount requested number of segments
+   * @param minFactor fraction of its share an overflowing segment is evicted down to
+   * @param maxBlockSize maximum size of a block, in bytes
+   */
+  public ClockBlockCache(long maxSize, long blockSize, int segmentCount, float minFactor,
+      long maxBlockSize) {
+    if (minFactor <= 0 || minFactor > 1) {
+      throw new IllegalArgumentException("min factor must be in (0, 1], was " + minFactor);
+    }
+    int count = 1;
+    while (count < segmentCount) {
+      count <<= 1;
+    }
+    while (count > 1 && maxSize / count < MIN_BLOCKS_PER_SEGMENT * blockSize) {
+      count >>= 1;
+    }
+    int initialSlots = (int) Math.min(1 << 20,
+        Math.max(MIN_BLOCKS_PER_SEGMENT, (long) Math.ceil(1.2 * maxSize / blockSize / count)));
+    this.segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new Segment(initialSlots);
+    }
+    this.segmentMask = count - 1;
+    this.map = new ConcurrentHashMap<>(count * initialSlots, 0.75f, count);
+    this.minFactor = minFactor;
+    this.maxBlockSize = maxBlockSize;
+    this.maxSize = maxSize;
+    this.segmentMaxSize = maxSize / count;
+    this.stats = new CacheStats(getClass().getSimpleName());
+    this.statsThreadPool = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("ClockBlockCacheStatsExecutor").setDaemon(true).build());
+    this.statsThreadPool.scheduleAtFixedRate(this::logStats, STAT_THREAD_PERIOD_SECONDS,
+        STAT_THREAD_PERIOD_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public void setVictimCache(BlockCache victimCache) {
+    if (victimHandler != null) {
+      throw new IllegalArgumentException("The victim cache has already been set");
+    }
+    victimHandler = requireNonNull(victimCache);
+  }
+
+  @Override
+  public void setMaxSize(long maxSize) {
+    this.maxSize = maxSize;
+    this.segmentMaxSize = maxSize / segments.length;
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        segment.evictIfNeeded();
+      } finally {
+        segment.unlockAndHandOverVictims();
+      }
+    }
+  }
+
+  private Segment segmentFor(BlockCacheKey cacheKey) {
+    int h = cacheKey.hashCode();
+    // Spread the higher bits as the low bits of the offset are mostly zero
+    return segments[(h ^ (h >>> 16)) & segmentMask];
+  }
+
+  /**
+   * Blocks are always kept on heap, see the comment of the same method in {@link LruBlockCache}.
+   */
+  private Cacheable asReferencedHeapBlock(Cacheable buf) {
+    if (buf instanceof HFileBlock) {
+      HFileBlock blk = ((HFileBlock) buf);
+      if (blk.isSharedMem()) {
+        return HFileBlock.deepCloneOnHeap(blk);
+      }
+    }
+    // The block will be referenced by this cache, so should increase its refCnt here.
+    return buf.retain();
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+    if (buf.heapSize() > maxBlockSize) {
+      // Log 2% of the failures so that a lot of too big blocks do not flood the logs
+      if (stats.failInsert() % 50 == 0) {
+        LOG.warn("Trying to cache too large a block " + cacheKey.getHfileName() + " @ "
+            + cacheKey.getOffset() + " is " + buf.heapSize() + " which is larger than "
+            + maxBlockSize);
+      }
+      return;
+    }
+    if (map.containsKey(cacheKey)
+        && !BlockCacheUtil.shouldReplaceExistingCacheBlock(this, cacheKey, buf)) {
+      return;
+    }
+    Segment segment = segmentFor(cacheKey);
+    segment.lock.lock();
+    try {
+      ClockEntry entry = new ClockEntry(cacheKey, asReferencedHeapBlock(buf), inMemory);
+      if (entry.heapSize() > segmentMaxSize) {
+        // Would not fit even in an empty segment, keep what is cached already
+        stats.failInsert();
+        entry.buf.release();
+        return;
+      }
+      ClockEntry previous = map.get(cacheKey);
+      if (previous != null) {
+        segment.evict(previous, false);
+      }
+      map.put(cacheKey, entry);
+      segment.add(entry);
+      segment.evictIfNeeded();
+    } finally {
+      segment.unlockAndHandOverVictims();
+    }
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf) {
+    cacheBlock(cacheKey, buf, false);
+  }
+
+  @Override
+  public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching, boolean repeat,
+      boolean updateCacheMetrics) {
+    ClockEntry entry = map.computeIfPresent(cacheKey, (key, val) -> {
+      // Retain inside the compute so that a concurrent eviction can not release the block
+      // in between, see LruBlockCache#getBlock.
+      val.buf.retain();
+      return val;
+    });
+    if (entry == null) {
+      if (!repeat && updateCacheMetrics) {
+        stats.miss(caching, cacheKey.isPrimary(), cacheKey.getBlockType());
+      }
+      if (victimHandler != null && !repeat) {
+        // The handler will increase result's refCnt for RPC, so need no extra retain.
+        Cacheable result = victimHandler.getBlock(cacheKey, caching, repeat, updateCacheMetrics);
+        if (result != null && caching) {
+          cacheBlock(cacheKey, result, /* inMemory = */ false);
+        }
+        return result;
+      }
+      return null;
+    }
+    if (updateCacheMetrics) {
+      stats.hit(caching, cacheKey.isPrimary(), cacheKey.getBlockType());
+    }
+    entry.access();
+    return entry.buf;
+  }
+
+  @Override
+  public boolean containsBlock(BlockCacheKey cacheKey) {
+    return map.containsKey(cacheKey);
+  }
+
+  @Override
+  public boolean evictBlock(BlockCacheKey cacheKey) {
+    Segment segment = segmentFor(cacheKey);
+    segment.lock.lock();
+    try {
+      ClockEntry entry = map.get(cacheKey);
+      return entry != null && segment.evict(entry, false);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public int evictBlocksByHfileName(String hfileName) {
+    int numEvicted = 0;
+    for (BlockCacheKey key : map.keySet()) {
+      if (key.getHfileName().equals(hfileName) && evictBlock(key)) {
+        numEvicted++;
+      }
+    }
+    if (victimHandler != null) {
+      numEvicted += victimHandler.evictBlocksByHfileName(hfileName);
+    }
+    return numEvicted;
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return stats;
+  }
+
+  @Override
+  public void shutdown() {
+    if (victimHandler != null) {
+      victimHandler.shutdown();
+    }
+    statsThreadPool.shutdown();
+  }
+
+  @Override
+  public long size() {
+    return maxSize;
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public long getFreeSize() {
+    return maxSize - getCurrentSize();
+  }
+
+  @Override
+  public long getCurrentSize() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  @Override
+  public long getCurrentDataSize() {
+    return dataBlockSize.sum();
+  }
+
+  @Override
+  public long getBlockCount() {
+    long count = 0;
+    for (Segment segment : segments) {
+      count += segment.count;
+    }
+    return count;
+  }
+
+  @Override
+  public long getDataBlockCount() {
+    return dataBlockElements.sum();
+  }
+
+  @Override
+  public long heapSize() {
+    return getCurrentSize();
+  }
+
+  @Override
+  public Iterator<CachedBlock> iterator() {
+    return Collections.<CachedBlock> unmodifiableCollection(map.values()).iterator();
+  }
+
+  @Override
+  public BlockCache[] getBlockCaches() {
+    if (victimHandler != null) {
+      return new BlockCache[] { this, this.victimHandler };
+    }
+    return null;
+  }
+
+  @VisibleForTesting
+  int getSegmentCount() {
+    return segments.length;
+  }
+
+  @VisibleForTesting
+  ClockEntry getEntryForTests(BlockCacheKey cacheKey) {
+    return map.get(cacheKey);
+  }
+
+  private void logStats() {
+    LOG.info("totalSize=" + StringUtils.byteDesc(getCurrentSize()) + ", " +
+        "freeSize=" + StringUtils.byteDesc(getFreeSize()) + ", " +
+        "max=" + StringUtils.byteDesc(maxSize) + ", " +
+        "blockCount=" + getBlockCount() + ", " +
+        "segments=" + segments.length + ", " +
+        "accesses=" + stats.getRequestCount() + ", " +
+        "hits=" + stats.getHitCount() + ", " +
+        "hitRatio=" + (stats.getHitCount() == 0 ?
+          "0," : StringUtils.formatPercent(stats.getHitRatio(), 2) + ", ") +
+        "cachingAccesses=" + stats.getRequestCachingCount() + ", " +
+        "cachingHits=" + stats.getHitCachingCount() + ", " +
+        "cachingHitsRatio=" + (stats.getHitCachingCount() == 0 ?
+          "0,": (StringUtils.formatPercent(stats.getHitCachingRatio(), 2) + ", ")) +
+        "evictions=" + stats.getEvictionCount() + ", " +
+        "evicted=" + stats.getEvictedCount());
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+      .add("blockCount", getBlockCount())
+      .add("currentSize", getCurrentSize())
+      .add("freeSize", getFreeSize())
+      .add("maxSize", getMaxSize())
+      .add("segments", segments.length)
+      .add("victimCache", (victimHandler != null))
+      .toString();
+  }
+
+  /**
+   * The eviction state of a share of the cache. All the fields but the sizes are only accessed
+   * while holding the lock. The ring and the free slot stack are only reallocated when the segment
+   * holds more blocks than ever before, never while sweeping.
+   */
+  private final class Segment {
+    private final ReentrantLock lock = new ReentrantLock();
+    private ClockEntry[] ring;
+    private int[] freeSlots;
+    private int freeCount;
+    /** Number of slots of the ring ever handed out, the hand only sweeps over these */
+    private int used;
+    private int hand;
+    private volatile long size;
+    private volatile int count;
+    /** Evicted for space and not yet handed to the victim cache */
+    private List<ClockEntry> victims = new ArrayList<>();
+    /** The other victim list, swapped in while this one is handed over; null while in use */
+    private final AtomicReference<List<ClockEntry>> spareVictims =
+        new AtomicReference<>(new ArrayList<>());
+
+    Segment(int initialSlots) {
+      this.ring = new ClockEntry[initialSlots];
+      this.freeSlots = new int[initialSlots];
+    }
+
+    void add(ClockEntry entry) {
+      int slot;
+      if (freeCount > 0) {
+        slot = freeSlots[--freeCount];
+      } else {
+        if (used == ring.length) {
+          ring = Arrays.copyOf(ring, ring.length << 1);
+          freeSlots = Arrays.copyOf(freeSlots, ring.length);
+        }
+        slot = used++;
+      }
+      ring[slot] = entry;
+      entry.slot = slot;
+      size += entry.heapSize();
+      count++;
+      if (entry.buf.getBlockType().isData()) {
+        dataBlockSize.add(entry.heapSize());
+        dataBlockElements.increment();
+      }
+    }
+
+    /**
+     * Removes the entry from the map and from this segment, releasing the cache's reference to the
+     * block.
+     * @param evictedByEvictionProcess true if evicted for space, in which case the block is
+     *          counted as evicted and handed to the victim cache
+     * @return false if the entry was not cached anymore
+     */
+    boolean evict(ClockEntry entry, boolean evictedByEvictionProcess) {
+      if (!map.remove(entry.cacheKey, entry)) {
+        return false;
+      }
+      ring[entry.slot] = null;
+      freeSlots[freeCount++] = entry.slot;
+      size -= entry.heapSize();
+      count--;
+      if (entry.buf.getBlockType().isData()) {
+        dataBlockSize.add(-entry.heapSize());
+        dataBlockElements.decrement();
+      }
+      if (evictedByEvictionProcess) {
+        stats.evicted(entry.cachedTime, entry.cacheKey.isPrimary());
+        if (victimHandler != null) {
+          // Still referenced until handed over, see unlockAndHandOverVictims
+          victims.add(entry);
+          return true;
+        }
+      }
+      entry.buf.release();
+      return true;
+    }
+
+    /**
+     * Releases the lock, then hands the blocks evicted for space to the victim cache, so that
+     * caching them there never holds up the other users of this segment.
+     */
+    void unlockAndHandOverVictims() {
+      List<ClockEntry> handOver = null;
+      if (!victims.isEmpty()) {
+        handOver = victims;
+        List<ClockEntry> spare = spareVictims.getAndSet(null);
+        // Only allocates while another thread is still handing over the spare list
+        victims = spare != null ? spare : new ArrayList<>();
+      }
+      lock.unlock();
+      if (handOver == null) {
+        return;
+      }
+      try {
+        for (int i = 0; i < handOver.size(); i++) {
+          ClockEntry entry = handOver.get(i);
+          try {
+            victimHandler.cacheBlock(entry.cacheKey, entry.buf);
+          } finally {
+            // Release last so that the victim handler never sees a block with refCnt = 0
+            entry.buf.release();
+          }
+        }
+      } finally {
+        handOver.clear();
+        spareVictims.set(handOver);
+      }
+    }
+
+    /**
+     * Sweeps the clock hand until the segment is back under its share of the capacity. Every entry
+     * is passed over at most {@link ClockBlockCache#MAX_FREQUENCY} times before being evicted, so
+     * the sweep is linear in the number of blocks it frees.
+     */
+    void evictIfNeeded() {
+      long limit = segmentMaxSize;
+      if (size <= limit) {
+        return;
+      }
+      stats.evict();
+      long target = (long) (limit * minFactor);
+      while (size > target && count > 0) {
+        if (hand >= used) {
+          hand = 0;
+        }
+        ClockEntry entry = ring[hand++];
+        if (entry == null) {
+          continue;
+        }
+        if (entry.frequency > 0) {
+          entry.frequency--;
+        } else {
+          evict(entry, true);
+        }
+      }
+    }
+  }
+
+  /**
+   * A cached block along with its eviction state.
+   */
+  @VisibleForTesting
+  static final class ClockEntry implements CachedBlock {
+
+    static final long PER_BLOCK_OVERHEAD = ClassSize.align(ClassSize.OBJECT +
+        (2 * ClassSize.REFERENCE) + Bytes.SIZEOF_LONG + (2 * Bytes.SIZEOF_INT) +
+        Bytes.SIZEOF_BOOLEAN) + ClassSize.CONCURRENT_HASHMAP_ENTRY;
+
+    private final BlockCacheKey cacheKey;
+    private final Cacheable buf;
+    private final long cachedTime = System.nanoTime();
+    private final long size;
+    private final boolean inMemory;
+    /**
+     * Saturating access counter. Updated without synchronization by readers; a lost update only
+     * costs the block one sweep, which is fine for an eviction hint.
+     */
+    private int frequency;
+    /** Position in the ring of the owning segment, guarded by the segment lock */
+    private int slot;
+
+    ClockEntry(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+      this.cacheKey = cacheKey;
+      this.buf = buf;
+      this.inMemory = inMemory;
+      this.frequency = inMemory ? MAX_FREQUENCY : 0;
+      this.size = ClassSize.align(cacheKey.heapSize()) + ClassSize.align(buf.heapSize())
+          + PER_BLOCK_OVERHEAD;
+    }
+
+    void access() {
+      if (frequency < MAX_FREQUENCY) {
+        frequency++;
+      }
+    }
+
+    int getFrequency() {
+      return frequency;
+    }
+
+    long heapSize() {
+      return size;
+    }
+
+    @Override
+    public BlockPriority getBlockPriority() {
+      if (inMemory) {
+        return BlockPriority.MEMORY;
+      }
+      return frequency > 0 ? BlockPriority.MULTI : BlockPriority.SINGLE;
+    }
+
+    @Override
+    public BlockType getBlockType() {
+      return buf.getBlockType();
+    }
+
+    @Override
+    public long getOffset() {
+      return cacheKey.getOffset();
+    }
+
+    @Override
+    public long getSize() {
+      return buf.heapSize();
+    }
+
+    @Override
+    public long getCachedTime() {
+      return cachedTime;
+    }
+
+    @Override
+    public String getFilename() {
+      return cacheKey.getHfileName();
+    }
+
+    @Override
+    public int compareTo(CachedBlock other) {
+      int diff = getFilename().compareTo(other.getFilename());
+      if (diff != 0) {
+        return diff;
+      }
+      diff = Long.compare(getOffset(), other.getOffset());
+      if (diff != 0) {
+        return diff;
+      }
+      return Long.compare(getCachedTime(), other.getCachedTime());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof CachedBlock)) {
+        return false;
+      }
+      return compareTo((CachedBlock) obj) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return cacheKey.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return BlockCacheUtil.toString(this, System.nanoTime());
+    }
+  }
+}
@@ -74,6 +74,16 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
     cacheBlock(cacheKey, buf, false);
   }
 
+  @Override
+  public void cacheBlockAhead(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+    boolean metaBlock = buf.getBlockType().getCategory() != BlockCategory.DATA;
+    if (metaBlock) {
+      l1Cache.cacheBlockAhead(cacheKey, buf, inMemory);
+    } else {
+      l2Cache.cacheBlockAhead(cacheKey, buf, inMemory);
+    }
+  }
+
   @Override
   public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching,
       boolean repeat, boolean updateCacheMetrics) {
@@ -21,6 +21,7 @@ package org.apache.hadoop.hbase.io.hfile;
 
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.util.BloomFilterBase;
+import org.apache.hadoop.hbase.util.BloomFilterFormat;
 
 import org.apache.hadoop.hbase.CellComparator;
 
@@ -40,6 +41,15 @@ public class CompoundBloomFilterBase implements BloomFilterBase {
    */
   public static final int VERSION = 3;
 
+  /**
+   * The version of Bloom filters whose chunks are not in the {@link BloomFilterFormat#CLASSIC}
+   * format. The metadata of version 3 follows the id of the format.
+   */
+  public static final int VERSION_WITH_FORMAT = 4;
+
+  /** The format of the chunks */
+  protected BloomFilterFormat format = BloomFilterFormat.CLASSIC;
+
   /** Target error rate for configuring the filter and for information */
   protected float errorRate;
 
@@ -53,6 +63,10 @@ public class CompoundBloomFilterBase implements BloomFilterBase {
   /** Comparator used to compare Bloom filter keys */
   protected CellComparator comparator;
 
+  public BloomFilterFormat getFormat() {
+    return format;
+  }
+
   @Override
   public long getMaxKeys() {
     return totalMaxKeys;
@@ -33,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.hbase.regionserver.BloomType;
 import org.apache.hadoop.hbase.util.BloomFilterChunk;
+import org.apache.hadoop.hbase.util.BloomFilterFormat;
 import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.BloomFilterWriter;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -100,6 +101,28 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
   public CompoundBloomFilterWriter(int chunkByteSizeHint, float errorRate,
       int hashType, int maxFold, boolean cacheOnWrite,
       CellComparator comparator, BloomType bloomType) {
+    this(chunkByteSizeHint, errorRate, hashType, maxFold, cacheOnWrite, comparator, bloomType,
+        BloomFilterFormat.CLASSIC);
+  }
+
+  /**
+   * @param chunkByteSizeHint
+   *          each chunk's size in bytes. The real chunk size might be different
+   *          as required by the fold factor.
+   * @param errorRate
+   *          target false positive rate
+   * @param hashType
+   *          hash function type to use
+   * @param maxFold
+   *          maximum degree of folding allowed
+   * @param bloomType
+   *          the bloom type
+   * @param format
+   *          the format of the chunks
+   */
+  public CompoundBloomFilterWriter(int chunkByteSizeHint, float errorRate,
+      int hashType, int maxFold, boolean cacheOnWrite,
+      CellComparator comparator, BloomType bloomType, BloomFilterFormat format) {
     chunkByteSize = BloomFilterUtil.computeFoldableByteSize(
         chunkByteSizeHint * 8L, maxFold);
 
@@ -109,6 +132,7 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
     this.cacheOnWrite = cacheOnWrite;
     this.comparator = comparator;
     this.bloomType = bloomType;
+    this.format = format;
   }
 
   @Override
@@ -205,7 +229,7 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
     if (prevChunk == null) {
       // First chunk
       chunk = BloomFilterUtil.createBySize(chunkByteSize, errorRate,
-          hashType, maxFold, bloomType);
+          hashType, maxFold, bloomType, format);
     } else {
       // Use the same parameters as the last chunk, but a new array and
       // a zero key count.
@@ -258,7 +282,12 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
      */
     @Override
     public void write(DataOutput out) throws IOException {
-      out.writeInt(VERSION);
+      if (format == BloomFilterFormat.CLASSIC) {
+        out.writeInt(VERSION);
+      } else {
+        out.writeInt(VERSION_WITH_FORMAT);
+        out.writeInt(format.getId());
+      }
 
       out.writeLong(getByteSize());
       out.writeInt(prevChunk.getHashCount());
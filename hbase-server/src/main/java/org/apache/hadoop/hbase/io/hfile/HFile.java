@@ -35,6 +35,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.io.IOUtils;
@@ -279,6 +280,7 @@ public class HFile {
     protected InetSocketAddress[] favoredNodes;
     private HFileContext fileContext;
     protected boolean shouldDropBehind = false;
+    private ThreadPoolExecutor compressionPool;
 
     WriterFactory(Configuration conf, CacheConfig cacheConf) {
       this.conf = conf;
@@ -321,6 +323,16 @@ public class HFile {
       return this;
     }
 
+    /**
+     * @param compressionPool Pool compressing the data blocks while the writer goes on with the
+     *          next ones, or null to compress them on the writing thread.
+     */
+    public WriterFactory withCompressionPool(ThreadPoolExecutor compressionPool) {
+      // Deliberately not checking for null here.
+      this.compressionPool = compressionPool;
+      return this;
+    }
+
 
     public Writer create() throws IOException {
       if ((path != null ? 1 : 0) + (ostream != null ? 1 : 0) != 1) {
@@ -336,7 +348,8 @@ public class HFile {
           LOG.debug("Unable to set drop behind on {}", path.getName());
         }
       }
-      return new HFileWriterImpl(conf, cacheConf, path, ostream, comparator, fileContext);
+      return new HFileWriterImpl(conf, cacheConf, path, ostream, comparator, fileContext,
+          compressionPool);
     }
   }
 
@@ -430,6 +443,12 @@ public class HFile {
 
     Optional<Cell> midKey() throws IOException;
 
+    /**
+     * @return The first key of every block referenced from the root level of the data block
+     *         index, in order. Like {@link #midKey()} these are block boundaries only.
+     */
+    List<Cell> getRootIndexKeys();
+
     long length();
 
     long getEntries();
@@ -473,6 +492,16 @@ public class HFile {
 
     boolean hasMVCCInfo();
 
+    /**
+     * Loads into the block cache the data blocks that may contain the given keys, e.g. the rows
+     * of a batch of Gets, so that the following lookups hit the cache. The blocks missing from
+     * the cache are read with a few positional reads covering neighbouring blocks at once,
+     * instead of one read per block. Does nothing if data blocks are not cached on read.
+     * @param keys the keys to look up
+     * @return the number of blocks read from the file system
+     */
+    int cacheDataBlocks(List<Cell> keys) throws IOException;
+
     /**
      * Return the file context of the HFile this reader belongs to
      */
@@ -25,6 +25,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -990,6 +991,12 @@ public class HFileBlock implements Cacheable {
      */
     private void putHeader(byte[] dest, int offset, int onDiskSize,
         int uncompressedSize, int onDiskDataSize) {
+      putHeader(dest, offset, blockType, prevOffset, fileContext, onDiskSize, uncompressedSize,
+        onDiskDataSize);
+    }
+
+    private static void putHeader(byte[] dest, int offset, BlockType blockType, long prevOffset,
+        HFileContext fileContext, int onDiskSize, int uncompressedSize, int onDiskDataSize) {
       offset = blockType.put(dest, offset);
       offset = Bytes.putInt(dest, offset, onDiskSize - HConstants.HFILEBLOCK_HEADER_SIZE);
       offset = Bytes.putInt(dest, offset, uncompressedSize - HConstants.HFILEBLOCK_HEADER_SIZE);
@@ -1004,6 +1011,92 @@ public class HFileBlock implements Cacheable {
       putHeader(dest.getBuffer(),0, onDiskSize, uncompressedSize, onDiskDataSize);
     }
 
+    /**
+     * Finishes the data block being written and takes it out of this writer, so that it can be
+     * compressed on another thread while the next block is written. The returned block is written
+     * to the stream with {@link DetachedBlock#writeTo(DataOutputStream, long)}; this writer does
+     * not know its offset, so the caller keeps track of the previous data block offset.
+     */
+    DetachedBlock detachBlock() throws IOException {
+      expectState(State.WRITING);
+      if (blockType == BlockType.DATA) {
+        this.dataBlockEncoder.endBlockEncoding(dataBlockEncodingCtx, userDataStream,
+            baosInMemory.getBuffer(), blockType);
+        blockType = dataBlockEncodingCtx.getBlockType();
+      }
+      userDataStream.flush();
+      state = State.INIT;
+      return new DetachedBlock(blockType, fileContext, baosInMemory.toByteArray());
+    }
+
+    /**
+     * A block finished by {@link Writer#detachBlock()}. It is compressed by
+     * {@link #compress(HFileBlockDefaultEncodingContext)}, which may run on any thread, then
+     * written in file order. The header and the checksums are only filled in when writing as
+     * the header holds the offset of the previous block of the same type.
+     */
+    static final class DetachedBlock {
+      private final BlockType blockType;
+      private final HFileContext fileContext;
+      /** Header room followed by the uncompressed, possibly encoded, data. */
+      private final byte[] uncompressedBytesWithHeader;
+      /** Header room followed by the compressed data, set once compressed. */
+      private volatile byte[] onDiskBytesWithHeader;
+
+      private DetachedBlock(BlockType blockType, HFileContext fileContext,
+          byte[] uncompressedBytesWithHeader) {
+        this.blockType = blockType;
+        this.fileContext = fileContext;
+        this.uncompressedBytesWithHeader = uncompressedBytesWithHeader;
+      }
+
+      /**
+       * Compresses the block with the given context, which may not be used by another thread
+       * concurrently.
+       */
+      void compress(HFileBlockDefaultEncodingContext encodingCtx) throws IOException {
+        Bytes compressed = encodingCtx.compressAndEncrypt(uncompressedBytesWithHeader, 0,
+          uncompressedBytesWithHeader.length);
+        // The context reuses its buffer for the next block
+        onDiskBytesWithHeader = compressed == null ? uncompressedBytesWithHeader
+            : Bytes.copy(compressed.get(), compressed.getOffset(), compressed.getLength());
+      }
+
+      private int getChecksumSize() {
+        return (int) ChecksumUtil.numBytes(onDiskBytesWithHeader.length,
+          fileContext.getBytesPerChecksum());
+      }
+
+      /**
+       * @return the on-disk size of the compressed block, including the header and the checksums.
+       */
+      int getOnDiskSizeWithHeader() {
+        return onDiskBytesWithHeader.length + getChecksumSize();
+      }
+
+      int getUncompressedSizeWithHeader() {
+        return uncompressedBytesWithHeader.length;
+      }
+
+      /**
+       * Writes the compressed block after filling in its header and computing its checksums.
+       * @param prevOffset offset of the previous block of the same type, or -1 if none
+       */
+      void writeTo(DataOutputStream out, long prevOffset) throws IOException {
+        int checksumSize = getChecksumSize();
+        putHeader(onDiskBytesWithHeader, 0, blockType, prevOffset, fileContext,
+          onDiskBytesWithHeader.length + checksumSize, uncompressedBytesWithHeader.length,
+          onDiskBytesWithHeader.length);
+        byte[] checksum = new byte[checksumSize];
+        ChecksumUtil.generateChecksums(onDiskBytesWithHeader, 0, onDiskBytesWithHeader.length,
+          checksum, 0, fileContext.getChecksumType(), fileContext.getBytesPerChecksum());
+        long startTime = System.currentTimeMillis();
+        out.write(onDiskBytesWithHeader);
+        out.write(checksum);
+        HFile.updateWriteLatency(System.currentTimeMillis() - startTime);
+      }
+    }
+
     /**
      * Similar to {@link #writeHeaderAndData(FSDataOutputStream)}, but records
      * the offset of this block so that it can be referenced in the next block
@@ -1323,6 +1416,23 @@ public class HFileBlock implements Cacheable {
     HFileBlock readBlockData(long offset, long onDiskSize, boolean pread, boolean updateMetrics,
         boolean intoHeap) throws IOException;
 
+    /**
+     * Reads a batch of blocks whose offsets and on-disk sizes are known up front, e.g. from the
+     * block index. The blocks are sorted by offset and neighbouring blocks separated by no more
+     * than <code>maxGap</code> bytes are fetched with a single positional read of at most
+     * <code>maxReadSize</code> bytes, so a batch of blocks close to each other in the file costs a
+     * handful of reads instead of one per block.
+     * @param offsets offsets of the blocks to read
+     * @param onDiskSizes on-disk sizes of the blocks, including the header and checksums
+     * @param maxGap the largest number of unrequested bytes to read to merge two ranges
+     * @param maxReadSize the largest number of bytes to fetch with one positional read
+     * @param updateMetrics update the metrics or not.
+     * @param intoHeap allocate the blocks' ByteBuff by {@link ByteBuffAllocator} or JVM heap.
+     * @return the newly read blocks, in the order of the given offsets
+     */
+    HFileBlock[] readBlocksData(long[] offsets, int[] onDiskSizes, int maxGap, int maxReadSize,
+        boolean updateMetrics, boolean intoHeap) throws IOException;
+
     /**
      * Creates a block iterator over the given portion of the {@link HFile}.
      * The iterator returns blocks starting with offset such that offset &lt;=
@@ -1612,6 +1722,122 @@ public class HFileBlock implements Cacheable {
       return blk;
     }
 
+    @Override
+    public HFileBlock[] readBlocksData(long[] offsets, int[] onDiskSizes, int maxGap,
+        int maxReadSize, boolean updateMetrics, boolean intoHeap) throws IOException {
+      Preconditions.checkArgument(offsets.length == onDiskSizes.length,
+        "Got %s offsets but %s sizes", offsets.length, onDiskSizes.length);
+      Integer[] order = new Integer[offsets.length];
+      for (int i = 0; i < order.length; i++) {
+        if (offsets[i] < 0 || onDiskSizes[i] <= hdrSize) {
+          throw new IOException("Invalid offset=" + offsets[i] + ", onDiskSize=" + onDiskSizes[i]
+              + " in a vectored read of " + pathName);
+        }
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> Long.compare(offsets[a], offsets[b]));
+      HFileBlock[] blocks = new HFileBlock[offsets.length];
+      boolean success = false;
+      try {
+        int first = 0;
+        while (first < order.length) {
+          long start = offsets[order[first]];
+          long end = start + onDiskSizes[order[first]];
+          int last = first;
+          // Grow the range while the next block is close enough and the read stays small enough
+          while (last + 1 < order.length) {
+            int next = order[last + 1];
+            long nextEnd = Math.max(end, offsets[next] + onDiskSizes[next]);
+            if (offsets[next] - end > maxGap || nextEnd - start > maxReadSize) {
+              break;
+            }
+            end = nextEnd;
+            last++;
+          }
+          if (first == last) {
+            int idx = order[first];
+            blocks[idx] = readBlockData(offsets[idx], onDiskSizes[idx], true, updateMetrics,
+              intoHeap);
+          } else {
+            readRange(order, first, last, start, (int) (end - start), offsets, onDiskSizes,
+              blocks, updateMetrics, intoHeap);
+          }
+          first = last + 1;
+        }
+        success = true;
+        return blocks;
+      } finally {
+        if (!success) {
+          for (HFileBlock block : blocks) {
+            if (block != null) {
+              block.release();
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Fetches the range [start, start + length) with one positional read and cuts the blocks
+     * order[first..last] out of it. A block failing HBase checksum verification is re-read alone
+     * through {@link #readBlockData(long, long, boolean, boolean, boolean)}, which takes care of
+     * falling back to HDFS checksums.
+     */
+    private void readRange(Integer[] order, int first, int last, long start, int length,
+        long[] offsets, int[] onDiskSizes, HFileBlock[] blocks, boolean updateMetrics,
+        boolean intoHeap) throws IOException {
+      boolean verifyChecksum = streamWrapper.shouldUseHBaseChecksum();
+      FSDataInputStream is = streamWrapper.getStream(verifyChecksum);
+      boolean checksumSupport = this.fileContext.isUseHBaseChecksum();
+      long startTime = System.currentTimeMillis();
+      byte[] range = new byte[length];
+      is.readFully(start, range, 0, length);
+      long duration = System.currentTimeMillis() - startTime;
+      if (updateMetrics) {
+        HFile.updateReadLatency(duration, true);
+      }
+      LOG.trace("Read {} blocks of {} in one pread of {} bytes at offset={} in {} ms",
+        last - first + 1, pathName, length, start, duration);
+      for (int i = first; i <= last; i++) {
+        int idx = order[i];
+        long offset = offsets[idx];
+        int onDiskSizeWithHeader = onDiskSizes[idx];
+        int pos = (int) (offset - start);
+        ByteBuff onDiskBlock = allocate(onDiskSizeWithHeader, intoHeap);
+        boolean initHFileBlockSuccess = false;
+        try {
+          onDiskBlock.put(range, pos, onDiskSizeWithHeader).rewind();
+          verifyOnDiskSizeMatchesHeader(onDiskSizeWithHeader, onDiskBlock, offset,
+            checksumSupport);
+          if (verifyChecksum && !validateChecksum(offset, onDiskBlock, hdrSize)) {
+            HFile.LOG.warn("HBase checksum verification failed for file " + pathName
+                + " at offset " + offset + " in a vectored read, re-reading the block alone");
+            blocks[idx] = readBlockData(offset, onDiskSizeWithHeader, true, updateMetrics,
+              intoHeap);
+            continue;
+          }
+          // The next block's header is at hand if the range goes on past this block
+          int nextBlockOnDiskSize = -1;
+          if (pos + onDiskSizeWithHeader + hdrSize <= length) {
+            nextBlockOnDiskSize =
+                Bytes.toInt(range, pos + onDiskSizeWithHeader + BlockType.MAGIC_LENGTH) + hdrSize;
+          }
+          HFileBlock hFileBlock = createFromBuff(onDiskBlock, checksumSupport, offset,
+            nextBlockOnDiskSize, fileContext, intoHeap ? HEAP : allocator);
+          if (!fileContext.isCompressedOrEncrypted()) {
+            hFileBlock.sanityCheckUncompressed();
+          }
+          blocks[idx] = hFileBlock;
+          initHFileBlockSuccess = true;
+        } finally {
+          if (!initHFileBlockSuccess) {
+            onDiskBlock.release();
+          }
+        }
+      }
+      streamWrapper.checksumOk();
+    }
+
     /**
      * @return Check <code>onDiskSizeWithHeaderL</code> size is healthy and then return it as an int
      * @throws IOException
@@ -405,6 +405,53 @@ public class HFileBlockIndex {
       return new BlockWithScanInfo(block, nextIndexedKey);
     }
 
+    /**
+     * Walks the index down to the leaf level, like
+     * {@link #loadDataBlockWithScanInfo(Cell, HFileBlock, boolean, boolean, boolean,
+     * DataBlockEncoding)}, but stops short of reading the data block itself so that the caller can
+     * batch the reads of the data blocks for several keys.
+     * @param key the key we are looking for
+     * @return the offset and on-disk size of the data block a seek to the key starts at, i.e. the
+     *         first data block if the key is before the first key of the file, or null if the
+     *         index is empty
+     */
+    public ObjectIntPair<Long> locateDataBlock(Cell key, boolean pread, boolean isCompaction)
+        throws IOException {
+      if (isEmpty()) {
+        return null;
+      }
+      int rootLevelIndex = rootBlockContainingKey(key);
+      if (rootLevelIndex < 0) {
+        key = blockKeys[0];
+        rootLevelIndex = 0;
+      }
+      long currentOffset = blockOffsets[rootLevelIndex];
+      int currentOnDiskSize = blockDataSizes[rootLevelIndex];
+      for (int lookupLevel = 1; lookupLevel < searchTreeLevel; lookupLevel++) {
+        BlockType expectedBlockType = lookupLevel < searchTreeLevel - 1 ?
+            BlockType.INTERMEDIATE_INDEX : BlockType.LEAF_INDEX;
+        // We always cache index blocks, see loadDataBlockWithScanInfo
+        HFileBlock block = cachingBlockReader.readBlock(currentOffset, currentOnDiskSize, true,
+          pread, isCompaction, true, expectedBlockType, null);
+        if (block == null) {
+          throw new IOException("Failed to read block at offset " + currentOffset
+              + ", onDiskSize=" + currentOnDiskSize);
+        }
+        try {
+          ByteBuff buffer = block.getBufferWithoutHeader();
+          if (locateNonRootIndexEntry(buffer, key, comparator) == -1) {
+            throw new IOException("The key " + CellUtil.getCellKeyAsString(key)
+                + " is before the first key of the non-root index block " + block);
+          }
+          currentOffset = buffer.getLong();
+          currentOnDiskSize = buffer.getInt();
+        } finally {
+          block.release();
+        }
+      }
+      return new ObjectIntPair<>(currentOffset, currentOnDiskSize);
+    }
+
     @Override
     public Cell midkey() throws IOException {
       if (rootCount == 0)
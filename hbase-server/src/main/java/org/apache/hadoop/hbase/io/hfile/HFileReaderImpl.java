@@ -23,7 +23,9 @@ import java.nio.ByteBuffer;
 import java.security.Key;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
@@ -76,6 +78,17 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
   // to navigate the source code when so many classes participating in read.
   private static final Logger LOG = LoggerFactory.getLogger(HFileReaderImpl.class);
 
+  /**
+   * When reading the data blocks of a batch of keys, neighbouring blocks separated by at most this
+   * many bytes, e.g. by inline index or bloom blocks, are fetched with a single read.
+   */
+  public static final String VECTORED_READ_MAX_GAP_KEY = "hbase.hfile.vectored.read.max.gap";
+  public static final int DEFAULT_VECTORED_READ_MAX_GAP = 64 * 1024;
+
+  /** Upper bound of the bytes fetched by a single read of a batch of data blocks. */
+  public static final String VECTORED_READ_MAX_SIZE_KEY = "hbase.hfile.vectored.read.max.size";
+  public static final int DEFAULT_VECTORED_READ_MAX_SIZE = 1024 * 1024;
+
   /** Data block index reader keeping the root data index in memory */
   private HFileBlockIndex.CellBasedKeyBlockIndexReader dataBlockIndexReader;
 
@@ -128,6 +141,12 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
   /** Filesystem-level block reader. */
   private HFileBlock.FSReader fsBlockReader;
 
+  private final int vectoredReadMaxGap;
+  private final int vectoredReadMaxSize;
+
+  /** Pool reading ahead for sequential scanners, null if they do not read ahead. */
+  private final BlockReadAhead.Pool readAheadPool;
+
   /**
    * A "sparse lock" implementation allowing to lock on a particular block
    * identified by offset. The purpose of this is to avoid two clients loading
@@ -203,6 +222,10 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     this.name = path.getName();
     this.conf = conf;
     this.primaryReplicaReader = primaryReplicaReader;
+    this.vectoredReadMaxGap = conf.getInt(VECTORED_READ_MAX_GAP_KEY, DEFAULT_VECTORED_READ_MAX_GAP);
+    this.vectoredReadMaxSize =
+        conf.getInt(VECTORED_READ_MAX_SIZE_KEY, DEFAULT_VECTORED_READ_MAX_SIZE);
+    this.readAheadPool = cacheConf.getBlockReadAheadPool().orElse(null);
     checkFileVersion();
     this.hfileContext = createHFileContext(fsdis, fileSize, hfs, path, trailer);
     this.fsBlockReader = new HFileBlock.FSReaderImpl(fsdis, fileSize, hfs, path, hfileContext,
@@ -281,7 +304,7 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
               // next header, will not have happened...so, pass in the onDiskSize gotten from the
               // cached block. This 'optimization' triggers extremely rarely I'd say.
               HFileBlock block = readBlock(offset, onDiskSizeOfNextBlock, /* cacheBlock= */true,
-                /* pread= */true, false, false, null, null);
+                /* pread= */true, false, false, null, null, /* prefetch= */true);
               try {
                 onDiskSizeOfNextBlock = block.getNextBlockOnDiskSize();
                 offset += block.getOnDiskSizeWithHeader();
@@ -510,6 +533,12 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     protected HFileBlock curBlock;
     // Previous blocks that were used in the course of the read
     protected final ArrayList<HFileBlock> prevBlocks = new ArrayList<>();
+    // Value ranges of the data blocks and the predicate on them, to step over the blocks where no
+    // cell can pass. Both null if nothing was pushed down.
+    private HFileZoneMap zoneMap;
+    private HFileZoneMap.Predicate zoneMapPredicate;
+    // Reads the blocks ahead when going through the file sequentially, null if it does not
+    private BlockReadAhead readAhead;
 
     public HFileScannerImpl(final HFile.Reader reader, final boolean cacheBlocks,
         final boolean pread, final boolean isCompaction) {
@@ -519,6 +548,21 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
       this.isCompaction = isCompaction;
     }
 
+    @Override
+    public void setZoneMapPredicate(HFileZoneMap zoneMap, HFileZoneMap.Predicate predicate) {
+      this.zoneMap = zoneMap;
+      this.zoneMapPredicate = predicate;
+    }
+
+    void enableReadAhead(BlockReadAhead.Pool pool) {
+      readAhead = new BlockReadAhead(pool, this::readBlockAfter);
+    }
+
+    @VisibleForTesting
+    BlockReadAhead getReadAhead() {
+      return readAhead;
+    }
+
     void updateCurrBlockRef(HFileBlock block) {
       if (block != null && curBlock != null && block.getOffset() == curBlock.getOffset()) {
         return;
@@ -579,6 +623,9 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
 
     @Override
     public void close() {
+      if (readAhead != null) {
+        readAhead.discard();
+      }
       if (!pread) {
         // For seek + pread stream socket should be closed when the scanner is closed. HBASE-9393
         reader.unbufferStream();
@@ -913,6 +960,9 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
         return null;
       }
       HFileBlock block = this.curBlock;
+      if (readAhead != null) {
+        readAhead.moving(block);
+      }
       do {
         if (block.getOffset() >= lastDataBlockOffset) {
           releaseIfNotCurBlock(block);
@@ -922,20 +972,69 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
           releaseIfNotCurBlock(block);
           throw new IOException("Invalid block file offset: " + block + ", path=" + reader.getPath());
         }
+        long offset = getNextBlockOffset(block, lastDataBlockOffset);
+        if (offset < 0) {
+          // Only skippable data blocks were left. The block is either the current one or a non
+          // data block already released.
+          return null;
+        }
+        HFileBlock readAheadBlock = readAhead != null ? readAhead.take(offset) : null;
         // We are reading the next block without block type validation, because
         // it might turn out to be a non-data block.
-        block = reader.readBlock(block.getOffset() + block.getOnDiskSizeWithHeader(),
-          block.getNextBlockOnDiskSize(), cacheBlocks, pread, isCompaction, true, null,
-          getEffectiveDataBlockEncoding());
+        block = readAheadBlock != null ? readAheadBlock
+            : reader.readBlock(offset, getNextBlockOnDiskSize(block, offset), cacheBlocks, pread,
+              isCompaction, true, null, getEffectiveDataBlockEncoding());
         if (block != null && !block.getBlockType().isData()) {
           // Whatever block we read we will be returning it unless
           // it is a datablock. Just in case the blocks are non data blocks
           block.release();
         }
       } while (!block.getBlockType().isData());
+      if (readAhead != null) {
+        readAhead.moved(block);
+      }
       return block;
     }
 
+    /**
+     * @return the offset of the block following the given one, stepping over the data blocks the
+     *         zone map rules out, or -1 if there are no more data blocks
+     */
+    private long getNextBlockOffset(HFileBlock block, long lastDataBlockOffset) {
+      if (block.getOffset() >= lastDataBlockOffset) {
+        return -1;
+      }
+      long offset = block.getOffset() + block.getOnDiskSizeWithHeader();
+      if (zoneMapPredicate != null) {
+        int skippableSize;
+        while ((skippableSize = zoneMap.getSkippableSize(offset, zoneMapPredicate)) > 0) {
+          if (offset >= lastDataBlockOffset) {
+            return -1;
+          }
+          offset += skippableSize;
+        }
+      }
+      return offset;
+    }
+
+    private static int getNextBlockOnDiskSize(HFileBlock block, long nextBlockOffset) {
+      return nextBlockOffset == block.getOffset() + block.getOnDiskSizeWithHeader()
+          ? block.getNextBlockOnDiskSize() : -1;
+    }
+
+    /**
+     * Reads the block following the given one for {@link #readAhead}, with a positional read so
+     * as not to move the stream this scanner may be using.
+     */
+    private HFileBlock readBlockAfter(HFileBlock block) throws IOException {
+      long offset = getNextBlockOffset(block, reader.getTrailer().getLastDataBlockOffset());
+      if (offset < 0) {
+        return null;
+      }
+      return reader.readBlock(offset, getNextBlockOnDiskSize(block, offset), cacheBlocks, true,
+        isCompaction, true, null, getEffectiveDataBlockEncoding());
+    }
+
     public DataBlockEncoding getEffectiveDataBlockEncoding() {
       return this.reader.getEffectiveEncodingInCache(isCompaction);
     }
@@ -1435,6 +1534,19 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
       boolean updateCacheMetrics, BlockType expectedBlockType,
       DataBlockEncoding expectedDataBlockEncoding)
       throws IOException {
+    return readBlock(dataBlockOffset, onDiskBlockSize, cacheBlock, pread, isCompaction,
+      updateCacheMetrics, expectedBlockType, expectedDataBlockEncoding, false);
+  }
+
+  /**
+   * @param prefetch whether the block is read by prefetch on open, so cached ahead of any request
+   * @see #readBlock(long, long, boolean, boolean, boolean, boolean, BlockType, DataBlockEncoding)
+   */
+  private HFileBlock readBlock(long dataBlockOffset, long onDiskBlockSize,
+      final boolean cacheBlock, boolean pread, final boolean isCompaction,
+      boolean updateCacheMetrics, BlockType expectedBlockType,
+      DataBlockEncoding expectedDataBlockEncoding, boolean prefetch)
+      throws IOException {
     if (dataBlockIndexReader == null) {
       throw new IOException(path + " block index not loaded");
     }
@@ -1510,9 +1622,12 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
         // Cache the block if necessary
         cacheConf.getBlockCache().ifPresent(cache -> {
           if (cacheBlock && cacheConf.shouldCacheBlockOnRead(category)) {
-            cache.cacheBlock(cacheKey,
-              cacheConf.shouldCacheCompressed(category) ? hfileBlock : unpacked,
-              cacheConf.isInMemory());
+            HFileBlock toCache = cacheConf.shouldCacheCompressed(category) ? hfileBlock : unpacked;
+            if (prefetch) {
+              cache.cacheBlockAhead(cacheKey, toCache, cacheConf.isInMemory());
+            } else {
+              cache.cacheBlock(cacheKey, toCache, cacheConf.isInMemory());
+            }
           }
         });
         if (unpacked != hfileBlock) {
@@ -1532,6 +1647,69 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     }
   }
 
+  @Override
+  public int cacheDataBlocks(List<Cell> keys) throws IOException {
+    BlockCache cache = cacheConf.getBlockCache().orElse(null);
+    if (cache == null || !cacheConf.shouldCacheBlockOnRead(BlockType.BlockCategory.DATA)
+        || dataBlockIndexReader == null || dataBlockIndexReader.isEmpty()) {
+      return 0;
+    }
+    // The distinct data blocks the keys fall into which are not cached yet, by offset
+    Map<Long, Integer> missing = new TreeMap<>();
+    for (Cell key : keys) {
+      ObjectIntPair<Long> location = dataBlockIndexReader.locateDataBlock(key, true, false);
+      if (location == null || missing.containsKey(location.getFirst())) {
+        continue;
+      }
+      BlockCacheKey cacheKey = new BlockCacheKey(name, location.getFirst(),
+        this.isPrimaryReplicaReader(), BlockType.DATA);
+      // The actual read of the block will follow, so this probe does not count in the metrics
+      Cacheable cached = cache.getBlock(cacheKey, true, true, false);
+      if (cached != null) {
+        cached.release();
+        continue;
+      }
+      missing.put(location.getFirst(), location.getSecond());
+    }
+    if (missing.isEmpty()) {
+      return 0;
+    }
+    long[] offsets = new long[missing.size()];
+    int[] onDiskSizes = new int[missing.size()];
+    int i = 0;
+    for (Map.Entry<Long, Integer> entry : missing.entrySet()) {
+      offsets[i] = entry.getKey();
+      onDiskSizes[i++] = entry.getValue();
+    }
+    HFileBlock[] blocks = fsBlockReader.readBlocksData(offsets, onDiskSizes, vectoredReadMaxGap,
+      vectoredReadMaxSize, true, shouldUseHeap(BlockType.DATA));
+    for (i = 0; i < blocks.length; i++) {
+      HFileBlock hfileBlock = blocks[i];
+      HFileBlock unpacked = null;
+      try {
+        validateBlockType(hfileBlock, BlockType.DATA);
+        unpacked = hfileBlock.unpack(hfileContext, fsBlockReader);
+        BlockType.BlockCategory category = hfileBlock.getBlockType().getCategory();
+        cache.cacheBlock(
+          new BlockCacheKey(name, offsets[i], this.isPrimaryReplicaReader(), BlockType.DATA),
+          cacheConf.shouldCacheCompressed(category) ? hfileBlock : unpacked,
+          cacheConf.isInMemory());
+      } catch (IOException e) {
+        for (int j = i + 1; j < blocks.length; j++) {
+          blocks[j].release();
+        }
+        throw e;
+      } finally {
+        // The cache keeps its own reference to what it cached
+        if (unpacked != null && unpacked != hfileBlock) {
+          unpacked.release();
+        }
+        hfileBlock.release();
+      }
+    }
+    return blocks.length;
+  }
+
   @Override
   public boolean hasMVCCInfo() {
     return includesMemstoreTS && decodeMemstoreTS;
@@ -1583,6 +1761,16 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     return Optional.ofNullable(dataBlockIndexReader.midkey());
   }
 
+  @Override
+  public List<Cell> getRootIndexKeys() {
+    int count = dataBlockIndexReader.getRootBlockCount();
+    List<Cell> keys = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      keys.add(dataBlockIndexReader.getRootBlockKey(i));
+    }
+    return keys;
+  }
+
   @Override
   public void close() throws IOException {
     close(cacheConf.shouldEvictOnClose());
@@ -1885,10 +2073,14 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
   @Override
   public HFileScanner getScanner(boolean cacheBlocks, final boolean pread,
       final boolean isCompaction) {
-    if (dataBlockEncoder.useEncodedScanner()) {
-      return new EncodedScanner(this, cacheBlocks, pread, isCompaction, this.hfileContext);
-    }
-    return new HFileScannerImpl(this, cacheBlocks, pread, isCompaction);
+    HFileScannerImpl scanner = dataBlockEncoder.useEncodedScanner()
+        ? new EncodedScanner(this, cacheBlocks, pread, isCompaction, this.hfileContext)
+        : new HFileScannerImpl(this, cacheBlocks, pread, isCompaction);
+    // Compactions read each block once, and would take the read-ahead memory from user scans
+    if (readAheadPool != null && !isCompaction) {
+      scanner.enableReadAhead(readAheadPool);
+    }
+    return scanner;
   }
 
   public int getMajorVersion() {
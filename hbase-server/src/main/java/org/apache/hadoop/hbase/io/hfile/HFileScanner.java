@@ -163,6 +163,13 @@ public interface HFileScanner extends Shipper, Closeable {
    */
   Cell getNextIndexedKey();
 
+  /**
+   * Lets {@link #next()} step over the data blocks none of whose cells passes the predicate,
+   * according to the value ranges of the blocks. Scanners that cannot do it ignore the call.
+   */
+  default void setZoneMapPredicate(HFileZoneMap zoneMap, HFileZoneMap.Predicate predicate) {
+  }
+
   /**
    * Close this HFile scanner and do necessary cleanup.
    */
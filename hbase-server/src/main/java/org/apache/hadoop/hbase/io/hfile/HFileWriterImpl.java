@@ -21,10 +21,18 @@ package org.apache.hadoop.hbase.io.hfile;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -45,6 +53,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.crypto.Encryption;
 import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.io.encoding.HFileBlockDefaultEncodingContext;
 import org.apache.hadoop.hbase.io.hfile.HFile.FileInfo;
 import org.apache.hadoop.hbase.io.hfile.HFileBlock.BlockWritable;
 import org.apache.hadoop.hbase.security.EncryptionUtil;
@@ -69,6 +78,15 @@ public class HFileWriterImpl implements HFile.Writer {
   /** if this feature is enabled, preCalculate encoded data size before real encoding happens*/
   public static final String UNIFIED_ENCODED_BLOCKSIZE_RATIO = "hbase.writer.unified.encoded.blocksize.ratio";
 
+  /**
+   * Number of threads of a region server compressing data blocks for all its writers, see
+   * {@link HFile.WriterFactory#withCompressionPool(ThreadPoolExecutor)}; 0, the default, compresses
+   * them inline.
+   */
+  public static final String BLOCK_COMPRESSION_THREADS_KEY =
+      "hbase.hfile.block.compression.threads";
+  public static final int DEFAULT_BLOCK_COMPRESSION_THREADS = 0;
+
   /** Block size limit after encoding, used to unify encoded block Cache entry size*/
   private final int encodedBlockSizeLimit;
 
@@ -166,9 +184,55 @@ public class HFileWriterImpl implements HFile.Writer {
 
   protected long maxMemstoreTS = 0;
 
+  /**
+   * Pool compressing the data blocks, null if they are compressed by the appending thread. Each
+   * writer keeps at most twice the pool size of its blocks in flight and writes them out in order,
+   * so that one compaction or flush can use several cores for the compression codec.
+   */
+  private ThreadPoolExecutor compressionPool;
+
+  /** Number of data blocks above which we wait for the oldest one to be compressed. */
+  private int maxPendingBlocks;
+
+  /** Data blocks handed to the {@link #compressionPool}, in file order. */
+  private final Deque<PendingBlock> pendingBlocks = new ArrayDeque<>();
+
+  /** Contexts for compressing the data blocks, each used by one compression task at a time. */
+  private final Queue<HFileBlockDefaultEncodingContext> compressionContexts =
+      new ConcurrentLinkedQueue<>();
+
+  /** The offset of the last data block written from {@link #pendingBlocks}. */
+  private long prevDataBlockOffset = UNSET;
+
+  /** Value ranges of the data blocks, null if no qualifier is configured for them. */
+  private HFileZoneMap.Writer zoneMapWriter;
+
+  /** A data block being compressed, with the key indexing it. */
+  private static final class PendingBlock {
+    private final HFileBlock.Writer.DetachedBlock block;
+    private final byte[] indexKey;
+    private Future<?> compressed;
+
+    PendingBlock(HFileBlock.Writer.DetachedBlock block, byte[] indexKey) {
+      this.block = block;
+      this.indexKey = indexKey;
+    }
+  }
+
   public HFileWriterImpl(final Configuration conf, CacheConfig cacheConf, Path path,
       FSDataOutputStream outputStream,
       CellComparator comparator, HFileContext fileContext) {
+    this(conf, cacheConf, path, outputStream, comparator, fileContext, null);
+  }
+
+  /**
+   * @param compressionPool Pool compressing the data blocks off the appending thread, or null to
+   *          compress them inline.
+   */
+  public HFileWriterImpl(final Configuration conf, CacheConfig cacheConf, Path path,
+      FSDataOutputStream outputStream, CellComparator comparator, HFileContext fileContext,
+      ThreadPoolExecutor compressionPool) {
+    this.compressionPool = compressionPool;
     this.outputStream = outputStream;
     this.path = path;
     this.name = path != null ? path.getName() : outputStream.toString();
@@ -310,6 +374,20 @@ public class HFileWriterImpl implements HFile.Writer {
 
     // Meta data block index writer
     metaBlockIndexWriter = new HFileBlockIndex.BlockIndexWriter();
+
+    // Data blocks that are cached on write need the block writer, so they stay inline, as well
+    // as encrypted ones, the IV being advanced block after block
+    if (compressionPool != null && hFileContext.getCompression() != Compression.Algorithm.NONE
+        && hFileContext.getEncryptionContext() == Encryption.Context.NONE
+        && !cacheConf.shouldCacheDataOnWrite()) {
+      maxPendingBlocks = 2 * compressionPool.getMaximumPoolSize();
+    } else {
+      compressionPool = null;
+    }
+    byte[][] zoneMapQualifiers = HFileZoneMap.getQualifiers(conf);
+    if (zoneMapQualifiers != null) {
+      zoneMapWriter = new HFileZoneMap.Writer(zoneMapQualifiers);
+    }
     if (LOG.isTraceEnabled()) LOG.trace("Initialized with " + cacheConf);
   }
 
@@ -333,6 +411,13 @@ public class HFileWriterImpl implements HFile.Writer {
   private void finishBlock() throws IOException {
     if (!blockWriter.isWriting() || blockWriter.blockSizeWritten() == 0) return;
 
+    Cell indexEntry =
+      getMidpoint(this.comparator, lastCellOfPreviousBlock, firstCellInBlock);
+    if (compressionPool != null) {
+      compressBlock(blockWriter.detachBlock(),
+        PrivateCellUtil.getCellKeySerializedAsKeyValueKey(indexEntry));
+      return;
+    }
     // Update the first data block offset if UNSET; used scanning.
     if (firstDataBlockOffset == UNSET) {
       firstDataBlockOffset = outputStream.getPos();
@@ -341,16 +426,79 @@ public class HFileWriterImpl implements HFile.Writer {
     lastDataBlockOffset = outputStream.getPos();
     blockWriter.writeHeaderAndData(outputStream);
     int onDiskSize = blockWriter.getOnDiskSizeWithHeader();
-    Cell indexEntry =
-      getMidpoint(this.comparator, lastCellOfPreviousBlock, firstCellInBlock);
     dataBlockIndexWriter.addEntry(PrivateCellUtil.getCellKeySerializedAsKeyValueKey(indexEntry),
       lastDataBlockOffset, onDiskSize);
+    if (zoneMapWriter != null) {
+      zoneMapWriter.blockWritten(lastDataBlockOffset, onDiskSize);
+    }
     totalUncompressedBytes += blockWriter.getUncompressedSizeWithHeader();
     if (cacheConf.shouldCacheDataOnWrite()) {
       doCacheOnWrite(lastDataBlockOffset);
     }
   }
 
+  /**
+   * Hands a finished data block to the {@link #compressionPool}, then writes out the blocks at
+   * the head of {@link #pendingBlocks} that are already compressed, waiting for the oldest ones
+   * if there are too many in flight.
+   */
+  private void compressBlock(HFileBlock.Writer.DetachedBlock block, byte[] indexKey)
+      throws IOException {
+    PendingBlock pending = new PendingBlock(block, indexKey);
+    pending.compressed = compressionPool.submit(() -> {
+      HFileBlockDefaultEncodingContext encodingCtx = compressionContexts.poll();
+      if (encodingCtx == null) {
+        encodingCtx = new HFileBlockDefaultEncodingContext(null,
+            HConstants.HFILEBLOCK_DUMMY_HEADER, hFileContext);
+      }
+      try {
+        block.compress(encodingCtx);
+      } finally {
+        compressionContexts.add(encodingCtx);
+      }
+      return null;
+    });
+    pendingBlocks.add(pending);
+    writePendingBlocks(false);
+  }
+
+  /**
+   * Writes the compressed data blocks in file order and adds them to the data block index.
+   * @param all Whether to wait for all the pending blocks, or only write the ones that are ready
+   *          and as many as needed to stay within {@link #maxPendingBlocks}.
+   */
+  private void writePendingBlocks(boolean all) throws IOException {
+    while (!pendingBlocks.isEmpty()) {
+      PendingBlock pending = pendingBlocks.peek();
+      if (!all && pendingBlocks.size() <= maxPendingBlocks && !pending.compressed.isDone()) {
+        break;
+      }
+      try {
+        pending.compressed.get();
+      } catch (InterruptedException e) {
+        throw (InterruptedIOException) new InterruptedIOException(
+            "Interrupted while compressing a block of " + name).initCause(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+      }
+      pendingBlocks.poll();
+      long offset = outputStream.getPos();
+      if (firstDataBlockOffset == UNSET) {
+        firstDataBlockOffset = offset;
+      }
+      lastDataBlockOffset = offset;
+      pending.block.writeTo(outputStream, prevDataBlockOffset);
+      prevDataBlockOffset = offset;
+      dataBlockIndexWriter.addEntry(pending.indexKey, offset,
+        pending.block.getOnDiskSizeWithHeader());
+      if (zoneMapWriter != null) {
+        zoneMapWriter.blockWritten(offset, pending.block.getOnDiskSizeWithHeader());
+      }
+      totalUncompressedBytes += pending.block.getUncompressedSizeWithHeader();
+    }
+  }
+
   /**
    * Try to return a Cell that falls between <code>left</code> and
    * <code>right</code> but that is shorter; i.e. takes up less space. This
@@ -520,6 +668,17 @@ public class HFileWriterImpl implements HFile.Writer {
 
   /** Gives inline block writers an opportunity to contribute blocks. */
   private void writeInlineBlocks(boolean closing) throws IOException {
+    if (!pendingBlocks.isEmpty()) {
+      // Inline blocks follow the data blocks before them, and index their offsets. When closing,
+      // asking the index writer would already turn its entries into the root chunk.
+      boolean writeInline = closing;
+      for (int i = 0; !writeInline && i < inlineBlockWriters.size(); i++) {
+        writeInline = inlineBlockWriters.get(i).shouldWriteBlock(false);
+      }
+      if (writeInline) {
+        writePendingBlocks(true);
+      }
+    }
     for (InlineBlockWriter ibw : inlineBlockWriters) {
       while (ibw.shouldWriteBlock(closing)) {
         long offset = outputStream.getPos();
@@ -546,8 +705,8 @@ public class HFileWriterImpl implements HFile.Writer {
   private void doCacheOnWrite(long offset) {
     cacheConf.getBlockCache().ifPresent(cache -> {
       HFileBlock cacheFormatBlock = blockWriter.getBlockForCaching(cacheConf);
-      cache.cacheBlock(new BlockCacheKey(name, offset, true, cacheFormatBlock.getBlockType()),
-          cacheFormatBlock);
+      cache.cacheBlockAhead(new BlockCacheKey(name, offset, true, cacheFormatBlock.getBlockType()),
+          cacheFormatBlock, false);
     });
   }
 
@@ -560,6 +719,9 @@ public class HFileWriterImpl implements HFile.Writer {
     // This is where the next block begins.
     blockWriter.startWriting(BlockType.DATA);
     firstCellInBlock = null;
+    if (zoneMapWriter != null) {
+      zoneMapWriter.startBlock();
+    }
     if (lastCell != null) {
       lastCellOfPreviousBlock = lastCell;
     }
@@ -604,6 +766,9 @@ public class HFileWriterImpl implements HFile.Writer {
 
     finishBlock();
     writeInlineBlocks(true);
+    if (zoneMapWriter != null) {
+      appendMetaBlock(HFileZoneMap.META_BLOCK_NAME, zoneMapWriter);
+    }
 
     FixedFileTrailer trailer = new FixedFileTrailer(getMajorVersion(), getMinorVersion());
 
@@ -672,6 +837,10 @@ public class HFileWriterImpl implements HFile.Writer {
     finishClose(trailer);
 
     blockWriter.release();
+    HFileBlockDefaultEncodingContext encodingCtx;
+    while ((encodingCtx = compressionContexts.poll()) != null) {
+      encodingCtx.close();
+    }
   }
 
   @Override
@@ -741,6 +910,9 @@ public class HFileWriterImpl implements HFile.Writer {
     }
 
     blockWriter.write(cell);
+    if (zoneMapWriter != null) {
+      zoneMapWriter.append(cell, lastCell == null || !CellUtil.matchingRows(lastCell, cell));
+    }
 
     totalKeyLength += PrivateCellUtil.estimatedSerializedSizeOfKey(cell);
     totalValueLength += cell.getValueLength();
@@ -0,0 +1,377 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ByteBufferExtendedCell;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.util.ByteBufferUtils;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.Writable;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Minimum and maximum values of some qualifiers in each data block of an HFile, stored in the
+ * {@value #META_BLOCK_NAME} meta block. A scan whose filter only lets through values in a range
+ * steps over the blocks, and the whole files, none of whose values can be in that range.
+ * <p>
+ * The qualifiers are set per column family with {@value #ZONE_MAP_QUALIFIERS_KEY}. Values are
+ * compared as unsigned bytes, like {@link org.apache.hadoop.hbase.filter.BinaryComparator} does.
+ * The range of a block covers the values of all the rows having a cell in that block, not only
+ * of the cells written in it, so that a row split across blocks is skipped as a whole or not at
+ * all. A block holding anything but puts, i.e. delete markers, is never skipped.
+ */
+@InterfaceAudience.Private
+public class HFileZoneMap {
+
+  /** Comma separated qualifiers, in the format of {@link Bytes#toBytesBinary(String)}. */
+  public static final String ZONE_MAP_QUALIFIERS_KEY = "hbase.hfile.zonemap.qualifiers";
+
+  public static final String META_BLOCK_NAME = "ZONE_MAP";
+
+  private static final int VERSION = 1;
+
+  private final byte[][] qualifiers;
+  private final long[] offsets;
+  private final int[] onDiskSizes;
+  private final BitSet unskippable;
+  /** Per block and per qualifier, null if no row of the block has the qualifier. */
+  private final byte[][][] mins;
+  private final byte[][][] maxs;
+  /** The ranges over the whole file. */
+  private final byte[][] fileMins;
+  private final byte[][] fileMaxs;
+
+  private HFileZoneMap(byte[][] qualifiers, long[] offsets, int[] onDiskSizes,
+      BitSet unskippable, byte[][][] mins, byte[][][] maxs) {
+    this.qualifiers = qualifiers;
+    this.offsets = offsets;
+    this.onDiskSizes = onDiskSizes;
+    this.unskippable = unskippable;
+    this.mins = mins;
+    this.maxs = maxs;
+    this.fileMins = new byte[qualifiers.length][];
+    this.fileMaxs = new byte[qualifiers.length][];
+    for (int b = 0; b < offsets.length; b++) {
+      for (int q = 0; q < qualifiers.length; q++) {
+        if (mins[b][q] == null) {
+          continue;
+        }
+        if (fileMins[q] == null || Bytes.compareTo(mins[b][q], fileMins[q]) < 0) {
+          fileMins[q] = mins[b][q];
+        }
+        if (fileMaxs[q] == null || Bytes.compareTo(maxs[b][q], fileMaxs[q]) > 0) {
+          fileMaxs[q] = maxs[b][q];
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the qualifiers to keep the value ranges of, or null if there are none
+   */
+  public static byte[][] getQualifiers(Configuration conf) {
+    String[] names = conf.getTrimmedStrings(ZONE_MAP_QUALIFIERS_KEY);
+    if (names.length == 0) {
+      return null;
+    }
+    byte[][] qualifiers = new byte[names.length][];
+    for (int i = 0; i < names.length; i++) {
+      qualifiers[i] = Bytes.toBytesBinary(names[i]);
+    }
+    return qualifiers;
+  }
+
+  /**
+   * Reads what {@link Writer} wrote.
+   */
+  public static HFileZoneMap read(DataInput in) throws IOException {
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported zone map version " + version);
+    }
+    byte[][] qualifiers = new byte[in.readInt()][];
+    for (int i = 0; i < qualifiers.length; i++) {
+      qualifiers[i] = Bytes.readByteArray(in);
+    }
+    int blockCount = in.readInt();
+    long[] offsets = new long[blockCount];
+    int[] onDiskSizes = new int[blockCount];
+    BitSet unskippable = new BitSet(blockCount);
+    byte[][][] mins = new byte[blockCount][qualifiers.length][];
+    byte[][][] maxs = new byte[blockCount][qualifiers.length][];
+    for (int b = 0; b < blockCount; b++) {
+      offsets[b] = in.readLong();
+      onDiskSizes[b] = in.readInt();
+      unskippable.set(b, in.readBoolean());
+      for (int q = 0; q < qualifiers.length; q++) {
+        if (in.readBoolean()) {
+          mins[b][q] = Bytes.readByteArray(in);
+          maxs[b][q] = Bytes.readByteArray(in);
+        }
+      }
+    }
+    return new HFileZoneMap(qualifiers, offsets, onDiskSizes, unskippable, mins, maxs);
+  }
+
+  public int getBlockCount() {
+    return offsets.length;
+  }
+
+  /**
+   * @return whether a cell of the file may pass the predicate
+   */
+  public boolean mayMatch(Predicate predicate) {
+    return mayMatch(!unskippable.isEmpty(), fileMins, fileMaxs, predicate);
+  }
+
+  /**
+   * @param offset the offset of a block of the file
+   * @return the on disk size of the block if it is a data block no cell of which may pass the
+   *         predicate, otherwise -1
+   */
+  public int getSkippableSize(long offset, Predicate predicate) {
+    int b = Arrays.binarySearch(offsets, offset);
+    return b < 0 || mayMatch(unskippable.get(b), mins[b], maxs[b], predicate) ? -1
+        : onDiskSizes[b];
+  }
+
+  private boolean mayMatch(boolean unskippable, byte[][] mins, byte[][] maxs,
+      Predicate predicate) {
+    if (unskippable) {
+      return true;
+    }
+    for (byte[] qualifier : predicate.qualifiers) {
+      int q = indexOf(qualifier);
+      if (q < 0) {
+        return true;
+      }
+      if (mins[q] != null && predicate.mayMatch(mins[q], maxs[q])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int indexOf(byte[] qualifier) {
+    for (int q = 0; q < qualifiers.length; q++) {
+      if (Bytes.equals(qualifiers[q], qualifier)) {
+        return q;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * The values a scan lets through: the ones of any of some qualifiers comparing to a given value
+   * as the operator says, with the cell value on the left hand side.
+   */
+  public static final class Predicate {
+    private final byte[][] qualifiers;
+    private final CompareOperator op;
+    private final byte[] value;
+
+    public Predicate(Collection<byte[]> qualifiers, CompareOperator op, byte[] value) {
+      this.qualifiers = qualifiers.toArray(new byte[qualifiers.size()][]);
+      this.op = op;
+      this.value = value;
+    }
+
+    /**
+     * @return whether a value between min and max, both inclusive, may pass
+     */
+    boolean mayMatch(byte[] min, byte[] max) {
+      switch (op) {
+        case LESS:
+          return Bytes.compareTo(min, value) < 0;
+        case LESS_OR_EQUAL:
+          return Bytes.compareTo(min, value) <= 0;
+        case EQUAL:
+          return Bytes.compareTo(min, value) <= 0 && Bytes.compareTo(max, value) >= 0;
+        case NOT_EQUAL:
+          return !Bytes.equals(min, value) || !Bytes.equals(max, value);
+        case GREATER_OR_EQUAL:
+          return Bytes.compareTo(max, value) >= 0;
+        case GREATER:
+          return Bytes.compareTo(max, value) > 0;
+        default:
+          return true;
+      }
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      for (byte[] qualifier : qualifiers) {
+        sb.append(sb.length() == 0 ? "" : "|").append(Bytes.toStringBinary(qualifier));
+      }
+      return sb.append(' ').append(op).append(' ').append(Bytes.toStringBinary(value)).toString();
+    }
+  }
+
+  /**
+   * Collects the value ranges while an HFile is written, the cells and the data blocks being
+   * passed in file order.
+   */
+  public static final class Writer implements Writable {
+    private final byte[][] qualifiers;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> onDiskSizes = new ArrayList<>();
+    private final BitSet unskippable = new BitSet();
+    private final List<byte[][]> mins = new ArrayList<>();
+    private final List<byte[][]> maxs = new ArrayList<>();
+    /** The first and last blocks holding a cell of the current row. */
+    private int rowFirstBlock;
+    private int rowLastBlock;
+    /** The ranges of the current row, merged into every block the row reaches. */
+    private final byte[][] rowMins;
+    private final byte[][] rowMaxs;
+
+    public Writer(byte[][] qualifiers) {
+      this.qualifiers = qualifiers;
+      this.rowMins = new byte[qualifiers.length][];
+      this.rowMaxs = new byte[qualifiers.length][];
+    }
+
+    /**
+     * Called when a data block is started, before its first cell is appended.
+     */
+    public void startBlock() {
+      mins.add(new byte[qualifiers.length][]);
+      maxs.add(new byte[qualifiers.length][]);
+    }
+
+    /**
+     * @param newRow whether the cell starts a row
+     */
+    public void append(Cell cell, boolean newRow) {
+      int block = mins.size() - 1;
+      if (newRow) {
+        rowFirstBlock = block;
+        rowLastBlock = block;
+        Arrays.fill(rowMins, null);
+        Arrays.fill(rowMaxs, null);
+      } else if (block != rowLastBlock) {
+        // The row goes on in a new block, which gets what the row already has
+        rowLastBlock = block;
+        for (int q = 0; q < qualifiers.length; q++) {
+          if (rowMins[q] != null) {
+            merge(block, q, rowMins[q], rowMaxs[q]);
+          }
+        }
+      }
+      if (cell.getType() != Cell.Type.Put) {
+        unskippable.set(block);
+        return;
+      }
+      for (int q = 0; q < qualifiers.length; q++) {
+        if (!CellUtil.matchingQualifier(cell, qualifiers[q])) {
+          continue;
+        }
+        boolean lower = rowMins[q] == null || compareValue(cell, rowMins[q]) < 0;
+        boolean higher = rowMaxs[q] == null || compareValue(cell, rowMaxs[q]) > 0;
+        if (!lower && !higher) {
+          continue;
+        }
+        byte[] value = CellUtil.cloneValue(cell);
+        if (lower) {
+          rowMins[q] = value;
+        }
+        if (higher) {
+          rowMaxs[q] = value;
+        }
+        // Every block the row spans so far covers the whole row
+        for (int b = rowFirstBlock; b <= block; b++) {
+          merge(b, q, rowMins[q], rowMaxs[q]);
+        }
+      }
+    }
+
+    private void merge(int block, int q, byte[] min, byte[] max) {
+      byte[][] blockMins = mins.get(block);
+      byte[][] blockMaxs = maxs.get(block);
+      if (blockMins[q] == null || Bytes.compareTo(min, blockMins[q]) < 0) {
+        blockMins[q] = min;
+      }
+      if (blockMaxs[q] == null || Bytes.compareTo(max, blockMaxs[q]) > 0) {
+        blockMaxs[q] = max;
+      }
+    }
+
+    private static int compareValue(Cell cell, byte[] value) {
+      if (cell instanceof ByteBufferExtendedCell) {
+        return ByteBufferUtils.compareTo(((ByteBufferExtendedCell) cell).getValueByteBuffer(),
+            ((ByteBufferExtendedCell) cell).getValuePosition(), cell.getValueLength(), value, 0,
+            value.length);
+      }
+      return Bytes.compareTo(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(),
+          value, 0, value.length);
+    }
+
+    /**
+     * Called when a data block is written out. Blocks are written in the order they are started.
+     */
+    public void blockWritten(long offset, int onDiskSize) {
+      offsets.add(offset);
+      onDiskSizes.add(onDiskSize);
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      if (offsets.size() != mins.size()) {
+        throw new IOException("Started " + mins.size() + " data blocks but wrote "
+            + offsets.size());
+      }
+      out.writeInt(VERSION);
+      out.writeInt(qualifiers.length);
+      for (byte[] qualifier : qualifiers) {
+        Bytes.writeByteArray(out, qualifier);
+      }
+      out.writeInt(offsets.size());
+      for (int b = 0; b < offsets.size(); b++) {
+        out.writeLong(offsets.get(b));
+        out.writeInt(onDiskSizes.get(b));
+        out.writeBoolean(unskippable.get(b));
+        for (int q = 0; q < qualifiers.length; q++) {
+          byte[] min = mins.get(b)[q];
+          out.writeBoolean(min != null);
+          if (min != null) {
+            Bytes.writeByteArray(out, min);
+            Bytes.writeByteArray(out, maxs.get(b)[q]);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+      throw new IOException("Cant read with this class.");
+    }
+  }
+}
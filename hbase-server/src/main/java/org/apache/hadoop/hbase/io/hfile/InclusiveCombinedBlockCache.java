@@ -54,6 +54,12 @@ public class InclusiveCombinedBlockCache extends CombinedBlockCache {
     l2Cache.cacheBlock(cacheKey, buf, inMemory);
   }
 
+  @Override
+  public void cacheBlockAhead(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+    l1Cache.cacheBlockAhead(cacheKey, buf, inMemory);
+    l2Cache.cacheBlockAhead(cacheKey, buf, inMemory);
+  }
+
   @Override
   public boolean evictBlock(BlockCacheKey cacheKey) {
     boolean l1Result = this.l1Cache.evictBlock(cacheKey);
@@ -344,11 +344,14 @@ public final class BucketAllocator {
 
     // each bucket has an offset, sizeindex. probably the buckets are too big
     // in our default state. so what we do is reconfigure them according to what
-    // we've found. we can only reconfigure each bucket once; if more than once,
-    // we know there's a bug, so we just log the info, throw, and start again...
+    // we've found. we can only reconfigure each bucket once. The map may come from a
+    // checkpoint taken while the cache was being written to, so it can hold an evicted
+    // entry next to the newer one that reused its area; such conflicting entries are
+    // dropped rather than failing the whole restore.
     boolean[] reconfigured = new boolean[buckets.length];
     int sizeNotMatchedCount = 0;
     int insufficientCapacityCount = 0;
+    int conflictingCount = 0;
     Iterator<Map.Entry<BlockCacheKey, BucketEntry>> iterator = map.entrySet().iterator();
     while (iterator.hasNext()) {
       Map.Entry<BlockCacheKey, BucketEntry> entry = iterator.next();
@@ -375,7 +378,9 @@ public final class BucketAllocator {
       Bucket b = buckets[bucketNo];
       if (reconfigured[bucketNo]) {
         if (b.sizeIndex() != bucketSizeIndex) {
-          throw new BucketAllocatorException("Inconsistent allocation in bucket map;");
+          conflictingCount++;
+          iterator.remove();
+          continue;
         }
       } else {
         if (!b.isCompletelyFree()) {
@@ -390,8 +395,14 @@ public final class BucketAllocator {
         bsi.instantiateBucket(b);
         reconfigured[bucketNo] = true;
       }
+      try {
+        buckets[bucketNo].addAllocation(foundOffset);
+      } catch (BucketAllocatorException e) {
+        conflictingCount++;
+        iterator.remove();
+        continue;
+      }
       realCacheSize.add(foundLen);
-      buckets[bucketNo].addAllocation(foundOffset);
       usedSize += buckets[bucketNo].getItemAllocationSize();
       bucketSizeInfos[bucketSizeIndex].blockAllocated(b);
     }
@@ -404,6 +415,10 @@ public final class BucketAllocator {
       LOG.warn("There are " + insufficientCapacityCount + " blocks which can't be rebuilt - "
         + "did you shrink the cache?");
     }
+    if (conflictingCount > 0) {
+      LOG.warn("There are " + conflictingCount + " blocks which can't be rebuilt because they "
+        + "overlap with another block in the persisted bucket map");
+    }
   }
 
   @Override
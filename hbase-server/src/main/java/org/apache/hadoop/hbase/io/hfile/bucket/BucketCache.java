@@ -25,8 +25,11 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -81,6 +84,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.hbase.thirdparty.com.google.common.base.Preconditions;
 import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hbase.thirdparty.com.google.protobuf.InvalidProtocolBufferException;
 
 import org.apache.hadoop.hbase.shaded.protobuf.generated.BucketCacheProtos;
 
@@ -113,6 +117,34 @@ public class BucketCache implements BlockCache, HeapSize {
   static final String ACCEPT_FACTOR_CONFIG_NAME = "hbase.bucketcache.acceptfactor";
   static final String MIN_FACTOR_CONFIG_NAME = "hbase.bucketcache.minfactor";
 
+  /**
+   * How often, in milliseconds, the changes to the backingMap of a persistent cache are
+   * checkpointed next to the persistence path so that a restart after a crash can reuse the cache
+   * file. Zero or less disables checkpointing, the map is then only persisted on clean shutdown.
+   */
+  public static final String PERSIST_INTERVAL_CONFIG_NAME =
+      "hbase.bucketcache.persist.intervalinmillis";
+  static final long DEFAULT_PERSIST_INTERVAL = 60000;
+
+  /** Suffix of the file the checkpoints append their changes to, next to the persistence path */
+  static final String DELTA_FILE_SUFFIX = ".delta";
+
+  /**
+   * Admission filter config. When enabled and the cache is filled above the usage threshold, a
+   * data block is only admitted if a frequency sketch of the recent requests says it was asked for
+   * at least min.frequency times, so that blocks read once by a large scan do not push hot blocks
+   * out. Index, bloom and in-memory blocks are always admitted, and so are blocks cached ahead of
+   * any read by cache-on-write or prefetch.
+   */
+  static final String ADMISSION_FILTER_ENABLED_CONFIG_NAME =
+      "hbase.bucketcache.admission.filter.enabled";
+  static final String ADMISSION_FILTER_MIN_FREQUENCY_CONFIG_NAME =
+      "hbase.bucketcache.admission.filter.min.frequency";
+  static final String ADMISSION_FILTER_USAGE_THRESHOLD_CONFIG_NAME =
+      "hbase.bucketcache.admission.filter.usage.threshold";
+  static final int DEFAULT_ADMISSION_FILTER_MIN_FREQUENCY = 2;
+  static final float DEFAULT_ADMISSION_FILTER_USAGE_THRESHOLD = 0.8f;
+
   /** Priority buckets */
   @VisibleForTesting
   static final float DEFAULT_SINGLE_FACTOR = 0.25f;
@@ -165,6 +197,19 @@ public class BucketCache implements BlockCache, HeapSize {
   private volatile boolean freeInProgress = false;
   private transient final Lock freeSpaceLock = new ReentrantLock();
 
+  /**
+   * Keys added to or removed from backingMap since the last checkpoint. A checkpoint appends their
+   * current state to the delta file rather than rewriting the whole map.
+   */
+  private final Set<BlockCacheKey> changedKeys = ConcurrentHashMap.newKeySet();
+
+  // Id of the full checkpoint in the persistence file, the deltas only apply to that one.
+  private long checkpointId;
+  // Entries appended to the delta file since the full checkpoint.
+  private long deltaEntries;
+  // Whether the delta file cannot be appended to, so that the next checkpoint must be a full one.
+  private boolean fullCheckpointNeeded = true;
+
   private final LongAdder realCacheSize = new LongAdder();
   private final LongAdder heapSize = new LongAdder();
   /** Current number of cached elements */
@@ -238,6 +283,15 @@ public class BucketCache implements BlockCache, HeapSize {
   /** In-memory bucket size */
   private float memoryFactor;
 
+  /** Recent request frequencies of the blocks, null if the admission filter is disabled */
+  private final FrequencySketch admissionSketch;
+
+  /** Minimum estimated request count for a data block to be admitted under pressure */
+  private final int admissionMinFrequency;
+
+  /** Fraction of the cache in use above which the admission filter applies */
+  private final float admissionUsageThreshold;
+
   public BucketCache(String ioEngineName, long capacity, int blockSize, int[] bucketSizes,
       int writerThreadNum, int writerQLen, String persistencePath) throws IOException {
     this(ioEngineName, capacity, blockSize, bucketSizes, writerThreadNum, writerQLen,
@@ -247,7 +301,7 @@ public class BucketCache implements BlockCache, HeapSize {
   public BucketCache(String ioEngineName, long capacity, int blockSize, int[] bucketSizes,
       int writerThreadNum, int writerQLen, String persistencePath, int ioErrorsTolerationDuration,
       Configuration conf) throws IOException {
-    this.ioEngine = getIOEngineFromName(ioEngineName, capacity, persistencePath);
+    this.ioEngine = getIOEngineFromName(ioEngineName, capacity, persistencePath, conf);
     this.writerThreads = new WriterThread[writerThreadNum];
     long blockNumCapacity = capacity / blockSize;
     if (blockNumCapacity >= Integer.MAX_VALUE) {
@@ -262,6 +316,16 @@ public class BucketCache implements BlockCache, HeapSize {
     this.multiFactor = conf.getFloat(MULTI_FACTOR_CONFIG_NAME, DEFAULT_MULTI_FACTOR);
     this.memoryFactor = conf.getFloat(MEMORY_FACTOR_CONFIG_NAME, DEFAULT_MEMORY_FACTOR);
 
+    if (conf.getBoolean(ADMISSION_FILTER_ENABLED_CONFIG_NAME, false)) {
+      this.admissionSketch = new FrequencySketch(blockNumCapacity);
+    } else {
+      this.admissionSketch = null;
+    }
+    this.admissionMinFrequency = conf.getInt(ADMISSION_FILTER_MIN_FREQUENCY_CONFIG_NAME,
+        DEFAULT_ADMISSION_FILTER_MIN_FREQUENCY);
+    this.admissionUsageThreshold = conf.getFloat(ADMISSION_FILTER_USAGE_THRESHOLD_CONFIG_NAME,
+        DEFAULT_ADMISSION_FILTER_USAGE_THRESHOLD);
+
     sanityCheckConfigs();
 
     LOG.info("Instantiating BucketCache with acceptableFactor: " + acceptableFactor + ", minFactor: " + minFactor +
@@ -304,6 +368,11 @@ public class BucketCache implements BlockCache, HeapSize {
     // every five minutes.
     this.scheduleThreadPool.scheduleAtFixedRate(new StatisticsThread(this),
         statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
+    long persistInterval = conf.getLong(PERSIST_INTERVAL_CONFIG_NAME, DEFAULT_PERSIST_INTERVAL);
+    if (ioEngine.isPersistent() && persistencePath != null && persistInterval > 0) {
+      this.scheduleThreadPool.scheduleWithFixedDelay(this::checkpoint, persistInterval,
+          persistInterval, TimeUnit.MILLISECONDS);
+    }
     LOG.info("Started bucket cache; ioengine=" + ioEngineName +
         ", capacity=" + StringUtils.byteDesc(capacity) +
       ", blockSize=" + StringUtils.byteDesc(blockSize) + ", writerThreadNum=" +
@@ -321,6 +390,12 @@ public class BucketCache implements BlockCache, HeapSize {
     Preconditions.checkArgument(memoryFactor <= 1 && memoryFactor >= 0, MEMORY_FACTOR_CONFIG_NAME + " must be between 0.0 and 1.0");
     Preconditions.checkArgument((singleFactor + multiFactor + memoryFactor) == 1, SINGLE_FACTOR_CONFIG_NAME + ", " +
         MULTI_FACTOR_CONFIG_NAME + ", and " + MEMORY_FACTOR_CONFIG_NAME + " segments must add up to 1.0");
+    Preconditions.checkArgument(admissionMinFrequency >= 1
+        && admissionMinFrequency <= FrequencySketch.MAX_FREQUENCY,
+      ADMISSION_FILTER_MIN_FREQUENCY_CONFIG_NAME + " must be between 1 and "
+        + FrequencySketch.MAX_FREQUENCY);
+    Preconditions.checkArgument(admissionUsageThreshold <= 1 && admissionUsageThreshold >= 0,
+      ADMISSION_FILTER_USAGE_THRESHOLD_CONFIG_NAME + " must be between 0.0 and 1.0");
   }
 
   /**
@@ -353,12 +428,17 @@ public class BucketCache implements BlockCache, HeapSize {
    * @param ioEngineName
    * @param capacity
    * @param persistencePath
+   * @param conf configuration of engine specific settings
    * @return the IOEngine
    * @throws IOException
    */
-  private IOEngine getIOEngineFromName(String ioEngineName, long capacity, String persistencePath)
-      throws IOException {
-    if (ioEngineName.startsWith("file:") || ioEngineName.startsWith("files:")) {
+  private IOEngine getIOEngineFromName(String ioEngineName, long capacity, String persistencePath,
+      Configuration conf) throws IOException {
+    if (ioEngineName.startsWith("directfile:")) {
+      String[] filePaths = ioEngineName.substring(ioEngineName.indexOf(":") + 1)
+          .split(FileIOEngine.FILE_DELIMITER);
+      return new DirectFileIOEngine(capacity, persistencePath != null, conf, filePaths);
+    } else if (ioEngineName.startsWith("file:") || ioEngineName.startsWith("files:")) {
       // In order to make the usage simple, we only need the prefix 'files:' in
       // document whether one or multiple file(s), but also support 'file:' for
       // the compatibility
@@ -413,22 +493,35 @@ public class BucketCache implements BlockCache, HeapSize {
    */
   public void cacheBlockWithWait(BlockCacheKey cacheKey, Cacheable cachedItem, boolean inMemory,
       boolean wait) {
+    cacheBlockWithWait(cacheKey, cachedItem, inMemory, wait, false);
+  }
+
+  @Override
+  public void cacheBlockAhead(BlockCacheKey cacheKey, Cacheable cachedItem, boolean inMemory) {
+    cacheBlockWithWait(cacheKey, cachedItem, inMemory, wait_when_cache, true);
+  }
+
+  private void cacheBlockWithWait(BlockCacheKey cacheKey, Cacheable cachedItem, boolean inMemory,
+      boolean wait, boolean ahead) {
     if (cacheEnabled) {
       if (backingMap.containsKey(cacheKey) || ramCache.containsKey(cacheKey)) {
         if (BlockCacheUtil.shouldReplaceExistingCacheBlock(this, cacheKey, cachedItem)) {
-          cacheBlockWithWaitInternal(cacheKey, cachedItem, inMemory, wait);
+          cacheBlockWithWaitInternal(cacheKey, cachedItem, inMemory, wait, ahead);
         }
       } else {
-        cacheBlockWithWaitInternal(cacheKey, cachedItem, inMemory, wait);
+        cacheBlockWithWaitInternal(cacheKey, cachedItem, inMemory, wait, ahead);
       }
     }
   }
 
   private void cacheBlockWithWaitInternal(BlockCacheKey cacheKey, Cacheable cachedItem,
-      boolean inMemory, boolean wait) {
+      boolean inMemory, boolean wait, boolean ahead) {
     if (!cacheEnabled) {
       return;
     }
+    if (!admit(cacheKey, cachedItem, inMemory || ahead)) {
+      return;
+    }
     LOG.trace("Caching key={}, item={}", cacheKey, cachedItem);
     // Stuff the entry into the RAM cache so it can get drained to the persistent store
     RAMQueueEntry re =
@@ -466,6 +559,27 @@ public class BucketCache implements BlockCache, HeapSize {
     }
   }
 
+  /**
+   * Decides whether a block is worth a place in the cache. Always true unless the admission filter
+   * is enabled and the cache is filled above the usage threshold, in which case data blocks must
+   * have been requested often enough recently unless they are exempt.
+   */
+  private boolean admit(BlockCacheKey cacheKey, Cacheable cachedItem, boolean exempt) {
+    if (admissionSketch == null) {
+      return true;
+    }
+    BlockType blockType = cachedItem.getBlockType();
+    boolean admitted = exempt || blockType == null || !blockType.isData()
+        || bucketAllocator.getUsedSize() < admissionUsageThreshold * cacheCapacity
+        || admissionSketch.frequency(cacheKey) >= admissionMinFrequency;
+    if (admitted) {
+      cacheStats.admit();
+    } else {
+      cacheStats.rejectAdmission();
+    }
+    return admitted;
+  }
+
   /**
    * Get the buffer of the block with the specified key.
    * @param key block's cache key
@@ -480,6 +594,9 @@ public class BucketCache implements BlockCache, HeapSize {
     if (!cacheEnabled) {
       return null;
     }
+    if (admissionSketch != null && !repeat) {
+      admissionSketch.increment(key);
+    }
     RAMQueueEntry re = ramCache.get(key);
     if (re != null) {
       if (updateCacheMetrics) {
@@ -492,18 +609,21 @@ public class BucketCache implements BlockCache, HeapSize {
     if (bucketEntry != null) {
       long start = System.nanoTime();
       ReentrantReadWriteLock lock = offsetLock.getLock(bucketEntry.offset());
+      boolean checksumFailed = false;
       try {
         lock.readLock().lock();
         // We can not read here even if backingMap does contain the given key because its offset
         // maybe changed. If we lock BlockCacheKey instead of offset, then we can only check
         // existence here.
         if (bucketEntry.equals(backingMap.get(key))) {
-          // Read the block from IOEngine based on the bucketEntry's offset and length, NOTICE: the
-          // block will use the refCnt of bucketEntry, which means if two HFileBlock mapping to
-          // the same BucketEntry, then all of the three will share the same refCnt.
+          // Read the block from IOEngine based on the bucketEntry's offset and length.
           Cacheable cachedBlock = ioEngine.read(bucketEntry);
-          // RPC start to reference, so retain here.
-          cachedBlock.retain();
+          if (ioEngine.usesSharedMemory()) {
+            // NOTICE: the block uses the refCnt of bucketEntry, which means if two HFileBlock
+            // mapping to the same BucketEntry, then all of the three will share the same refCnt.
+            // RPC start to reference, so retain here. A copied block has a refCnt of its own.
+            cachedBlock.retain();
+          }
           // Update the cache statistics.
           if (updateCacheMetrics) {
             cacheStats.hit(caching, key.isPrimary(), key.getBlockType());
@@ -515,12 +635,21 @@ public class BucketCache implements BlockCache, HeapSize {
           }
           return cachedBlock;
         }
+      } catch (BucketEntryChecksumException e) {
+        // Stale entry restored from a checkpoint, not an IO error of the engine.
+        LOG.warn("Dropping block " + key + " restored from persisted bucket cache: "
+            + e.getMessage());
+        checksumFailed = true;
       } catch (IOException ioex) {
         LOG.error("Failed reading block " + key + " from bucket cache", ioex);
         checkIOErrorIsTolerated();
       } finally {
         lock.readLock().unlock();
       }
+      if (checksumFailed) {
+        // Can only take the write lock of the offset once the read lock is released.
+        bucketEntry.withWriteLock(offsetLock, bucketEntry::markAsEvicted);
+      }
     }
     if (!repeat && updateCacheMetrics) {
       cacheStats.miss(caching, key.isPrimary(), key.getBlockType());
@@ -530,6 +659,7 @@ public class BucketCache implements BlockCache, HeapSize {
 
   @VisibleForTesting
   void blockEvicted(BlockCacheKey cacheKey, BucketEntry bucketEntry, boolean decrementBlockNumber) {
+    changedKeys.add(cacheKey);
     bucketAllocator.freeBlock(bucketEntry.offset());
     realCacheSize.add(-1 * bucketEntry.getLength());
     blocksByHFile.remove(cacheKey);
@@ -641,7 +771,9 @@ public class BucketCache implements BlockCache, HeapSize {
           (StringUtils.formatPercent(cacheStats.getHitCachingRatio(), 2)+ ", ")) +
         "evictions=" + cacheStats.getEvictionCount() + ", " +
         "evicted=" + cacheStats.getEvictedCount() + ", " +
-        "evictedPerRun=" + cacheStats.evictedPerEviction());
+        "evictedPerRun=" + cacheStats.evictedPerEviction() + ", " +
+        "admitted=" + cacheStats.getAdmittedCount() + ", " +
+        "rejectedByAdmissionFilter=" + cacheStats.getRejectedAdmissionCount());
     cacheStats.reset();
   }
 
@@ -903,6 +1035,7 @@ public class BucketCache implements BlockCache, HeapSize {
      */
     private void putIntoBackingMap(BlockCacheKey key, BucketEntry bucketEntry) {
       BucketEntry previousEntry = backingMap.put(key, bucketEntry);
+      changedKeys.add(key);
       if (previousEntry != null && previousEntry != bucketEntry) {
         previousEntry.withWriteLock(offsetLock, () -> {
           blockEvicted(key, previousEntry, false);
@@ -1039,22 +1172,100 @@ public class BucketCache implements BlockCache, HeapSize {
   }
 
   /**
+   * Periodic checkpoint of the backingMap, run from the scheduleThreadPool. Only entries whose data
+   * has already been synced to the IOEngine are ever in backingMap, so a checkpoint never refers to
+   * data that could be lost on a crash. Entries whose area gets reused after the checkpoint are
+   * caught by their checksum when read after a restore.
+   * <p>
+   * The keys added or removed since the previous checkpoint are appended to the delta file. Once
+   * more entries were appended than the map holds, a full checkpoint replaces the persistence file
+   * and the delta file starts over.
+   */
+  @VisibleForTesting
+  synchronized void checkpoint() {
+    if (!cacheEnabled || changedKeys.isEmpty()) {
+      return;
+    }
+    try {
+      if (fullCheckpointNeeded || deltaEntries + changedKeys.size() > backingMap.size()) {
+        persistToFile();
+      } else {
+        appendDelta();
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to checkpoint bucket cache to " + persistencePath, e);
+    }
+  }
+
+  private synchronized void appendDelta() throws IOException {
+    Map<BlockCacheKey, BucketEntry> added = new HashMap<>();
+    List<BlockCacheKey> evicted = new ArrayList<>();
+    for (Iterator<BlockCacheKey> it = changedKeys.iterator(); it.hasNext();) {
+      BlockCacheKey key = it.next();
+      // Removed before looking the key up, so that a change racing with us is recorded again.
+      it.remove();
+      BucketEntry entry = backingMap.get(key);
+      if (entry != null) {
+        added.put(key, entry);
+      } else {
+        evicted.add(key);
+      }
+    }
+    // Set until the delta is safely written, a partial one ends the deltas read on restore.
+    fullCheckpointNeeded = true;
+    try (FileOutputStream fos = new FileOutputStream(persistencePath + DELTA_FILE_SUFFIX, true)) {
+      BucketProtoUtils.toPB(checkpointId, added, evicted).writeDelimitedTo(fos);
+      fos.getFD().sync();
+    }
+    deltaEntries += added.size() + evicted.size();
+    fullCheckpointNeeded = false;
+  }
+
+  /**
+   * Writes the backingMap to a temporary file which then replaces the persistence file, so that a
+   * crash while persisting leaves the previous checkpoint in place. The delta file of the previous
+   * checkpoint is deleted afterwards, if that fails its deltas are ignored because of their id.
    * @see #retrieveFromFile(int[])
    */
   @edu.umd.cs.findbugs.annotations.SuppressWarnings(value="OBL_UNSATISFIED_OBLIGATION",
       justification = "false positive, try-with-resources ensures close is called.")
-  private void persistToFile() throws IOException {
-    assert !cacheEnabled;
+  private synchronized void persistToFile() throws IOException {
     if (!ioEngine.isPersistent()) {
       throw new IOException("Attempt to persist non-persistent cache mappings!");
     }
-    try (FileOutputStream fos = new FileOutputStream(persistencePath, false)) {
+    File persistenceFile = new File(persistencePath);
+    File tmpFile = new File(persistencePath + ".tmp");
+    long id = checkpointId + 1;
+    // Changes from now on are either in the snapshot or go to the next delta, or both.
+    changedKeys.clear();
+    fullCheckpointNeeded = true;
+    try (FileOutputStream fos = new FileOutputStream(tmpFile, false)) {
       fos.write(ProtobufMagic.PB_MAGIC);
-      BucketProtoUtils.toPB(this).writeDelimitedTo(fos);
+      BucketProtoUtils.toPB(this, id).writeDelimitedTo(fos);
+      fos.getFD().sync();
+    }
+    try {
+      Files.move(tmpFile.toPath(), persistenceFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      if (!tmpFile.delete()) {
+        LOG.warn("Failed deleting " + tmpFile.getAbsolutePath());
+      }
+      throw e;
+    }
+    checkpointId = id;
+    deltaEntries = 0;
+    File deltaFile = new File(persistencePath + DELTA_FILE_SUFFIX);
+    if (deltaFile.exists() && !deltaFile.delete()) {
+      LOG.warn("Failed deleting " + deltaFile.getAbsolutePath());
+      return;
     }
+    fullCheckpointNeeded = false;
   }
 
   /**
+   * Restores the last full checkpoint and the deltas appended after it. The files are kept, so
+   * that a crash before the next checkpoint still finds them.
    * @see #persistToFile()
    */
   private void retrieveFromFile(int[] bucketSizes) throws IOException {
@@ -1064,7 +1275,7 @@ public class BucketCache implements BlockCache, HeapSize {
     }
     assert !cacheEnabled;
 
-    try (FileInputStream in = deleteFileOnClose(persistenceFile)) {
+    try (FileInputStream in = new FileInputStream(persistenceFile)) {
       int pblen = ProtobufMagic.lengthOfPBMagic();
       byte[] pbuf = new byte[pblen];
       int read = in.read(pbuf);
@@ -1078,36 +1289,49 @@ public class BucketCache implements BlockCache, HeapSize {
         throw new IOException("Persistence file does not start with protobuf magic number. " +
             persistencePath);
       }
-      parsePB(BucketCacheProtos.BucketCacheEntry.parseDelimitedFrom(in));
-      bucketAllocator = new BucketAllocator(cacheCapacity, bucketSizes, backingMap, realCacheSize);
+      BucketCacheProtos.BucketCacheEntry proto =
+          BucketCacheProtos.BucketCacheEntry.parseDelimitedFrom(in);
+      ConcurrentHashMap<BlockCacheKey, BucketEntry> restoredMap = parsePB(proto);
+      boolean deltasComplete = applyDeltas(proto.getCheckpointId(), restoredMap);
+      int parsed = restoredMap.size();
+      LongAdder restoredSize = new LongAdder();
+      // Only switch over once the allocator accepted the map, a failed restore leaves us empty.
+      bucketAllocator = new BucketAllocator(cacheCapacity, bucketSizes, restoredMap, restoredSize);
+      backingMap = restoredMap;
+      realCacheSize.add(restoredSize.sum());
+      blocksByHFile.addAll(backingMap.keySet());
+      blockNumber.add(backingMap.size());
+      checkpointId = proto.getCheckpointId();
+      // Entries the allocator dropped are still in the files, only a full checkpoint forgets them.
+      fullCheckpointNeeded = !deltasComplete || restoredMap.size() != parsed;
+      LOG.info("Restored " + backingMap.size() + " blocks, "
+          + StringUtils.byteDesc(restoredSize.sum()) + ", from " + persistencePath);
     }
   }
-
   /**
-   * Create an input stream that deletes the file after reading it. Use in try-with-resources to
-   * avoid this pattern where an exception thrown from a finally block may mask earlier exceptions:
-   * <pre>
-   *   File f = ...
-   *   try (FileInputStream fis = new FileInputStream(f)) {
-   *     // use the input stream
-   *   } finally {
-   *     if (!f.delete()) throw new IOException("failed to delete");
-   *   }
-   * </pre>
-   * @param file the file to read and delete
-   * @return a FileInputStream for the given file
-   * @throws IOException if there is a problem creating the stream
+   * Applies the deltas written after the given full checkpoint, counting them in deltaEntries.
+   * Deltas of an older checkpoint, left over by a failed delete, are skipped.
+   * @return false if the delta file ends with a partially written delta
    */
-  private FileInputStream deleteFileOnClose(final File file) throws IOException {
-    return new FileInputStream(file) {
-      @Override
-      public void close() throws IOException {
-        super.close();
-        if (!file.delete()) {
-          throw new IOException("Failed deleting persistence file " + file.getAbsolutePath());
+  private boolean applyDeltas(long id, Map<BlockCacheKey, BucketEntry> restoredMap)
+      throws IOException {
+    File deltaFile = new File(persistencePath + DELTA_FILE_SUFFIX);
+    if (!deltaFile.exists()) {
+      return true;
+    }
+    try (FileInputStream in = new FileInputStream(deltaFile)) {
+      BucketCacheProtos.BucketCacheDelta delta;
+      while ((delta = BucketCacheProtos.BucketCacheDelta.parseDelimitedFrom(in)) != null) {
+        if (delta.getCheckpointId() == id) {
+          BucketProtoUtils.apply(delta, this::createRecycler, restoredMap);
+          deltaEntries += delta.getAddedCount() + delta.getEvictedCount();
         }
       }
-    };
+      return true;
+    } catch (InvalidProtocolBufferException e) {
+      LOG.warn("Ignoring the partially written end of " + deltaFile, e);
+      return false;
+    }
   }
 
   private void verifyCapacityAndClasses(long capacitySize, String ioclass, String mapclass)
@@ -1127,9 +1351,11 @@ public class BucketCache implements BlockCache, HeapSize {
     }
   }
 
-  private void parsePB(BucketCacheProtos.BucketCacheEntry proto) throws IOException {
+  private ConcurrentHashMap<BlockCacheKey, BucketEntry> parsePB(
+      BucketCacheProtos.BucketCacheEntry proto) throws IOException {
     verifyCapacityAndClasses(proto.getCacheCapacity(), proto.getIoClass(), proto.getMapClass());
-    backingMap = BucketProtoUtils.fromPB(proto.getDeserializersMap(), proto.getBackingMap());
+    return BucketProtoUtils.fromPB(proto.getDeserializersMap(), proto.getBackingMap(),
+      this::createRecycler);
   }
 
   /**
@@ -1362,12 +1588,19 @@ public class BucketCache implements BlockCache, HeapSize {
           HFileBlock block = (HFileBlock) data;
           ByteBuff sliceBuf = block.getBufferReadOnly();
           ByteBuffer metadata = block.getMetaData();
+          if (ioEngine.isPersistent()) {
+            bucketEntry.setChecksum(BucketEntry.checksum(
+              sliceBuf.asSubByteBuffer(sliceBuf.remaining()), metadata));
+          }
           ioEngine.write(sliceBuf, offset);
           ioEngine.write(metadata, offset + len - metadata.limit());
         } else {
           // Only used for testing.
           ByteBuffer bb = ByteBuffer.allocate(len);
           data.serialize(bb, true);
+          if (ioEngine.isPersistent()) {
+            bucketEntry.setChecksum(BucketEntry.checksum(bb));
+          }
           ioEngine.write(bb, offset);
         }
         succ = true;
@@ -32,6 +32,9 @@ import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 public class BucketCacheStats extends CacheStats {
   private final LongAdder ioHitCount = new LongAdder();
   private final LongAdder ioHitTime = new LongAdder();
+  /** Blocks let through, or turned away by, the admission filter */
+  private final LongAdder admittedCount = new LongAdder();
+  private final LongAdder rejectedAdmissionCount = new LongAdder();
   private static final long NANO_TIME = TimeUnit.MILLISECONDS.toNanos(1);
   private long lastLogTime = EnvironmentEdgeManager.currentTime();
 
@@ -42,7 +45,8 @@ public class BucketCacheStats extends CacheStats {
   @Override
   public String toString() {
     return super.toString() + ", ioHitsPerSecond=" + getIOHitsPerSecond() +
-      ", ioTimePerHit=" + getIOTimePerHit();
+      ", ioTimePerHit=" + getIOTimePerHit() + ", admitted=" + getAdmittedCount() +
+      ", rejectedByAdmissionFilter=" + getRejectedAdmissionCount();
   }
 
   public void ioHit(long time) {
@@ -50,6 +54,22 @@ public class BucketCacheStats extends CacheStats {
     ioHitTime.add(time);
   }
 
+  public void admit() {
+    admittedCount.increment();
+  }
+
+  public void rejectAdmission() {
+    rejectedAdmissionCount.increment();
+  }
+
+  public long getAdmittedCount() {
+    return admittedCount.sum();
+  }
+
+  public long getRejectedAdmissionCount() {
+    return rejectedAdmissionCount.sum();
+  }
+
   public long getIOHitsPerSecond() {
     long now = EnvironmentEdgeManager.currentTime();
     long took = (now - lastLogTime) / 1000;
@@ -25,6 +25,7 @@ import java.nio.ByteBuffer;
 import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
 
 import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.io.hfile.BlockPriority;
@@ -63,6 +64,19 @@ class BucketEntry implements HBaseReferenceCounted {
   private volatile long accessCounter;
   private BlockPriority priority;
 
+  /**
+   * CRC32 of the bytes written to the {@link IOEngine} for this entry. Only computed when the
+   * cache is persistent; used to detect entries restored from a checkpoint whose area was
+   * overwritten after the checkpoint was taken.
+   */
+  private int checksum;
+
+  /**
+   * False for entries restored from a persisted checkpoint until their content has been read back
+   * and matched against {@link #checksum} once.
+   */
+  private volatile boolean checksumVerified = true;
+
   /**
    * The RefCnt means how many paths are referring the {@link BucketEntry}, each RPC reading path is
    * considering as one path, the {@link BucketCache#backingMap} reference is also considered a
@@ -152,6 +166,34 @@ class BucketEntry implements HBaseReferenceCounted {
     return cachedTime;
   }
 
+  int getChecksum() {
+    return checksum;
+  }
+
+  void setChecksum(int checksum) {
+    this.checksum = checksum;
+  }
+
+  boolean isChecksumVerified() {
+    return checksumVerified;
+  }
+
+  void setChecksumVerified(boolean checksumVerified) {
+    this.checksumVerified = checksumVerified;
+  }
+
+  /**
+   * @return the CRC32 of the remaining bytes of the given buffers, in order. Positions of the
+   *         passed buffers are left untouched.
+   */
+  static int checksum(ByteBuffer... buffers) {
+    CRC32 crc = new CRC32();
+    for (ByteBuffer buffer : buffers) {
+      crc.update(buffer.duplicate());
+    }
+    return (int) crc.getValue();
+  }
+
   /**
    * The {@link BucketCache} will try to release its reference to this BucketEntry many times. we
    * must make sure the idempotent, otherwise it'll decrease the RPC's reference count in advance,
@@ -193,11 +235,26 @@ class BucketEntry implements HBaseReferenceCounted {
     return this.refCnt() > 1 || (evicted && refCnt() == 1);
   }
 
+  /**
+   * Wraps buffers pointing at the memory area of this entry, sharing its refCnt.
+   */
   Cacheable wrapAsCacheable(ByteBuffer[] buffers) throws IOException {
     ByteBuff buf = ByteBuff.wrap(buffers, this.refCnt);
     return this.deserializerReference().deserialize(buf, allocator);
   }
 
+  /**
+   * Wraps a copy of the content of this entry. The copy keeps its own refCnt, and releasing it
+   * does not touch the one of this entry.
+   */
+  Cacheable wrapAsCacheable(ByteBuff buf) throws IOException {
+    return this.deserializerReference().deserialize(buf, allocator);
+  }
+
+  ByteBuffAllocator getAllocator() {
+    return allocator;
+  }
+
   interface BucketEntryHandler<T> {
     T handle();
   }
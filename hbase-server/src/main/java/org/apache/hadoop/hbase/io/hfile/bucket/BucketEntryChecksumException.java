@@ -0,0 +1,37 @@
+/**
+ * Copyright The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import java.io.IOException;
+
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Thrown by an {@link IOEngine} when the content read for a {@link BucketEntry} restored from a
+ * persisted checkpoint does not match the checksum recorded when it was written. The area has
+ * been reused since the checkpoint, so the entry must be dropped rather than served.
+ */
+@InterfaceAudience.Private
+public class BucketEntryChecksumException extends IOException {
+  private static final long serialVersionUID = -4375231876594519204L;
+
+  BucketEntryChecksumException(String reason) {
+    super(reason);
+  }
+}
@@ -21,14 +21,20 @@
 package org.apache.hadoop.hbase.io.hfile.bucket;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator.Recycler;
 import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
 import org.apache.hadoop.hbase.io.hfile.BlockPriority;
 import org.apache.hadoop.hbase.io.hfile.BlockType;
 import org.apache.hadoop.hbase.io.hfile.CacheableDeserializerIdManager;
 import org.apache.hadoop.hbase.io.hfile.HFileBlock;
+import org.apache.hadoop.hbase.nio.RefCnt;
 import org.apache.yetus.audience.InterfaceAudience;
 
 import org.apache.hadoop.hbase.shaded.protobuf.generated.BucketCacheProtos;
@@ -39,13 +45,14 @@ final class BucketProtoUtils {
 
   }
 
-  static BucketCacheProtos.BucketCacheEntry toPB(BucketCache cache) {
+  static BucketCacheProtos.BucketCacheEntry toPB(BucketCache cache, long checkpointId) {
     return BucketCacheProtos.BucketCacheEntry.newBuilder()
         .setCacheCapacity(cache.getMaxSize())
         .setIoClass(cache.ioEngine.getClass().getName())
         .setMapClass(cache.backingMap.getClass().getName())
         .putAllDeserializers(CacheableDeserializerIdManager.save())
         .setBackingMap(BucketProtoUtils.toPB(cache.backingMap))
+        .setCheckpointId(checkpointId)
         .build();
   }
 
@@ -53,14 +60,37 @@ final class BucketProtoUtils {
       Map<BlockCacheKey, BucketEntry> backingMap) {
     BucketCacheProtos.BackingMap.Builder builder = BucketCacheProtos.BackingMap.newBuilder();
     for (Map.Entry<BlockCacheKey, BucketEntry> entry : backingMap.entrySet()) {
-      builder.addEntry(BucketCacheProtos.BackingMapEntry.newBuilder()
-          .setKey(toPB(entry.getKey()))
-          .setValue(toPB(entry.getValue()))
-          .build());
+      builder.addEntry(toPB(entry.getKey(), entry.getValue()));
     }
     return builder.build();
   }
 
+  /**
+   * @param added the entries added since the previous checkpoint, by key
+   * @param evicted the keys removed since the previous checkpoint
+   */
+  static BucketCacheProtos.BucketCacheDelta toPB(long checkpointId,
+      Map<BlockCacheKey, BucketEntry> added, Collection<BlockCacheKey> evicted) {
+    BucketCacheProtos.BucketCacheDelta.Builder builder =
+        BucketCacheProtos.BucketCacheDelta.newBuilder()
+            .setCheckpointId(checkpointId)
+            .putAllDeserializers(CacheableDeserializerIdManager.save());
+    for (Map.Entry<BlockCacheKey, BucketEntry> entry : added.entrySet()) {
+      builder.addAdded(toPB(entry.getKey(), entry.getValue()));
+    }
+    for (BlockCacheKey key : evicted) {
+      builder.addEvicted(toPB(key));
+    }
+    return builder.build();
+  }
+
+  private static BucketCacheProtos.BackingMapEntry toPB(BlockCacheKey key, BucketEntry value) {
+    return BucketCacheProtos.BackingMapEntry.newBuilder()
+        .setKey(toPB(key))
+        .setValue(toPB(value))
+        .build();
+  }
+
   private static BucketCacheProtos.BlockCacheKey toPB(BlockCacheKey key) {
     return BucketCacheProtos.BlockCacheKey.newBuilder()
         .setHfilename(key.getHfileName())
@@ -108,6 +138,7 @@ final class BucketProtoUtils {
         .setDeserialiserIndex(entry.deserializerIndex)
         .setAccessCounter(entry.getAccessCounter())
         .setPriority(toPB(entry.getPriority()))
+        .setChecksum(entry.getChecksum())
         .build();
   }
 
@@ -124,20 +155,49 @@ final class BucketProtoUtils {
     }
   }
 
+  /**
+   * @param createRecycler gives the recycler that frees the allocation of a restored entry once
+   *          it is evicted and no longer referenced
+   */
   static ConcurrentHashMap<BlockCacheKey, BucketEntry> fromPB(
-      Map<Integer, String> deserializers, BucketCacheProtos.BackingMap backingMap)
-      throws IOException {
+      Map<Integer, String> deserializers, BucketCacheProtos.BackingMap backingMap,
+      Function<BlockCacheKey, Recycler> createRecycler) throws IOException {
     ConcurrentHashMap<BlockCacheKey, BucketEntry> result = new ConcurrentHashMap<>();
-    for (BucketCacheProtos.BackingMapEntry entry : backingMap.getEntryList()) {
-      BucketCacheProtos.BlockCacheKey protoKey = entry.getKey();
-      BlockCacheKey key = new BlockCacheKey(protoKey.getHfilename(), protoKey.getOffset(),
-          protoKey.getPrimaryReplicaBlock(), fromPb(protoKey.getBlockType()));
+    apply(deserializers, backingMap.getEntryList(), createRecycler, result);
+    return result;
+  }
+
+  /**
+   * Applies a delta to a map restored from the checkpoint it was written after.
+   */
+  static void apply(BucketCacheProtos.BucketCacheDelta delta,
+      Function<BlockCacheKey, Recycler> createRecycler,
+      Map<BlockCacheKey, BucketEntry> backingMap) throws IOException {
+    for (BucketCacheProtos.BlockCacheKey protoKey : delta.getEvictedList()) {
+      backingMap.remove(fromPB(protoKey));
+    }
+    apply(delta.getDeserializersMap(), delta.getAddedList(), createRecycler, backingMap);
+  }
+
+  private static void apply(Map<Integer, String> deserializers,
+      List<BucketCacheProtos.BackingMapEntry> entries,
+      Function<BlockCacheKey, Recycler> createRecycler,
+      Map<BlockCacheKey, BucketEntry> result) throws IOException {
+    for (BucketCacheProtos.BackingMapEntry entry : entries) {
+      BlockCacheKey key = fromPB(entry.getKey());
       BucketCacheProtos.BucketEntry protoValue = entry.getValue();
       BucketEntry value = new BucketEntry(
           protoValue.getOffset(),
           protoValue.getLength(),
           protoValue.getAccessCounter(),
-          protoValue.getPriority() == BucketCacheProtos.BlockPriority.memory);
+          protoValue.getPriority() == BucketCacheProtos.BlockPriority.memory,
+          RefCnt.create(createRecycler.apply(key)),
+          ByteBuffAllocator.HEAP);
+      if (protoValue.hasChecksum()) {
+        // The area may have been reused after this entry was persisted; check before serving.
+        value.setChecksum(protoValue.getChecksum());
+        value.setChecksumVerified(false);
+      }
       // This is the deserializer that we stored
       int oldIndex = protoValue.getDeserialiserIndex();
       String deserializerClass = deserializers.get(oldIndex);
@@ -155,7 +215,11 @@ final class BucketProtoUtils {
       }
       result.put(key, value);
     }
-    return result;
+  }
+
+  private static BlockCacheKey fromPB(BucketCacheProtos.BlockCacheKey protoKey) {
+    return new BlockCacheKey(protoKey.getHfilename(), protoKey.getOffset(),
+        protoKey.getPrimaryReplicaBlock(), fromPb(protoKey.getBlockType()));
   }
 
   private static BlockType fromPb(BucketCacheProtos.BlockType blockType) {
@@ -0,0 +1,517 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.util.StringUtils;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.hbase.thirdparty.com.google.common.base.Preconditions;
+
+/**
+ * IO engine that stores data to files on the local file system, bypassing the OS page cache.
+ * <p>
+ * The files are opened with O_DIRECT when the JVM supports it (the
+ * com.sun.nio.file.ExtendedOpenOption.DIRECT option, JDK 10 and later), so that cached blocks
+ * are not held a second time in the page cache. Otherwise the engine logs a warning and falls
+ * back to buffered IO. In both cases all IO is done on aligned offsets and lengths through aligned
+ * direct buffers, reading or rewriting the partial pages around a block as needed.
+ * <p>
+ * Reads are not done on the calling RPC handler. They are queued to a small pool of IO threads
+ * which take them in batches, sort each batch by offset and coalesce requests for adjacent or
+ * overlapping pages into a single positional read. Each block is copied out of the aligned read
+ * buffer of the IO thread into a buffer of the {@link ByteBuffAllocator} of its entry, and the
+ * caller is woken up once its request completes. Writes are already done off the RPC path by the BucketCache writer threads and are
+ * issued directly.
+ */
+@InterfaceAudience.Private
+public class DirectFileIOEngine implements IOEngine {
+  private static final Logger LOG = LoggerFactory.getLogger(DirectFileIOEngine.class);
+
+  static final String IO_THREADS_KEY = "hbase.bucketcache.directfile.io.threads";
+  static final int DEFAULT_IO_THREADS = 4;
+  static final String MAX_BATCH_KEY = "hbase.bucketcache.directfile.max.batch";
+  static final int DEFAULT_MAX_BATCH = 32;
+  static final String ALIGNMENT_KEY = "hbase.bucketcache.directfile.alignment";
+  static final int DEFAULT_ALIGNMENT = 4096;
+  static final String USE_DIRECT_IO_KEY = "hbase.bucketcache.directfile.direct";
+
+  /** Upper bound of a single coalesced read */
+  private static final int MAX_COALESCED_READ = 1024 * 1024;
+  private static final int PAGE_LOCK_STRIPES = 64;
+  private static final Comparator<ReadRequest> BY_OFFSET =
+      Comparator.comparingLong(request -> request.offset);
+
+  private final String[] filePaths;
+  private final FileChannel[] fileChannels;
+  private final long sizePerFile;
+  private final long capacity;
+  private final int alignment;
+  private final int maxBatch;
+  private final boolean directIO;
+
+  /** Guards the read-modify-write of the partial pages at the edges of a write */
+  private final ReentrantLock[] pageLocks = new ReentrantLock[PAGE_LOCK_STRIPES];
+  private final ThreadLocal<AlignedBuffer> writeBuffers =
+      ThreadLocal.withInitial(AlignedBuffer::new);
+
+  private final BlockingQueue<ReadRequest> readQueue = new LinkedBlockingQueue<>();
+  private final IOThread[] ioThreads;
+  private volatile boolean running = true;
+
+  public DirectFileIOEngine(long capacity, boolean maintainPersistence, Configuration conf,
+      String... filePaths) throws IOException {
+    this.alignment = conf.getInt(ALIGNMENT_KEY, DEFAULT_ALIGNMENT);
+    Preconditions.checkArgument(alignment > 0 && Integer.bitCount(alignment) == 1,
+      ALIGNMENT_KEY + " must be a power of two");
+    this.maxBatch = Math.max(1, conf.getInt(MAX_BATCH_KEY, DEFAULT_MAX_BATCH));
+    // Round up so that every file starts on an aligned global offset
+    this.sizePerFile = alignUp(capacity / filePaths.length);
+    this.capacity = this.sizePerFile * filePaths.length;
+    this.filePaths = filePaths;
+    this.fileChannels = new FileChannel[filePaths.length];
+    for (int i = 0; i < pageLocks.length; i++) {
+      pageLocks[i] = new ReentrantLock();
+    }
+    OpenOption direct = conf.getBoolean(USE_DIRECT_IO_KEY, true) ? directOpenOption() : null;
+    boolean allDirect = direct != null;
+    try {
+      for (int i = 0; i < filePaths.length; i++) {
+        String filePath = filePaths[i];
+        File file = new File(filePath);
+        if (!maintainPersistence && file.exists()) {
+          LOG.debug("File {} already exists. Deleting!!", filePath);
+          file.delete();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(filePath, "rw")) {
+          raf.setLength(sizePerFile);
+        }
+        fileChannels[i] = open(filePath, direct);
+        if (fileChannels[i] == null) {
+          allDirect = false;
+          fileChannels[i] = open(filePath, null);
+        }
+        LOG.info("Allocating cache " + StringUtils.byteDesc(sizePerFile) + ", on the path:"
+            + filePath);
+      }
+    } catch (IOException e) {
+      LOG.error("Failed allocating cache on " + Arrays.asList(filePaths), e);
+      shutdown();
+      throw e;
+    }
+    this.directIO = allDirect;
+    if (!directIO) {
+      LOG.warn("Direct IO is not available for " + Arrays.asList(filePaths)
+          + ", the bucket cache data will also go through the OS page cache");
+    }
+    int threads = Math.max(1, conf.getInt(IO_THREADS_KEY, DEFAULT_IO_THREADS));
+    this.ioThreads = new IOThread[threads];
+    for (int i = 0; i < threads; i++) {
+      ioThreads[i] = new IOThread();
+      ioThreads[i].setName("BucketCacheDirectIO-" + i);
+      ioThreads[i].setDaemon(true);
+      ioThreads[i].start();
+    }
+  }
+
+  /**
+   * @return the DIRECT open option, or null if this JVM does not support it
+   */
+  private static OpenOption directOpenOption() {
+    try {
+      Class<?> clazz = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+      for (Object constant : clazz.getEnumConstants()) {
+        if ("DIRECT".equals(((Enum<?>) constant).name())) {
+          return (OpenOption) constant;
+        }
+      }
+    } catch (ClassNotFoundException e) {
+      // Not a JDK with extended open options
+    }
+    return null;
+  }
+
+  /**
+   * @return the opened channel, or null if the file system refused the direct option
+   */
+  private static FileChannel open(String filePath, OpenOption direct) throws IOException {
+    if (direct == null) {
+      return FileChannel.open(Paths.get(filePath), StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    }
+    try {
+      return FileChannel.open(Paths.get(filePath), StandardOpenOption.READ,
+        StandardOpenOption.WRITE, direct);
+    } catch (IOException | UnsupportedOperationException e) {
+      LOG.warn("Unable to open " + filePath + " for direct IO", e);
+      return null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ioengine=" + this.getClass().getSimpleName() + ", paths="
+        + Arrays.asList(filePaths) + ", capacity=" + String.format("%,d", this.capacity)
+        + ", directIO=" + directIO + ", alignment=" + alignment;
+  }
+
+  /**
+   * Direct file IO engine is always able to support persistent storage for the cache
+   * @return true
+   */
+  @Override
+  public boolean isPersistent() {
+    return true;
+  }
+
+  @VisibleForTesting
+  boolean isDirectIO() {
+    return directIO;
+  }
+
+  @Override
+  public Cacheable read(BucketEntry be) throws IOException {
+    long offset = be.offset();
+    int length = be.getLength();
+    Preconditions.checkArgument(length >= 0, "Length of read can not be less than 0.");
+    if (!running) {
+      throw new IOException("IO engine is shut down");
+    }
+    ByteBuff dst = be.getAllocator().allocate(length);
+    try {
+      if (length != 0) {
+        ReadRequest request = new ReadRequest(offset, length, dst);
+        readQueue.add(request);
+        if (!running) {
+          // Raced with shutdown, the IO threads may be gone already
+          failPendingReads(new IOException("IO engine is shut down"));
+        }
+        awaitRead(request);
+      }
+      dst.rewind();
+      if (!be.isChecksumVerified()) {
+        FileIOEngine.verifyChecksum(be, dst.nioByteBuffers());
+      }
+      return be.wrapAsCacheable(dst);
+    } catch (IOException e) {
+      dst.release();
+      throw e;
+    }
+  }
+
+  private static void awaitRead(ReadRequest request) throws IOException {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          request.done.get();
+          return;
+        } catch (InterruptedException e) {
+          // The IO thread may still copy into the buffer, which can only be released afterwards
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void write(ByteBuffer srcBuffer, long offset) throws IOException {
+    int length = srcBuffer.remaining();
+    if (length == 0) {
+      return;
+    }
+    checkRange(offset, length);
+    long start = alignDown(offset);
+    long end = alignUp(offset + length);
+    boolean headPartial = offset != start;
+    boolean tailPartial = offset + length != end;
+    long tailPage = end - alignment;
+    ByteBuffer buffer = writeBuffers.get().get((int) (end - start));
+    // Lock the stripes of the partial edge pages, in stripe order to avoid deadlocks
+    int headStripe = headPartial ? pageStripe(start) : -1;
+    int tailStripe = tailPartial ? pageStripe(tailPage) : -1;
+    ReentrantLock first = null;
+    ReentrantLock second = null;
+    if (headStripe >= 0 || tailStripe >= 0) {
+      first = pageLocks[headStripe < 0 ? tailStripe
+          : tailStripe < 0 ? headStripe : Math.min(headStripe, tailStripe)];
+      if (headStripe >= 0 && tailStripe >= 0 && headStripe != tailStripe) {
+        second = pageLocks[Math.max(headStripe, tailStripe)];
+      }
+    }
+    if (first != null) {
+      first.lock();
+    }
+    if (second != null) {
+      second.lock();
+    }
+    try {
+      if (headPartial) {
+        buffer.clear().limit(alignment);
+        positionalIO(false, buffer, start);
+      }
+      if (tailPartial && (tailPage != start || !headPartial)) {
+        buffer.limit((int) (end - start)).position((int) (tailPage - start));
+        positionalIO(false, buffer, tailPage);
+      }
+      buffer.clear().limit((int) (end - start)).position((int) (offset - start));
+      buffer.put(srcBuffer.duplicate());
+      buffer.rewind();
+      positionalIO(true, buffer, start);
+    } finally {
+      if (second != null) {
+        second.unlock();
+      }
+      if (first != null) {
+        first.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void write(ByteBuff srcBuffer, long offset) throws IOException {
+    ByteBuffer dup = srcBuffer.asSubByteBuffer(srcBuffer.remaining()).duplicate();
+    write(dup, offset);
+  }
+
+  @Override
+  public void sync() throws IOException {
+    for (int i = 0; i < fileChannels.length; i++) {
+      try {
+        if (fileChannels[i] != null) {
+          fileChannels[i].force(true);
+        }
+      } catch (IOException ie) {
+        LOG.warn("Failed syncing data to " + this.filePaths[i]);
+        throw ie;
+      }
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    running = false;
+    if (ioThreads != null) {
+      for (IOThread thread : ioThreads) {
+        thread.interrupt();
+      }
+      for (IOThread thread : ioThreads) {
+        try {
+          thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+    failPendingReads(new IOException("IO engine is shut down"));
+    for (int i = 0; i < filePaths.length; i++) {
+      try {
+        if (fileChannels[i] != null) {
+          fileChannels[i].close();
+        }
+      } catch (IOException ex) {
+        LOG.error("Failed closing " + filePaths[i] + " when shudown the IOEngine", ex);
+      }
+    }
+  }
+
+  private void failPendingReads(IOException e) {
+    ReadRequest request;
+    while ((request = readQueue.poll()) != null) {
+      request.done.completeExceptionally(e);
+    }
+  }
+
+  private int pageStripe(long pageOffset) {
+    return (int) ((pageOffset / alignment) % PAGE_LOCK_STRIPES);
+  }
+
+  private long alignDown(long offset) {
+    return offset & -alignment;
+  }
+
+  private long alignUp(long offset) {
+    return (offset + alignment - 1) & -alignment;
+  }
+
+  private void checkRange(long offset, int length) throws IOException {
+    if (offset < 0 || offset + length > capacity) {
+      throw new IOException("Required data len " + StringUtils.byteDesc(length)
+          + " exceed the engine's capacity " + StringUtils.byteDesc(capacity) + " where offset="
+          + offset);
+    }
+  }
+
+  /**
+   * Reads or writes the remaining bytes of an aligned buffer at an aligned global offset,
+   * crossing file boundaries if needed.
+   */
+  private void positionalIO(boolean write, ByteBuffer buffer, long globalOffset)
+      throws IOException {
+    int limit = buffer.limit();
+    long position = globalOffset;
+    try {
+      while (buffer.hasRemaining()) {
+        int fileNum = (int) (position / sizePerFile);
+        long fileOffset = position - fileNum * sizePerFile;
+        buffer.limit((int) Math.min(limit, buffer.position() + sizePerFile - fileOffset));
+        FileChannel channel = fileChannels[fileNum];
+        int n = write ? channel.write(buffer, fileOffset) : channel.read(buffer, fileOffset);
+        if (n < 0) {
+          throw new IOException("Unexpected end of file " + filePaths[fileNum] + " at "
+              + fileOffset);
+        }
+        position += n;
+        buffer.limit(limit);
+      }
+    } finally {
+      buffer.limit(limit);
+    }
+  }
+
+  /**
+   * Serves a batch of reads sorted by offset, coalescing the ones whose pages touch or overlap.
+   */
+  private void serve(List<ReadRequest> batch, AlignedBuffer scratch) {
+    batch.sort(BY_OFFSET);
+    int i = 0;
+    while (i < batch.size()) {
+      ReadRequest head = batch.get(i);
+      long start = alignDown(head.offset);
+      long end = alignUp(head.offset + head.length);
+      int j = i + 1;
+      while (j < batch.size()) {
+        ReadRequest next = batch.get(j);
+        long nextEnd = alignUp(next.offset + next.length);
+        if (alignDown(next.offset) > end || Math.max(end, nextEnd) - start > MAX_COALESCED_READ) {
+          break;
+        }
+        end = Math.max(end, nextEnd);
+        j++;
+      }
+      try {
+        checkRange(start, (int) (end - start));
+        ByteBuffer buffer = scratch.get((int) (end - start));
+        positionalIO(false, buffer, start);
+        for (int k = i; k < j; k++) {
+          ReadRequest request = batch.get(k);
+          request.dst.put(0, scratch.wrapped, (int) (request.offset - start), request.length);
+          request.done.complete(null);
+        }
+      } catch (IOException e) {
+        for (int k = i; k < j; k++) {
+          batch.get(k).done.completeExceptionally(e);
+        }
+      }
+      i = j;
+    }
+  }
+
+  private static final class ReadRequest {
+    private final long offset;
+    private final int length;
+    private final ByteBuff dst;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    ReadRequest(long offset, int length, ByteBuff dst) {
+      this.offset = offset;
+      this.length = length;
+      this.dst = dst;
+    }
+  }
+
+  /**
+   * A reusable direct buffer whose address is aligned, as required by O_DIRECT.
+   */
+  private final class AlignedBuffer {
+    private ByteBuffer buffer;
+    // The same memory, to copy out of with absolute offsets
+    private ByteBuff wrapped;
+
+    /**
+     * @return an aligned buffer cleared to the given size, only reallocated when growing
+     */
+    ByteBuffer get(int size) {
+      if (buffer == null || buffer.capacity() < size) {
+        buffer = ByteBuffAllocator.allocateAlignedDirect(Math.max(size, alignment << 4),
+          alignment);
+        wrapped = ByteBuff.wrap(buffer.duplicate());
+      }
+      buffer.clear().limit(size);
+      return buffer;
+    }
+  }
+
+  private final class IOThread extends Thread {
+    private final List<ReadRequest> batch = new ArrayList<>();
+    private final AlignedBuffer scratch = new AlignedBuffer();
+
+    @Override
+    public void run() {
+      while (running) {
+        try {
+          batch.add(readQueue.take());
+        } catch (InterruptedException e) {
+          break;
+        }
+        readQueue.drainTo(batch, maxBatch - 1);
+        try {
+          serve(batch, scratch);
+        } catch (RuntimeException e) {
+          for (ReadRequest request : batch) {
+            request.done.completeExceptionally(e);
+          }
+        }
+        batch.clear();
+      }
+    }
+  }
+}
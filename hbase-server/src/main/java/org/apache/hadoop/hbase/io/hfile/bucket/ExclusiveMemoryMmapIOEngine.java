@@ -38,6 +38,9 @@ public class ExclusiveMemoryMmapIOEngine extends FileMmapIOEngine {
     ByteBuff dst = ByteBuff.wrap(ByteBuffer.allocate(be.getLength()));
     bufferArray.read(be.offset(), dst);
     dst.position(0).limit(be.getLength());
-    return be.wrapAsCacheable(dst.nioByteBuffers());
+    if (!be.isChecksumVerified()) {
+      FileIOEngine.verifyChecksum(be, dst.nioByteBuffers());
+    }
+    return be.wrapAsCacheable(dst);
   }
 }
@@ -142,7 +142,25 @@ public class FileIOEngine implements IOEngine {
       }
     }
     dstBuffer.rewind();
-    return be.wrapAsCacheable(new ByteBuffer[] { dstBuffer });
+    if (!be.isChecksumVerified()) {
+      verifyChecksum(be, dstBuffer);
+    }
+    return be.wrapAsCacheable(ByteBuff.wrap(dstBuffer));
+  }
+
+  /**
+   * Entries restored from a persisted checkpoint may point at an area that was reused after the
+   * checkpoint was written, e.g. when the region server was killed. Compare what we read with the
+   * checksum taken at write time the first time such an entry is accessed.
+   */
+  static void verifyChecksum(BucketEntry be, ByteBuffer... data) throws IOException {
+    int actual = BucketEntry.checksum(data);
+    if (actual != be.getChecksum()) {
+      throw new BucketEntryChecksumException("Checksum mismatch for entry at offset "
+          + be.offset() + ", length " + be.getLength() + ": expected " + be.getChecksum()
+          + ", read " + actual);
+    }
+    be.setChecksumVerified(true);
   }
 
   @VisibleForTesting
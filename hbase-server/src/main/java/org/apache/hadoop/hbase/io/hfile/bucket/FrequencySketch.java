@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * A Count-Min sketch of 4-bit counters estimating how often a key was requested recently, in the
+ * spirit of the TinyLFU admission policy (http://arxiv.org/pdf/1512.00727.pdf).
+ * <p>
+ * Each key maps to one counter in each of four rows; the estimate is the minimum of the four. To
+ * let the sketch follow a changing workload, all counters are halved once the number of
+ * increments reaches ten times the number of counters per row. The counters are packed sixteen to
+ * a long and every long is updated by compare-and-set, so that the reader threads sharing the
+ * sketch never overwrite each other's increments nor a concurrent halving.
+ */
+@InterfaceAudience.Private
+class FrequencySketch {
+
+  static final int MAX_FREQUENCY = 15;
+
+  private static final int DEPTH = 4;
+  private static final long[] SEEDS = new long[] { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+      0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  private final AtomicLongArray table;
+  private final int rowMask;
+  private final int sampleSize;
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * @param expectedEntries number of distinct keys the sketch should be able to tell apart, e.g.
+   *          the number of blocks the cache can hold
+   */
+  FrequencySketch(long expectedEntries) {
+    int width = (int) Math.min(1 << 24, Math.max(16, Long.highestOneBit(expectedEntries) << 1));
+    // Each long holds sixteen counters, so a row of width counters takes width / 16 longs
+    this.table = new AtomicLongArray(DEPTH * (width >>> 4));
+    this.rowMask = (width >>> 4) - 1;
+    this.sampleSize = 10 * width;
+  }
+
+  /**
+   * @return the estimated number of times the key was recorded since it was last aged out
+   */
+  int frequency(Object key) {
+    long hash = spread(key.hashCode());
+    int frequency = MAX_FREQUENCY;
+    for (int row = 0; row < DEPTH; row++) {
+      long h = indexHash(hash, row);
+      int index = row * (rowMask + 1) + (int) (h & rowMask);
+      int shift = (int) ((h >>> 32) & 0xF) << 2;
+      frequency = Math.min(frequency, (int) ((table.get(index) >>> shift) & 0xFL));
+    }
+    return frequency;
+  }
+
+  /**
+   * Records one more request for the key.
+   */
+  void increment(Object key) {
+    long hash = spread(key.hashCode());
+    boolean added = false;
+    for (int row = 0; row < DEPTH; row++) {
+      long h = indexHash(hash, row);
+      int index = row * (rowMask + 1) + (int) (h & rowMask);
+      int shift = (int) ((h >>> 32) & 0xF) << 2;
+      long value;
+      do {
+        value = table.get(index);
+      } while (((value >>> shift) & 0xFL) != MAX_FREQUENCY
+          && !table.compareAndSet(index, value, value + (1L << shift)));
+      added |= ((value >>> shift) & 0xFL) != MAX_FREQUENCY;
+    }
+    if (added) {
+      int count = size.incrementAndGet();
+      // Only the thread that takes the count back to zero halves the counters
+      if (count >= sampleSize && size.compareAndSet(count, 0)) {
+        reset();
+      }
+    }
+  }
+
+  /** Halves every counter so that old requests weigh less than recent ones. */
+  private void reset() {
+    for (int i = 0; i < table.length(); i++) {
+      long value;
+      do {
+        value = table.get(i);
+      } while (!table.compareAndSet(i, value, (value >>> 1) & RESET_MASK));
+    }
+  }
+
+  private static long spread(int hashCode) {
+    long h = hashCode * 0x9e3779b97f4a7c15L;
+    return h ^ (h >>> 29);
+  }
+
+  private static long indexHash(long hash, int row) {
+    long h = (hash + SEEDS[row]) * SEEDS[row];
+    return h ^ (h >>> 31);
+  }
+}
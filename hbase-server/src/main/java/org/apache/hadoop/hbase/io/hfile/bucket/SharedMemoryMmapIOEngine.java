@@ -50,6 +50,9 @@ public class SharedMemoryMmapIOEngine extends FileMmapIOEngine {
   @Override
   public Cacheable read(BucketEntry be) throws IOException {
     ByteBuffer[] buffers = bufferArray.asSubByteBuffers(be.offset(), be.getLength());
+    if (!be.isChecksumVerified()) {
+      FileIOEngine.verifyChecksum(be, buffers);
+    }
     // Here the buffer that is created directly refers to the buffer in the actual buckets.
     // When any cell is referring to the blocks created out of these buckets then it means that
     // those cells are referring to a shared memory area which if evicted by the BucketCache would
@@ -38,17 +38,20 @@ import org.apache.hadoop.hbase.CallQueueTooBigException;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.Server;
+import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.conf.ConfigurationObserver;
 import org.apache.hadoop.hbase.exceptions.RequestTooBigException;
 import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.monitoring.MonitoredRPCHandler;
 import org.apache.hadoop.hbase.monitoring.TaskMonitor;
+import org.apache.hadoop.hbase.namequeues.SlowLogRecorder;
 import org.apache.hadoop.hbase.regionserver.RSRpcServices;
 import org.apache.hadoop.hbase.security.SaslUtil;
 import org.apache.hadoop.hbase.security.SaslUtil.QualityOfProtection;
 import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.security.UserProvider;
 import org.apache.hadoop.hbase.security.token.AuthenticationTokenSecretManager;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.GsonUtil;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.security.UserGroupInformation;
@@ -70,8 +73,12 @@ import org.apache.hbase.thirdparty.com.google.protobuf.ServiceException;
 import org.apache.hbase.thirdparty.com.google.protobuf.TextFormat;
 
 import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.shaded.protobuf.RequestConverter;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos.RegionSpecifier;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos.RegionSpecifier.RegionSpecifierType;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.RPCProtos.ConnectionHeader;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.TooSlowLog.SlowLogPayload;
 
 /**
  * An RPC server that hosts protobuf described Services.
@@ -215,6 +222,11 @@ public abstract class RpcServer implements RpcServerInterface,
    */
   private RSRpcServices rsRpcServices;
 
+  /**
+   * Keeps the slow and large calls in memory, null if that is disabled
+   */
+  private volatile SlowLogRecorder slowLogRecorder;
+
   @FunctionalInterface
   protected interface CallCleanup {
     void run();
@@ -403,11 +415,9 @@ public abstract class RpcServer implements RpcServerInterface,
       boolean tooSlow = (processingTime > warnResponseTime && warnResponseTime > -1);
       boolean tooLarge = (responseSize > warnResponseSize && warnResponseSize > -1);
       if (tooSlow || tooLarge) {
-        // when tagging, we let TooLarge trump TooSmall to keep output simple
-        // note that large responses will often also be slow.
         logResponse(param,
             md.getName(), md.getName() + "(" + param.getClass().getName() + ")",
-            (tooLarge ? "TooLarge" : "TooSlow"),
+            tooLarge, tooSlow,
             status.getClient(), startTime, processingTime, qTime,
             responseSize);
       }
@@ -436,11 +446,12 @@ public abstract class RpcServer implements RpcServerInterface,
 
   /**
    * Logs an RPC response to the LOG file, producing valid JSON objects for
-   * client Operations.
+   * client Operations, and records it in the slow log ring buffer if there is one.
    * @param param The parameters received in the call.
    * @param methodName The name of the method invoked
    * @param call The string representation of the call
-   * @param tag  The tag that will be used to indicate this event in the log.
+   * @param tooLarge Whether the response was larger than the configured warning size.
+   * @param tooSlow Whether the call took longer than the configured warning time.
    * @param clientAddress   The address of the client who made this call.
    * @param startTime       The time that the call was initiated, in ms.
    * @param processingTime  The duration that the call took to run, in ms.
@@ -448,9 +459,12 @@ public abstract class RpcServer implements RpcServerInterface,
    *                        prior to being initiated, in ms.
    * @param responseSize    The size in bytes of the response buffer.
    */
-  void logResponse(Message param, String methodName, String call, String tag,
-      String clientAddress, long startTime, int processingTime, int qTime,
+  void logResponse(Message param, String methodName, String call, boolean tooLarge,
+      boolean tooSlow, String clientAddress, long startTime, int processingTime, int qTime,
       long responseSize) throws IOException {
+    // when tagging, we let TooLarge trump TooSmall to keep output simple
+    // note that large responses will often also be slow.
+    String tag = tooLarge ? "TooLarge" : "TooSlow";
     // base information that is reported regardless of type of call
     Map<String, Object> responseInfo = new HashMap<>();
     responseInfo.put("starttimems", startTime);
@@ -468,6 +482,7 @@ public abstract class RpcServer implements RpcServerInterface,
       stringifiedParam = truncateTraceLog(stringifiedParam);
     }
     responseInfo.put("param", stringifiedParam);
+    RegionSpecifier region = getRegionSpecifier(param);
     if (param instanceof ClientProtos.ScanRequest && rsRpcServices != null) {
       ClientProtos.ScanRequest request = ((ClientProtos.ScanRequest) param);
       if (request.hasScannerId()) {
@@ -476,12 +491,17 @@ public abstract class RpcServer implements RpcServerInterface,
         if (scanDetails != null) {
           responseInfo.put("scandetails", scanDetails);
         }
+        RegionInfo scannerRegion = rsRpcServices.getScannerRegionInfo(scannerId);
+        if (region == null && scannerRegion != null) {
+          region = RequestConverter.buildRegionSpecifier(RegionSpecifierType.REGION_NAME,
+            scannerRegion.getRegionName());
+        }
       }
     }
+    int numGets = 0;
+    int numMutations = 0;
+    int numServiceCalls = 0;
     if (param instanceof ClientProtos.MultiRequest) {
-      int numGets = 0;
-      int numMutations = 0;
-      int numServiceCalls = 0;
       ClientProtos.MultiRequest multi = (ClientProtos.MultiRequest)param;
       for (ClientProtos.RegionAction regionAction : multi.getRegionActionList()) {
         for (ClientProtos.Action action: regionAction.getActionList()) {
@@ -501,6 +521,64 @@ public abstract class RpcServer implements RpcServerInterface,
       responseInfo.put("multi.servicecalls", numServiceCalls);
     }
     LOG.warn("(response" + tag + "): " + GSON.toJson(responseInfo));
+
+    SlowLogRecorder recorder = this.slowLogRecorder;
+    if (recorder != null) {
+      SlowLogPayload.Builder payload = SlowLogPayload.newBuilder()
+          .setStartTime(startTime)
+          .setProcessingTime(processingTime)
+          .setQueueTime(qTime)
+          .setResponseSize(responseSize)
+          .setClientAddress(clientAddress == null ? "" : clientAddress)
+          .setServerClass(server == null ? "" : server.getClass().getSimpleName())
+          .setMethodName(methodName)
+          .setCallDetails(call)
+          .setParam(stringifiedParam)
+          .setUserName(getRequestUserName().orElse(""))
+          .setMultiGets(numGets)
+          .setMultiMutations(numMutations)
+          .setMultiServiceCalls(numServiceCalls)
+          .setType(tooLarge && tooSlow ? SlowLogPayload.Type.ALL
+              : tooLarge ? SlowLogPayload.Type.LARGE_LOG : SlowLogPayload.Type.SLOW_LOG);
+      if (region != null) {
+        byte[] regionName = region.getValue().toByteArray();
+        if (region.getType() == RegionSpecifierType.REGION_NAME) {
+          payload.setRegionName(Bytes.toStringBinary(regionName))
+              .setTableName(RegionInfo.getTable(regionName).getNameAsString());
+        } else {
+          payload.setRegionName(Bytes.toString(regionName));
+        }
+      }
+      recorder.addSlowLogPayload(payload.build());
+    }
+  }
+
+  /**
+   * @return the region a client request is made against, or null if the request does not
+   *         target exactly one region
+   */
+  private static RegionSpecifier getRegionSpecifier(Message param) {
+    if (param instanceof ClientProtos.GetRequest) {
+      return ((ClientProtos.GetRequest) param).getRegion();
+    }
+    if (param instanceof ClientProtos.MutateRequest) {
+      return ((ClientProtos.MutateRequest) param).getRegion();
+    }
+    if (param instanceof ClientProtos.ScanRequest) {
+      ClientProtos.ScanRequest request = (ClientProtos.ScanRequest) param;
+      return request.hasRegion() ? request.getRegion() : null;
+    }
+    if (param instanceof ClientProtos.MultiRequest) {
+      ClientProtos.MultiRequest request = (ClientProtos.MultiRequest) param;
+      return request.getRegionActionCount() == 1 ? request.getRegionAction(0).getRegion() : null;
+    }
+    if (param instanceof ClientProtos.BulkLoadHFileRequest) {
+      return ((ClientProtos.BulkLoadHFileRequest) param).getRegion();
+    }
+    if (param instanceof ClientProtos.CoprocessorServiceRequest) {
+      return ((ClientProtos.CoprocessorServiceRequest) param).getRegion();
+    }
+    return null;
   }
 
   /**
@@ -758,4 +836,9 @@ public abstract class RpcServer implements RpcServerInterface,
   public void setRsRpcServices(RSRpcServices rsRpcServices) {
     this.rsRpcServices = rsRpcServices;
   }
+
+  @Override
+  public void setSlowLogRecorder(SlowLogRecorder slowLogRecorder) {
+    this.slowLogRecorder = slowLogRecorder;
+  }
 }
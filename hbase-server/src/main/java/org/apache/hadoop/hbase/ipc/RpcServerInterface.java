@@ -26,6 +26,7 @@ import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.monitoring.MonitoredRPCHandler;
+import org.apache.hadoop.hbase.namequeues.SlowLogRecorder;
 import org.apache.hadoop.hbase.regionserver.RSRpcServices;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.security.authorize.PolicyProvider;
@@ -96,4 +97,9 @@ public interface RpcServerInterface {
   ByteBuffAllocator getByteBuffAllocator();
 
   void setRsRpcServices(RSRpcServices rsRpcServices);
+
+  /**
+   * Sets the ring buffer slow and large calls are recorded in, or null to stop recording them.
+   */
+  void setSlowLogRecorder(SlowLogRecorder slowLogRecorder);
 }
@@ -223,5 +223,9 @@ final class AssignmentManagerUtil {
       throw new IOException("Recovered.edits are found in Region: " + regionInfo +
         ", abort split/merge to prevent data loss");
     }
+    if (WALSplitUtil.hasRecoveredHFiles(env.getMasterConfiguration(), regionInfo)) {
+      throw new IOException("Recovered.hfiles are found in Region: " + regionInfo +
+        ", abort split/merge to prevent data loss");
+    }
   }
 }
@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.namequeues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.SlowLogResponseRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.TooSlowLog.SlowLogPayload;
+
+/**
+ * Keeps the latest slow and large RPC calls of a server in memory, so they can be fetched with
+ * {@link org.apache.hadoop.hbase.client.Admin#getSlowLogResponses} instead of searching the
+ * server logs.
+ * <p>
+ * The entries live in a fixed size ring. Handlers claim a slot by incrementing a shared sequence
+ * and overwrite whatever the slot held before, so recording a call never blocks. Every slot
+ * remembers the sequence it was written for; readers walk the ring backwards from the newest
+ * sequence and skip slots that have already been reused or not been written yet, which makes a
+ * read a consistent, newest first snapshot without stopping the writers. Clearing only moves the
+ * low watermark below which readers stop.
+ */
+@InterfaceAudience.Private
+public class SlowLogRecorder {
+
+  public static final String SLOW_LOG_BUFFER_ENABLED_KEY =
+      "hbase.regionserver.slowlog.buffer.enabled";
+  public static final boolean DEFAULT_SLOW_LOG_BUFFER_ENABLED = true;
+
+  public static final String SLOW_LOG_RING_BUFFER_SIZE_KEY =
+      "hbase.regionserver.slowlog.ringbuffer.size";
+  public static final int DEFAULT_SLOW_LOG_RING_BUFFER_SIZE = 256;
+
+  private static final class Entry {
+    private final long sequence;
+    private final SlowLogPayload payload;
+
+    Entry(long sequence, SlowLogPayload payload) {
+      this.sequence = sequence;
+      this.payload = payload;
+    }
+  }
+
+  private final AtomicReferenceArray<Entry> ring;
+  private final AtomicLong nextSequence = new AtomicLong();
+  private volatile long clearedSequence = 0;
+
+  public SlowLogRecorder(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Slow log ring buffer size must be positive: " + size);
+    }
+    this.ring = new AtomicReferenceArray<>(size);
+  }
+
+  /**
+   * @return a recorder sized as configured, or null if the slow log buffer is disabled
+   */
+  public static SlowLogRecorder create(Configuration conf) {
+    if (!conf.getBoolean(SLOW_LOG_BUFFER_ENABLED_KEY, DEFAULT_SLOW_LOG_BUFFER_ENABLED)) {
+      return null;
+    }
+    return new SlowLogRecorder(
+      conf.getInt(SLOW_LOG_RING_BUFFER_SIZE_KEY, DEFAULT_SLOW_LOG_RING_BUFFER_SIZE));
+  }
+
+  /**
+   * Records a call, evicting the oldest one when the ring is full.
+   */
+  public void addSlowLogPayload(SlowLogPayload payload) {
+    long sequence = nextSequence.getAndIncrement();
+    ring.set(slot(sequence), new Entry(sequence, payload));
+  }
+
+  /**
+   * @return the recorded calls matching the request, newest first, at most
+   *         {@code request.getLimit()} of them
+   */
+  public List<SlowLogPayload> getSlowLogPayloads(SlowLogResponseRequest request) {
+    List<SlowLogPayload> payloads = new ArrayList<>(Math.min(request.getLimit(), ring.length()));
+    long end = nextSequence.get();
+    long start = Math.max(clearedSequence, end - ring.length());
+    for (long sequence = end - 1; sequence >= start && payloads.size() < request.getLimit();
+        sequence--) {
+      Entry entry = ring.get(slot(sequence));
+      // The slot has been taken by a newer call since we started, or its writer has not
+      // published it yet
+      if (entry == null || entry.sequence != sequence) {
+        continue;
+      }
+      if (matches(entry.payload, request)) {
+        payloads.add(entry.payload);
+      }
+    }
+    return payloads;
+  }
+
+  /**
+   * Drops every call recorded so far.
+   */
+  public void clearSlowLogPayloads() {
+    clearedSequence = nextSequence.get();
+  }
+
+  private int slot(long sequence) {
+    return (int) (sequence % ring.length());
+  }
+
+  private static boolean matches(SlowLogPayload payload, SlowLogResponseRequest request) {
+    if (request.hasRegionName() && !request.getRegionName().equals(payload.getRegionName())) {
+      return false;
+    }
+    if (request.hasTableName() && !request.getTableName().equals(payload.getTableName())) {
+      return false;
+    }
+    if (request.hasClientAddress() && !matchesClientAddress(payload.getClientAddress(),
+      request.getClientAddress())) {
+      return false;
+    }
+    if (request.hasUserName() && !request.getUserName().equals(payload.getUserName())) {
+      return false;
+    }
+    switch (request.getLogType()) {
+      case SLOW_LOG:
+      case LARGE_LOG:
+        return payload.getType() == request.getLogType()
+          || payload.getType() == SlowLogPayload.Type.ALL;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * A client can be given with or without its port.
+   */
+  private static boolean matchesClientAddress(String clientAddress, String filter) {
+    return clientAddress.equals(filter) || (clientAddress.startsWith(filter)
+      && clientAddress.length() > filter.length() && clientAddress.charAt(filter.length()) == ':');
+  }
+}
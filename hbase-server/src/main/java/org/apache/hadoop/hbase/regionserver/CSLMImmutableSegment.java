@@ -48,7 +48,7 @@ public class CSLMImmutableSegment extends ImmutableSegment {
 
   @Override
   protected long indexEntrySize() {
-    return ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY;
+    return MutableSegment.indexEntrySize(getCellSet());
   }
 
   @Override protected boolean canBeFlattened() {
@@ -68,7 +68,7 @@ public class CellArrayImmutableSegment extends ImmutableSegment {
     // arrange the meta-data size, decrease all meta-data sizes related to SkipList;
     // add sizes of CellArrayMap entry (reinitializeCellSet doesn't take the care for the sizes)
     long newSegmentSizeDelta =
-        numOfCells * (indexEntrySize() - ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY);
+        numOfCells * (indexEntrySize() - segment.indexEntrySize());
     incMemStoreSize(0, newSegmentSizeDelta, 0, 0);
     mss.incMemStoreSize(0, newSegmentSizeDelta, 0, 0);
   }
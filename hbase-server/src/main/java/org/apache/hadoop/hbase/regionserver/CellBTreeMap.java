@@ -0,0 +1,763 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * A concurrent sorted map of {@link Cell}s laid out as a B+-tree: the cells live in leaves of at
+ * most {@link #DEFAULT_LEAF_SIZE} sorted cells, and a {@link ConcurrentSkipListMap} from the lowest
+ * key of every leaf but the first one serves as the inner levels. Compared with a
+ * ConcurrentSkipListMap over the cells themselves this keeps one array slot per cell instead of a
+ * node and part of an index object, so an active memstore segment carries a fraction of the index
+ * heap, and a lookup chases pointers only down to the leaf and then binary searches an array.
+ * <p>
+ * Every leaf covers a fixed key range starting at its lowest key, up to the lowest key of the
+ * next leaf. Writers lock the leaf they change and publish a new copy of its array, so readers
+ * never lock and always see a sorted snapshot of a leaf. A full leaf splits in two, and leaves
+ * are never merged, so a cell never moves to a leaf on its left; iterators rely on that to stay
+ * sorted and duplicate free while writers go on. Like the ConcurrentSkipListMap iterators they
+ * are weakly consistent.
+ * <p>
+ * The map itself and all its views share one tree, as with CellFlatMap the views are the same
+ * class with bounds. Only the operations a {@link CellSet} needs from its delegatee are
+ * supported, plus those that come for free.
+ */
+@InterfaceAudience.Private
+public class CellBTreeMap implements NavigableMap<Cell, Cell> {
+
+  public static final int DEFAULT_LEAF_SIZE = 32;
+
+  // A leaf object, its array header and its entry in the skip list
+  private static final long LEAF_OVERHEAD = ClassSize.align(ClassSize.OBJECT +
+      3 * ClassSize.REFERENCE) + ClassSize.ARRAY + ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY;
+
+  /**
+   * Index heap per cell: its slot in a leaf array and its share of a leaf, which random inserts
+   * fill half way after a split.
+   */
+  public static final long ENTRY_OVERHEAD = ClassSize.REFERENCE +
+      LEAF_OVERHEAD / (DEFAULT_LEAF_SIZE / 2);
+
+  /** Heap of an empty map: this object, the tree, its skip list, counter and first leaf. */
+  public static final long DEEP_OVERHEAD = ClassSize.align(ClassSize.OBJECT +
+      3 * ClassSize.REFERENCE + 3 * Bytes.SIZEOF_BOOLEAN) +
+      ClassSize.align(ClassSize.OBJECT + 4 * ClassSize.REFERENCE + Bytes.SIZEOF_INT) +
+      ClassSize.CONCURRENT_SKIPLISTMAP + ClassSize.align(ClassSize.OBJECT + 2 * Bytes.SIZEOF_LONG) +
+      LEAF_OVERHEAD;
+
+  private static final Cell[] EMPTY = new Cell[0];
+
+  private final Tree tree;
+  // Bounds of this view, null for none. A descending view keeps them in ascending terms.
+  private final Cell lo;
+  private final boolean loInclusive;
+  private final Cell hi;
+  private final boolean hiInclusive;
+  private final boolean descending;
+
+  public CellBTreeMap(Comparator<? super Cell> comparator) {
+    this(comparator, DEFAULT_LEAF_SIZE);
+  }
+
+  CellBTreeMap(Comparator<? super Cell> comparator, int leafSize) {
+    this(new Tree(comparator, leafSize), null, false, null, false, false);
+  }
+
+  private CellBTreeMap(Tree tree, Cell lo, boolean loInclusive, Cell hi, boolean hiInclusive,
+      boolean descending) {
+    this.tree = tree;
+    this.lo = lo;
+    this.loInclusive = loInclusive;
+    this.hi = hi;
+    this.hiInclusive = hiInclusive;
+    this.descending = descending;
+  }
+
+  /**
+   * A run of sorted cells covering [key, high). The array is replaced, never changed in place,
+   * and high only ever decreases, when the leaf splits.
+   */
+  private static final class Leaf {
+    // Null for the first leaf, which is not in the skip list
+    private final Cell key;
+    private volatile Cell high;
+    private volatile Cell[] cells;
+
+    Leaf(Cell key, Cell high, Cell[] cells) {
+      this.key = key;
+      this.high = high;
+      this.cells = cells;
+    }
+  }
+
+  private static final class Tree {
+    private final Comparator<? super Cell> comparator;
+    private final int leafSize;
+    private final ConcurrentSkipListMap<Cell, Leaf> leaves;
+    private final Leaf head = new Leaf(null, null, EMPTY);
+    private final LongAdder size = new LongAdder();
+
+    Tree(Comparator<? super Cell> comparator, int leafSize) {
+      this.comparator = comparator;
+      this.leafSize = leafSize;
+      this.leaves = new ConcurrentSkipListMap<>(comparator);
+    }
+
+    /**
+     * Binary search with the return value of Arrays.binarySearch.
+     */
+    int find(Cell[] cells, Cell key) {
+      int low = 0;
+      int high = cells.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = comparator.compare(cells[mid], key);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+
+    /** Index of the first cell above key, or at key when inclusive. */
+    int indexAbove(Cell[] cells, Cell key, boolean inclusive) {
+      int i = find(cells, key);
+      return i < 0 ? -(i + 1) : (inclusive ? i : i + 1);
+    }
+
+    /** Index of the last cell below key, or at key when inclusive; -1 if none. */
+    int indexBelow(Cell[] cells, Cell key, boolean inclusive) {
+      int i = find(cells, key);
+      return i < 0 ? -(i + 1) - 1 : (inclusive ? i : i - 1);
+    }
+
+    /** The leaf whose range holds key, as far as the skip list knows. */
+    Leaf leafFor(Cell key) {
+      Map.Entry<Cell, Leaf> e = leaves.floorEntry(key);
+      return e == null ? head : e.getValue();
+    }
+
+    /** The leaf right of the given one, null after the last leaf. */
+    Leaf next(Leaf leaf) {
+      Map.Entry<Cell, Leaf> e = leaf == head ? leaves.firstEntry() : leaves.higherEntry(leaf.key);
+      return e == null ? null : e.getValue();
+    }
+
+    /** The leaf whose range holds the cells just below key, which must be a leaf key. */
+    Leaf leafBelow(Cell key) {
+      Map.Entry<Cell, Leaf> e = leaves.lowerEntry(key);
+      return e == null ? head : e.getValue();
+    }
+
+    /**
+     * Whether the leaf holds every cell below key, and key itself when inclusive. Read the cells
+     * first: high is lowered before the cells are shrunk.
+     */
+    boolean covers(Leaf leaf, Cell key, boolean inclusive) {
+      Cell high = leaf.high;
+      if (high == null) {
+        return true;
+      }
+      int cmp = comparator.compare(key, high);
+      return cmp < 0 || (cmp == 0 && !inclusive);
+    }
+
+    Cell get(Cell key) {
+      while (true) {
+        Leaf leaf = leafFor(key);
+        Cell[] cells = leaf.cells;
+        // A leaf that split after we found it may have handed key to its new right neighbour
+        if (covers(leaf, key, true)) {
+          int i = find(cells, key);
+          return i >= 0 ? cells[i] : null;
+        }
+      }
+    }
+
+    /** The lowest cell above key, or at key when inclusive. A null key means the first cell. */
+    Cell ceiling(Cell key, boolean inclusive) {
+      Leaf leaf = key == null ? head : leafFor(key);
+      while (leaf != null) {
+        Cell[] cells = leaf.cells;
+        // Cells only move right, so a stale leaf is fine; we carry on into the next leaves
+        int i = key == null ? 0 : indexAbove(cells, key, inclusive);
+        if (i < cells.length) {
+          return cells[i];
+        }
+        leaf = next(leaf);
+      }
+      return null;
+    }
+
+    /** The highest cell below key, or at key when inclusive. A null key means the last cell. */
+    Cell floor(Cell key, boolean inclusive) {
+      Leaf leaf;
+      Cell[] cells;
+      do {
+        Map.Entry<Cell, Leaf> e = key == null ? leaves.lastEntry() : leaves.floorEntry(key);
+        leaf = e == null ? head : e.getValue();
+        cells = leaf.cells;
+      } while (key == null ? leaf.high != null : !covers(leaf, key, inclusive));
+      while (true) {
+        int i = key == null ? cells.length - 1 : indexBelow(cells, key, inclusive);
+        if (i >= 0) {
+          return cells[i];
+        }
+        if (leaf == head) {
+          return null;
+        }
+        Cell bound = leaf.key;
+        do {
+          leaf = leafBelow(bound);
+          cells = leaf.cells;
+          // A leaf that split after we found it holds less than the range up to bound
+        } while (!covers(leaf, bound, false));
+      }
+    }
+
+    Cell put(Cell cell) {
+      while (true) {
+        Leaf leaf = leafFor(cell);
+        synchronized (leaf) {
+          if (!covers(leaf, cell, true)) {
+            continue;
+          }
+          Cell[] cells = leaf.cells;
+          int i = find(cells, cell);
+          if (i >= 0) {
+            Cell[] copy = cells.clone();
+            copy[i] = cell;
+            leaf.cells = copy;
+            return cells[i];
+          }
+          int at = -(i + 1);
+          if (cells.length < leafSize) {
+            leaf.cells = insert(cells, at, cell, 0, cells.length + 1);
+          } else {
+            split(leaf, cells, at, cell);
+          }
+          size.increment();
+          return null;
+        }
+      }
+    }
+
+    /** Copies [from, to) of cells with cell inserted at index at. */
+    private Cell[] insert(Cell[] cells, int at, Cell cell, int from, int to) {
+      Cell[] copy = new Cell[to - from];
+      for (int i = from, j = 0; i < to; i++, j++) {
+        copy[j] = i < at ? cells[i] : (i == at ? cell : cells[i - 1]);
+      }
+      return copy;
+    }
+
+    /**
+     * Splits a full leaf while inserting cell at index at. Appending to a leaf leaves it full and
+     * starts a new one, so ascending inserts fill their leaves instead of halving them.
+     */
+    private void split(Leaf leaf, Cell[] cells, int at, Cell cell) {
+      int total = cells.length + 1;
+      int mid = at == cells.length ? cells.length : total / 2;
+      Cell[] right = insert(cells, at, cell, mid, total);
+      Leaf newLeaf = new Leaf(right[0], leaf.high, right);
+      // Publish the new leaf before shrinking the old one, and shrink its range before its cells,
+      // so whoever sees the shrunk cells also sees that the rest moved right. Nothing goes into the
+      // new leaf before the old one is shrunk: until then readers may still walk its range in the
+      // old cells, and would pass over a cell added to the new leaf behind them.
+      synchronized (newLeaf) {
+        leaves.put(newLeaf.key, newLeaf);
+        leaf.high = newLeaf.key;
+        if (mid < cells.length) {
+          leaf.cells = insert(cells, at, cell, 0, mid);
+        }
+      }
+    }
+
+    Cell remove(Cell key) {
+      while (true) {
+        Leaf leaf = leafFor(key);
+        synchronized (leaf) {
+          if (!covers(leaf, key, true)) {
+            continue;
+          }
+          Cell[] cells = leaf.cells;
+          int i = find(cells, key);
+          if (i < 0) {
+            return null;
+          }
+          Cell[] copy = new Cell[cells.length - 1];
+          System.arraycopy(cells, 0, copy, 0, i);
+          System.arraycopy(cells, i + 1, copy, i, copy.length - i);
+          leaf.cells = copy;
+          size.decrement();
+          return cells[i];
+        }
+      }
+    }
+  }
+
+  // ---------------- Bounds ----------------
+
+  private boolean tooLow(Cell key) {
+    if (lo == null) {
+      return false;
+    }
+    int cmp = tree.comparator.compare(key, lo);
+    return cmp < 0 || (cmp == 0 && !loInclusive);
+  }
+
+  private boolean tooHigh(Cell key) {
+    if (hi == null) {
+      return false;
+    }
+    int cmp = tree.comparator.compare(key, hi);
+    return cmp > 0 || (cmp == 0 && !hiInclusive);
+  }
+
+  private boolean inRange(Cell key) {
+    return !tooLow(key) && !tooHigh(key);
+  }
+
+  private Cell inRangeOrNull(Cell cell) {
+    return cell == null || !inRange(cell) ? null : cell;
+  }
+
+  private Cell lowest() {
+    return inRangeOrNull(tree.ceiling(lo, loInclusive));
+  }
+
+  private Cell highest() {
+    return inRangeOrNull(tree.floor(hi, hiInclusive));
+  }
+
+  private Cell ceiling(Cell key, boolean inclusive) {
+    return tooLow(key) ? lowest() : inRangeOrNull(tree.ceiling(key, inclusive));
+  }
+
+  private Cell floor(Cell key, boolean inclusive) {
+    return tooHigh(key) ? highest() : inRangeOrNull(tree.floor(key, inclusive));
+  }
+
+  private CellBTreeMap newView(Cell fromKey, boolean fromInclusive, Cell toKey,
+      boolean toInclusive) {
+    if (lo != null) {
+      if (fromKey == null) {
+        fromKey = lo;
+        fromInclusive = loInclusive;
+      } else if (tooLow(fromKey) && !(!fromInclusive &&
+          tree.comparator.compare(fromKey, lo) == 0)) {
+        throw new IllegalArgumentException("key out of range");
+      }
+    }
+    if (hi != null) {
+      if (toKey == null) {
+        toKey = hi;
+        toInclusive = hiInclusive;
+      } else if (tooHigh(toKey) && !(!toInclusive &&
+          tree.comparator.compare(toKey, hi) == 0)) {
+        throw new IllegalArgumentException("key out of range");
+      }
+    }
+    return new CellBTreeMap(tree, fromKey, fromInclusive, toKey, toInclusive, descending);
+  }
+
+  // ---------------- Sub-Maps ----------------
+
+  @Override
+  public NavigableMap<Cell, Cell> subMap(Cell fromKey, boolean fromInclusive, Cell toKey,
+      boolean toInclusive) {
+    return descending ? newView(toKey, toInclusive, fromKey, fromInclusive)
+        : newView(fromKey, fromInclusive, toKey, toInclusive);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> headMap(Cell toKey, boolean inclusive) {
+    return descending ? newView(toKey, inclusive, null, false)
+        : newView(null, false, toKey, inclusive);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> tailMap(Cell fromKey, boolean inclusive) {
+    return descending ? newView(null, false, fromKey, inclusive)
+        : newView(fromKey, inclusive, null, false);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> subMap(Cell fromKey, Cell toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> headMap(Cell toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> tailMap(Cell fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> descendingMap() {
+    return new CellBTreeMap(tree, lo, loInclusive, hi, hiInclusive, !descending);
+  }
+
+  @Override
+  public Comparator<? super Cell> comparator() {
+    return descending ? tree.comparator.reversed() : tree.comparator;
+  }
+
+  // ---------------- Key's getters ----------------
+
+  @Override
+  public Cell firstKey() {
+    Cell cell = descending ? highest() : lowest();
+    if (cell == null) {
+      throw new NoSuchElementException();
+    }
+    return cell;
+  }
+
+  @Override
+  public Cell lastKey() {
+    Cell cell = descending ? lowest() : highest();
+    if (cell == null) {
+      throw new NoSuchElementException();
+    }
+    return cell;
+  }
+
+  @Override
+  public Cell lowerKey(Cell key) {
+    return descending ? ceiling(key, false) : floor(key, false);
+  }
+
+  @Override
+  public Cell floorKey(Cell key) {
+    return descending ? ceiling(key, true) : floor(key, true);
+  }
+
+  @Override
+  public Cell ceilingKey(Cell key) {
+    return descending ? floor(key, true) : ceiling(key, true);
+  }
+
+  @Override
+  public Cell higherKey(Cell key) {
+    return descending ? floor(key, false) : ceiling(key, false);
+  }
+
+  @Override
+  public boolean containsKey(Object o) {
+    return get(o) != null;
+  }
+
+  @Override
+  public boolean containsValue(Object o) { // use containsKey(Object o) instead
+    throw new UnsupportedOperationException("Use containsKey(Object o) instead");
+  }
+
+  @Override
+  public Cell get(Object o) {
+    Cell key = (Cell) o;
+    return inRange(key) ? tree.get(key) : null;
+  }
+
+  // ---------------- Entry's getters ----------------
+
+  private static Entry<Cell, Cell> entry(Cell cell) {
+    return cell == null ? null : new AbstractMap.SimpleImmutableEntry<>(cell, cell);
+  }
+
+  @Override
+  public Entry<Cell, Cell> lowerEntry(Cell key) {
+    return entry(lowerKey(key));
+  }
+
+  @Override
+  public Entry<Cell, Cell> floorEntry(Cell key) {
+    return entry(floorKey(key));
+  }
+
+  @Override
+  public Entry<Cell, Cell> ceilingEntry(Cell key) {
+    return entry(ceilingKey(key));
+  }
+
+  @Override
+  public Entry<Cell, Cell> higherEntry(Cell key) {
+    return entry(higherKey(key));
+  }
+
+  @Override
+  public Entry<Cell, Cell> firstEntry() {
+    return entry(descending ? highest() : lowest());
+  }
+
+  @Override
+  public Entry<Cell, Cell> lastEntry() {
+    return entry(descending ? lowest() : highest());
+  }
+
+  @Override
+  public Entry<Cell, Cell> pollFirstEntry() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Entry<Cell, Cell> pollLastEntry() {
+    throw new UnsupportedOperationException();
+  }
+
+  // ---------------- Updates ----------------
+
+  @Override
+  public Cell put(Cell key, Cell value) {
+    if (key != value) {
+      throw new IllegalArgumentException("A cell maps to itself only");
+    }
+    if (!inRange(key)) {
+      throw new IllegalArgumentException("key out of range");
+    }
+    return tree.put(key);
+  }
+
+  @Override
+  public Cell remove(Object o) {
+    Cell key = (Cell) o;
+    return inRange(key) ? tree.remove(key) : null;
+  }
+
+  @Override
+  public void putAll(Map<? extends Cell, ? extends Cell> map) {
+    for (Map.Entry<? extends Cell, ? extends Cell> e : map.entrySet()) {
+      put(e.getKey(), e.getValue());
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Iterator<Cell> it = values().iterator(); it.hasNext();) {
+      it.next();
+      it.remove();
+    }
+  }
+
+  @Override
+  public int size() {
+    if (lo == null && hi == null) {
+      return tree.size.intValue();
+    }
+    int size = 0;
+    for (Iterator<Cell> it = values().iterator(); it.hasNext(); it.next()) {
+      size++;
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return lowest() == null;
+  }
+
+  // ---------------- Sub-Sets ----------------
+
+  @Override
+  public NavigableSet<Cell> navigableKeySet() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public NavigableSet<Cell> descendingKeySet() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public NavigableSet<Cell> keySet() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Set<Entry<Cell, Cell>> entrySet() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Collection<Cell> values() {
+    return new AbstractCollection<Cell>() {
+      @Override
+      public Iterator<Cell> iterator() {
+        return descending ? new DescendingIterator() : new AscendingIterator();
+      }
+
+      @Override
+      public int size() {
+        return CellBTreeMap.this.size();
+      }
+
+      @Override
+      public boolean isEmpty() {
+        return CellBTreeMap.this.isEmpty();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+    };
+  }
+
+  // ---------------- Iterators ----------------
+
+  /**
+   * Walks leaf snapshots, skipping whatever it has passed already, which may show up again in a
+   * leaf split off after it was read.
+   */
+  private abstract class LeafIterator implements Iterator<Cell> {
+    Leaf leaf;
+    Cell[] cells;
+    int index;
+    // Where to carry on from: the last cell handed out, or the bound of the view
+    Cell bound;
+    boolean boundInclusive;
+    Cell next;
+    Cell lastReturned;
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Cell next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      lastReturned = next;
+      advance();
+      return lastReturned;
+    }
+
+    abstract void advance();
+
+    @Override
+    public void remove() {
+      if (lastReturned == null) {
+        throw new IllegalStateException();
+      }
+      tree.remove(lastReturned);
+      lastReturned = null;
+    }
+  }
+
+  private final class AscendingIterator extends LeafIterator {
+
+    AscendingIterator() {
+      bound = lo;
+      boundInclusive = loInclusive;
+      leaf = lo == null ? tree.head : tree.leafFor(lo);
+      cells = leaf.cells;
+      index = lo == null ? 0 : tree.indexAbove(cells, lo, loInclusive);
+      advance();
+    }
+
+    @Override
+    void advance() {
+      while (index >= cells.length) {
+        leaf = tree.next(leaf);
+        if (leaf == null) {
+          next = null;
+          return;
+        }
+        cells = leaf.cells;
+        index = bound == null ? 0 : tree.indexAbove(cells, bound, boundInclusive);
+      }
+      Cell cell = cells[index++];
+      if (tooHigh(cell)) {
+        next = null;
+        index = cells.length;
+        return;
+      }
+      next = cell;
+      bound = cell;
+      boundInclusive = false;
+    }
+  }
+
+  private final class DescendingIterator extends LeafIterator {
+
+    DescendingIterator() {
+      bound = hi;
+      boundInclusive = hiInclusive;
+      do {
+        Map.Entry<Cell, Leaf> e = hi == null ? tree.leaves.lastEntry() : tree.leaves.floorEntry(hi);
+        leaf = e == null ? tree.head : e.getValue();
+        cells = leaf.cells;
+      } while (hi == null ? leaf.high != null : !tree.covers(leaf, hi, hiInclusive));
+      index = hi == null ? cells.length - 1 : tree.indexBelow(cells, hi, hiInclusive);
+      advance();
+    }
+
+    @Override
+    void advance() {
+      while (index < 0) {
+        if (leaf == tree.head) {
+          next = null;
+          return;
+        }
+        Cell leafKey = leaf.key;
+        do {
+          leaf = tree.leafBelow(leafKey);
+          cells = leaf.cells;
+        } while (!tree.covers(leaf, leafKey, false));
+        index = bound == null ? cells.length - 1 : tree.indexBelow(cells, bound, boundInclusive);
+      }
+      Cell cell = cells[index--];
+      if (tooLow(cell)) {
+        next = null;
+        index = -1;
+        leaf = tree.head;
+        return;
+      }
+      next = cell;
+      bound = cell;
+      boundInclusive = false;
+    }
+  }
+}
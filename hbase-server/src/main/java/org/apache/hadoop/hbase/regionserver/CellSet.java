@@ -68,7 +68,6 @@ public class CellSet implements NavigableSet<Cell>  {
     this.numUniqueKeys = UNKNOWN_NUM_UNIQUES;
   }
 
-  @VisibleForTesting
   NavigableMap<Cell, Cell> getDelegatee() {
     return delegatee;
   }
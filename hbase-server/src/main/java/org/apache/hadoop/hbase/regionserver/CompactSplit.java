@@ -24,8 +24,11 @@ import static org.apache.hadoop.hbase.regionserver.Store.PRIORITY_USER;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
@@ -35,6 +38,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.IntSupplier;
 
 import org.apache.hadoop.conf.Configuration;
@@ -45,6 +49,8 @@ import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionLifeCycleTracker;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequestImpl;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequester;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionUrgencyFunction;
+import org.apache.hadoop.hbase.regionserver.compactions.DefaultCompactionUrgencyFunction;
 import org.apache.hadoop.hbase.regionserver.throttle.CompactionThroughputControllerFactory;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
 import org.apache.hadoop.hbase.security.Superusers;
@@ -52,6 +58,7 @@ import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.StealJobQueue;
 import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
@@ -86,6 +93,16 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
   public static final String HBASE_REGION_SERVER_ENABLE_COMPACTION =
       "hbase.regionserver.compaction.enabled";
 
+  // Configuration key for the function ranking the queued compactions.
+  public static final String COMPACTION_URGENCY_FUNCTION_CLASS =
+      "hbase.regionserver.compaction.urgency.function.class";
+
+  // Configuration key for the urgency, aged by the time spent in the queue, from which a small
+  // compaction thread runs a large compaction itself when all the large compaction threads are
+  // busy. Below the bonus of a blocked store, as the cost of a large compaction lowers it.
+  public static final String LEND_URGENCY = "hbase.regionserver.compaction.lend.urgency";
+  public static final double LEND_URGENCY_DEFAULT = 5.0;
+
   private final HRegionServer server;
   private final Configuration conf;
   private volatile ThreadPoolExecutor longCompactions;
@@ -94,6 +111,12 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
 
   private volatile ThroughputController compactionThroughputController;
 
+  private volatile CompactionUrgencyFunction urgencyFunction;
+  private volatile double lendUrgency;
+  // the ranks of the queued compactions are relative to this, to keep them precise
+  private final long epoch = EnvironmentEdgeManager.currentTime();
+  private final LongAdder lentCompactions = new LongAdder();
+
   private volatile boolean compactionsEnabled;
   /**
    * Splitting should not take place if the total number of regions exceed this.
@@ -109,6 +132,7 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
     this.compactionsEnabled = this.conf.getBoolean(HBASE_REGION_SERVER_ENABLE_COMPACTION,true);
     createCompactionExecutors();
     createSplitExcecutors();
+    createUrgencyFunction(conf);
 
     // compaction throughput controller
     this.compactionThroughputController =
@@ -128,6 +152,14 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
         });
   }
 
+  private void createUrgencyFunction(Configuration conf) {
+    Class<? extends CompactionUrgencyFunction> clazz = conf.getClass(
+      COMPACTION_URGENCY_FUNCTION_CLASS, DefaultCompactionUrgencyFunction.class,
+      CompactionUrgencyFunction.class);
+    this.urgencyFunction = ReflectionUtils.newInstance(clazz, conf);
+    this.lendUrgency = conf.getDouble(LEND_URGENCY, LEND_URGENCY_DEFAULT);
+  }
+
   private void createCompactionExecutors() {
     this.regionSplitLimit =
         conf.getInt(REGION_SERVER_REGION_SPLIT_LIMIT, DEFAULT_REGION_SERVER_REGION_SPLIT_LIMIT);
@@ -472,6 +504,47 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
     return splits.getQueue().size();
   }
 
+  /**
+   * @return the queued compactions, most urgent first
+   */
+  public List<QueuedCompaction> getQueuedCompactions() {
+    List<CompactionRunner> runners = new ArrayList<>();
+    addQueuedCompactions(longCompactions, runners);
+    addQueuedCompactions(shortCompactions, runners);
+    Collections.sort(runners, COMPARATOR);
+    long now = EnvironmentEdgeManager.currentTime();
+    List<QueuedCompaction> queued = new ArrayList<>(runners.size());
+    for (CompactionRunner runner : runners) {
+      queued.add(new QueuedCompaction(runner, runner.parent == longCompactions, now));
+    }
+    return queued;
+  }
+
+  private static void addQueuedCompactions(ThreadPoolExecutor pool,
+      List<CompactionRunner> runners) {
+    for (Runnable runnable : pool.getQueue()) {
+      if (runnable instanceof CompactionRunner) {
+        runners.add((CompactionRunner) runnable);
+      }
+    }
+  }
+
+  /**
+   * @return the urgency of the most urgent queued compaction, 0 if there is none
+   */
+  public double getMaxQueuedUrgency() {
+    List<QueuedCompaction> queued = getQueuedCompactions();
+    return queued.isEmpty() ? 0 : queued.get(0).getUrgency();
+  }
+
+  /**
+   * @return the number of large compactions run by the small compaction threads because they
+   *         were too urgent to wait for a large compaction thread
+   */
+  public long getLentCompactionsCount() {
+    return lentCompactions.sum();
+  }
+
   private boolean shouldSplitRegion() {
     if(server.getNumberOfOnlineRegions() > 0.9*regionSplitLimit) {
       LOG.warn("Total number of regions is approaching the upper limit " + regionSplitLimit + ". "
@@ -525,8 +598,8 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
       }
       CompactionRunner o1 = (CompactionRunner) r1;
       CompactionRunner o2 = (CompactionRunner) r2;
-      // less first
-      int cmp = Integer.compare(o1.queuedPriority, o2.queuedPriority);
+      // more urgent first
+      int cmp = Double.compare(o2.rank, o1.rank);
       if (cmp != 0) {
         return cmp;
       }
@@ -550,6 +623,11 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
     private ThreadPoolExecutor parent;
     private User user;
     private long time;
+    private double urgency;
+    private double agingRate;
+    // the urgency at the epoch, so that the order of the queued compactions does not change
+    // while they age
+    private double rank;
 
     public CompactionRunner(HStore store, HRegion region, CompactionContext compaction,
         CompactionLifeCycleTracker tracker, CompactionCompleteTracker completeTracker,
@@ -564,15 +642,30 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
       this.parent = parent;
       this.user = user;
       this.time = EnvironmentEdgeManager.currentTime();
+      updateUrgency(compaction);
+    }
+
+    private void updateUrgency(CompactionContext selected) {
+      CompactionUrgencyFunction function = urgencyFunction;
+      this.urgency =
+          function.getUrgency(store, selected != null ? selected.getRequest() : null);
+      this.agingRate = function.getAgingRate();
+      this.rank = urgency - agingRate * (time - epoch) / 1000;
+    }
+
+    double getUrgency(long now) {
+      return urgency + agingRate * (now - time) / 1000;
     }
 
     @Override
     public String toString() {
+      String urgencyString =
+          String.format("%.2f", getUrgency(EnvironmentEdgeManager.currentTime()));
       if (compaction != null) {
-        return "Request=" + compaction.getRequest();
+        return "Request=" + compaction.getRequest() + ", urgency=" + urgencyString;
       } else {
         return "region=" + region.toString() + ", storeName=" + store.toString() +
-            ", priority=" + queuedPriority + ", startTime=" + time;
+            ", priority=" + queuedPriority + ", urgency=" + urgencyString + ", startTime=" + time;
       }
     }
 
@@ -580,11 +673,12 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
       CompactionContext c;
       // Common case - system compaction without a file selection. Select now.
       if (compaction == null) {
-        int oldPriority = this.queuedPriority;
+        double oldUrgency = this.urgency;
         this.queuedPriority = this.store.getCompactPriority();
-        if (this.queuedPriority > oldPriority) {
-          // Store priority decreased while we were in queue (due to some other compaction?),
-          // requeue with new priority to avoid blocking potential higher priorities.
+        updateUrgency(null);
+        if (this.urgency < oldUrgency) {
+          // Store urgency decreased while we were in queue (due to some other compaction?),
+          // requeue with new urgency to avoid blocking potential more urgent compactions.
           this.parent.execute(this);
           return;
         }
@@ -611,12 +705,18 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
             store.throttleCompaction(c.getRequest().getSize()) ? longCompactions : shortCompactions;
 
         // Long compaction pool can process small job
-        // Short compaction pool should not process large job
+        // Short compaction pool should not process large job, unless it is urgent enough to not
+        // wait for the long compaction threads which are all busy
         if (this.parent == shortCompactions && pool == longCompactions) {
-          this.store.cancelRequestedCompaction(c);
-          this.parent = pool;
-          this.parent.execute(this);
-          return;
+          if (shouldLend(c)) {
+            lentCompactions.increment();
+            LOG.debug("Running large compaction {} in a small compaction thread", this);
+          } else {
+            this.store.cancelRequestedCompaction(c);
+            this.parent = pool;
+            this.parent.execute(this);
+            return;
+          }
         }
       } else {
         c = compaction;
@@ -675,6 +775,14 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
       doCompaction(user);
     }
 
+    private boolean shouldLend(CompactionContext selected) {
+      if (longCompactions.getActiveCount() < longCompactions.getMaximumPoolSize()) {
+        return false;
+      }
+      updateUrgency(selected);
+      return getUrgency(EnvironmentEdgeManager.currentTime()) >= lendUrgency;
+    }
+
     private String formatStackTrace(Exception ex) {
       StringWriter sw = new StringWriter();
       PrintWriter pw = new PrintWriter(sw);
@@ -684,6 +792,76 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
     }
   }
 
+  /**
+   * A point in time view of a queued compaction.
+   */
+  public static final class QueuedCompaction {
+    private final String regionName;
+    private final String storeName;
+    private final boolean large;
+    private final int priority;
+    private final double urgency;
+    private final long queuedMillis;
+    private final int fileCount;
+    private final long size;
+
+    private QueuedCompaction(CompactionRunner runner, boolean large, long now) {
+      this.regionName = runner.region.getRegionInfo() != null
+          ? runner.region.getRegionInfo().getRegionNameAsString() : runner.region.toString();
+      this.storeName = runner.store.getColumnFamilyName();
+      this.large = large;
+      this.priority = runner.compaction != null ? runner.compaction.getRequest().getPriority()
+          : runner.queuedPriority;
+      this.urgency = runner.getUrgency(now);
+      this.queuedMillis = Math.max(0, now - runner.time);
+      this.fileCount =
+          runner.compaction != null ? runner.compaction.getRequest().getFiles().size() : -1;
+      this.size = runner.compaction != null ? runner.compaction.getRequest().getSize() : -1;
+    }
+
+    public String getRegionName() {
+      return regionName;
+    }
+
+    public String getStoreName() {
+      return storeName;
+    }
+
+    /**
+     * @return whether the compaction is queued for the large compaction threads
+     */
+    public boolean isLarge() {
+      return large;
+    }
+
+    public int getPriority() {
+      return priority;
+    }
+
+    public double getUrgency() {
+      return urgency;
+    }
+
+    public long getQueuedMillis() {
+      return queuedMillis;
+    }
+
+    /**
+     * @return the number of selected files, -1 if the files are selected when the compaction runs
+     */
+    public int getFileCount() {
+      return fileCount;
+    }
+
+    /**
+     * @return the size of the selected files, -1 if the files are selected when the compaction
+     *         runs
+     */
+    public long getSize() {
+      return size;
+    }
+  }
+
   /**
    * Cleanup class to use when rejecting a compaction request from the queue.
    */
@@ -763,6 +941,8 @@ public class CompactSplit implements CompactionRequester, PropagatingConfigurati
     this.compactionThroughputController =
         CompactionThroughputControllerFactory.create(server, newConf);
 
+    createUrgencyFunction(newConf);
+
     // We change this atomically here instead of reloading the config in order that upstream
     // would be the only one with the flexibility to reload the config.
     this.conf.reloadConfiguration();
@@ -43,6 +43,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.RandomAccess;
 import java.util.Set;
@@ -124,7 +125,10 @@ import org.apache.hadoop.hbase.errorhandling.ForeignExceptionSnare;
 import org.apache.hadoop.hbase.exceptions.FailedSanityCheckException;
 import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
 import org.apache.hadoop.hbase.exceptions.UnknownProtocolException;
+import org.apache.hadoop.hbase.executor.ExecutorType;
+import org.apache.hadoop.hbase.filter.AdaptiveFilterOrder;
 import org.apache.hadoop.hbase.filter.ByteArrayComparable;
+import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.FilterWrapper;
 import org.apache.hadoop.hbase.filter.IncompatibleFilterException;
 import org.apache.hadoop.hbase.io.HFileLink;
@@ -141,6 +145,7 @@ import org.apache.hadoop.hbase.monitoring.MonitoredTask;
 import org.apache.hadoop.hbase.monitoring.TaskMonitor;
 import org.apache.hadoop.hbase.quotas.RegionServerSpaceQuotaManager;
 import org.apache.hadoop.hbase.regionserver.MultiVersionConcurrencyControl.WriteEntry;
+import org.apache.hadoop.hbase.regionserver.RSRpcServices.RegionScannersCloseCallBack;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.LimitScope;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.NextState;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
@@ -169,6 +174,7 @@ import org.apache.hadoop.hbase.util.NonceKey;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.hbase.util.ServerRegionReplicaUtil;
 import org.apache.hadoop.hbase.util.Threads;
+import org.apache.hadoop.hbase.wal.ReadAheadWALReader;
 import org.apache.hadoop.hbase.wal.WAL;
 import org.apache.hadoop.hbase.wal.WALEdit;
 import org.apache.hadoop.hbase.wal.WALFactory;
@@ -176,6 +182,7 @@ import org.apache.hadoop.hbase.wal.WALKey;
 import org.apache.hadoop.hbase.wal.WALKeyImpl;
 import org.apache.hadoop.hbase.wal.WALSplitUtil;
 import org.apache.hadoop.hbase.wal.WALSplitUtil.MutationReplay;
+import org.apache.hadoop.hbase.wal.WALSplitter;
 import org.apache.hadoop.io.MultipleIOException;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.htrace.core.TraceScope;
@@ -248,6 +255,47 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
   public static final String WAL_HSYNC_CONF_KEY = "hbase.wal.hsync";
   public static final boolean DEFAULT_WAL_HSYNC = false;
 
+  /**
+   * Whether a batch of Gets, e.g. from a multi request, runs compatible Gets in row order through
+   * one shared region scanner, see {@link #get(List, boolean, RegionScannersCloseCallBack)}.
+   */
+  public static final String BATCH_GET_ENABLED_KEY = "hbase.hregion.batch.get.enabled";
+  public static final boolean DEFAULT_BATCH_GET_ENABLED = true;
+
+  /**
+   * Whether a scan whose filter is a MUST_PASS_ALL {@link FilterList} evaluates the sub-filters in
+   * an order adapted to their observed pass rate and cost, see {@link AdaptiveFilterOrder}.
+   */
+  public static final String ADAPTIVE_FILTER_ORDER_KEY = "hbase.hregion.scan.filter.adaptive.order";
+  public static final boolean DEFAULT_ADAPTIVE_FILTER_ORDER = false;
+
+  /**
+   * Number of threads, shared by all the regions of a region server, which write out the store
+   * snapshots of a flush concurrently. With 1 the stores are flushed one after another by the
+   * flushing thread.
+   */
+  public static final String FLUSH_STORES_THREADS_KEY = "hbase.regionserver.flush.stores.threads";
+  public static final int DEFAULT_FLUSH_STORES_THREADS = 1;
+
+  /**
+   * Number of recovered edits read and decoded ahead of their replay, by a thread of their own.
+   * With 0 the replaying thread reads them itself.
+   */
+  public static final String RECOVERED_EDITS_READ_AHEAD_KEY =
+      "hbase.hregion.recovered.edits.read.ahead";
+  public static final int DEFAULT_RECOVERED_EDITS_READ_AHEAD = 1024;
+
+  /**
+   * Number of threads replaying recovered edits into the stores of a region. With more than 1 the
+   * cells are applied in batches, the stores of a batch concurrently.
+   */
+  public static final String RECOVERED_EDITS_REPLAY_STORE_THREADS_KEY =
+      "hbase.hregion.recovered.edits.replay.store.threads";
+  public static final int DEFAULT_RECOVERED_EDITS_REPLAY_STORE_THREADS = 1;
+
+  // Cells replayed into the stores at once, when they are replayed concurrently
+  private static final int RECOVERED_EDITS_REPLAY_BATCH = 1024;
+
   final AtomicBoolean closed = new AtomicBoolean(false);
 
   /* Closing can take some time; use the closing flag if there is stuff we don't
@@ -330,7 +378,10 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
 
   private BlockCache blockCache;
   private MobFileCache mobFileCache;
-  private final WAL wal;
+  // Only changes under the write lock of updatesLock, see switchToPlannedWAL
+  private volatile WAL wal;
+  // Set when the WAL provider planned the region onto another WAL, see planWALSwitch
+  private volatile boolean walSwitchPlanned = false;
   private final HRegionFileSystem fs;
   protected final Configuration conf;
   private final Configuration baseConf;
@@ -389,6 +440,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
    */
   private boolean isLoadingCfsOnDemandDefault = false;
 
+  private final boolean batchGetEnabled;
+
+  private final boolean adaptiveFilterOrder;
+
+  private final int flushStoresThreads;
+
   private final AtomicInteger majorInProgress = new AtomicInteger(0);
   private final AtomicInteger minorInProgress = new AtomicInteger(0);
 
@@ -774,6 +831,10 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
                     DEFAULT_ROWLOCK_WAIT_DURATION);
 
     this.isLoadingCfsOnDemandDefault = conf.getBoolean(LOAD_CFS_ON_DEMAND_CONFIG_KEY, true);
+    this.batchGetEnabled = conf.getBoolean(BATCH_GET_ENABLED_KEY, DEFAULT_BATCH_GET_ENABLED);
+    this.adaptiveFilterOrder =
+        conf.getBoolean(ADAPTIVE_FILTER_ORDER_KEY, DEFAULT_ADAPTIVE_FILTER_ORDER);
+    this.flushStoresThreads = conf.getInt(FLUSH_STORES_THREADS_KEY, DEFAULT_FLUSH_STORES_THREADS);
     this.htableDescriptor = htd;
     Set<byte[]> families = this.htableDescriptor.getColumnFamilyNames();
     for (byte[] family : families) {
@@ -969,6 +1030,8 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         // Recover any edits if available.
         maxSeqId = Math.max(maxSeqId,
           replayRecoveredEditsIfAny(maxSeqIdInStores, reporter, status));
+        // Load the HFiles written by WAL splitting, if any
+        maxSeqId = Math.max(maxSeqId, loadRecoveredHFilesIfAny(stores));
         // Make sure mvcc is up to max.
         this.mvcc.advanceTo(maxSeqId);
       } finally {
@@ -1895,6 +1958,45 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return this.wal;
   }
 
+  /**
+   * Marks the region as planned onto another WAL by a grouping WAL provider, see
+   * {@link org.apache.hadoop.hbase.wal.WALProvider#drainMovedRegions()}. The region moves with its
+   * next flush of all stores, unless it can not move at all, see {@link #canSwitchWAL()}.
+   */
+  void planWALSwitch() {
+    walSwitchPlanned = true;
+  }
+
+  /**
+   * A region whose edits are replicated stays on its WAL until it is reopened. A serial peer
+   * replicates each open sequence id range of a region out of a single replication queue, and the
+   * edits of a range must not end up in the queues of two WAL groups.
+   */
+  private boolean canSwitchWAL() {
+    return rsServices != null && !writestate.readOnly && replicationScope.isEmpty() &&
+        RegionReplicaUtil.isDefaultReplica(getRegionInfo());
+  }
+
+  /**
+   * Moves the region onto the WAL the region server now hands out for it. Call it holding the
+   * write lock of updatesLock, with every edit of the region in the old WAL synced and part of the
+   * snapshot being flushed, so the old WAL ends up holding no unflushed edit of the region.
+   */
+  private void switchToPlannedWAL() {
+    walSwitchPlanned = false;
+    WAL planned;
+    try {
+      planned = rsServices.getWAL(getRegionInfo());
+    } catch (IOException e) {
+      LOG.warn("Failed to get the planned WAL of {}, staying on {}", this, wal, e);
+      return;
+    }
+    if (planned != null && planned != wal) {
+      LOG.info("Moving {} from WAL {} to {}", getRegionInfo().getEncodedName(), wal, planned);
+      this.wal = planned;
+    }
+  }
+
   public BlockCache getBlockCache() {
     return this.blockCache;
   }
@@ -2630,7 +2732,21 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     // will be in advance of this sequence id.
     long flushedSeqId = HConstants.NO_SEQNUM;
     byte[] encodedRegionName = getRegionInfo().getEncodedNameAsBytes();
+    boolean switchWAL = walSwitchPlanned && wal != null && wal == this.wal;
+    if (switchWAL && !canSwitchWAL()) {
+      walSwitchPlanned = switchWAL = false;
+    }
     try {
+      if (switchWAL) {
+        // Edits written with ASYNC_WAL may still be on their way into the WAL. Once in, they would
+        // mark the region unflushed again in a WAL it no longer flushes to, and pin that WAL.
+        try {
+          wal.sync();
+        } catch (IOException e) {
+          LOG.warn("Failed to sync {} of {}, not moving to the planned WAL", wal, this, e);
+          switchWAL = false;
+        }
+      }
       if (wal != null) {
         Long earliestUnflushedSequenceIdForTheRegion =
             wal.startCacheFlush(encodedRegionName, flushedFamilyNamesToSeq);
@@ -2674,6 +2790,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         totalSizeOfFlushableStores.incMemStoreSize(snapshotSize);
         storeFlushableSize.put(name, snapshotSize);
       });
+      // Nothing is left outside the snapshot, once it is flushed the region has no edits in the
+      // WAL being flushed, and can go on with another one
+      if (switchWAL && storesToFlush.size() == stores.size() &&
+          totalSizeOfFlushableStores.getDataSize() == this.memStoreSizing.getDataSize()) {
+        switchToPlannedWAL();
+      }
     } catch (IOException ex) {
       doAbortFlushToWAL(wal, flushOpSeqId, committedFiles);
       throw ex;
@@ -2781,6 +2903,89 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return false;
   }
 
+  /**
+   * Write the snapshots of the stores out to files. The stores do not depend on each other here,
+   * so with more than one {@link #FLUSH_STORES_THREADS_KEY} thread they are written concurrently,
+   * the calling thread taking one of them. Returns once every store is done, successful or not;
+   * committing the files is left to the caller.
+   */
+  private void flushStores(Collection<StoreFlushContext> flushes, MonitoredTask status)
+      throws IOException {
+    ThreadPoolExecutor pool = getFlushStoresPool();
+    if (pool == null || flushes.size() < 2) {
+      for (StoreFlushContext flush : flushes) {
+        flushStore(flush, status);
+      }
+      return;
+    }
+    Iterator<StoreFlushContext> it = flushes.iterator();
+    StoreFlushContext first = it.next();
+    List<Future<?>> futures = new ArrayList<>(flushes.size() - 1);
+    while (it.hasNext()) {
+      StoreFlushContext flush = it.next();
+      futures.add(pool.submit(() -> {
+        flushStore(flush, status);
+        return null;
+      }));
+    }
+    Throwable error = null;
+    try {
+      flushStore(first, status);
+    } catch (Throwable t) {
+      error = t;
+    }
+    // Wait for all of them even if one failed, no store may still be writing once we return
+    boolean interrupted = false;
+    for (Future<?> future : futures) {
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (error == null) {
+            error = e.getCause();
+          } else {
+            error.addSuppressed(e.getCause());
+          }
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (error instanceof IOException) {
+      throw (IOException) error;
+    } else if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    } else if (error instanceof Error) {
+      throw (Error) error;
+    }
+  }
+
+  private void flushStore(StoreFlushContext flush, MonitoredTask status) throws IOException {
+    long start = EnvironmentEdgeManager.currentTime();
+    flush.flushCache(status);
+    if (rsServices != null && rsServices.getMetrics() != null) {
+      rsServices.getMetrics().updateStoreFlush(EnvironmentEdgeManager.currentTime() - start);
+    }
+  }
+
+  /**
+   * @return the region server wide pool for flushing stores concurrently, or null if stores are
+   *         flushed one after another
+   */
+  private ThreadPoolExecutor getFlushStoresPool() {
+    if (flushStoresThreads <= 1 || rsServices == null
+        || rsServices.getExecutorService() == null) {
+      return null;
+    }
+    return rsServices.getExecutorService().getExecutorLazily(ExecutorType.RS_FLUSH_STORES,
+      flushStoresThreads);
+  }
+
   @edu.umd.cs.findbugs.annotations.SuppressWarnings(value="NN_NAKED_NOTIFY",
       justification="Intentional; notify is about completed flush")
   protected FlushResultImpl internalFlushCacheAndCommit(WAL wal, MonitoredTask status,
@@ -2808,9 +3013,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       // just-made new flush store file. The new flushed file is still in the
       // tmp directory.
 
-      for (StoreFlushContext flush : storeFlushCtxs.values()) {
-        flush.flushCache(status);
-      }
+      flushStores(storeFlushCtxs.values(), status);
 
       // Switch snapshot (in memstore) -> new hfile (thus causing
       // all the store scanners to reset/reseek).
@@ -4690,6 +4893,40 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return seqId;
   }
 
+  /**
+   * Move the HFiles written by WAL splitting (see {@link WALSplitter#WAL_SPLIT_TO_HFILE}) into
+   * their stores. The cells in them carry the sequence ids of their WAL edits, so the files can be
+   * loaded as they are, whatever else the stores hold.
+   * @return the highest sequence id found in the stores after loading, or -1 if there was nothing
+   *         to load
+   */
+  private long loadRecoveredHFilesIfAny(Collection<HStore> stores) throws IOException {
+    long maxSeqId = -1;
+    Path regionDir = fs.getRegionDir();
+    for (HStore store : stores) {
+      String familyName = store.getColumnFamilyName();
+      List<Path> recoveredHFiles =
+          WALSplitUtil.getRecoveredHFiles(fs.getFileSystem(), regionDir, familyName);
+      for (Path recoveredHFile : recoveredHFiles) {
+        Path dst = fs.commitStoreFile(familyName, recoveredHFile);
+        store.bulkLoadHFile(new StoreFileInfo(conf, fs.getFileSystem(), dst));
+        LOG.info("Loaded recovered hfile {} into store {}", dst, store);
+      }
+      if (!recoveredHFiles.isEmpty()) {
+        long storeMaxSeqId = store.getMaxSequenceId().orElse(-1L);
+        maxSeqIdInStores.put(store.getColumnFamilyDescriptor().getName(), storeMaxSeqId);
+        maxSeqId = Math.max(maxSeqId, storeMaxSeqId);
+      }
+      // Whatever is left over is from split attempts which did not finish
+      Path recoveredHFilesDir = WALSplitUtil.getRecoveredHFilesDir(regionDir, familyName);
+      if (fs.getFileSystem().exists(recoveredHFilesDir)
+          && !fs.getFileSystem().delete(recoveredHFilesDir, true)) {
+        LOG.warn("Failed delete of {}", recoveredHFilesDir);
+      }
+    }
+    return maxSeqId;
+  }
+
   private long replayRecoveredEditsForPaths(long minSeqIdForTheRegion, FileSystem fs,
       final NavigableSet<Path> files, final CancelableProgressable reporter, final Path regionDir)
       throws IOException {
@@ -4769,8 +5006,27 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
 
     status.setStatus("Opening recovered edits");
     WAL.Reader reader = null;
+    ThreadPoolExecutor storePool = null;
     try {
       reader = WALFactory.createReader(fs, edits, conf);
+      int readAhead = conf.getInt(RECOVERED_EDITS_READ_AHEAD_KEY,
+        DEFAULT_RECOVERED_EDITS_READ_AHEAD);
+      if (readAhead > 0) {
+        reader = new ReadAheadWALReader(reader, readAhead,
+          "RecoveredEditsReader-" + getRegionInfo().getShortNameToLog());
+      }
+      int storeThreads = Math.min(stores.size(), conf.getInt(
+        RECOVERED_EDITS_REPLAY_STORE_THREADS_KEY, DEFAULT_RECOVERED_EDITS_REPLAY_STORE_THREADS));
+      if (storeThreads > 1) {
+        storePool = getOpenAndCloseThreadPool(storeThreads,
+          "RecoveredEditsReplay-" + getRegionInfo().getShortNameToLog());
+      }
+      // with the storePool, the cells and entries waiting to be replayed as a batch
+      Map<HStore, List<Cell>> pendingCells = new HashMap<>();
+      int pendingCellCount = 0;
+      List<WAL.Entry> pendingEntries = new ArrayList<>();
+      long startTime = EnvironmentEdgeManager.currentTime();
+      long reportedEdits = 0;
       long currentEditSeqId = -1;
       long currentReplaySeqId = -1;
       long firstSeqIdInLog = -1;
@@ -4797,6 +5053,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
           WALKey key = entry.getKey();
           WALEdit val = entry.getEdit();
 
+          if (editsCount - reportedEdits >= interval) {
+            // progress, for edits files taking long to replay
+            incrRecoveredEditsReplayed(editsCount - reportedEdits);
+            reportedEdits = editsCount;
+          }
+
           if (ng != null) { // some test, or nonces disabled
             ng.reportOperationFromWal(key.getNonceGroup(), key.getNonce(), key.getWriteTime());
           }
@@ -4861,6 +5123,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
             // Check this edit is for me. Also, guard against writing the special
             // METACOLUMN info such as HBASE::CACHEFLUSH entries
             if (CellUtil.matchingFamily(cell, WALEdit.METAFAMILY)) {
+              if (storePool != null && pendingCellCount > 0) {
+                // a marker applies to the edits before it, e.g. a compaction marker may drop the
+                // files of the edits still waiting in the batch
+                replayPendingEdits(pendingCells, pendingEntries, storePool);
+                pendingCellCount = 0;
+              }
               // if region names don't match, skipp replaying compaction marker
               if (!checkRowWithinBoundary) {
                 //this is a special edit, we should handle it
@@ -4899,26 +5167,47 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
             }
             PrivateCellUtil.setSequenceId(cell, currentReplaySeqId);
 
-            restoreEdit(store, cell, memStoreSizing);
+            if (storePool == null) {
+              restoreEdit(store, cell, memStoreSizing);
+            } else {
+              pendingCells.computeIfAbsent(store, k -> new ArrayList<>()).add(cell);
+              pendingCellCount++;
+            }
             editsCount++;
           }
-          MemStoreSize mss = memStoreSizing.getMemStoreSize();
-          incMemStoreSize(mss);
+          if (storePool == null) {
+            MemStoreSize mss = memStoreSizing.getMemStoreSize();
+            incMemStoreSize(mss);
+          } else {
+            pendingEntries.add(entry);
+            if (pendingCellCount < RECOVERED_EDITS_REPLAY_BATCH) {
+              continue;
+            }
+            replayPendingEdits(pendingCells, pendingEntries, storePool);
+            pendingCellCount = 0;
+          }
           flush = isFlushSize(this.memStoreSizing.getMemStoreSize());
           if (flush) {
             internalFlushcache(null, currentEditSeqId, stores.values(), status, false,
               FlushLifeCycleTracker.DUMMY);
           }
 
-          if (coprocessorHost != null) {
+          if (storePool == null && coprocessorHost != null) {
             coprocessorHost.postWALRestore(this.getRegionInfo(), key, val);
           }
         }
+        if (storePool != null) {
+          replayPendingEdits(pendingCells, pendingEntries, storePool);
+        }
 
         if (coprocessorHost != null) {
           coprocessorHost.postReplayWALs(this.getRegionInfo(), edits);
         }
       } catch (EOFException eof) {
+        if (storePool != null) {
+          // keep what was read before the end, like when replaying edit by edit
+          replayPendingEdits(pendingCells, pendingEntries, storePool);
+        }
         Path p = WALSplitUtil.moveAsideBadEditsFile(walFS, edits);
         msg = "EnLongAddered EOF. Most likely due to Master failure during " +
             "wal splitting, so we have this data in another edit.  " +
@@ -4929,6 +5218,9 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         // If the IOE resulted from bad file format,
         // then this problem is idempotent and retrying won't help
         if (ioe.getCause() instanceof ParseException) {
+          if (storePool != null) {
+            replayPendingEdits(pendingCells, pendingEntries, storePool);
+          }
           Path p = WALSplitUtil.moveAsideBadEditsFile(walFS, edits);
           msg = "File corruption enLongAddered!  " +
               "Continuing, but renaming " + edits + " as " + p;
@@ -4944,6 +5236,11 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       if (reporter != null && !reported_once) {
         reporter.progress();
       }
+      incrRecoveredEditsReplayed(editsCount - reportedEdits);
+      if (rsServices != null && rsServices.getMetrics() != null) {
+        rsServices.getMetrics().updateRecoveredEditsReplay(
+          EnvironmentEdgeManager.currentTime() - startTime);
+      }
       msg = "Applied " + editsCount + ", skipped " + skippedEdits +
         ", firstSequenceIdInLog=" + firstSeqIdInLog +
         ", maxSequenceIdInLog=" + currentEditSeqId + ", path=" + edits;
@@ -4952,12 +5249,91 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       return currentEditSeqId;
     } finally {
       status.cleanup();
+      if (storePool != null) {
+        storePool.shutdown();
+      }
       if (reader != null) {
          reader.close();
       }
     }
   }
 
+  /**
+   * Replays a batch of recovered edits into the stores, one store per thread of the given pool
+   * with the calling thread taking one of them, then runs the post restore hooks of the entries
+   * they came from. Empties the batch.
+   */
+  private void replayPendingEdits(Map<HStore, List<Cell>> pendingCells,
+      List<WAL.Entry> pendingEntries, ThreadPoolExecutor pool) throws IOException {
+    List<Future<MemStoreSize>> futures = new ArrayList<>(pendingCells.size());
+    Map.Entry<HStore, List<Cell>> first = null;
+    for (Map.Entry<HStore, List<Cell>> storeCells : pendingCells.entrySet()) {
+      if (first == null) {
+        first = storeCells;
+      } else {
+        futures.add(pool.submit(() -> replayEdits(storeCells.getKey(), storeCells.getValue())));
+      }
+    }
+    MemStoreSizing memStoreSizing = new NonThreadSafeMemStoreSizing();
+    Throwable error = null;
+    if (first != null) {
+      try {
+        memStoreSizing.incMemStoreSize(replayEdits(first.getKey(), first.getValue()));
+      } catch (RuntimeException e) {
+        error = e;
+      }
+    }
+    // Wait for all of them even if one failed, their sizes have to be accounted for
+    boolean interrupted = false;
+    for (Future<MemStoreSize> future : futures) {
+      while (true) {
+        try {
+          memStoreSizing.incMemStoreSize(future.get());
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (error == null) {
+            error = e.getCause();
+          } else {
+            error.addSuppressed(e.getCause());
+          }
+          break;
+        }
+      }
+    }
+    incMemStoreSize(memStoreSizing.getMemStoreSize());
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    } else if (error != null) {
+      throw new IOException(error);
+    }
+    pendingCells.clear();
+    if (coprocessorHost != null) {
+      for (WAL.Entry entry : pendingEntries) {
+        coprocessorHost.postWALRestore(this.getRegionInfo(), entry.getKey(), entry.getEdit());
+      }
+    }
+    pendingEntries.clear();
+  }
+
+  private MemStoreSize replayEdits(HStore store, List<Cell> cells) {
+    MemStoreSizing memStoreSizing = new NonThreadSafeMemStoreSizing();
+    for (Cell cell : cells) {
+      restoreEdit(store, cell, memStoreSizing);
+    }
+    return memStoreSizing.getMemStoreSize();
+  }
+
+  private void incrRecoveredEditsReplayed(long edits) {
+    if (rsServices != null && rsServices.getMetrics() != null) {
+      rsServices.getMetrics().incrRecoveredEditsReplayed(edits);
+    }
+  }
+
   /**
    * Call to complete a compaction. Its for the case where we find in the WAL a compaction
    * that was not finished.  We could find one recovering a WAL after a regionserver crash.
@@ -6427,6 +6803,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     private final long maxResultSize;
     private final ScannerContext defaultScannerContext;
     private final FilterWrapper filter;
+    private final AdaptiveFilterOrder adaptiveFilterOrder;
 
     @Override
     public RegionInfo getRegionInfo() {
@@ -6447,6 +6824,11 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       } else {
         this.filter = null;
       }
+      if (region.adaptiveFilterOrder && scan.getFilter() instanceof FilterList) {
+        this.adaptiveFilterOrder = ((FilterList) scan.getFilter()).enableAdaptiveOrder();
+      } else {
+        this.adaptiveFilterOrder = null;
+      }
       this.comparator = region.getCellComparator();
       /**
        * By default, calls to next/nextRaw must enforce the batch limit. Thus, construct a default
@@ -6624,6 +7006,9 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       if (isFilterDoneInternal()) {
         moreValues = false;
       }
+      if (adaptiveFilterOrder != null && scannerContext.isTrackingMetrics()) {
+        adaptiveFilterOrder.addToMetrics(scannerContext.getMetrics());
+      }
       return moreValues;
     }
 
@@ -7538,6 +7923,221 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return results;
   }
 
+  /**
+   * Runs a batch of Gets, e.g. the Gets of a multi request. Instead of opening a scanner and
+   * seeking every store file from scratch for each Get, the Gets are sorted by row and the ones
+   * that read the same columns the same way (no filter, same time range, versions and so on) run
+   * through one region scanner which is only reseeked forward from row to row. Before that, the
+   * data blocks their rows need are loaded into the block cache with a few merged reads per store
+   * file. The other Gets run one by one as in {@link #get(Get, boolean)}.
+   * @param gets the Gets, already checked by {@link #prepareGet(Get)}
+   * @param withCoprocessor invoke coprocessor or not
+   * @param closeCallBack if not null, the scanners are handed over to it to be closed once the
+   *          results have been shipped; otherwise they are closed before returning
+   * @return the cells of each Get, in the order of the given Gets
+   */
+  List<List<Cell>> get(List<Get> gets, boolean withCoprocessor,
+      RegionScannersCloseCallBack closeCallBack) throws IOException {
+    return get(gets, withCoprocessor, closeCallBack, Long.MAX_VALUE);
+  }
+
+  /**
+   * Same as {@link #get(List, boolean, RegionScannersCloseCallBack)}, but stops running Gets once
+   * the cells read add up to at least the given size, as the response of a multi request may not
+   * grow past its size limit.
+   * @param maxResultSize estimated serialized size of the cells after which no Get is run
+   * @return the cells of each Get, in the order of the given Gets, or null for the Gets which were
+   *         not run because the size limit was reached first
+   */
+  List<List<Cell>> get(List<Get> gets, boolean withCoprocessor,
+      RegionScannersCloseCallBack closeCallBack, long maxResultSize) throws IOException {
+    List<List<Cell>> results = new ArrayList<>(Collections.nCopies(gets.size(), null));
+    long before = EnvironmentEdgeManager.currentTime();
+    List<Integer> toRun = new ArrayList<>(gets.size());
+    for (int i = 0; i < gets.size(); i++) {
+      List<Cell> cells = new ArrayList<>();
+      // pre-get CP hook
+      if (withCoprocessor && coprocessorHost != null && coprocessorHost.preGet(gets.get(i), cells)) {
+        results.set(i, cells);
+        metricsUpdateForGet(cells, before);
+      } else {
+        toRun.add(i);
+      }
+    }
+    toRun.sort((a, b) -> Bytes.compareTo(gets.get(a).getRow(), gets.get(b).getRow()));
+    // Split the sorted Gets into groups which can share a scanner, keeping the row order
+    List<List<Integer>> groups = new ArrayList<>();
+    for (int i : toRun) {
+      List<Integer> group = null;
+      // Rows of meta regions do not sort as plain bytes
+      if (batchGetEnabled && !getRegionInfo().isMetaRegion()) {
+        for (List<Integer> g : groups) {
+          if (canShareScanner(gets.get(g.get(0)), gets.get(i))) {
+            group = g;
+            break;
+          }
+        }
+      }
+      if (group == null) {
+        group = new ArrayList<>();
+        groups.add(group);
+      }
+      group.add(i);
+    }
+    long resultSize = 0;
+    for (List<Integer> group : groups) {
+      resultSize += getInOneScan(gets, group, results, closeCallBack, maxResultSize - resultSize);
+      if (resultSize >= maxResultSize) {
+        break;
+      }
+    }
+    for (int i : toRun) {
+      if (results.get(i) == null) {
+        continue;
+      }
+      // post-get CP hook
+      if (withCoprocessor && coprocessorHost != null) {
+        coprocessorHost.postGet(gets.get(i), results.get(i));
+      }
+      metricsUpdateForGet(results.get(i), before);
+    }
+    return results;
+  }
+
+  /**
+   * @return true if the two Gets return the same cells of a row, so that one scan can serve both
+   */
+  private static boolean canShareScanner(Get a, Get b) {
+    if (a.getFilter() != null || b.getFilter() != null
+        || a.getMaxVersions() != b.getMaxVersions()
+        || a.getMaxResultsPerColumnFamily() != b.getMaxResultsPerColumnFamily()
+        || a.getRowOffsetPerColumnFamily() != b.getRowOffsetPerColumnFamily()
+        || a.getCacheBlocks() != b.getCacheBlocks()
+        || a.getIsolationLevel() != b.getIsolationLevel()
+        || !Objects.equals(a.getLoadColumnFamiliesOnDemandValue(),
+          b.getLoadColumnFamiliesOnDemandValue())
+        || a.getTimeRange().getMin() != b.getTimeRange().getMin()
+        || a.getTimeRange().getMax() != b.getTimeRange().getMax()
+        || !a.getColumnFamilyTimeRange().isEmpty() || !b.getColumnFamilyTimeRange().isEmpty()
+        || a.getFamilyMap().size() != b.getFamilyMap().size()) {
+      return false;
+    }
+    for (Map.Entry<byte[], NavigableSet<byte[]>> entry : a.getFamilyMap().entrySet()) {
+      if (!b.getFamilyMap().containsKey(entry.getKey())) {
+        return false;
+      }
+      NavigableSet<byte[]> columns = entry.getValue();
+      NavigableSet<byte[]> otherColumns = b.getFamilyMap().get(entry.getKey());
+      if (columns == null || otherColumns == null) {
+        if (columns != otherColumns) {
+          return false;
+        }
+      } else if (!columns.equals(otherColumns)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Runs the given Gets, sorted by row, through one region scanner from the first to the last
+   * row, reseeking it forward to the row of each Get, until the cells read reach the given size.
+   * @return the estimated serialized size of the cells read
+   */
+  private long getInOneScan(List<Get> gets, List<Integer> group, List<List<Cell>> results,
+      RegionScannersCloseCallBack closeCallBack, long maxResultSize) throws IOException {
+    Get first = gets.get(group.get(0));
+    Scan scan = new Scan(first);
+    if (group.size() > 1) {
+      scan.withStopRow(gets.get(group.get(group.size() - 1)).getRow(), true);
+    }
+    if (scan.getLoadColumnFamiliesOnDemandValue() == null) {
+      scan.setLoadColumnFamiliesOnDemand(isLoadingCfsOnDemandDefault());
+    }
+    if (group.size() > 1 && scan.getCacheBlocks()) {
+      cacheDataBlocks(scan, group.stream().map(i -> gets.get(i).getRow())
+          .distinct().collect(Collectors.toList()));
+    }
+    RegionScannerImpl scanner = getScanner(scan);
+    try {
+      // The cells of a row we read while looking for the row of the previous Get
+      List<Cell> readAhead = new ArrayList<>();
+      boolean moreRows = true;
+      byte[] previousRow = null;
+      List<Cell> previousCells = null;
+      long resultSize = 0;
+      for (int i : group) {
+        if (resultSize >= maxResultSize) {
+          break;
+        }
+        byte[] row = gets.get(i).getRow();
+        List<Cell> cells = new ArrayList<>();
+        if (previousRow != null && Bytes.equals(row, previousRow)) {
+          cells.addAll(previousCells);
+        } else if (!readAhead.isEmpty() && CellUtil.matchingRows(readAhead.get(0), row)) {
+          cells = readAhead;
+          readAhead = new ArrayList<>();
+        } else if (readAhead.isEmpty()
+            || getCellComparator().compareRows(readAhead.get(0), row, 0, row.length) < 0) {
+          readAhead.clear();
+          if (moreRows) {
+            if (previousRow != null) {
+              scanner.reseek(row);
+            }
+            moreRows = scanner.next(cells);
+            if (!cells.isEmpty() && !CellUtil.matchingRows(cells.get(0), row)) {
+              // The row has no cells, the scanner moved on to a later row
+              readAhead = cells;
+              cells = new ArrayList<>();
+            }
+          }
+        }
+        // Else the scanner is already past this row, which has no cells
+        results.set(i, cells);
+        for (Cell cell : cells) {
+          resultSize += PrivateCellUtil.estimatedSerializedSizeOf(cell);
+        }
+        previousRow = row;
+        previousCells = cells;
+      }
+      return resultSize;
+    } finally {
+      if (closeCallBack == null) {
+        scanner.close();
+      } else {
+        closeCallBack.addScanner(scanner);
+      }
+    }
+  }
+
+  /**
+   * Loads into the block cache the data blocks of the store files of the scanned families which
+   * the given sorted rows need, see {@link StoreFileReader#cacheDataBlocks(List)}. This is only an
+   * optimization, so failures are logged and ignored.
+   */
+  private void cacheDataBlocks(Scan scan, List<byte[]> rows) {
+    for (HStore store : stores.values()) {
+      if (scan.hasFamilies()
+          && !scan.getFamilyMap().containsKey(store.getColumnFamilyDescriptor().getName())) {
+        continue;
+      }
+      for (HStoreFile storeFile : store.getStorefiles()) {
+        StoreFileReader reader = storeFile.getReader();
+        if (reader == null || !reader.passesTimerangeFilter(scan.getTimeRange(), Long.MIN_VALUE)) {
+          continue;
+        }
+        reader.incrementRefCount();
+        try {
+          reader.cacheDataBlocks(rows);
+        } catch (IOException e) {
+          LOG.debug("Failed to load the data blocks of {} for a batch of gets", storeFile, e);
+        } finally {
+          reader.readCompleted();
+        }
+      }
+    }
+  }
+
   void metricsUpdateForGet(List<Cell> results, long before) {
     if (this.metricsRegion != null) {
       this.metricsRegion.updateGet(EnvironmentEdgeManager.currentTime() - before);
@@ -7954,11 +8554,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       walKey.setOrigLogSeqNum(origLogSeqNum);
     }
     WriteEntry writeEntry = null;
+    WAL wal = this.wal;
     try {
-      long txid = this.wal.append(this.getRegionInfo(), walKey, walEdit, true);
+      long txid = wal.append(this.getRegionInfo(), walKey, walEdit, true);
       // Call sync on our edit.
       if (txid != 0) {
-        sync(txid, durability);
+        sync(wal, txid, durability);
       }
       writeEntry = walKey.getWriteEntry();
     } catch (IOException ioe) {
@@ -8199,9 +8800,9 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
   public static final long FIXED_OVERHEAD = ClassSize.align(
       ClassSize.OBJECT +
       ClassSize.ARRAY +
-      55 * ClassSize.REFERENCE + 3 * Bytes.SIZEOF_INT +
+      55 * ClassSize.REFERENCE + 4 * Bytes.SIZEOF_INT +
       (15 * Bytes.SIZEOF_LONG) +
-      3 * Bytes.SIZEOF_BOOLEAN);
+      5 * Bytes.SIZEOF_BOOLEAN);
 
   // woefully out of date - currently missing:
   // 1 x HashMap - coprocessorServiceHandlers
@@ -8565,18 +9166,19 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
 
   /**
    * Calls sync with the given transaction ID
+   * @param wal the WAL the transaction was appended to
    * @param txid should sync up to which transaction
    * @throws IOException If anything goes wrong with DFS
    */
-  private void sync(long txid, Durability durability) throws IOException {
+  private void sync(WAL wal, long txid, Durability durability) throws IOException {
     if (this.getRegionInfo().isMetaRegion()) {
-      this.wal.sync(txid);
+      wal.sync(txid);
     } else {
       switch(durability) {
       case USE_DEFAULT:
         // do what table defaults to
         if (shouldSyncWAL()) {
-          this.wal.sync(txid);
+          wal.sync(txid);
         }
         break;
       case SKIP_WAL:
@@ -8586,10 +9188,10 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         // nothing do to
         break;
       case SYNC_WAL:
-          this.wal.sync(txid, false);
+          wal.sync(txid, false);
           break;
       case FSYNC_WAL:
-          this.wal.sync(txid, true);
+          wal.sync(txid, true);
           break;
       default:
         throw new RuntimeException("Unknown durability " + durability);
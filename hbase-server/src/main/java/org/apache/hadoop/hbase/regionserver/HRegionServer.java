@@ -106,6 +106,7 @@ import org.apache.hadoop.hbase.fs.HFileSystem;
 import org.apache.hadoop.hbase.http.InfoServer;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
 import org.apache.hadoop.hbase.io.hfile.BlockCacheFactory;
+import org.apache.hadoop.hbase.io.hfile.BlockReadAhead;
 import org.apache.hadoop.hbase.io.hfile.HFile;
 import org.apache.hadoop.hbase.io.util.MemorySizeUtil;
 import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils;
@@ -436,6 +437,8 @@ public class HRegionServer extends HasThread implements
 
   // Block cache
   private BlockCache blockCache;
+  // Read-ahead of the store file scanners, null if they do not read ahead
+  private volatile BlockReadAhead.Pool blockReadAheadPool;
   // The cache for mob files
   private MobFileCache mobFileCache;
 
@@ -1923,7 +1926,7 @@ public class HRegionServer extends HasThread implements
       healthCheckChore = new HealthCheckChore(sleepTime, this, getConfiguration());
     }
 
-    this.walRoller = new LogRoller(this, this);
+    this.walRoller = new LogRoller(this, this, walFactory);
     this.flushThroughputController = FlushThroughputControllerFactory.create(this, conf);
     this.procedureResultReporter = new RemoteProcedureResultReporter(this);
 
@@ -1969,6 +1972,13 @@ public class HRegionServer extends HasThread implements
       conf.getInt("hbase.regionserver.executor.replay.sync.replication.wal.threads", 1));
     this.executorService.startExecutorService(ExecutorType.RS_SWITCH_RPC_THROTTLE,
       conf.getInt("hbase.regionserver.executor.switch.rpc.throttle.threads", 1));
+    int readAheadThreads = conf.getInt(BlockReadAhead.READ_AHEAD_THREADS_KEY,
+      BlockReadAhead.DEFAULT_READ_AHEAD_THREADS);
+    if (readAheadThreads > 0) {
+      this.blockReadAheadPool = BlockReadAhead.Pool.create(
+        this.executorService.getExecutorLazily(ExecutorType.RS_BLOCK_READ_AHEAD, readAheadThreads),
+        conf);
+    }
 
     Threads.setDaemonThreadRunning(this.walRoller.getThread(), getName() + ".logRoller",
     uncaughtExceptionHandler);
@@ -3642,6 +3652,11 @@ public class HRegionServer extends HasThread implements
     return Optional.ofNullable(this.blockCache);
   }
 
+  @Override
+  public Optional<BlockReadAhead.Pool> getBlockReadAheadPool() {
+    return Optional.ofNullable(this.blockReadAheadPool);
+  }
+
   /**
    * May be null if this is a master which not carry table.
    *
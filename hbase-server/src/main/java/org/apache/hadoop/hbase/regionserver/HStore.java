@@ -378,7 +378,8 @@ public class HStore implements Store, HeapSize, StoreConfigInformation, Propagat
    */
   protected void createCacheConf(final ColumnFamilyDescriptor family) {
     this.cacheConf = new CacheConfig(conf, family, region.getBlockCache(),
-        region.getRegionServicesForStores().getByteBuffAllocator());
+        region.getRegionServicesForStores().getByteBuffAllocator(),
+        region.getRegionServicesForStores().getBlockReadAheadPool());
   }
 
   /**
@@ -1141,7 +1142,8 @@ public class HStore implements Store, HeapSize, StoreConfigInformation, Propagat
             .withFavoredNodes(favoredNodes)
             .withFileContext(hFileContext)
             .withShouldDropCacheBehind(shouldDropBehind)
-            .withCompactedFilesSupplier(this::getCompactedFiles);
+            .withCompactedFilesSupplier(this::getCompactedFiles)
+            .withCompressionPool(region.getRegionServicesForStores().getBlockCompressionPool());
     return builder.build();
   }
 
@@ -0,0 +1,344 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.metrics.Gauge;
+import org.apache.hadoop.hbase.metrics.MetricRegistry;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.LossyCounting;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Finds the rows and regions of this RegionServer that receive a disproportionate share of the
+ * requests.
+ * <p>
+ * A sample of the gets, mutations and scans served by {@link RSRpcServices} is fed to
+ * {@link LossyCounting}s, one keyed by row and one keyed by region. The handlers record into a
+ * few stripes, each with its own counters and lock, picked by thread so that they seldom contend.
+ * At the end of every window, configured by {@value #HOT_KEY_WINDOW_KEY}, the counts of the
+ * stripes are summed up, the top keys of the window become the current hot keys and the counting
+ * starts over, so a key that turns hot shows up within a window and one that cools down
+ * disappears after the next. The hot keys are shown on the RegionServer
+ * status page and published as gauges of the RegionServer metrics, named after the key like the
+ * {@link org.apache.hadoop.hbase.coprocessor.MetaTableMetrics} meters, with the estimated number
+ * of requests per second as value.
+ */
+@InterfaceAudience.Private
+public class HotKeyTracker {
+
+  public static final String HOT_KEY_ENABLED_KEY = "hbase.regionserver.hotkey.enabled";
+  public static final boolean DEFAULT_HOT_KEY_ENABLED = false;
+
+  public static final String HOT_KEY_SAMPLE_RATE_KEY = "hbase.regionserver.hotkey.sample.rate";
+  public static final double DEFAULT_HOT_KEY_SAMPLE_RATE = 0.01;
+
+  public static final String HOT_KEY_WINDOW_KEY = "hbase.regionserver.hotkey.window.ms";
+  public static final long DEFAULT_HOT_KEY_WINDOW = 10000;
+
+  public static final String HOT_KEY_TOP_K_KEY = "hbase.regionserver.hotkey.topk";
+  public static final int DEFAULT_HOT_KEY_TOP_K = 10;
+
+  // Encoded region names are hex strings, so the first separator splits a row key
+  private static final char SEPARATOR = '/';
+
+  // Power of two
+  private static final int STRIPES = 16;
+
+  /**
+   * A row, or a whole region when {@link #getRow()} is null, and how busy it was.
+   */
+  public static final class HotKey {
+    private final RegionInfo region;
+    private final byte[] row;
+    private final double requestsPerSecond;
+    private final double share;
+
+    HotKey(RegionInfo region, byte[] row, double requestsPerSecond, double share) {
+      this.region = region;
+      this.row = row;
+      this.requestsPerSecond = requestsPerSecond;
+      this.share = share;
+    }
+
+    public TableName getTable() {
+      return region.getTable();
+    }
+
+    public RegionInfo getRegion() {
+      return region;
+    }
+
+    public byte[] getRow() {
+      return row;
+    }
+
+    /**
+     * @return the estimated number of requests per second the key received
+     */
+    public double getRequestsPerSecond() {
+      return requestsPerSecond;
+    }
+
+    /**
+     * @return the estimated fraction of the requests of this RegionServer the key received
+     */
+    public double getShare() {
+      return share;
+    }
+
+    @Override
+    public String toString() {
+      return "table=" + getTable() + ", region=" + region.getEncodedName() +
+          (row == null ? "" : ", row=" + Bytes.toStringBinary(row)) +
+          ", requestsPerSecond=" + requestsPerSecond + ", share=" + share;
+    }
+  }
+
+  /**
+   * The counts of the current window recorded by some of the threads.
+   */
+  private final class Stripe {
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private LossyCounting rows;
+    private LossyCounting regionCounts;
+    private Map<String, RegionInfo> regions;
+
+    Stripe() {
+      reset();
+    }
+
+    void record(RegionInfo region, byte[] row) {
+      String encodedName = region.getEncodedName();
+      lock.lock();
+      try {
+        regions.putIfAbsent(encodedName, region);
+        rows.addByOne(encodedName + SEPARATOR + Bytes.toStringBinary(row));
+        regionCounts.addByOne(encodedName);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Adds the counts of this stripe to the given ones and starts over.
+     */
+    void drainTo(Map<String, Long> rowTotals, Map<String, Long> regionTotals,
+        Map<String, RegionInfo> allRegions, long[] totalCount) {
+      lock.lock();
+      try {
+        rows.getCounts().forEach((key, count) -> rowTotals.merge(key, (long) count, Long::sum));
+        regionCounts.getCounts()
+            .forEach((key, count) -> regionTotals.merge(key, (long) count, Long::sum));
+        allRegions.putAll(regions);
+        totalCount[0] += regionCounts.getTotalDataCount();
+        reset();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void reset() {
+      rows = new LossyCounting(errorRate, "hotRows");
+      regionCounts = new LossyCounting(errorRate, "hotRegions");
+      regions = new HashMap<>();
+    }
+  }
+
+  private final double sampleRate;
+  private final long windowMs;
+  private final int topK;
+  private final double errorRate;
+  private final MetricRegistry registry;
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  private volatile long windowStart;
+  // Guarded by this
+  private final Set<String> gaugeNames = new HashSet<>();
+
+  private volatile Map<String, HotKey> hotRows = Collections.emptyMap();
+  private volatile Map<String, HotKey> hotRegions = Collections.emptyMap();
+
+  HotKeyTracker(Configuration conf, MetricRegistry registry) {
+    this.sampleRate = conf.getDouble(HOT_KEY_SAMPLE_RATE_KEY, DEFAULT_HOT_KEY_SAMPLE_RATE);
+    this.windowMs = conf.getLong(HOT_KEY_WINDOW_KEY, DEFAULT_HOT_KEY_WINDOW);
+    this.topK = conf.getInt(HOT_KEY_TOP_K_KEY, DEFAULT_HOT_KEY_TOP_K);
+    this.errorRate = conf.getDouble(HConstants.DEFAULT_LOSSY_COUNTING_ERROR_RATE, 0.02);
+    if (sampleRate <= 0 || sampleRate > 1) {
+      throw new IllegalArgumentException(HOT_KEY_SAMPLE_RATE_KEY + " should be within (0,1]");
+    }
+    this.registry = registry;
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+    this.windowStart = EnvironmentEdgeManager.currentTime();
+  }
+
+  /**
+   * @return a tracker, or null if hot key tracking is disabled
+   */
+  static HotKeyTracker create(Configuration conf, MetricRegistry registry) {
+    if (!conf.getBoolean(HOT_KEY_ENABLED_KEY, DEFAULT_HOT_KEY_ENABLED)) {
+      return null;
+    }
+    return new HotKeyTracker(conf, registry);
+  }
+
+  /**
+   * Cheap test run on every request, only requests it returns true for are to be
+   * {@link #record(RegionInfo, byte[]) recorded}.
+   */
+  public boolean shouldSample() {
+    return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  /**
+   * Records a sampled access to the given row. Only the stripe of the calling thread is locked,
+   * except once per window to roll it.
+   */
+  public void record(RegionInfo region, byte[] row) {
+    rollIfDue();
+    stripes[(int) (Thread.currentThread().getId() & (STRIPES - 1))].record(region, row);
+  }
+
+  /**
+   * @return the hot rows of the last window, hottest first
+   */
+  public List<HotKey> getHotRows() {
+    rollIfDue();
+    return new ArrayList<>(hotRows.values());
+  }
+
+  /**
+   * @return the hot rows of the given region in the last window, hottest first, for instance to
+   *         pick a split point that separates them
+   */
+  public List<HotKey> getHotRows(String encodedRegionName) {
+    List<HotKey> rows = new ArrayList<>();
+    for (HotKey key : getHotRows()) {
+      if (key.getRegion().getEncodedName().equals(encodedRegionName)) {
+        rows.add(key);
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * @return the hot regions of the last window, hottest first
+   */
+  public List<HotKey> getHotRegions() {
+    rollIfDue();
+    return new ArrayList<>(hotRegions.values());
+  }
+
+  private void rollIfDue() {
+    if (EnvironmentEdgeManager.currentTime() - windowStart >= windowMs) {
+      synchronized (this) {
+        rollIfExpired();
+      }
+    }
+  }
+
+  private void rollIfExpired() {
+    long now = EnvironmentEdgeManager.currentTime();
+    if (now - windowStart < windowMs) {
+      return;
+    }
+    Map<String, Long> rowTotals = new HashMap<>();
+    Map<String, Long> regionTotals = new HashMap<>();
+    Map<String, RegionInfo> regions = new HashMap<>();
+    long[] totalCount = new long[1];
+    for (Stripe stripe : stripes) {
+      stripe.drainTo(rowTotals, regionTotals, regions, totalCount);
+    }
+    if (now - windowStart < 2 * windowMs) {
+      hotRows = toHotKeys(rowTotals, totalCount[0], regions, true);
+      hotRegions = toHotKeys(regionTotals, totalCount[0], regions, false);
+    } else {
+      // Nothing was recorded for a whole window, whatever we have is stale
+      hotRows = Collections.emptyMap();
+      hotRegions = Collections.emptyMap();
+    }
+    publish();
+    windowStart = now;
+  }
+
+  private Map<String, HotKey> toHotKeys(Map<String, Long> counts, long total,
+      Map<String, RegionInfo> regions, boolean byRow) {
+    List<Map.Entry<String, Long>> top = new ArrayList<>(counts.entrySet());
+    top.sort(Map.Entry.<String, Long> comparingByValue().reversed());
+    Map<String, HotKey> hotKeys = new LinkedHashMap<>();
+    for (Map.Entry<String, Long> entry : top.subList(0, Math.min(topK, top.size()))) {
+      String key = entry.getKey();
+      int separator = key.indexOf(SEPARATOR);
+      RegionInfo region = regions.get(byRow ? key.substring(0, separator) : key);
+      byte[] row = byRow ? Bytes.toBytesBinary(key.substring(separator + 1)) : null;
+      double requestsPerSecond = entry.getValue() / sampleRate * 1000 / windowMs;
+      hotKeys.put(gaugeName(region, row), new HotKey(region, row, requestsPerSecond,
+        (double) entry.getValue() / total));
+    }
+    return hotKeys;
+  }
+
+  private static String gaugeName(RegionInfo region, byte[] row) {
+    return String.format("HotKeys_table_%s_region_%s%s_request_rate",
+      region.getTable().getNameAsString(), region.getEncodedName(),
+      row == null ? "" : "_row_" + Bytes.toStringBinary(row));
+  }
+
+  /**
+   * Swaps the gauges of the previous hot keys for the ones of the current hot keys.
+   */
+  private void publish() {
+    if (registry == null) {
+      return;
+    }
+    Set<String> names = new HashSet<>(hotRows.keySet());
+    names.addAll(hotRegions.keySet());
+    for (String name : gaugeNames) {
+      if (!names.contains(name)) {
+        registry.remove(name);
+      }
+    }
+    for (String name : names) {
+      if (!gaugeNames.contains(name)) {
+        registry.register(name, (Gauge<Long>) () -> {
+          HotKey key = hotRows.getOrDefault(name, hotRegions.get(name));
+          return key == null ? 0L : Math.round(key.getRequestsPerSecond());
+        });
+      }
+    }
+    gaugeNames.clear();
+    gaugeNames.addAll(names);
+  }
+}
@@ -0,0 +1,274 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseInterfaceAudience;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class represents a split policy which, in addition to splitting on size like
+ * {@link IncreasingToUpperBoundRegionSplitPolicy}, splits a region that serves more than
+ * "hbase.load.policy.requestsPerSecond" read and write requests per second, averaged over a
+ * window of "hbase.load.policy.aggWindow" milliseconds.
+ * <p>
+ * A region split because of its load is split at the load median rather than the size median:
+ * the rows accessed by client requests are sampled at the rate of
+ * "hbase.load.policy.sampleRate" and the split point is the median of the rows sampled in the
+ * last window, so that each daughter gets about half of the requests. When more than half of
+ * the samples are for a single row, the region is split just before that hot row, or just after
+ * it when the region starts with it, so that after at most two splits the hot row has a region of
+ * its own. A region made of the hot row alone is not split on load.
+ * <p>
+ * As a region can get busy without being written to, the region is not only checked for split
+ * after flushes and compactions: the sampling asks for a check as soon as a window ends with the
+ * region too busy.
+ */
+@InterfaceAudience.LimitedPrivate(HBaseInterfaceAudience.CONFIG)
+public class LoadBasedRegionSplitPolicy extends IncreasingToUpperBoundRegionSplitPolicy {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoadBasedRegionSplitPolicy.class);
+
+  // Number of read and write requests per second above which a region is split
+  private long maxRequestsPerSecond;
+  public static final long DEFAULT_MAX_REQUESTS_PER_SECOND = 5000;
+
+  // Minimum age of the region in milliseconds before it is considered for split
+  private long minAge;
+  public static final long DEFAULT_MIN_AGE_MS = 600000;  // 10 minutes
+
+  // The window time in milliseconds over which the request rate and the load median are taken
+  private long aggregationWindow;
+  public static final long DEFAULT_AGGREGATION_WINDOW = 300000;  // 5 minutes
+
+  // Fraction of the accessed rows that are sampled
+  private double sampleRate;
+  public static final double DEFAULT_SAMPLE_RATE = 0.01;
+
+  // Maximum number of rows sampled per window, and minimum to consider a split on load
+  private int maxSamples;
+  public static final int DEFAULT_MAX_SAMPLES = 1000;
+  private int minSamples;
+  public static final int DEFAULT_MIN_SAMPLES = 100;
+
+  private long startTime;
+  private long windowStart;
+  private long requestCount;
+  // Reservoir of the rows sampled in the current window, out of windowSampleCount samples
+  private List<byte[]> samples;
+  private long windowSampleCount;
+  // The request rate and the sampled rows of the last complete window
+  private double requestsPerSecond;
+  private List<byte[]> lastSamples = Collections.emptyList();
+  private boolean splitOnLoad;
+
+  @Override
+  protected void configureForRegion(final HRegion region) {
+    super.configureForRegion(region);
+    Configuration conf = getConf();
+
+    maxRequestsPerSecond = conf.getLong("hbase.load.policy.requestsPerSecond",
+        DEFAULT_MAX_REQUESTS_PER_SECOND);
+    minAge = conf.getLong("hbase.load.policy.minAge", DEFAULT_MIN_AGE_MS);
+    aggregationWindow = conf.getLong("hbase.load.policy.aggWindow", DEFAULT_AGGREGATION_WINDOW);
+    sampleRate = conf.getDouble("hbase.load.policy.sampleRate", DEFAULT_SAMPLE_RATE);
+    maxSamples = conf.getInt("hbase.load.policy.maxSamples", DEFAULT_MAX_SAMPLES);
+    minSamples = conf.getInt("hbase.load.policy.minSamples", DEFAULT_MIN_SAMPLES);
+
+    if (aggregationWindow <= 0) {
+      LOG.warn("Aggregation window size is too low: " + aggregationWindow
+          + ". Resetting it to default of " + DEFAULT_AGGREGATION_WINDOW);
+      aggregationWindow = DEFAULT_AGGREGATION_WINDOW;
+    }
+    if (sampleRate <= 0 || sampleRate > 1) {
+      LOG.warn("Sample rate should be within (0,1], resetting " + sampleRate
+          + " to default of " + DEFAULT_SAMPLE_RATE);
+      sampleRate = DEFAULT_SAMPLE_RATE;
+    }
+    if (maxSamples < minSamples || minSamples < 1) {
+      LOG.warn("Minimum number of samples " + minSamples + " should be positive and below the"
+          + " maximum " + maxSamples + ", resetting them to defaults of " + DEFAULT_MIN_SAMPLES
+          + " and " + DEFAULT_MAX_SAMPLES);
+      minSamples = DEFAULT_MIN_SAMPLES;
+      maxSamples = DEFAULT_MAX_SAMPLES;
+    }
+
+    init();
+  }
+
+  private synchronized void init() {
+    startTime = EnvironmentEdgeManager.currentTime();
+    windowStart = startTime;
+    requestCount = getRequestCount();
+    samples = new ArrayList<>();
+    windowSampleCount = 0;
+  }
+
+  @Override
+  protected double getRowAccessSampleRate() {
+    return sampleRate;
+  }
+
+  @Override
+  protected void sampleRowAccess(byte[] row) {
+    boolean busy;
+    synchronized (this) {
+      busy = rollIfExpired() && isBusy();
+      windowSampleCount++;
+      if (samples.size() < maxSamples) {
+        samples.add(row);
+      } else {
+        long i = ThreadLocalRandom.current().nextLong(windowSampleCount);
+        if (i < maxSamples) {
+          samples.set((int) i, row);
+        }
+      }
+    }
+    if (busy) {
+      requestSplitCheck();
+    }
+  }
+
+  /**
+   * Has the region checked for split now rather than after its next flush or compaction.
+   */
+  private void requestSplitCheck() {
+    RegionServerServices services = region.getRegionServerServices();
+    if (services instanceof HRegionServer) {
+      CompactSplit compactSplit = ((HRegionServer) services).getCompactSplitThread();
+      if (compactSplit != null) {
+        compactSplit.requestSplit(region);
+      }
+    }
+  }
+
+  @Override
+  protected boolean shouldSplit() {
+    boolean hot = isHot();
+    splitOnLoad = false;
+    if (super.shouldSplit()) {
+      return true;
+    }
+
+    if (EnvironmentEdgeManager.currentTime() < startTime + minAge) {
+      return false;
+    }
+
+    for (HStore store : region.getStores()) {
+      if (!store.canSplit()) {
+        return false;
+      }
+    }
+
+    if (hot && getLoadSplitPoint() != null) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Going to split region " + region.getRegionInfo().getRegionNameAsString()
+            + " because it's too busy. Requests per second: " + requestsPerSecond);
+      }
+      splitOnLoad = true;
+      return true;
+    }
+
+    return false;
+  }
+
+  @Override
+  protected byte[] getSplitPoint() {
+    if (splitOnLoad && region.getExplicitSplitPoint() == null) {
+      byte[] splitPoint = getLoadSplitPoint();
+      if (splitPoint != null) {
+        return splitPoint;
+      }
+    }
+    return super.getSplitPoint();
+  }
+
+  private synchronized boolean isHot() {
+    rollIfExpired();
+    return isBusy();
+  }
+
+  private boolean isBusy() {
+    return requestsPerSecond >= maxRequestsPerSecond && lastSamples.size() >= minSamples;
+  }
+
+  /**
+   * @return the median of the rows sampled in the last window or, if more than half of the
+   *         samples are for one row, the split point that cuts that row off; null if there is no
+   *         such split point
+   */
+  synchronized byte[] getLoadSplitPoint() {
+    if (lastSamples.size() < minSamples) {
+      return null;
+    }
+    List<byte[]> sorted = new ArrayList<>(lastSamples);
+    sorted.sort(Bytes.BYTES_COMPARATOR);
+    int middle = sorted.size() / 2;
+    byte[] median = sorted.get(middle);
+    int from = middle;
+    while (from > 0 && Bytes.equals(sorted.get(from - 1), median)) {
+      from--;
+    }
+    int to = middle + 1;
+    while (to < sorted.size() && Bytes.equals(sorted.get(to), median)) {
+      to++;
+    }
+    if (to - from <= middle) {
+      // A sampled row other than the smallest one, so never the start key of the region
+      return median;
+    }
+    // The median is a hot row: split just before it, or just after it if it starts the region
+    if (Bytes.compareTo(median, region.getRegionInfo().getStartKey()) > 0) {
+      return median;
+    }
+    byte[] next = Bytes.add(median, new byte[1]);
+    byte[] endKey = region.getRegionInfo().getEndKey();
+    return endKey.length == 0 || Bytes.compareTo(next, endKey) < 0 ? next : null;
+  }
+
+  /**
+   * @return true if a new window was started
+   */
+  private boolean rollIfExpired() {
+    long now = EnvironmentEdgeManager.currentTime();
+    if (now - windowStart < aggregationWindow) {
+      return false;
+    }
+    long newRequestCount = getRequestCount();
+    requestsPerSecond = (newRequestCount - requestCount) * 1000.0 / (now - windowStart);
+    // The samples are stale if nothing was sampled for a whole window
+    lastSamples = now - windowStart < 2 * aggregationWindow ? samples : Collections.emptyList();
+    windowStart = now;
+    requestCount = newRequestCount;
+    samples = new ArrayList<>();
+    windowSampleCount = 0;
+    return true;
+  }
+
+  private long getRequestCount() {
+    return region.getReadRequestsCount() + region.getWriteRequestsCount();
+  }
+}
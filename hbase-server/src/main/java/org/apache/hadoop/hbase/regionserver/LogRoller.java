@@ -37,6 +37,7 @@ import org.apache.hadoop.hbase.regionserver.wal.WALClosedException;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.HasThread;
 import org.apache.hadoop.hbase.wal.WAL;
+import org.apache.hadoop.hbase.wal.WALFactory;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
@@ -60,6 +61,8 @@ public class LogRoller extends HasThread implements Closeable {
   private final ConcurrentMap<WAL, Boolean> walNeedsRoll = new ConcurrentHashMap<>();
   private final Server server;
   protected final RegionServerServices services;
+  // Asked after each round of rolls for the regions its WAL provider moved onto another WAL
+  private final WALFactory walFactory;
   private volatile long lastRollTime = System.currentTimeMillis();
   // Period to roll log.
   private final long rollPeriod;
@@ -103,9 +106,15 @@ public class LogRoller extends HasThread implements Closeable {
 
   /** @param server */
   public LogRoller(final Server server, final RegionServerServices services) {
+    this(server, services, null);
+  }
+
+  public LogRoller(final Server server, final RegionServerServices services,
+      final WALFactory walFactory) {
     super("LogRoller");
     this.server = server;
     this.services = services;
+    this.walFactory = walFactory;
     this.rollPeriod = this.server.getConfiguration().
       getLong("hbase.regionserver.logroll.period", 3600000);
     this.threadWakeFrequency = this.server.getConfiguration().
@@ -196,10 +205,16 @@ public class LogRoller extends HasThread implements Closeable {
           }
           if (regionsToFlush != null) {
             for (byte[] r : regionsToFlush) {
-              scheduleFlush(Bytes.toString(r));
+              scheduleFlush(Bytes.toString(r), false);
             }
           }
         }
+        if (walFactory != null) {
+          // a flush is what moves a region onto the WAL it was planned onto
+          for (byte[] r : walFactory.getWALProvider().drainMovedRegions()) {
+            scheduleFlush(Bytes.toString(r), true);
+          }
+        }
       } catch (FailedLogCloseException | ConnectException e) {
         abort("Failed log close in log roller", e);
       } catch (IOException ex) {
@@ -216,8 +231,9 @@ public class LogRoller extends HasThread implements Closeable {
 
   /**
    * @param encodedRegionName Encoded name of region to flush.
+   * @param moved whether the WAL provider planned the region onto another WAL
    */
-  private void scheduleFlush(String encodedRegionName) {
+  private void scheduleFlush(String encodedRegionName, boolean moved) {
     HRegion r = (HRegion) this.services.getRegion(encodedRegionName);
     if (r == null) {
       LOG.warn("Failed to schedule flush of {}, because it is not online on us", encodedRegionName);
@@ -229,6 +245,9 @@ public class LogRoller extends HasThread implements Closeable {
         encodedRegionName, r);
       return;
     }
+    if (moved) {
+      r.planWALSwitch();
+    }
     // force flushing all stores to clean old logs
     requester.requestFlush(r, true, FlushLifeCycleTracker.DUMMY);
   }
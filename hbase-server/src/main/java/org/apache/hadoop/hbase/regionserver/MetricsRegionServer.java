@@ -51,6 +51,7 @@ public class MetricsRegionServer {
 
   private MetricRegistry metricRegistry;
   private Timer bulkLoadTimer;
+  private HotKeyTracker hotKeyTracker;
 
   public MetricsRegionServer(MetricsRegionServerWrapper regionServerWrapper, Configuration conf,
       MetricsTable metricsTable) {
@@ -66,6 +67,7 @@ public class MetricsRegionServer {
 
     // create and use metrics from the new hbase-metrics based registry.
     bulkLoadTimer = metricRegistry.timer("Bulkload");
+    hotKeyTracker = HotKeyTracker.create(conf, metricRegistry);
 
     quotaSource = CompatibilitySingletonFactory.getInstance(MetricsRegionServerQuotaSource.class);
   }
@@ -99,6 +101,13 @@ public class MetricsRegionServer {
     return regionServerWrapper;
   }
 
+  /**
+   * @return the tracker of the hottest rows and regions, null if not enabled
+   */
+  public HotKeyTracker getHotKeyTracker() {
+    return hotKeyTracker;
+  }
+
   public void updatePutBatch(TableName tn, long t) {
     if (tableMetrics != null && tn != null) {
       tableMetrics.updatePutBatch(tn, t);
@@ -214,6 +223,18 @@ public class MetricsRegionServer {
 
   }
 
+  public void updateStoreFlush(long t) {
+    serverSource.updateFlushStoreTime(t);
+  }
+
+  public void updateRecoveredEditsReplay(long t) {
+    serverSource.updateRecoveredEditsReplayTime(t);
+  }
+
+  public void incrRecoveredEditsReplayed(long edits) {
+    serverSource.incrRecoveredEditsReplayed(edits);
+  }
+
   public void updateCompaction(String table, boolean isMajor, long t, int inputFileCount, int outputFileCount,
       long inputBytes, long outputBytes) {
     serverSource.updateCompactionTime(isMajor, t);
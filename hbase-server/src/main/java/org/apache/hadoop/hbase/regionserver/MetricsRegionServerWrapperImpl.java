@@ -36,6 +36,7 @@ import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
 import org.apache.hadoop.hbase.io.hfile.CacheStats;
 import org.apache.hadoop.hbase.io.hfile.CombinedBlockCache;
+import org.apache.hadoop.hbase.io.hfile.bucket.BucketCacheStats;
 import org.apache.hadoop.hbase.mob.MobFileCache;
 import org.apache.hadoop.hbase.regionserver.wal.MetricsWALSource;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
@@ -264,6 +265,22 @@ class MetricsRegionServerWrapperImpl
     return this.regionServer.compactSplitThread.getLargeCompactionQueueSize();
   }
 
+  @Override
+  public double getCompactionQueueMaxUrgency() {
+    if (this.regionServer.compactSplitThread == null) {
+      return 0;
+    }
+    return this.regionServer.compactSplitThread.getMaxQueuedUrgency();
+  }
+
+  @Override
+  public long getLentCompactionsCount() {
+    if (this.regionServer.compactSplitThread == null) {
+      return 0;
+    }
+    return this.regionServer.compactSplitThread.getLentCompactionsCount();
+  }
+
   @Override
   public int getFlushQueueSize() {
     //If there is no flusher there should be no queue.
@@ -376,6 +393,18 @@ class MetricsRegionServerWrapperImpl
     return this.l2Stats.map(CacheStats::getMissCount).orElse(0L);
   }
 
+  @Override
+  public long getL2CacheAdmittedCount() {
+    return this.l2Stats.filter(stats -> stats instanceof BucketCacheStats)
+        .map(stats -> ((BucketCacheStats) stats).getAdmittedCount()).orElse(0L);
+  }
+
+  @Override
+  public long getL2CacheRejectedAdmissionCount() {
+    return this.l2Stats.filter(stats -> stats instanceof BucketCacheStats)
+        .map(stats -> ((BucketCacheStats) stats).getRejectedAdmissionCount()).orElse(0L);
+  }
+
   @Override
   public double getL2CacheHitRatio() {
     return this.l2Stats.map(CacheStats::getHitRatio).orElse(0.0);
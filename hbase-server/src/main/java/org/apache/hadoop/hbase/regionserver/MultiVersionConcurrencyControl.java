@@ -21,8 +21,12 @@ package org.apache.hadoop.hbase.regionserver;
 import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.hbase.thirdparty.com.google.common.base.MoreObjects;
 
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
@@ -35,26 +39,45 @@ import org.apache.hadoop.hbase.util.ClassSize;
  * Manages the read/write consistency. This provides an interface for readers to determine what
  * entries to ignore, and a mechanism for writers to obtain new write numbers, then "commit"
  * the new writes for readers to read (thus forming atomic transactions).
+ * <p>
+ * Write numbers are handed out with an atomic increment, and completions are recorded in a ring
+ * indexed by write number. Whoever completes the write just past the read point moves the read
+ * point forward over every consecutive completed write with a CAS, and then unparks only the
+ * threads waiting on a write number that has become visible. No lock is taken on the write path
+ * except by {@link #begin(Runnable)}, whose action has to run in write number order.
  */
 @InterfaceAudience.Private
 public class MultiVersionConcurrencyControl {
   private static final Logger LOG = LoggerFactory.getLogger(MultiVersionConcurrencyControl.class);
 
+  /**
+   * Number of slots in the completion ring, comfortably above the handler count, which bounds
+   * the writes in flight on a region. A write more than this far ahead of the read point records
+   * its completion in {@link #overflow} instead.
+   */
+  @VisibleForTesting
+  static final int RING_SIZE = 512;
+  private static final int RING_MASK = RING_SIZE - 1;
+
+  private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
   final AtomicLong readPoint = new AtomicLong(0);
   final AtomicLong writePoint = new AtomicLong(0);
-  private final Object readWaiters = new Object();
   /**
    * Represents no value, or not set.
    */
   public static final long NONE = -1;
 
-  // This is the pending queue of writes.
-  //
-  // TODO(eclark): Should this be an array of fixed size to
-  // reduce the number of allocations on the write path?
-  // This could be equal to the number of handlers + a small number.
-  // TODO: St.Ack 20150903 Sounds good to me.
-  private final LinkedList<WriteEntry> writeQueue = new LinkedList<>();
+  // Slot (writeNumber & RING_MASK) holds writeNumber once that write has completed. A slot is
+  // only reused for a write at most RING_SIZE ahead of the read point, by when its previous
+  // write has been folded into the read point already.
+  private final AtomicLongArray completed = new AtomicLongArray(RING_SIZE);
+  // Completed writes too far ahead of the read point to have a slot in the ring.
+  private final ConcurrentSkipListSet<Long> overflow = new ConcurrentSkipListSet<>();
+  // Threads parked in waitForRead, by the write number they wait on.
+  private final ConcurrentSkipListMap<Long, Thread> readWaiters = new ConcurrentSkipListMap<>();
+  // Orders the actions passed to begin(Runnable), and keeps tryAdvanceTo from racing them.
+  private final Object beginLock = new Object();
 
   public MultiVersionConcurrencyControl() {
     super();
@@ -92,7 +115,7 @@ public class MultiVersionConcurrencyControl {
    * <code>readPoint</code>
    */
   boolean tryAdvanceTo(long newStartPoint, long expected) {
-    synchronized (writeQueue) {
+    synchronized (beginLock) {
       long currentRead = this.readPoint.get();
       long currentWrite = this.writePoint.get();
       if (currentRead != currentWrite) {
@@ -107,17 +130,26 @@ public class MultiVersionConcurrencyControl {
         return false;
       }
 
+      // A concurrent begin() does not take the lock, so claim the write point with a CAS. Once
+      // it is ours, no write up to newStartPoint can complete, so the read point is ours too.
+      if (!writePoint.compareAndSet(currentWrite, newStartPoint)) {
+        throw new RuntimeException("Already used this mvcc; currentRead=" + currentRead +
+          ", currentWrite=" + writePoint.get() + "; too late to tryAdvanceTo");
+      }
       readPoint.set(newStartPoint);
-      writePoint.set(newStartPoint);
     }
+    // Writes begun right after the CAS may have completed while the read point lagged behind
+    advanceReadPoint();
     return true;
   }
 
   /**
-   * Call {@link #begin(Runnable)} with an empty {@link Runnable}.
+   * Start a write transaction without an action. Unlike {@link #begin(Runnable)} this does not
+   * take any lock.
+   * @see #begin(Runnable)
    */
   public WriteEntry begin() {
-    return begin(() -> {});
+    return new WriteEntry(writePoint.incrementAndGet());
   }
 
   /**
@@ -133,10 +165,9 @@ public class MultiVersionConcurrencyControl {
    * @see #completeAndWait(WriteEntry)
    */
   public WriteEntry begin(Runnable action) {
-    synchronized (writeQueue) {
+    synchronized (beginLock) {
       long nextWriteNumber = writePoint.incrementAndGet();
       WriteEntry e = new WriteEntry(nextWriteNumber);
-      writeQueue.add(e);
       action.run();
       return e;
     }
@@ -179,40 +210,48 @@ public class MultiVersionConcurrencyControl {
    * @return true if e is visible to MVCC readers (that is, readpoint >= e.writeNumber)
    */
   public boolean complete(WriteEntry writeEntry) {
-    synchronized (writeQueue) {
-      writeEntry.markCompleted();
-      long nextReadValue = NONE;
-      boolean ranOnce = false;
-      while (!writeQueue.isEmpty()) {
-        ranOnce = true;
-        WriteEntry queueFirst = writeQueue.getFirst();
-
-        if (nextReadValue > 0) {
-          if (nextReadValue + 1 != queueFirst.getWriteNumber()) {
-            throw new RuntimeException("Invariant in complete violated, nextReadValue="
-                + nextReadValue + ", writeNumber=" + queueFirst.getWriteNumber());
-          }
-        }
+    long writeNumber = writeEntry.getWriteNumber();
+    writeEntry.markCompleted();
+    if (writeNumber - readPoint.get() <= RING_SIZE) {
+      completed.set((int) (writeNumber & RING_MASK), writeNumber);
+    } else {
+      overflow.add(writeNumber);
+    }
+    // The completion is published before the read point is looked at, so of two writes
+    // completing concurrently at least one sees the other's and carries the read point past both.
+    advanceReadPoint();
+    return readPoint.get() >= writeNumber;
+  }
 
-        if (queueFirst.isCompleted()) {
-          nextReadValue = queueFirst.getWriteNumber();
-          writeQueue.removeFirst();
-        } else {
-          break;
-        }
-      }
+  private boolean isCompleted(long writeNumber) {
+    return completed.get((int) (writeNumber & RING_MASK)) == writeNumber ||
+        (!overflow.isEmpty() && overflow.contains(writeNumber));
+  }
 
-      if (!ranOnce) {
-        throw new RuntimeException("There is no first!");
+  /**
+   * Move the read point over every consecutive completed write following it, then wake up the
+   * readers waiting on any of them.
+   */
+  private void advanceReadPoint() {
+    while (true) {
+      long current = readPoint.get();
+      long next = current;
+      while (isCompleted(next + 1)) {
+        next++;
       }
-
-      if (nextReadValue > 0) {
-        synchronized (readWaiters) {
-          readPoint.set(nextReadValue);
-          readWaiters.notifyAll();
+      if (next == current) {
+        return;
+      }
+      if (readPoint.compareAndSet(current, next)) {
+        if (!overflow.isEmpty()) {
+          overflow.headSet(next, true).clear();
+        }
+        if (!readWaiters.isEmpty()) {
+          for (Thread waiter : readWaiters.headMap(next, true).values()) {
+            LockSupport.unpark(waiter);
+          }
         }
       }
-      return readPoint.get() >= writeEntry.getWriteNumber();
     }
   }
 
@@ -220,25 +259,36 @@ public class MultiVersionConcurrencyControl {
    * Wait for the global readPoint to advance up to the passed in write entry number.
    */
   void waitForRead(WriteEntry e) {
+    long writeNumber = e.getWriteNumber();
+    if (readPoint.get() >= writeNumber) {
+      return;
+    }
+    Thread current = Thread.currentThread();
+    // Only one thread can be unparked per write number; anyone else waiting on the same number
+    // falls back to the timed park below.
+    boolean registered = readWaiters.putIfAbsent(writeNumber, current) == null;
     boolean interrupted = false;
     int count = 0;
-    synchronized (readWaiters) {
-      while (readPoint.get() < e.getWriteNumber()) {
+    try {
+      while (readPoint.get() < writeNumber) {
         if (count % 100 == 0 && count > 0) {
           LOG.warn("STUCK: " + this);
         }
         count++;
-        try {
-          readWaiters.wait(10);
-        } catch (InterruptedException ie) {
+        LockSupport.parkNanos(this, WAIT_NANOS);
+        if (Thread.interrupted()) {
           // We were interrupted... finish the loop -- i.e. cleanup --and then
           // on our way out, reset the interrupt flag.
           interrupted = true;
         }
       }
+    } finally {
+      if (registered) {
+        readWaiters.remove(writeNumber, current);
+      }
     }
     if (interrupted) {
-      Thread.currentThread().interrupt();
+      current.interrupt();
     }
   }
 
@@ -293,5 +343,6 @@ public class MultiVersionConcurrencyControl {
   public static final long FIXED_SIZE = ClassSize.align(
       ClassSize.OBJECT +
       2 * Bytes.SIZEOF_LONG +
-      2 * ClassSize.REFERENCE);
+      6 * ClassSize.REFERENCE) +
+      ClassSize.align(ClassSize.ARRAY + RING_SIZE * Bytes.SIZEOF_LONG);
 }
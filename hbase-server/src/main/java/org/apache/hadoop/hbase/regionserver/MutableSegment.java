@@ -19,9 +19,13 @@
 package org.apache.hadoop.hbase.regionserver;
 
 import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellComparator;
 import org.apache.hadoop.hbase.CellUtil;
@@ -30,6 +34,8 @@ import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.util.ClassSize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
 
@@ -39,6 +45,42 @@ import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesti
 @InterfaceAudience.Private
 public class MutableSegment extends Segment {
 
+  /**
+   * Index of the cells of a mutable segment. Set it on a column family to pick the index per
+   * family.
+   */
+  public static final String INDEX_TYPE_KEY = "hbase.hregion.memstore.mutable.index.type";
+  public static final String INDEX_TYPE_DEFAULT = IndexType.CSLM_MAP.name();
+
+  /**
+   * Types of indexes an active segment can keep its cells in.
+   */
+  public enum IndexType {
+    CSLM_MAP,   // ConcurrentSkipListMap
+    BTREE_MAP   // CellBTreeMap
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(MutableSegment.class);
+
+  /** Unknown index type values we already warned about, so a flush does not log each time. */
+  private static final Set<String> WARNED_INDEX_TYPES = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @return the index type configured by {@link #INDEX_TYPE_KEY}, or {@link IndexType#CSLM_MAP}
+   *   if the value is not a known type
+   */
+  public static IndexType getIndexType(Configuration conf) {
+    String value = conf.get(INDEX_TYPE_KEY, INDEX_TYPE_DEFAULT).trim();
+    try {
+      return IndexType.valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      if (WARNED_INDEX_TYPES.add(value)) {
+        LOG.warn("Unknown {} '{}', using {}", INDEX_TYPE_KEY, value, INDEX_TYPE_DEFAULT);
+      }
+      return IndexType.CSLM_MAP;
+    }
+  }
+
   private final AtomicBoolean flushed = new AtomicBoolean(false);
 
   public final static long DEEP_OVERHEAD = ClassSize.align(Segment.DEEP_OVERHEAD
@@ -50,9 +92,13 @@ public class MutableSegment extends Segment {
   protected MutableSegment(CellSet cellSet, CellComparator comparator,
       MemStoreLAB memStoreLAB, MemStoreSizing memstoreSizing) {
     super(cellSet, comparator, memStoreLAB, TimeRangeTracker.create(TimeRangeTracker.Type.SYNC));
-    incMemStoreSize(0, DEEP_OVERHEAD, 0, 0); // update the mutable segment metadata
+    long overhead = DEEP_OVERHEAD;
+    if (cellSet.getDelegatee() instanceof CellBTreeMap) {
+      overhead += CellBTreeMap.DEEP_OVERHEAD - ClassSize.CONCURRENT_SKIPLISTMAP;
+    }
+    incMemStoreSize(0, overhead, 0, 0); // update the mutable segment metadata
     if (memstoreSizing != null) {
-      memstoreSizing.incMemStoreSize(0, DEEP_OVERHEAD, 0, 0);
+      memstoreSizing.incMemStoreSize(0, overhead, 0, 0);
     }
   }
 
@@ -130,6 +176,15 @@ public class MutableSegment extends Segment {
   }
 
   @Override protected long indexEntrySize() {
-      return ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY;
+      return indexEntrySize(getCellSet());
+  }
+
+  /**
+   * Index heap per cell of a segment still on the index it was created with, which this or a
+   * CSLMImmutableSegment made out of it is.
+   */
+  static long indexEntrySize(CellSet cellSet) {
+    return cellSet.getDelegatee() instanceof CellBTreeMap ? CellBTreeMap.ENTRY_OVERHEAD
+        : ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY;
   }
 }
@@ -39,6 +39,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -106,6 +107,7 @@ import org.apache.hadoop.hbase.ipc.ServerNotRunningYetException;
 import org.apache.hadoop.hbase.ipc.ServerRpcController;
 import org.apache.hadoop.hbase.log.HBaseMarkers;
 import org.apache.hadoop.hbase.master.MasterRpcServices;
+import org.apache.hadoop.hbase.namequeues.SlowLogRecorder;
 import org.apache.hadoop.hbase.net.Address;
 import org.apache.hadoop.hbase.procedure2.RSProcedureCallable;
 import org.apache.hadoop.hbase.quotas.ActivePolicyEnforcement;
@@ -172,6 +174,8 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearCompac
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearCompactionQueuesResponse;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearRegionBlockCacheRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearRegionBlockCacheResponse;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearSlowLogResponseRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ClearSlowLogResponses;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.CloseRegionRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.CloseRegionResponse;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.CompactRegionRequest;
@@ -201,6 +205,8 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ReplicateWA
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ReplicateWALEntryResponse;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.RollWALWriterRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.RollWALWriterResponse;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.SlowLogResponseRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.SlowLogResponses;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.StopServerRequest;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.StopServerResponse;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.UpdateConfigurationRequest;
@@ -347,6 +353,11 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
 
   final AtomicBoolean clearCompactionQueues = new AtomicBoolean(false);
 
+  /**
+   * The latest slow and large calls served by this server, null if not kept
+   */
+  private final SlowLogRecorder slowLogRecorder;
+
   private AccessChecker accessChecker;
   private ZKPermissionWatcher zkPermissionWatcher;
 
@@ -790,7 +801,13 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     Object lastBlock = null;
     ClientProtos.ResultOrException.Builder resultOrExceptionBuilder = ResultOrException.newBuilder();
     boolean hasResultOrException = false;
-    for (ClientProtos.Action action : actions.getActionList()) {
+    // Outcome, a Result or an IOException, of the Gets run ahead as a batch, by action position
+    Map<Integer, Object> batchedGets = new HashMap<>();
+    // Position past the last run of consecutive Gets considered for a batch
+    int batchedGetsEnd = 0;
+    List<ClientProtos.Action> actionList = actions.getActionList();
+    for (int actionIndex = 0; actionIndex < actionList.size(); actionIndex++) {
+      ClientProtos.Action action = actionList.get(actionIndex);
       hasResultOrException = false;
       resultOrExceptionBuilder.clear();
       try {
@@ -843,11 +860,28 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
                 "reverse Scan.");
           }
           try {
-            Get get = ProtobufUtil.toGet(pbGet);
-            if (context != null) {
-              r = get(get, (region), closeCallBack, context);
+            if (closeCallBack != null && actionIndex >= batchedGetsEnd
+                && actionList.size() - actionIndex >= 2) {
+              long maxBatchResultSize = Long.MAX_VALUE;
+              if (context != null && context.isRetryImmediatelySupported()) {
+                maxBatchResultSize = maxQuotaResultSize - Math.max(context.getResponseCellSize(),
+                  context.getResponseBlockSize() + context.getResponseExceptionSize());
+              }
+              batchedGetsEnd = batchGets(region, actionList, actionIndex, maxBatchResultSize,
+                closeCallBack, batchedGets);
+            }
+            Object batched = batchedGets.remove(actionIndex);
+            if (batched instanceof IOException) {
+              throw (IOException) batched;
+            } else if (batched != null) {
+              r = (Result) batched;
             } else {
-              r = region.get(get);
+              Get get = ProtobufUtil.toGet(pbGet);
+              if (context != null) {
+                r = get(get, (region), closeCallBack, context);
+              } else {
+                r = region.get(get);
+              }
             }
           } finally {
             if (regionServer.metricsRegionServer != null) {
@@ -1248,6 +1282,8 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     ConnectionUtils.setServerSideHConnectionRetriesConfig(rs.conf, name, LOG);
     rpcServer = createRpcServer(rs, rs.conf, rpcSchedulerFactory, bindAddress, name);
     rpcServer.setRsRpcServices(this);
+    slowLogRecorder = SlowLogRecorder.create(rs.conf);
+    rpcServer.setSlowLogRecorder(slowLogRecorder);
     scannerLeaseTimeoutPeriod = rs.conf.getInt(
       HConstants.HBASE_CLIENT_SCANNER_TIMEOUT_PERIOD,
       HConstants.DEFAULT_HBASE_CLIENT_SCANNER_TIMEOUT_PERIOD);
@@ -1353,6 +1389,15 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     return builder.toString();
   }
 
+  /**
+   * @return the region the scanner with the given id was opened on, or null if there is no such
+   *         scanner
+   */
+  public RegionInfo getScannerRegionInfo(long scannerId) {
+    RegionScanner scanner = getScanner(scannerId);
+    return scanner == null ? null : scanner.getRegionInfo();
+  }
+
   /**
    * Get the vtime associated with the scanner.
    * Currently the vtime is the number of "next" calls.
@@ -2160,8 +2205,10 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
       }
 
       LOG.info("Warming up region " + region.getRegionNameAsString());
-      HRegion.warmupHRegion(region, htd, regionServer.getWAL(region),
-          regionServer.getConfiguration(), regionServer, null);
+      // Warming up only opens the stores. Not asking for a WAL keeps a grouping WAL provider from
+      // counting a region that may never be opened here
+      HRegion.warmupHRegion(region, htd, null, regionServer.getConfiguration(), regionServer,
+          null);
 
     } catch (IOException ie) {
       LOG.error("Failed warming up region " + region.getRegionNameAsString(), ie);
@@ -2550,6 +2597,7 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
       quota = getRpcQuotaManager().checkQuota(region, OperationQuota.OperationType.GET);
 
       Get clientGet = ProtobufUtil.toGet(get);
+      sampleRowAccess(region, get.getRow());
       if (get.getExistenceOnly() && region.getCoprocessorHost() != null) {
         existence = region.getCoprocessorHost().preExists(clientGet);
       }
@@ -2606,6 +2654,85 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     }
   }
 
+  /**
+   * Samples an access to the given row of the region for the hot key metrics and for the split
+   * policies that split on load.
+   */
+  private void sampleRowAccess(HRegion region, ByteString row) {
+    MetricsRegionServer mrs = regionServer.metricsRegionServer;
+    HotKeyTracker hotKeyTracker = mrs != null ? mrs.getHotKeyTracker() : null;
+    if (hotKeyTracker != null && hotKeyTracker.shouldSample()) {
+      hotKeyTracker.record(region.getRegionInfo(), row.toByteArray());
+    }
+    RegionSplitPolicy splitPolicy = region.getSplitPolicy();
+    if (splitPolicy != null) {
+      double sampleRate = splitPolicy.getRowAccessSampleRate();
+      if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+        splitPolicy.sampleRowAccess(row.toByteArray());
+      }
+    }
+  }
+
+  /**
+   * Runs the run of consecutive Gets which starts at the given action as one batch, see
+   * {@link HRegion#get(List, boolean, RegionScannersCloseCallBack, long)}. Nothing is run if the
+   * run is too short to be worth batching. The Gets the batch did not get to because their
+   * results would not fit in the given size fail with {@link MultiActionResultTooLarge}, so that
+   * the client retries them.
+   * @param outcomes where to put the outcome, a Result or an IOException, of each Get of the run,
+   *          by position in the action list
+   * @return the position of the first action after the run
+   */
+  private int batchGets(HRegion region, List<ClientProtos.Action> actionList, int start,
+      long maxResultSize, RegionScannersCloseCallBack closeCallBack,
+      Map<Integer, Object> outcomes) {
+    List<Integer> batched = new ArrayList<>();
+    List<Get> gets = new ArrayList<>();
+    Map<Integer, Object> failed = new HashMap<>();
+    int end = start;
+    for (; end < actionList.size() && actionList.get(end).hasGet(); end++) {
+      ClientProtos.Get pbGet = actionList.get(end).getGet();
+      if (pbGet.hasClosestRowBefore() && pbGet.getClosestRowBefore()) {
+        // Rejected when processed on its own
+        continue;
+      }
+      try {
+        Get get = ProtobufUtil.toGet(pbGet);
+        region.prepareGet(get);
+        batched.add(end);
+        gets.add(get);
+      } catch (IOException e) {
+        failed.put(end, e);
+      }
+    }
+    if (gets.size() < 2) {
+      return end;
+    }
+    outcomes.putAll(failed);
+    boolean stale = region.getRegionInfo().getReplicaId() != 0;
+    try {
+      List<List<Cell>> results = region.get(gets, true, closeCallBack, maxResultSize);
+      IOException tooLarge = null;
+      for (int i = 0; i < gets.size(); i++) {
+        List<Cell> cells = results.get(i);
+        if (cells != null) {
+          outcomes.put(batched.get(i), Result.create(cells,
+            gets.get(i).isCheckExistenceOnly() ? !cells.isEmpty() : null, stale));
+        } else {
+          if (tooLarge == null) {
+            tooLarge = new MultiActionResultTooLarge("Max size exceeded by a batch of gets");
+          }
+          outcomes.put(batched.get(i), tooLarge);
+        }
+      }
+    } catch (IOException e) {
+      for (int i : batched) {
+        outcomes.put(i, e);
+      }
+    }
+    return end;
+  }
+
   private Result get(Get get, HRegion region, RegionScannersCloseCallBack closeCallBack,
       RpcCallContext context) throws IOException {
     region.prepareGet(get);
@@ -2752,6 +2879,13 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
         failRegionAction(responseBuilder, regionActionResultBuilder, regionAction, cellScanner, e);
         continue;  // For this region it's a failure.
       }
+      for (ClientProtos.Action action : regionAction.getActionList()) {
+        if (action.hasGet()) {
+          sampleRowAccess(region, action.getGet().getRow());
+        } else if (action.hasMutation()) {
+          sampleRowAccess(region, action.getMutation().getRow());
+        }
+      }
       boolean rejectIfFromClient = shouldRejectRequestsFromClient(region);
       if (regionAction.hasAtomic() && regionAction.getAtomic()) {
         // We only allow replication in standby state and it will not set the atomic flag.
@@ -2899,6 +3033,7 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
       rejectIfInStandByState(region);
       MutateResponse.Builder builder = MutateResponse.newBuilder();
       MutationProto mutation = request.getMutation();
+      sampleRowAccess(region, mutation.getRow());
       if (!region.getRegionInfo().isMetaRegion()) {
         regionServer.cacheFlusher.reclaimMemStoreMemory();
       }
@@ -3366,6 +3501,10 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
         regionServer.metricsRegionServer.updateScanTime(
             region.getTableDescriptor().getTableName(), end - before);
       }
+      if (!results.isEmpty()) {
+        // A scan is accounted to the first row it returned
+        sampleRowAccess(region, UnsafeByteOperations.unsafeWrap(results.get(0).getRow()));
+      }
     } finally {
       region.closeRegionOperation();
     }
@@ -3699,6 +3838,29 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     return builder.setStats(ProtobufUtil.toCacheEvictionStats(stats.build())).build();
   }
 
+  @Override
+  @QosPriority(priority = HConstants.ADMIN_QOS)
+  public SlowLogResponses getSlowLogResponses(final RpcController controller,
+      final SlowLogResponseRequest request) throws ServiceException {
+    rpcPreCheck("getSlowLogResponses");
+    SlowLogResponses.Builder builder = SlowLogResponses.newBuilder();
+    if (slowLogRecorder != null) {
+      builder.addAllSlowLogPayloads(slowLogRecorder.getSlowLogPayloads(request));
+    }
+    return builder.build();
+  }
+
+  @Override
+  @QosPriority(priority = HConstants.ADMIN_QOS)
+  public ClearSlowLogResponses clearSlowLogsResponses(final RpcController controller,
+      final ClearSlowLogResponseRequest request) throws ServiceException {
+    rpcPreCheck("clearSlowLogsResponses");
+    if (slowLogRecorder != null) {
+      slowLogRecorder.clearSlowLogPayloads();
+    }
+    return ClearSlowLogResponses.newBuilder().setIsCleaned(slowLogRecorder != null).build();
+  }
+
   private void executeOpenRegionProcedures(OpenRegionRequest request,
       Map<TableName, TableDescriptor> tdCache) {
     long masterSystemTime = request.hasMasterSystemTime() ? request.getMasterSystemTime() : -1;
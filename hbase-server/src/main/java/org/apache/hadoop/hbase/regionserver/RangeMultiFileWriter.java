@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Writer for compactions that split the key space of the store into consecutive row ranges, each
+ * written to its own file. Unlike {@link StripeMultiFileWriter} the cells of the different ranges
+ * may be appended concurrently, one thread per range, so every range has a fixed writer slot
+ * which is only created on first use.
+ */
+@InterfaceAudience.Private
+public class RangeMultiFileWriter extends AbstractMultiFileWriter {
+
+  private final CellComparator comparator;
+
+  /** The first row of every range but the first one, sorted. */
+  private final List<byte[]> boundaries;
+
+  private final StoreFileWriter[] writers;
+
+  /**
+   * @param comparator Comparator of the store.
+   * @param boundaries The rows separating the ranges, in order; each one is the inclusive start of
+   *          a range and the exclusive end of the previous one.
+   */
+  public RangeMultiFileWriter(CellComparator comparator, List<byte[]> boundaries) {
+    this.comparator = comparator;
+    this.boundaries = boundaries;
+    this.writers = new StoreFileWriter[boundaries.size() + 1];
+  }
+
+  public int getRangeCount() {
+    return writers.length;
+  }
+
+  /**
+   * @return The inclusive first row of the given range, empty for the first range.
+   */
+  public byte[] getStartRow(int range) {
+    return range == 0 ? HConstants.EMPTY_START_ROW : boundaries.get(range - 1);
+  }
+
+  /**
+   * @return The exclusive last row of the given range, empty for the last range.
+   */
+  public byte[] getStopRow(int range) {
+    return range == boundaries.size() ? HConstants.EMPTY_END_ROW : boundaries.get(range);
+  }
+
+  /**
+   * @return The writer of the given range, created if this is the first call for it.
+   */
+  public synchronized StoreFileWriter getWriter(int range) throws IOException {
+    if (writers[range] == null) {
+      writers[range] = writerFactory.createWriter();
+    }
+    return writers[range];
+  }
+
+  @Override
+  public void append(Cell cell) throws IOException {
+    getWriter(getRange(cell)).append(cell);
+  }
+
+  private int getRange(Cell cell) {
+    int low = 0;
+    int high = boundaries.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      byte[] boundary = boundaries.get(mid);
+      if (comparator.compareRows(cell, boundary, 0, boundary.length) < 0) {
+        high = mid - 1;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Keeps the files of the ranges out of minor compactions, which would otherwise merge them back
+   * into one with the next flushed files; they are only compacted again by the next major one.
+   */
+  @Override
+  protected void preCloseWriter(StoreFileWriter writer) throws IOException {
+    if (writers().size() > 1) {
+      writer.appendFileInfo(HStoreFile.EXCLUDE_FROM_MINOR_COMPACTION_KEY, Bytes.toBytes(true));
+    }
+  }
+
+  @Override
+  protected synchronized Collection<StoreFileWriter> writers() {
+    List<StoreFileWriter> result = new ArrayList<>(writers.length);
+    for (StoreFileWriter writer : writers) {
+      if (writer != null) {
+        result.add(writer);
+      }
+    }
+    return result;
+  }
+}
@@ -33,6 +33,7 @@ import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.client.locking.EntityLock;
 import org.apache.hadoop.hbase.executor.ExecutorService;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockReadAhead;
 import org.apache.hadoop.hbase.ipc.RpcServerInterface;
 import org.apache.hadoop.hbase.mob.MobFileCache;
 import org.apache.hadoop.hbase.quotas.RegionServerRpcQuotaManager;
@@ -302,6 +303,11 @@ public interface RegionServerServices extends Server, MutableOnlineRegions, Favo
    */
   Optional<BlockCache> getBlockCache();
 
+  /**
+   * @return The read-ahead shared by the store file scanners, if they read ahead.
+   */
+  Optional<BlockReadAhead.Pool> getBlockReadAheadPool();
+
   /**
    * @return The cache for mob files.
    */
@@ -24,6 +24,8 @@ import java.util.concurrent.TimeUnit;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.executor.ExecutorType;
 import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.hfile.BlockReadAhead;
+import org.apache.hadoop.hbase.io.hfile.HFileWriterImpl;
 import org.apache.hadoop.hbase.wal.WAL;
 import org.apache.yetus.audience.InterfaceAudience;
 
@@ -43,6 +45,7 @@ public class RegionServicesForStores {
   private final HRegion region;
   private final RegionServerServices rsServices;
   private int inMemoryPoolSize;
+  private int blockCompressionThreads;
 
   public RegionServicesForStores(HRegion region, RegionServerServices rsServices) {
     this.region = region;
@@ -51,6 +54,9 @@ public class RegionServicesForStores {
       this.inMemoryPoolSize = rsServices.getConfiguration().getInt(
         CompactingMemStore.IN_MEMORY_CONPACTION_POOL_SIZE_KEY,
         CompactingMemStore.IN_MEMORY_CONPACTION_POOL_SIZE_DEFAULT);
+      this.blockCompressionThreads = rsServices.getConfiguration().getInt(
+        HFileWriterImpl.BLOCK_COMPRESSION_THREADS_KEY,
+        HFileWriterImpl.DEFAULT_BLOCK_COMPRESSION_THREADS);
     }
   }
 
@@ -84,6 +90,14 @@ public class RegionServicesForStores {
     }
   }
 
+  /**
+   * @return the read-ahead shared by the scanners of the region server, or null if they do not
+   *         read ahead
+   */
+  public BlockReadAhead.Pool getBlockReadAheadPool() {
+    return rsServices != null ? rsServices.getBlockReadAheadPool().orElse(null) : null;
+  }
+
   private static ThreadPoolExecutor INMEMORY_COMPACTION_POOL_FOR_TEST;
 
   private static synchronized ThreadPoolExecutor getInMemoryCompactionPoolForTest() {
@@ -105,6 +119,30 @@ public class RegionServicesForStores {
     }
   }
 
+  /**
+   * @return the region server wide pool running the row ranges of parallel compactions, or null
+   *         when there is no region server, in which case the caller brings its own
+   */
+  public ThreadPoolExecutor getCompactionRangesPool(int maxThreads) {
+    if (rsServices == null || rsServices.getExecutorService() == null) {
+      return null;
+    }
+    return rsServices.getExecutorService().getExecutorLazily(ExecutorType.RS_COMPACTION_RANGES,
+      maxThreads);
+  }
+
+  /**
+   * @return the region server wide pool compressing the data blocks of the store files written,
+   *         or null if they are compressed by the writing thread
+   */
+  public ThreadPoolExecutor getBlockCompressionPool() {
+    if (blockCompressionThreads <= 0 || rsServices.getExecutorService() == null) {
+      return null;
+    }
+    return rsServices.getExecutorService().getExecutorLazily(ExecutorType.RS_BLOCK_COMPRESSION,
+      blockCompressionThreads);
+  }
+
   public long getMemStoreFlushSize() {
     return region.getMemStoreFlushSize();
   }
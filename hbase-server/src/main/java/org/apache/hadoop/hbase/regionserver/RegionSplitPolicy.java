@@ -97,6 +97,22 @@ public abstract class RegionSplitPolicy extends Configured {
     return splitPointFromLargestStore;
   }
 
+  /**
+   * @return the fraction of the rows accessed by client requests that should be passed to
+   * {@link #sampleRowAccess(byte[])}, 0 for the policies that do not look at the load of the
+   * region
+   */
+  protected double getRowAccessSampleRate() {
+    return 0;
+  }
+
+  /**
+   * Called with a sample of the rows accessed by client requests, at the rate given by
+   * {@link #getRowAccessSampleRate()}. It may be called concurrently by the request handlers.
+   */
+  protected void sampleRowAccess(byte[] row) {
+  }
+
   /**
    * Create the RegionSplitPolicy configured for the given table.
    * @param region
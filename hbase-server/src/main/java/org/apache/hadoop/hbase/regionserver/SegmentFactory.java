@@ -144,8 +144,13 @@ public final class SegmentFactory {
 
   private MutableSegment generateMutableSegment(final Configuration conf, CellComparator comparator,
       MemStoreLAB memStoreLAB, MemStoreSizing memstoreSizing) {
-    // TBD use configuration to set type of segment
-    CellSet set = new CellSet(comparator);
+    CellSet set;
+    if (conf != null
+        && MutableSegment.getIndexType(conf) == MutableSegment.IndexType.BTREE_MAP) {
+      set = new CellSet(new CellBTreeMap(comparator), CellSet.UNKNOWN_NUM_UNIQUES);
+    } else {
+      set = new CellSet(comparator);
+    }
     return new MutableSegment(set, comparator, memStoreLAB, memstoreSizing);
   }
 
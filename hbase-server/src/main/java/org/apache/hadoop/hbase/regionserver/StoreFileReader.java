@@ -23,7 +23,10 @@ import static org.apache.hadoop.hbase.regionserver.HStoreFile.DELETE_FAMILY_COUN
 import static org.apache.hadoop.hbase.regionserver.HStoreFile.LAST_BLOOM_KEY;
 
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.SortedSet;
@@ -39,6 +42,7 @@ import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ByteBuffInputStream;
 import org.apache.hadoop.hbase.io.FSDataInputStreamWrapper;
 import org.apache.hadoop.hbase.io.TimeRange;
 import org.apache.hadoop.hbase.io.hfile.BlockType;
@@ -46,6 +50,7 @@ import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.HFile;
 import org.apache.hadoop.hbase.io.hfile.HFileBlock;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
+import org.apache.hadoop.hbase.io.hfile.HFileZoneMap;
 import org.apache.hadoop.hbase.nio.ByteBuff;
 import org.apache.hadoop.hbase.util.BloomFilter;
 import org.apache.hadoop.hbase.util.BloomFilterFactory;
@@ -76,6 +81,8 @@ public class StoreFileReader {
   private KeyValue.KeyOnlyKeyValue lastBloomKeyOnlyKV = null;
   private boolean skipResetSeqId = true;
   private int prefixLength = -1;
+  // Value ranges of the data blocks, read on first use
+  private volatile Optional<HFileZoneMap> zoneMap;
 
   // Counter that is incremented every time a scanner is created on the
   // store file. It is decremented when the scan on the store file is
@@ -186,6 +193,31 @@ public class StoreFileReader {
     }
   }
 
+  /**
+   * Loads into the block cache the data blocks Gets of the given sorted rows would read from this
+   * file, leaving out the rows outside of the file's key range or ruled out by the row Bloom
+   * filter. See {@link HFile.Reader#cacheDataBlocks(List)}.
+   * @return the number of blocks read from the file system
+   */
+  int cacheDataBlocks(List<byte[]> rows) throws IOException {
+    Optional<byte[]> firstRow = reader.getFirstRowKey();
+    Optional<byte[]> lastRow = reader.getLastRowKey();
+    if (!firstRow.isPresent() || !lastRow.isPresent()) {
+      return 0;
+    }
+    List<Cell> keys = new ArrayList<>(rows.size());
+    for (byte[] row : rows) {
+      if (Bytes.compareTo(row, firstRow.get()) < 0 || Bytes.compareTo(row, lastRow.get()) > 0) {
+        continue;
+      }
+      if (bloomFilterType == BloomType.ROW && !passesGeneralRowBloomFilter(row, 0, row.length)) {
+        continue;
+      }
+      keys.add(PrivateCellUtil.createFirstOnRow(row));
+    }
+    return keys.isEmpty() ? 0 : reader.cacheDataBlocks(keys);
+  }
+
   /**
    * @deprecated since 2.0.0 and will be removed in 3.0.0. Do not write further code which depends
    *   on this call. Instead use getStoreFileScanner() which uses the StoreFileScanner
@@ -516,6 +548,32 @@ public class StoreFileReader {
     return fi;
   }
 
+  /**
+   * @return the value ranges of the data blocks, if the file has some
+   */
+  public Optional<HFileZoneMap> getZoneMap() {
+    Optional<HFileZoneMap> zoneMap = this.zoneMap;
+    if (zoneMap == null) {
+      zoneMap = Optional.empty();
+      HFileBlock block = null;
+      try {
+        block = reader.getMetaBlock(HFileZoneMap.META_BLOCK_NAME, true);
+        if (block != null) {
+          zoneMap = Optional.of(HFileZoneMap.read(
+            new DataInputStream(new ByteBuffInputStream(block.getBufferWithoutHeader()))));
+        }
+      } catch (IOException e) {
+        LOG.error("Error reading zone map of " + reader.getName() + " -- proceeding without", e);
+      } finally {
+        if (block != null) {
+          block.release();
+        }
+      }
+      this.zoneMap = zoneMap;
+    }
+    return zoneMap;
+  }
+
   public void loadBloomfilter() {
     this.loadBloomfilter(BlockType.GENERAL_BLOOM_META);
     this.loadBloomfilter(BlockType.DELETE_FAMILY_BLOOM_META);
@@ -610,6 +668,10 @@ public class StoreFileReader {
     return reader.midKey();
   }
 
+  public List<Cell> getRootIndexKeys() {
+    return reader.getRootIndexKeys();
+  }
+
   public long length() {
     return reader.length();
   }
@@ -40,6 +40,7 @@ import org.apache.yetus.audience.InterfaceStability;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.TimeRange;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
+import org.apache.hadoop.hbase.io.hfile.HFileZoneMap;
 import org.apache.hadoop.hbase.regionserver.querymatcher.ScanQueryMatcher;
 
 /**
@@ -491,6 +492,20 @@ public class StoreFileScanner implements KeyValueScanner {
         .passesKeyRangeFilter(scan) && reader.passesBloomFilter(scan, scan.getFamilyMap().get(cf));
   }
 
+  /**
+   * Pushes a predicate on the cell values down to the file, if it keeps the value ranges of its
+   * data blocks. The blocks no cell of which passes are then stepped over.
+   * @return false if no cell of the file passes the predicate
+   */
+  boolean setZoneMapPredicate(HFileZoneMap.Predicate predicate) {
+    Optional<HFileZoneMap> zoneMap = reader.getZoneMap();
+    if (!zoneMap.isPresent()) {
+      return true;
+    }
+    hfs.setZoneMapPredicate(zoneMap.get(), predicate);
+    return zoneMap.get().mayMatch(predicate);
+  }
+
   @Override
   public boolean seekToPreviousRow(Cell originalKey) throws IOException {
     try {
@@ -34,6 +34,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -102,12 +103,14 @@ public class StoreFileWriter implements CellSink, ShipperListener {
    * @param fileContext            The HFile context
    * @param shouldDropCacheBehind  Drop pages written to page cache after writing the store file.
    * @param compactedFilesSupplier Returns the {@link HStore} compacted files which not archived
+   * @param compressionPool        Pool compressing the data blocks, or null
    * @throws IOException problem writing to FS
    */
   private StoreFileWriter(FileSystem fs, Path path, final Configuration conf, CacheConfig cacheConf,
       final CellComparator comparator, BloomType bloomType, long maxKeys,
       InetSocketAddress[] favoredNodes, HFileContext fileContext, boolean shouldDropCacheBehind,
-      Supplier<Collection<HStoreFile>> compactedFilesSupplier) throws IOException {
+      Supplier<Collection<HStoreFile>> compactedFilesSupplier, ThreadPoolExecutor compressionPool)
+      throws IOException {
     this.compactedFilesSupplier = compactedFilesSupplier;
     this.timeRangeTracker = TimeRangeTracker.create(TimeRangeTracker.Type.NON_SYNC);
     // TODO : Change all writers to be specifically created for compaction context
@@ -117,6 +120,7 @@ public class StoreFileWriter implements CellSink, ShipperListener {
         .withFavoredNodes(favoredNodes)
         .withFileContext(fileContext)
         .withShouldDropCacheBehind(shouldDropCacheBehind)
+        .withCompressionPool(compressionPool)
         .create();
 
     generalBloomFilterWriter = BloomFilterFactory.createGeneralBloomAtWrite(
@@ -423,6 +427,7 @@ public class StoreFileWriter implements CellSink, ShipperListener {
     private HFileContext fileContext;
     private boolean shouldDropCacheBehind;
     private Supplier<Collection<HStoreFile>> compactedFilesSupplier = () -> Collections.emptySet();
+    private ThreadPoolExecutor compressionPool;
 
     public Builder(Configuration conf, CacheConfig cacheConf,
         FileSystem fs) {
@@ -510,6 +515,15 @@ public class StoreFileWriter implements CellSink, ShipperListener {
       return this;
     }
 
+    /**
+     * @param compressionPool pool compressing the data blocks off the writing thread, or null
+     * @return this (for chained invocation)
+     */
+    public Builder withCompressionPool(ThreadPoolExecutor compressionPool) {
+      this.compressionPool = compressionPool;
+      return this;
+    }
+
     /**
      * Create a store file writer. Client is responsible for closing file when
      * done. If metadata, add BEFORE closing using
@@ -550,7 +564,8 @@ public class StoreFileWriter implements CellSink, ShipperListener {
       }
 
       return new StoreFileWriter(fs, filePath, conf, cacheConf, comparator, bloomType, maxKeyCount,
-          favoredNodes, fileContext, shouldDropCacheBehind, compactedFilesSupplier);
+          favoredNodes, fileContext, shouldDropCacheBehind, compactedFilesSupplier,
+          compressionPool);
     }
   }
 }
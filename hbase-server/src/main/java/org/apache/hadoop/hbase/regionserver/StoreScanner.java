@@ -21,6 +21,7 @@ package org.apache.hadoop.hbase.regionserver;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NavigableSet;
 import java.util.OptionalInt;
@@ -38,13 +39,18 @@ import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.client.IsolationLevel;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.executor.ExecutorService;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
 import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.filter.ValueFilter;
+import org.apache.hadoop.hbase.io.hfile.HFileZoneMap;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.LimitScope;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.NextState;
 import org.apache.hadoop.hbase.regionserver.handler.ParallelSeekHandler;
 import org.apache.hadoop.hbase.regionserver.querymatcher.CompactionScanQueryMatcher;
 import org.apache.hadoop.hbase.regionserver.querymatcher.ScanQueryMatcher;
 import org.apache.hadoop.hbase.regionserver.querymatcher.UserScanQueryMatcher;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.yetus.audience.InterfaceAudience;
 
@@ -162,6 +168,9 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
   protected final long readPt;
   private boolean topChanged = false;
 
+  /** The predicate pushed down to the store file scanners, null if none. */
+  private HFileZoneMap.Predicate zoneMapPredicate;
+
   /** An internal constructor. */
   private StoreScanner(HStore store, Scan scan, ScanInfo scanInfo,
       int numColumns, long readPt, boolean cacheBlocks, ScanType scanType) {
@@ -242,6 +251,7 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
       List<KeyValueScanner> scanners = selectScannersFrom(store,
         store.getScanners(cacheBlocks, scanUsePread, false, matcher, scan.getStartRow(),
           scan.includeStartRow(), scan.getStopRow(), scan.includeStopRow(), this.readPt));
+      scanners = selectByZoneMaps(scanners, store.getColumnFamilyDescriptor().getName());
 
       // Seek all scanners to the start of the Row (or if the exact matching row
       // key does not exist, then to the start of the next matching Row).
@@ -457,6 +467,71 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
     return scanners;
   }
 
+  /**
+   * Pushes the value predicate of the scan filter, if any, down to the store file scanners, which
+   * then step over the data blocks where no cell passes it.
+   * <p>
+   * This is only right when cells failing the filter do not change what else is returned. It is
+   * the case of a {@link ValueFilter} on explicitly asked columns, which drops cells one by one. A
+   * {@link SingleColumnValueFilter} dropping the rows missing the column is fine as well when a
+   * single file holds all the visible cells of the store, a row being skipped as a whole by the
+   * zone maps. Blocks with delete markers are never skipped.
+   * @return the scanners that may return a cell passing the filter
+   */
+  private List<KeyValueScanner> selectByZoneMaps(List<KeyValueScanner> scanners, byte[] family) {
+    zoneMapPredicate = null;
+    if (scan.isRaw() || scan.isReversed()) {
+      return scanners;
+    }
+    Filter filter = scan.getFilter();
+    if (filter instanceof ValueFilter) {
+      ValueFilter valueFilter = (ValueFilter) filter;
+      NavigableSet<byte[]> columns = scan.getFamilyMap().get(family);
+      if (columns != null && !columns.isEmpty()
+          && valueFilter.getComparator().getClass() == BinaryComparator.class) {
+        zoneMapPredicate = new HFileZoneMap.Predicate(columns, valueFilter.getCompareOperator(),
+            valueFilter.getComparator().getValue());
+      }
+    } else if (filter instanceof SingleColumnValueFilter) {
+      SingleColumnValueFilter columnFilter = (SingleColumnValueFilter) filter;
+      if (columnFilter.getFilterIfMissing() && scanners.size() == 1
+          && Bytes.equals(columnFilter.getFamily(), family)
+          && columnFilter.getComparator().getClass() == BinaryComparator.class) {
+        zoneMapPredicate = new HFileZoneMap.Predicate(
+            Collections.singleton(columnFilter.getQualifier()), columnFilter.getCompareOperator(),
+            columnFilter.getComparator().getValue());
+      }
+    }
+    if (zoneMapPredicate == null) {
+      return scanners;
+    }
+    List<KeyValueScanner> selected = new ArrayList<>(scanners.size());
+    for (KeyValueScanner kvs : scanners) {
+      if (!(kvs instanceof StoreFileScanner)
+          || ((StoreFileScanner) kvs).setZoneMapPredicate(zoneMapPredicate)) {
+        selected.add(kvs);
+      } else {
+        kvs.close();
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Pushes the predicate chosen by {@link #selectByZoneMaps(List, byte[])} down to new scanners.
+   * With a {@link SingleColumnValueFilter}, the files flushed since only hold cells the scan does
+   * not see, the memstore having been left out when the scan started.
+   */
+  private void setZoneMapPredicate(List<? extends KeyValueScanner> scanners) {
+    if (zoneMapPredicate != null) {
+      for (KeyValueScanner kvs : scanners) {
+        if (kvs instanceof StoreFileScanner) {
+          ((StoreFileScanner) kvs).setZoneMapPredicate(zoneMapPredicate);
+        }
+      }
+    }
+  }
+
   @Override
   public Cell peek() {
     return heap != null ? heap.peek() : null;
@@ -945,6 +1020,7 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
       allScanners.addAll(flushedstoreFileScanners);
       allScanners.addAll(memStoreScannersAfterFlush);
       scanners = selectScannersFrom(store, allScanners);
+      setZoneMapPredicate(scanners);
       // Clear the current set of flushed store files scanners so that they don't get added again
       flushedstoreFileScanners.clear();
       memStoreScannersAfterFlush.clear();
@@ -1065,6 +1141,7 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
       if (fileScanners == null) {
         return;
       }
+      setZoneMapPredicate(fileScanners);
       seekScanners(fileScanners, lastTop, false, parallelSeekEnabled);
       newCurrentScanners = new ArrayList<>(fileScanners.size() + memstoreScanners.size());
       newCurrentScanners.addAll(fileScanners);
@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Ranks queued compactions of a region server. The compaction threads always pick the queued
+ * compaction with the highest urgency, where the urgency of a queued compaction grows by
+ * {@link #getAgingRate()} for every second it waits so that nothing starves.
+ * <p/>
+ * Implementations are created once per region server and are called concurrently, if they
+ * implement {@link org.apache.hadoop.conf.Configurable} they get the configuration of the region
+ * server.
+ */
+@InterfaceAudience.Private
+public interface CompactionUrgencyFunction {
+
+  /**
+   * @param store the store to compact
+   * @param request the selected compaction, or null if the files are only selected once the
+   *          compaction gets to run
+   * @return how urgent the compaction is, higher is more urgent
+   */
+  double getUrgency(HStore store, @Nullable CompactionRequestImpl request);
+
+  /**
+   * @return how much the urgency of a queued compaction grows for every second it is queued
+   */
+  double getAgingRate();
+}
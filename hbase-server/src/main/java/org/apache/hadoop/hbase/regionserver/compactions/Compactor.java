@@ -28,10 +28,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.io.compress.Compression;
@@ -42,9 +47,11 @@ import org.apache.hadoop.hbase.regionserver.HStore;
 import org.apache.hadoop.hbase.regionserver.HStoreFile;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
 import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
+import org.apache.hadoop.hbase.regionserver.RangeMultiFileWriter;
 import org.apache.hadoop.hbase.regionserver.ScanInfo;
 import org.apache.hadoop.hbase.regionserver.ScanType;
 import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.regionserver.Shipper;
 import org.apache.hadoop.hbase.regionserver.ShipperListener;
 import org.apache.hadoop.hbase.regionserver.StoreFileReader;
 import org.apache.hadoop.hbase.regionserver.StoreFileScanner;
@@ -56,6 +63,7 @@ import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
 import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.Threads;
 import org.apache.hadoop.util.StringUtils.TraditionalBinaryPrefix;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
@@ -89,6 +97,14 @@ public abstract class Compactor<T extends CellSink> {
   private final boolean dropCacheMajor;
   private final boolean dropCacheMinor;
 
+  /**
+   * Number of threads of the region server running the row ranges of parallel compactions, on top
+   * of the compaction threads which each take the first range of their compaction themselves.
+   */
+  public static final String PARALLEL_THREADS_KEY =
+      "hbase.regionserver.compaction.parallel.threads";
+  public static final int DEFAULT_PARALLEL_THREADS = 10;
+
   //TODO: depending on Store is not good but, realistically, all compactors currently do.
   Compactor(Configuration conf, HStore store) {
     this.conf = conf;
@@ -340,6 +356,197 @@ public abstract class Compactor<T extends CellSink> {
     return commitWriter(writer, fd, request);
   }
 
+  /**
+   * Compacts all the files of the request into one output file per row range. The ranges do not
+   * depend on each other, so they are compacted concurrently, the calling thread taking the first
+   * one; the files are only returned once every range is written, to be committed together.
+   * @param boundaries The sorted rows separating the ranges, see {@link RangeMultiFileWriter}.
+   */
+  protected final List<Path> compactRanges(CompactionRequestImpl request, List<byte[]> boundaries,
+      ThroughputController throughputController, User user) throws IOException {
+    FileDetails fd = getFileDetails(request.getFiles(), request.isAllFiles());
+    this.progress = new CompactionProgress(fd.maxKeyCount);
+    long smallestReadPoint = getSmallestReadPoint();
+    boolean dropCache = request.isMajor() || request.isAllFiles() ? dropCacheMajor : dropCacheMinor;
+    ScanType scanType = defaultScannerFactory.getScanType(request);
+    ScanInfo scanInfo = preCompactScannerOpen(request, scanType, user);
+    // For mvcc-sensitive family, we never set mvcc to 0.
+    boolean cleanSeqId =
+        fd.minSeqIdToKeep > 0 && !store.getColumnFamilyDescriptor().isNewVersionBehavior();
+    long readPoint = cleanSeqId ? Math.min(fd.minSeqIdToKeep, smallestReadPoint)
+      : smallestReadPoint;
+    RangeMultiFileWriter writer = new RangeMultiFileWriter(store.getComparator(), boundaries);
+    writer.init(null, () -> createTmpWriter(fd, dropCache));
+    int ranges = writer.getRangeCount();
+    LOG.debug("Compacting {} in {} ranges", store, ranges);
+    ThreadPoolExecutor pool = store.getHRegion().getRegionServicesForStores()
+      .getCompactionRangesPool(conf.getInt(PARALLEL_THREADS_KEY, DEFAULT_PARALLEL_THREADS));
+    // Only without a region server, in tests, does a compaction bring its own threads
+    boolean ownPool = pool == null;
+    if (ownPool) {
+      pool = Threads.getBoundedCachedThreadPool(ranges - 1, 30L, TimeUnit.SECONDS,
+        Threads.newDaemonThreadFactory("Compactor-" + store.getRegionInfo().getEncodedName() + "-"
+          + store.getColumnFamilyName()));
+    }
+    boolean finished = false;
+    try {
+      List<Future<?>> futures = new ArrayList<>(ranges - 1);
+      for (int i = 1; i < ranges; i++) {
+        int range = i;
+        futures.add(pool.submit(() -> {
+          compactRange(request, writer, range, fd, scanInfo, scanType, smallestReadPoint,
+            readPoint, cleanSeqId, dropCache, throughputController, user);
+          return null;
+        }));
+      }
+      Throwable error = null;
+      try {
+        compactRange(request, writer, 0, fd, scanInfo, scanType, smallestReadPoint, readPoint,
+          cleanSeqId, dropCache, throughputController, user);
+      } catch (Throwable t) {
+        error = t;
+      }
+      // Wait for all of them even if one failed, no range may still be writing once we abort
+      boolean interrupted = false;
+      for (Future<?> future : futures) {
+        while (true) {
+          try {
+            future.get();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          } catch (ExecutionException e) {
+            if (error == null) {
+              error = e.getCause();
+            } else {
+              error.addSuppressed(e.getCause());
+            }
+            break;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (error instanceof IOException) {
+        throw (IOException) error;
+      } else if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      } else if (error instanceof Error) {
+        throw (Error) error;
+      }
+      progress.complete();
+      finished = true;
+    } finally {
+      if (ownPool) {
+        pool.shutdown();
+      }
+      if (!finished) {
+        for (Path leftoverFile : writer.abortWriters()) {
+          try {
+            store.getFileSystem().delete(leftoverFile, false);
+          } catch (IOException e) {
+            LOG.warn("Failed to delete the leftover file " + leftoverFile
+                + " after an unfinished compaction.", e);
+          }
+        }
+      }
+    }
+    return writer.commitWriters(fd.maxSeqId, request.isAllFiles(), request.getFiles());
+  }
+
+  private void compactRange(CompactionRequestImpl request, RangeMultiFileWriter writer, int range,
+      FileDetails fd, ScanInfo scanInfo, ScanType scanType, long smallestReadPoint, long readPoint,
+      boolean cleanSeqId, boolean dropCache, ThroughputController throughputController, User user)
+      throws IOException {
+    // Every range reads all the files, so it has its own scanners on them
+    List<StoreFileScanner> scanners =
+        createFileScanners(request.getFiles(), smallestReadPoint, dropCache);
+    CompactionProgress rangeProgress =
+        new CompactionProgress(fd.maxKeyCount / writer.getRangeCount());
+    InternalScanner storeScanner = null;
+    InternalScanner scanner = null;
+    boolean finished;
+    try {
+      storeScanner = createScanner(store, scanInfo, scanners, scanType, smallestReadPoint,
+        fd.earliestPutTs);
+      scanners = null;
+      byte[] startRow = writer.getStartRow(range);
+      if (startRow.length > 0) {
+        ((KeyValueScanner) storeScanner).reseek(PrivateCellUtil.createFirstOnRow(startRow));
+      }
+      scanner = new RangeScanner(postCompactScannerOpen(request, scanType, storeScanner, user),
+          store.getComparator(), writer.getStopRow(range));
+      finished = performCompaction(scanner, writer.getWriter(range), readPoint, cleanSeqId,
+        throughputController, request.getFiles().size(), rangeProgress);
+    } finally {
+      if (scanners != null) {
+        for (StoreFileScanner s : scanners) {
+          s.close();
+        }
+      }
+      Closeables.close(scanner != null ? scanner : storeScanner, true);
+      synchronized (progress) {
+        progress.currentCompactedKVs += rangeProgress.currentCompactedKVs;
+        progress.totalCompactedSize += rangeProgress.totalCompactedSize;
+      }
+    }
+    if (!finished) {
+      throw new InterruptedIOException("Aborting compaction of store " + store + " in region "
+          + store.getRegionInfo().getRegionNameAsString() + " because it was interrupted.");
+    }
+  }
+
+  /**
+   * Stops the scanner of a range at the first cell of the next range. As the compaction scanner
+   * returns at most one row per call, the rows of the next range are only looked at once.
+   */
+  private static final class RangeScanner implements InternalScanner, Shipper {
+
+    private final InternalScanner delegate;
+    private final CellComparator comparator;
+    private final byte[] stopRow;
+    private boolean done;
+
+    RangeScanner(InternalScanner delegate, CellComparator comparator, byte[] stopRow) {
+      this.delegate = delegate;
+      this.comparator = comparator;
+      this.stopRow = stopRow;
+    }
+
+    @Override
+    public boolean next(List<Cell> result, ScannerContext scannerContext) throws IOException {
+      if (done) {
+        return false;
+      }
+      int start = result.size();
+      boolean hasMore = delegate.next(result, scannerContext);
+      if (stopRow.length == 0) {
+        return hasMore;
+      }
+      for (int i = start; i < result.size(); i++) {
+        if (comparator.compareRows(result.get(i), stopRow, 0, stopRow.length) >= 0) {
+          result.subList(i, result.size()).clear();
+          done = true;
+          return false;
+        }
+      }
+      return hasMore;
+    }
+
+    @Override
+    public void shipped() throws IOException {
+      if (delegate instanceof Shipper) {
+        ((Shipper) delegate).shipped();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+
   protected abstract List<Path> commitWriter(T writer, FileDetails fd,
       CompactionRequestImpl request) throws IOException;
 
@@ -360,6 +567,18 @@ public abstract class Compactor<T extends CellSink> {
   protected boolean performCompaction(FileDetails fd, InternalScanner scanner, CellSink writer,
       long smallestReadPoint, boolean cleanSeqId, ThroughputController throughputController,
       boolean major, int numofFilesToCompact) throws IOException {
+    return performCompaction(scanner, writer, smallestReadPoint, cleanSeqId, throughputController,
+      numofFilesToCompact, progress);
+  }
+
+  /**
+   * Performs the compaction, accounting it in the given progress; the concurrent ranges of
+   * {@link #compactRanges(CompactionRequestImpl, List, ThroughputController, User)} each have
+   * their own.
+   */
+  private boolean performCompaction(InternalScanner scanner, CellSink writer,
+      long smallestReadPoint, boolean cleanSeqId, ThroughputController throughputController,
+      int numofFilesToCompact, CompactionProgress progress) throws IOException {
     assert writer instanceof ShipperListener;
     long bytesWrittenProgressForCloseCheck = 0;
     long bytesWrittenProgressForLog = 0;
@@ -379,7 +598,7 @@ public abstract class Compactor<T extends CellSink> {
           ScannerContext.newBuilder().setBatchLimit(compactionKVMax).build();
 
     throughputController.start(compactionName);
-    KeyValueScanner kvs = (scanner instanceof KeyValueScanner) ? (KeyValueScanner) scanner : null;
+    Shipper kvs = (scanner instanceof Shipper) ? (Shipper) scanner : null;
     long shippedCallSizeLimit =
           (long) numofFilesToCompact * this.store.getColumnFamilyDescriptor().getBlocksize();
     try {
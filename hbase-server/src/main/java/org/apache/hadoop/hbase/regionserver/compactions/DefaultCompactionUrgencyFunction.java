@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * The default {@link CompactionUrgencyFunction}. The urgency of a compaction is the sum of
+ * <ul>
+ * <li>the number of store files the store can still take before it blocks flushes, negated, as
+ * this is what the compaction priority of a store has always been,</li>
+ * <li>a fixed bonus once the store blocks flushes, and so the writes of its region,</li>
+ * <li>the read amplification of the store, as a weight per store file,</li>
+ * <li>minus the cost of the compaction, as a weight per doubling of the selected megabytes.</li>
+ * </ul>
+ * and it grows by a fixed weight for every minute the compaction is queued.
+ */
+@InterfaceAudience.Private
+public class DefaultCompactionUrgencyFunction extends Configured
+    implements CompactionUrgencyFunction {
+
+  public static final String BLOCKED_WEIGHT_KEY =
+      "hbase.regionserver.compaction.urgency.blocked.weight";
+  public static final double DEFAULT_BLOCKED_WEIGHT = 10.0;
+
+  public static final String READ_AMPLIFICATION_WEIGHT_KEY =
+      "hbase.regionserver.compaction.urgency.read.amplification.weight";
+  public static final double DEFAULT_READ_AMPLIFICATION_WEIGHT = 0.1;
+
+  public static final String COST_WEIGHT_KEY = "hbase.regionserver.compaction.urgency.cost.weight";
+  public static final double DEFAULT_COST_WEIGHT = 0.25;
+
+  public static final String AGING_WEIGHT_KEY =
+      "hbase.regionserver.compaction.urgency.aging.weight";
+  public static final double DEFAULT_AGING_WEIGHT = 1.0;
+
+  private static final long MB = 1024L * 1024L;
+
+  private double blockedWeight = DEFAULT_BLOCKED_WEIGHT;
+  private double readAmplificationWeight = DEFAULT_READ_AMPLIFICATION_WEIGHT;
+  private double costWeight = DEFAULT_COST_WEIGHT;
+  private double agingRate = DEFAULT_AGING_WEIGHT / 60;
+
+  @Override
+  public void setConf(Configuration conf) {
+    super.setConf(conf);
+    if (conf == null) {
+      return;
+    }
+    blockedWeight = conf.getDouble(BLOCKED_WEIGHT_KEY, DEFAULT_BLOCKED_WEIGHT);
+    readAmplificationWeight =
+        conf.getDouble(READ_AMPLIFICATION_WEIGHT_KEY, DEFAULT_READ_AMPLIFICATION_WEIGHT);
+    costWeight = conf.getDouble(COST_WEIGHT_KEY, DEFAULT_COST_WEIGHT);
+    agingRate = conf.getDouble(AGING_WEIGHT_KEY, DEFAULT_AGING_WEIGHT) / 60;
+  }
+
+  @Override
+  public double getUrgency(HStore store, CompactionRequestImpl request) {
+    int priority = request != null ? request.getPriority() : store.getCompactPriority();
+    double urgency = -(double) priority;
+    if (priority <= 0) {
+      urgency += blockedWeight;
+    }
+    urgency += readAmplificationWeight * store.getStorefilesCount();
+    if (request != null && request.getSize() > 0) {
+      urgency -= costWeight * Math.log1p((double) request.getSize() / MB) / Math.log(2);
+    }
+    return urgency;
+  }
+
+  @Override
+  public double getAgingRate() {
+    return agingRate;
+  }
+}
@@ -18,21 +18,28 @@
 package org.apache.hadoop.hbase.regionserver.compactions;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.regionserver.HStore;
 import org.apache.hadoop.hbase.regionserver.HStoreFile;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.StoreFileReader;
 import org.apache.hadoop.hbase.regionserver.StoreFileWriter;
 import org.apache.hadoop.hbase.regionserver.throttle.NoLimitThroughputController;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
 import org.apache.hadoop.hbase.security.User;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.hbase.thirdparty.com.google.common.collect.Lists;
 
 /**
@@ -43,8 +50,24 @@ import org.apache.hbase.thirdparty.com.google.common.collect.Lists;
 public class DefaultCompactor extends Compactor<StoreFileWriter> {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultCompactor.class);
 
+  /**
+   * Number of row ranges a major compaction of the store is split into, each written to its own
+   * file by its own thread. 1 compacts everything into one file on a single thread.
+   */
+  public static final String PARALLEL_RANGES_KEY = "hbase.hstore.compaction.parallel.ranges";
+  public static final int DEFAULT_PARALLEL_RANGES = 1;
+
+  /** Total size of the compacted files below which a compaction is never split into ranges. */
+  public static final String PARALLEL_MIN_SIZE_KEY = "hbase.hstore.compaction.parallel.min.size";
+  public static final long DEFAULT_PARALLEL_MIN_SIZE = 1024L * 1024 * 1024;
+
+  private final int parallelRanges;
+  private final long parallelMinSize;
+
   public DefaultCompactor(Configuration conf, HStore store) {
     super(conf, store);
+    this.parallelRanges = conf.getInt(PARALLEL_RANGES_KEY, DEFAULT_PARALLEL_RANGES);
+    this.parallelMinSize = conf.getLong(PARALLEL_MIN_SIZE_KEY, DEFAULT_PARALLEL_MIN_SIZE);
   }
 
   private final CellSinkFactory<StoreFileWriter> writerFactory =
@@ -62,9 +85,52 @@ public class DefaultCompactor extends Compactor<StoreFileWriter> {
    */
   public List<Path> compact(final CompactionRequestImpl request,
       ThroughputController throughputController, User user) throws IOException {
+    List<byte[]> boundaries = getRangeBoundaries(request);
+    if (!boundaries.isEmpty()) {
+      return compactRanges(request, boundaries, throughputController, user);
+    }
     return compact(request, defaultScannerFactory, writerFactory, throughputController, user);
   }
 
+  /**
+   * Picks the rows splitting a major compaction into {@link #PARALLEL_RANGES_KEY} ranges, among the
+   * root index keys of the largest file. Returns an empty list when the compaction should stay on
+   * a single thread: it is not major, so a minor compaction which happens to select all the files
+   * does not keep rewriting the range outputs together with every new flush, it is too small, or
+   * there are coprocessors, which only expect one compaction scanner.
+   */
+  @VisibleForTesting
+  List<byte[]> getRangeBoundaries(CompactionRequestImpl request) {
+    if (parallelRanges < 2 || !request.isMajor() || request.getSize() < parallelMinSize) {
+      return Collections.emptyList();
+    }
+    if (store.getCoprocessorHost() != null
+        && !store.getCoprocessorHost().getCoprocessors().isEmpty()) {
+      return Collections.emptyList();
+    }
+    StoreFileReader largest = null;
+    for (HStoreFile file : request.getFiles()) {
+      StoreFileReader reader = file.getReader();
+      if (reader != null && (largest == null || reader.length() > largest.length())) {
+        largest = reader;
+      }
+    }
+    List<Cell> keys = largest == null ? Collections.emptyList() : largest.getRootIndexKeys();
+    if (keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<byte[]> boundaries = new ArrayList<>(parallelRanges - 1);
+    byte[] previous = CellUtil.cloneRow(keys.get(0));
+    for (int i = 1; i < parallelRanges; i++) {
+      byte[] row = CellUtil.cloneRow(keys.get(i * keys.size() / parallelRanges));
+      if (Bytes.compareTo(row, previous) > 0) {
+        boundaries.add(row);
+        previous = row;
+      }
+    }
+    return boundaries;
+  }
+
   /**
    * Compact a list of files for testing. Creates a fake {@link CompactionRequestImpl} to pass to
    * {@link #compact(CompactionRequestImpl, ThroughputController, User)};
@@ -146,7 +146,8 @@ public abstract class AbstractProtobufLogWriter {
       try {
         this.compressionContext = new CompressionContext(LRUDictionary.class,
             FSUtils.isRecoveredEdits(path),
-            conf.getBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, true));
+            conf.getBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, true),
+            CompressionContext.getValueCompressionAlgorithm(conf));
       } catch (Exception e) {
         throw new IOException("Failed to initiate CompressionContext", e);
       }
@@ -167,8 +168,14 @@ public abstract class AbstractProtobufLogWriter {
 
     boolean doTagCompress = doCompress
         && conf.getBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, true);
-    length.set(writeMagicAndWALHeader(ProtobufLogReader.PB_WAL_MAGIC, buildWALHeader(conf,
-      WALHeader.newBuilder().setHasCompression(doCompress).setHasTagCompression(doTagCompress))));
+    WALHeader.Builder headerBuilder =
+      WALHeader.newBuilder().setHasCompression(doCompress).setHasTagCompression(doTagCompress);
+    if (doCompress && compressionContext.getValueCompressor() != null) {
+      headerBuilder.setHasValueCompression(true).setValueCompressionAlgorithm(
+        compressionContext.getValueCompressor().getAlgorithm().ordinal());
+    }
+    length.set(writeMagicAndWALHeader(ProtobufLogReader.PB_WAL_MAGIC,
+      buildWALHeader(conf, headerBuilder)));
 
     initAfterHeader(doCompress);
 
@@ -18,15 +18,29 @@
 
 package org.apache.hadoop.hbase.regionserver.wal;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.io.TagCompressionContext;
+import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.util.Dictionary;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.CompressionTest;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
 
 /**
  * Context that holds the various dictionaries for compression in WAL.
@@ -37,6 +51,12 @@ public class CompressionContext {
   static final String ENABLE_WAL_TAGS_COMPRESSION =
       "hbase.regionserver.wal.tags.enablecompression";
 
+  public static final String ENABLE_WAL_VALUE_COMPRESSION =
+      "hbase.regionserver.wal.value.enablecompression";
+
+  public static final String WAL_VALUE_COMPRESSION_TYPE =
+      "hbase.regionserver.wal.value.compression.type";
+
   public enum DictionaryIndex {
     REGION, TABLE, FAMILY, QUALIFIER, ROW
   }
@@ -45,10 +65,22 @@ public class CompressionContext {
       new EnumMap<>(DictionaryIndex.class);
   // Context used for compressing tags
   TagCompressionContext tagCompressionContext = null;
+  // Compressor of the values, null if values are not compressed
+  private final ValueCompressor valueCompressor;
 
   public CompressionContext(Class<? extends Dictionary> dictType, boolean recoveredEdits,
       boolean hasTagCompression) throws SecurityException, NoSuchMethodException,
       InstantiationException, IllegalAccessException, InvocationTargetException {
+    this(dictType, recoveredEdits, hasTagCompression, null);
+  }
+
+  /**
+   * @param valueCompressionType algorithm the values are compressed with, null if they are not
+   */
+  public CompressionContext(Class<? extends Dictionary> dictType, boolean recoveredEdits,
+      boolean hasTagCompression, Compression.Algorithm valueCompressionType)
+      throws SecurityException, NoSuchMethodException, InstantiationException,
+      IllegalAccessException, InvocationTargetException {
     Constructor<? extends Dictionary> dictConstructor =
         dictType.getConstructor();
     for (DictionaryIndex dictionaryIndex : DictionaryIndex.values()) {
@@ -70,12 +102,18 @@ public class CompressionContext {
     if (hasTagCompression) {
       tagCompressionContext = new TagCompressionContext(dictType, Short.MAX_VALUE);
     }
+    valueCompressor = valueCompressionType != null && valueCompressionType !=
+        Compression.Algorithm.NONE ? new ValueCompressor(valueCompressionType) : null;
   }
 
   public Dictionary getDictionary(Enum dictIndex) {
     return dictionaries.get(dictIndex);
   }
 
+  ValueCompressor getValueCompressor() {
+    return valueCompressor;
+  }
+
   void clear() {
     for(Dictionary dictionary : dictionaries.values()){
       dictionary.clear();
@@ -83,5 +121,230 @@ public class CompressionContext {
     if (tagCompressionContext != null) {
       tagCompressionContext.clear();
     }
+    if (valueCompressor != null) {
+      valueCompressor.clear();
+    }
+  }
+
+  /**
+   * @return the algorithm to compress the values of a new WAL with, null if they should not be
+   * @throws IOException if the configured algorithm cannot be used on this server
+   */
+  static Compression.Algorithm getValueCompressionAlgorithm(Configuration conf)
+      throws IOException {
+    if (!conf.getBoolean(ENABLE_WAL_VALUE_COMPRESSION, false)) {
+      return null;
+    }
+    String type = conf.get(WAL_VALUE_COMPRESSION_TYPE, Compression.Algorithm.GZ.getName());
+    Compression.Algorithm algorithm = Compression.getCompressionAlgorithmByName(type);
+    if (algorithm == Compression.Algorithm.NONE) {
+      return null;
+    }
+    if (algorithm == Compression.Algorithm.BZIP2) {
+      // Its compression stream cannot be reset to start the next value
+      throw new IOException("Compression algorithm '" + type + "' is not supported for WAL"
+          + " values");
+    }
+    // Fail now rather than on the first append if the codec is missing, as native codecs can be
+    CompressionTest.testCompression(algorithm);
+    return algorithm;
+  }
+
+  /**
+   * Compresses the values of the cells of a WAL with a {@link Compression.Algorithm}.
+   * <p>
+   * The compression and decompression state lives as long as the WAL is written or read, and each
+   * value is written out with the entry it belongs to. With {@link Compression.Algorithm#GZ} the
+   * values make up a single deflate stream per WAL which is sync flushed after every value, so a
+   * value is compressed against the ones before it: small values that repeat each other shrink to
+   * a few bytes. As in the permessage-deflate extension of WebSocket (RFC 7692), the four bytes of
+   * the empty stored block every sync flush ends with are left out, and put back when reading.
+   * The other codecs cannot flush in the middle of a stream, every value is finished
+   * to a complete compressed frame of its own and the decompression stream is fed the frames one
+   * after the other. Either way the values can only be read in order from the start of the WAL,
+   * like the dictionaries.
+   */
+  static class ValueCompressor {
+
+    private final Compression.Algorithm algorithm;
+
+    // The end of the empty stored block a sync flush writes
+    private static final byte[] SYNC_FLUSH_TAIL = new byte[] { 0, 0, (byte) 0xFF, (byte) 0xFF };
+
+    // Deflate stream of the GZ algorithm
+    private Deflater deflater;
+    private Inflater inflater;
+    private byte[] buffer;
+
+    // Per value frames of the other algorithms
+    private ByteArrayOutputStream lowerOut;
+    private CompressionOutputStream compressedOut;
+    private FrameInputStream lowerIn;
+    private InputStream compressedIn;
+    private byte[] frame;
+
+    ValueCompressor(Compression.Algorithm algorithm) {
+      this.algorithm = algorithm;
+    }
+
+    Compression.Algorithm getAlgorithm() {
+      return algorithm;
+    }
+
+    /**
+     * @return the compressed frame of the given value
+     */
+    byte[] compress(byte[] value, int offset, int length) throws IOException {
+      if (algorithm == Compression.Algorithm.GZ) {
+        return deflate(value, offset, length);
+      }
+      if (compressedOut == null) {
+        // Anything the codec writes up front, like a gzip header, goes to the first frame
+        lowerOut = new ByteArrayOutputStream();
+        compressedOut = algorithm.createPlainCompressionStream(lowerOut,
+          algorithm.getCompressor());
+      } else {
+        lowerOut.reset();
+        // Resetting rather than finishing starts the next frame, the gzip codec writes the header
+        // of the next member here
+        compressedOut.resetState();
+      }
+      compressedOut.write(value, offset, length);
+      compressedOut.finish();
+      compressedOut.flush();
+      return lowerOut.toByteArray();
+    }
+
+    /**
+     * Reads a compressed frame of {@code inLength} bytes from the given stream and decompresses
+     * it to the given array.
+     */
+    void decompress(InputStream in, int inLength, byte[] out, int outOffset, int outLength)
+        throws IOException {
+      // The whole frame is read up front, so the stream is left at the end of the frame whatever
+      // the codec reads ahead
+      if (frame == null || frame.length < inLength + SYNC_FLUSH_TAIL.length) {
+        frame = new byte[Math.max(inLength + SYNC_FLUSH_TAIL.length, 1024)];
+      }
+      IOUtils.readFully(in, frame, 0, inLength);
+      if (algorithm == Compression.Algorithm.GZ) {
+        inflate(inLength, out, outOffset, outLength);
+        return;
+      }
+      if (compressedIn == null) {
+        lowerIn = new FrameInputStream();
+        lowerIn.setFrame(frame, inLength);
+        compressedIn =
+            algorithm.createDecompressionStream(lowerIn, algorithm.getDecompressor(), 0);
+      } else {
+        lowerIn.setFrame(frame, inLength);
+      }
+      IOUtils.readFully(compressedIn, out, outOffset, outLength);
+      // Have the codec go through the end of the frame, like the trailer of a gzip member, before
+      // it is given the next one
+      if (compressedIn.read() != -1) {
+        throw new IOException("Compressed value is longer than " + outLength + " bytes");
+      }
+    }
+
+    private byte[] deflate(byte[] value, int offset, int length) throws IOException {
+      if (deflater == null) {
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        lowerOut = new ByteArrayOutputStream();
+        buffer = new byte[4096];
+      } else {
+        lowerOut.reset();
+      }
+      deflater.setInput(value, offset, length);
+      // A sync flush ends the output on a byte boundary with all the input of the value in it
+      int n;
+      do {
+        n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+        lowerOut.write(buffer, 0, n);
+      } while (n == buffer.length);
+      // Nothing at all is written for an empty value following a flush
+      if (lowerOut.size() == 0) {
+        return new byte[0];
+      }
+      byte[] compressed = lowerOut.toByteArray();
+      int tail = compressed.length - SYNC_FLUSH_TAIL.length;
+      if (tail < 0 || !Bytes.equals(compressed, tail, SYNC_FLUSH_TAIL.length, SYNC_FLUSH_TAIL, 0,
+        SYNC_FLUSH_TAIL.length)) {
+        throw new IOException("Compressed value does not end with a sync flush");
+      }
+      return Arrays.copyOf(compressed, tail);
+    }
+
+    private void inflate(int inLength, byte[] out, int outOffset, int outLength)
+        throws IOException {
+      if (inflater == null) {
+        inflater = new Inflater(true);
+        buffer = new byte[4096];
+      }
+      if (inLength == 0) {
+        if (outLength != 0) {
+          throw new IOException("Compressed value is shorter than " + outLength + " bytes");
+        }
+        return;
+      }
+      System.arraycopy(SYNC_FLUSH_TAIL, 0, frame, inLength, SYNC_FLUSH_TAIL.length);
+      inflater.setInput(frame, 0, inLength + SYNC_FLUSH_TAIL.length);
+      try {
+        int read = 0;
+        while (read < outLength) {
+          int n = inflater.inflate(out, outOffset + read, outLength - read);
+          if (n == 0 && (inflater.needsInput() || inflater.finished()
+              || inflater.needsDictionary())) {
+            throw new IOException("Compressed value is shorter than " + outLength + " bytes");
+          }
+          read += n;
+        }
+        // Go through the empty block the sync flush ended the frame with, the next frame follows
+        // it in the stream
+        while (inflater.getRemaining() > 0) {
+          int remaining = inflater.getRemaining();
+          if (inflater.inflate(buffer) != 0) {
+            throw new IOException("Compressed value is longer than " + outLength + " bytes");
+          }
+          if (inflater.getRemaining() == remaining) {
+            throw new IOException("Compressed value has " + remaining + " trailing bytes");
+          }
+        }
+      } catch (DataFormatException e) {
+        throw new IOException(e);
+      }
+    }
+
+    void clear() {
+      if (deflater != null) {
+        deflater.end();
+        deflater = null;
+      }
+      if (inflater != null) {
+        inflater.end();
+        inflater = null;
+      }
+      lowerOut = null;
+      compressedOut = null;
+      lowerIn = null;
+      compressedIn = null;
+    }
+  }
+
+  /**
+   * A stream over the compressed frame of one value at a time.
+   */
+  private static class FrameInputStream extends ByteArrayInputStream {
+
+    FrameInputStream() {
+      super(new byte[0]);
+    }
+
+    void setFrame(byte[] frame, int length) {
+      this.buf = frame;
+      this.pos = 0;
+      this.count = length;
+      this.mark = 0;
+    }
   }
 }
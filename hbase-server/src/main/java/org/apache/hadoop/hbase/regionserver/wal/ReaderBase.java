@@ -27,6 +27,7 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.util.LRUDictionary;
 import org.apache.hadoop.hbase.util.FSUtils;
 import org.apache.hadoop.hbase.wal.AbstractFSWALProvider;
@@ -70,7 +71,8 @@ public abstract class ReaderBase implements AbstractFSWALProvider.Reader {
       try {
         if (compressionContext == null) {
           compressionContext = new CompressionContext(LRUDictionary.class,
-              FSUtils.isRecoveredEdits(path), hasTagCompression());
+              FSUtils.isRecoveredEdits(path), hasTagCompression(),
+              getValueCompressionAlgorithm());
         } else {
           compressionContext.clear();
         }
@@ -125,6 +127,14 @@ public abstract class ReaderBase implements AbstractFSWALProvider.Reader {
     seekOnFs(pos);
   }
 
+  /**
+   * @return Whether entries are dictionary compressed, so that each of them can only be decoded
+   *   after all the ones before it.
+   */
+  public boolean hasCompressionContext() {
+    return compressionContext != null;
+  }
+
   /**
    * Initializes the log reader with a particular stream (may be null).
    * Reader assumes ownership of the stream if not null and may use it. Called once.
@@ -152,6 +162,11 @@ public abstract class ReaderBase implements AbstractFSWALProvider.Reader {
    */
   protected abstract boolean hasTagCompression();
 
+  /**
+   * @return The algorithm the values of this log are compressed with, null if they are not.
+   */
+  protected abstract Compression.Algorithm getValueCompressionAlgorithm();
+
   /**
    * Read next entry.
    * @param e The entry to read into.
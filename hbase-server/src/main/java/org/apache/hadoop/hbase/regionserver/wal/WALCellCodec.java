@@ -23,7 +23,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ByteBufferExtendedCell;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.KeyValue;
@@ -241,10 +243,25 @@ public class WALCellCodec implements Codec {
         compression.getDictionary(CompressionContext.DictionaryIndex.FAMILY));
       PrivateCellUtil.compressQualifier(out, cell,
         compression.getDictionary(CompressionContext.DictionaryIndex.QUALIFIER));
-      // Write timestamp, type and value as uncompressed.
+      // Write timestamp and type as uncompressed.
       StreamUtils.writeLong(out, cell.getTimestamp());
       out.write(cell.getTypeByte());
-      PrivateCellUtil.writeValue(out, cell, cell.getValueLength());
+      CompressionContext.ValueCompressor valueCompressor = compression.getValueCompressor();
+      if (valueCompressor != null) {
+        // Write the length of the compressed value, then the compressed value.
+        byte[] compressedValue;
+        if (cell instanceof ByteBufferExtendedCell) {
+          compressedValue = valueCompressor.compress(CellUtil.cloneValue(cell), 0,
+            cell.getValueLength());
+        } else {
+          compressedValue = valueCompressor.compress(cell.getValueArray(), cell.getValueOffset(),
+            cell.getValueLength());
+        }
+        StreamUtils.writeRawVInt32(out, compressedValue.length);
+        out.write(compressedValue);
+      } else {
+        PrivateCellUtil.writeValue(out, cell, cell.getValueLength());
+      }
       if (tagsLength > 0) {
         if (compression.tagCompressionContext != null) {
           // Write tags using Dictionary compression
@@ -303,12 +320,22 @@ public class WALCellCodec implements Codec {
       pos += elemLen;
 
       // timestamp, type and value
-      int tsTypeValLen = length - pos;
-      if (tagsLength > 0) {
-        tsTypeValLen = tsTypeValLen - tagsLength - KeyValue.TAGS_LENGTH_SIZE;
+      CompressionContext.ValueCompressor valueCompressor = compression.getValueCompressor();
+      if (valueCompressor != null) {
+        int tsTypeLen = KeyValue.TIMESTAMP_TYPE_SIZE;
+        IOUtils.readFully(in, backingArray, pos, tsTypeLen);
+        pos += tsTypeLen;
+        int compressedLen = StreamUtils.readRawVarint32(in);
+        valueCompressor.decompress(in, compressedLen, backingArray, pos, vlength);
+        pos += vlength;
+      } else {
+        int tsTypeValLen = length - pos;
+        if (tagsLength > 0) {
+          tsTypeValLen = tsTypeValLen - tagsLength - KeyValue.TAGS_LENGTH_SIZE;
+        }
+        IOUtils.readFully(in, backingArray, pos, tsTypeValLen);
+        pos += tsTypeValLen;
       }
-      IOUtils.readFully(in, backingArray, pos, tsTypeValLen);
-      pos += tsTypeValLen;
 
       // tags
       if (tagsLength > 0) {
@@ -163,6 +163,9 @@ public class ReplicationSourceManager implements ReplicationListener {
 
   private AtomicLong totalBufferUsed = new AtomicLong();
 
+  // WAL entries decoded by one source for the others reading the same WAL, null if disabled
+  private final SharedWALEntryCache sharedWALEntryCache;
+
   // How long should we sleep for each retry when deleting remote wal files for sync replication
   // peer.
   private final long sleepForRetries;
@@ -222,6 +225,8 @@ public class ReplicationSourceManager implements ReplicationListener {
     this.sleepForRetries = this.conf.getLong("replication.source.sync.sleepforretries", 1000);
     this.maxRetriesMultiplier =
       this.conf.getInt("replication.source.sync.maxretriesmultiplier", 60);
+    this.sharedWALEntryCache =
+      SharedWALEntryCache.create(conf, () -> sources.size() + oldsources.size() > 1);
   }
 
   /**
@@ -1061,6 +1066,13 @@ public class ReplicationSourceManager implements ReplicationListener {
     return totalBufferUsed;
   }
 
+  /**
+   * @return the cache of decoded WAL entries shared by the sources, or null if it is disabled
+   */
+  SharedWALEntryCache getSharedWALEntryCache() {
+    return sharedWALEntryCache;
+  }
+
   /**
    * Get the directory where wals are archived
    * @return the directory where wals are archived
@@ -0,0 +1,205 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.wal.WAL.Entry;
+import org.apache.hadoop.hbase.wal.WALEdit;
+import org.apache.hadoop.hbase.wal.WALKeyImpl;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Decoded WAL entries shared by the replication sources of a region server.
+ * <p>
+ * Every peer has its own {@link ReplicationSourceWALReader} which reads the same WAL files, usually
+ * only a little behind each other. The first reader to decode an entry puts it here, keyed by the
+ * WAL file name and the position the entry starts at, and the readers of the other peers pick it up
+ * instead of reading and parsing it again. Each peer still keeps its own position, so a slow or
+ * disabled peer just falls out of the cache and reads the file itself, without holding back the
+ * others. The cache is bounded by the heap size of the entries and evicts the oldest ones first.
+ */
+@InterfaceAudience.Private
+class SharedWALEntryCache {
+
+  public static final String CACHE_SIZE_KEY = "replication.source.shared.wal.entry.cache.size";
+
+  public static final long DEFAULT_CACHE_SIZE = 16L * 1024 * 1024;
+
+  private static final class Key {
+
+    private final String walName;
+
+    private final long position;
+
+    Key(String walName, long position) {
+      this.walName = walName;
+      this.position = position;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return position == other.position && walName.equals(other.walName);
+    }
+
+    @Override
+    public int hashCode() {
+      return walName.hashCode() * 31 + Long.hashCode(position);
+    }
+  }
+
+  /**
+   * A decoded entry, and the position of the one after it.
+   */
+  static final class CachedEntry {
+
+    private final Entry entry;
+
+    private final long nextPosition;
+
+    private final long size;
+
+    CachedEntry(Entry entry, long nextPosition, long size) {
+      this.entry = entry;
+      this.nextPosition = nextPosition;
+      this.size = size;
+    }
+
+    /**
+     * @see SharedWALEntryCache#copyEntry(Entry)
+     */
+    Entry copyEntry() {
+      return SharedWALEntryCache.copyEntry(entry);
+    }
+
+    long getNextPosition() {
+      return nextPosition;
+    }
+  }
+
+  private final Map<Key, CachedEntry> entries = new ConcurrentHashMap<>();
+
+  private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  private final AtomicLong size = new AtomicLong();
+
+  private final long maxSize;
+
+  // Whether there is more than one reader to share the entries with
+  private final BooleanSupplier shared;
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private final LongAdder missCount = new LongAdder();
+
+  SharedWALEntryCache(long maxSize, BooleanSupplier shared) {
+    this.maxSize = maxSize;
+    this.shared = shared;
+  }
+
+  /**
+   * @return the cache configured by {@link #CACHE_SIZE_KEY}, or null if it is turned off
+   */
+  static SharedWALEntryCache create(Configuration conf, BooleanSupplier shared) {
+    long maxSize = conf.getLong(CACHE_SIZE_KEY, DEFAULT_CACHE_SIZE);
+    return maxSize > 0 ? new SharedWALEntryCache(maxSize, shared) : null;
+  }
+
+  /**
+   * Returns a copy of the entry which the caller is free to filter. The cells are shared with the
+   * other copies, the list of cells and the key are not, filters mark the key with cluster ids.
+   */
+  static Entry copyEntry(Entry entry) {
+    WALEdit edit = entry.getEdit();
+    WALEdit copy = new WALEdit(edit.size(), edit.isReplay());
+    // not through add(Cell), replication has no use for the families it would clone
+    copy.getCells().addAll(edit.getCells());
+    return new Entry(new WALKeyImpl(entry.getKey()), copy);
+  }
+
+  /**
+   * @return the entry starting at the given position of the given WAL, or null if it is not cached
+   */
+  CachedEntry get(String walName, long position) {
+    CachedEntry cached = entries.get(new Key(walName, position));
+    if (cached != null) {
+      hitCount.increment();
+    } else {
+      missCount.increment();
+    }
+    return cached;
+  }
+
+  /**
+   * Caches a freshly decoded entry, unless no other reader could use it.
+   * @return whether the entry was cached, in which case it must not be modified any more
+   */
+  boolean put(String walName, long position, Entry entry, long nextPosition) {
+    if (!shared.getAsBoolean()) {
+      return false;
+    }
+    long entrySize = entry.getEdit().heapSize() + entry.getKey().estimatedSerializedSizeOf();
+    if (entrySize > maxSize) {
+      return false;
+    }
+    Key key = new Key(walName, position);
+    if (entries.putIfAbsent(key, new CachedEntry(entry, nextPosition, entrySize)) != null) {
+      return false;
+    }
+    insertionOrder.add(key);
+    if (size.addAndGet(entrySize) > maxSize) {
+      evict();
+    }
+    return true;
+  }
+
+  private void evict() {
+    while (size.get() > maxSize) {
+      Key oldest = insertionOrder.poll();
+      if (oldest == null) {
+        return;
+      }
+      CachedEntry evicted = entries.remove(oldest);
+      if (evicted != null) {
+        size.addAndGet(-evicted.size);
+      }
+    }
+  }
+
+  long getHitCount() {
+    return hitCount.sum();
+  }
+
+  long getMissCount() {
+    return missCount.sum();
+  }
+
+  long getSize() {
+    return size.get();
+  }
+}
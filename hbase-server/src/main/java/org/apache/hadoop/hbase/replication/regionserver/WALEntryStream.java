@@ -30,6 +30,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.regionserver.wal.ProtobufLogReader;
+import org.apache.hadoop.hbase.regionserver.wal.ReaderBase;
 import org.apache.hadoop.hbase.util.CancelableProgressable;
 import org.apache.hadoop.hbase.util.CommonFSUtils;
 import org.apache.hadoop.hbase.util.FSUtils;
@@ -70,6 +71,11 @@ class WALEntryStream implements Closeable {
   // which region server the WALs belong to
   private final ServerName serverName;
   private final MetricsSource metrics;
+  // entries decoded by the streams of other peers, may be null
+  private final SharedWALEntryCache entryCache;
+  // the position the reader would be at had we not taken entries from the entryCache, or -1 if
+  // the reader is really there
+  private long cachedReadPosition = -1;
 
   /**
    * Create an entry stream over the given queue at the given start position
@@ -84,6 +90,19 @@ class WALEntryStream implements Closeable {
   public WALEntryStream(PriorityBlockingQueue<Path> logQueue, Configuration conf,
       long startPosition, WALFileLengthProvider walFileLengthProvider, ServerName serverName,
       MetricsSource metrics) throws IOException {
+    this(logQueue, conf, startPosition, walFileLengthProvider, serverName, metrics, null);
+  }
+
+  /**
+   * Create an entry stream over the given queue at the given start position, sharing decoded
+   * entries with the streams of other peers through the given cache
+   * @param entryCache the cache of decoded entries, or null to always read from the WAL
+   * @see #WALEntryStream(PriorityBlockingQueue, Configuration, long, WALFileLengthProvider,
+   *   ServerName, MetricsSource)
+   */
+  public WALEntryStream(PriorityBlockingQueue<Path> logQueue, Configuration conf,
+      long startPosition, WALFileLengthProvider walFileLengthProvider, ServerName serverName,
+      MetricsSource metrics, SharedWALEntryCache entryCache) throws IOException {
     this.logQueue = logQueue;
     this.fs = CommonFSUtils.getWALFileSystem(conf);
     this.conf = conf;
@@ -91,6 +110,7 @@ class WALEntryStream implements Closeable {
     this.walFileLengthProvider = walFileLengthProvider;
     this.serverName = serverName;
     this.metrics = metrics;
+    this.entryCache = entryCache;
   }
 
   /**
@@ -260,6 +280,26 @@ class WALEntryStream implements Closeable {
    * Returns whether the file is opened for writing.
    */
   private boolean readNextEntryAndRecordReaderPosition() throws IOException {
+    boolean useCache = canUseEntryCache();
+    long startPos = cachedReadPosition >= 0 ? cachedReadPosition : reader.getPosition();
+    if (useCache) {
+      SharedWALEntryCache.CachedEntry cached = entryCache.get(currentPath.getName(), startPos);
+      if (cached != null) {
+        // another peer has read this entry already, the file length was checked at the time
+        Entry readEntry = cached.copyEntry();
+        LOG.trace("reading cached entry: {} ", readEntry);
+        metrics.incrLogEditsRead();
+        metrics.incrLogReadInBytes(cached.getNextPosition() - currentPositionOfEntry);
+        currentEntry = readEntry;
+        cachedReadPosition = cached.getNextPosition();
+        this.currentPositionOfReader = cachedReadPosition;
+        return walFileLengthProvider.getLogFileSizeIfBeingWritten(currentPath).isPresent();
+      }
+    }
+    if (cachedReadPosition >= 0) {
+      reader.seek(cachedReadPosition);
+      cachedReadPosition = -1;
+    }
     Entry readEntry = reader.next();
     long readerPos = reader.getPosition();
     OptionalLong fileLength = walFileLengthProvider.getLogFileSizeIfBeingWritten(currentPath);
@@ -277,13 +317,26 @@ class WALEntryStream implements Closeable {
       LOG.trace("reading entry: {} ", readEntry);
       metrics.incrLogEditsRead();
       metrics.incrLogReadInBytes(readerPos - currentPositionOfEntry);
+      if (useCache) {
+        // the filters of the peers modify the edits, so keep the cached one to ourselves
+        if (entryCache.put(currentPath.getName(), startPos, readEntry, readerPos)) {
+          readEntry = SharedWALEntryCache.copyEntry(readEntry);
+        }
+      }
     }
     currentEntry = readEntry; // could be null
     this.currentPositionOfReader = readerPos;
     return fileLength.isPresent();
   }
 
+  // Entries of dictionary compressed WALs can not be skipped, the reader has to decode them all
+  private boolean canUseEntryCache() {
+    return entryCache != null && reader instanceof ReaderBase &&
+      !((ReaderBase) reader).hasCompressionContext();
+  }
+
   private void closeReader() throws IOException {
+    cachedReadPosition = -1;
     if (reader != null) {
       reader.close();
       reader = null;
@@ -418,6 +471,7 @@ class WALEntryStream implements Closeable {
   }
 
   private void seek() throws IOException {
+    cachedReadPosition = -1;
     if (currentPositionOfEntry != 0) {
       reader.seek(currentPositionOfEntry);
     }
@@ -199,7 +199,10 @@ public class BloomFilterChunk implements BloomFilterBase {
     setHashLoc(hash1, hash2);
   }
 
-  private void setHashLoc(int hash1, int hash2) {
+  /**
+   * Adds a key given its two hashes.
+   */
+  protected void setHashLoc(int hash1, int hash2) {
     for (int i = 0; i < this.hashCount; i++) {
       long hashLoc = Math.abs((hash1 + i * hash2) % (this.byteSize * 8));
       set(hashLoc);
@@ -258,15 +261,30 @@ public class BloomFilterChunk implements BloomFilterBase {
     return hashType;
   }
 
+  /**
+   * @return the format of the chunk
+   */
+  public BloomFilterFormat getFormat() {
+    return BloomFilterFormat.CLASSIC;
+  }
+
+  /**
+   * @return the number of bytes the size of the bloom has to stay a multiple of when folding it
+   */
+  protected int getFoldUnit() {
+    return 1;
+  }
+
   public void compactBloom() {
     // see if the actual size is exponentially smaller than expected.
     if (this.keyCount > 0 && this.bloom.hasArray()) {
       int pieces = 1;
       int newByteSize = (int)this.byteSize;
       int newMaxKeys = this.maxKeys;
+      int foldUnit = getFoldUnit();
 
       // while exponentially smaller & folding is lossless
-      while ((newByteSize & 1) == 0 && newMaxKeys > (this.keyCount<<1)) {
+      while (newByteSize % (foldUnit << 1) == 0 && newMaxKeys > (this.keyCount<<1)) {
         pieces <<= 1;
         newByteSize >>= 1;
         newMaxKeys >>= 1;
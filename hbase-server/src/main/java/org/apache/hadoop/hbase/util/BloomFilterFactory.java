@@ -19,6 +19,9 @@ package org.apache.hadoop.hbase.util;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.CellComparatorImpl;
@@ -81,6 +84,16 @@ public final class BloomFilterFactory {
   public static final String IO_STOREFILE_BLOOM_BLOCK_SIZE =
       "io.storefile.bloom.block.size";
 
+  /**
+   * The format of the Bloom filter chunks, one of {@link BloomFilterFormat}. Usually set per
+   * column family.
+   */
+  public static final String IO_STOREFILE_BLOOM_FORMAT =
+      "io.storefile.bloom.format";
+
+  /** Unknown Bloom filter formats we already warned about, so a flush does not log each time. */
+  private static final Set<String> WARNED_BLOOM_FORMATS = ConcurrentHashMap.newKeySet();
+
   /** Maximum number of times a Bloom filter can be "folded" if oversized */
   private static final int MAX_ALLOWED_FOLD_FACTOR = 7;
 
@@ -103,6 +116,9 @@ public final class BloomFilterFactory {
       case CompoundBloomFilterBase.VERSION:
         return new CompoundBloomFilter(meta, reader);
 
+      case CompoundBloomFilterBase.VERSION_WITH_FORMAT:
+        return new CompoundBloomFilter(meta, reader, BloomFilterFormat.fromId(meta.readInt()));
+
       default:
         throw new IllegalArgumentException(
           "Bad bloom filter format version " + version
@@ -139,6 +155,23 @@ public final class BloomFilterFactory {
     return conf.getInt(IO_STOREFILE_BLOOM_MAX_FOLD, MAX_ALLOWED_FOLD_FACTOR);
   }
 
+  /**
+   * @return the format of the Bloom filter chunks from the configuration, or
+   *   {@link BloomFilterFormat#CLASSIC} if the value is not a known format
+   */
+  public static BloomFilterFormat getBloomFormat(Configuration conf) {
+    String value = conf.get(IO_STOREFILE_BLOOM_FORMAT, BloomFilterFormat.CLASSIC.name()).trim();
+    try {
+      return BloomFilterFormat.valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      if (WARNED_BLOOM_FORMATS.add(value)) {
+        LOG.warn("Unknown {} '{}', using {}", IO_STOREFILE_BLOOM_FORMAT, value,
+          BloomFilterFormat.CLASSIC);
+      }
+      return BloomFilterFormat.CLASSIC;
+    }
+  }
+
   /** @return the compound Bloom filter block size from the configuration */
   public static int getBloomBlockSize(Configuration conf) {
     return conf.getInt(IO_STOREFILE_BLOOM_BLOCK_SIZE, 128 * 1024);
@@ -194,7 +227,8 @@ public final class BloomFilterFactory {
     // In case of compound Bloom filters we ignore the maxKeys hint.
     CompoundBloomFilterWriter bloomWriter = new CompoundBloomFilterWriter(getBloomBlockSize(conf),
         err, Hash.getHashType(conf), maxFold, cacheConf.shouldCacheBloomsOnWrite(),
-        bloomType == BloomType.ROWCOL ? CellComparatorImpl.COMPARATOR : null, bloomType);
+        bloomType == BloomType.ROWCOL ? CellComparatorImpl.COMPARATOR : null, bloomType,
+        getBloomFormat(conf));
     writer.addInlineBlockWriter(bloomWriter);
     return bloomWriter;
   }
@@ -225,7 +259,7 @@ public final class BloomFilterFactory {
     // In case of compound Bloom filters we ignore the maxKeys hint.
     CompoundBloomFilterWriter bloomWriter = new CompoundBloomFilterWriter(getBloomBlockSize(conf),
         err, Hash.getHashType(conf), maxFold, cacheConf.shouldCacheBloomsOnWrite(),
-        null, BloomType.ROW);
+        null, BloomType.ROW, getBloomFormat(conf));
     writer.addInlineBlockWriter(bloomWriter);
     return bloomWriter;
   }
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * The layout of the chunks of a compound Bloom filter, chosen per column family with
+ * {@link BloomFilterFactory#IO_STOREFILE_BLOOM_FORMAT}.
+ */
+@InterfaceAudience.Private
+public enum BloomFilterFormat {
+
+  /**
+   * The classic Bloom filter, whose hash functions probe bits anywhere in the chunk, see
+   * {@link BloomFilterChunk}.
+   */
+  CLASSIC(0),
+
+  /**
+   * A Bloom filter whose hash functions all probe bits of the same cache line, see
+   * {@link BlockedBloomFilterChunk}.
+   */
+  BLOCKED(1),
+
+  /**
+   * An xor filter, which probes three fingerprints and takes less space than a Bloom filter for
+   * the same error rate, see {@link XorFilterChunk}.
+   */
+  XOR(2);
+
+  private final int id;
+
+  BloomFilterFormat(int id) {
+    this.id = id;
+  }
+
+  /**
+   * @return the id of the format, as written in the Bloom filter metadata
+   */
+  public int getId() {
+    return id;
+  }
+
+  public static BloomFilterFormat fromId(int id) {
+    for (BloomFilterFormat format : values()) {
+      if (format.id == id) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown Bloom filter format " + id);
+  }
+}
@@ -171,6 +171,31 @@ public final class BloomFilterUtil {
     return (int) byteSizeLong;
   }
 
+  /**
+   * Computes the error rate of a {@link BlockedBloomFilterChunk}, averaging the error rate of its
+   * blocks over the Poisson distribution of the number of keys in a block.
+   *
+   * @param maxKeys
+   * @param bitSize
+   * @param functionCount
+   * @return the actual error rate
+   */
+  public static double blockedErrorRate(long maxKeys, long bitSize, int functionCount) {
+    double keysPerBlock = maxKeys * (double) BlockedBloomFilterChunk.BLOCK_BITS / bitSize;
+    if (keysPerBlock > BlockedBloomFilterChunk.BLOCK_BITS) {
+      return 1.0;
+    }
+    double probability = Math.exp(-keysPerBlock);
+    double errorRate = 0;
+    int maxKeysPerBlock = (int) (keysPerBlock + 10 * Math.sqrt(keysPerBlock) + 10);
+    for (int keys = 1; keys <= maxKeysPerBlock; keys++) {
+      probability *= keysPerBlock / keys;
+      errorRate +=
+          probability * actualErrorRate(keys, BlockedBloomFilterChunk.BLOCK_BITS, functionCount);
+    }
+    return errorRate;
+  }
+
   public static int optimalFunctionCount(int maxKeys, long bitSize) {
     long i = bitSize / maxKeys;
     double result = Math.ceil(Math.log(2) * i);
@@ -208,6 +233,70 @@ public final class BloomFilterUtil {
     return bbf;
   }
 
+  /**
+   * Creates a Bloom filter chunk of the given size and format.
+   *
+   * @param byteSizeHint the desired number of bytes for the chunk. Will be increased so that
+   *          folding is possible.
+   * @param errorRate target false positive rate of the Bloom filter
+   * @param hashType Bloom filter hash function type
+   * @param foldFactor
+   * @param bloomType
+   * @param format the format of the chunk
+   * @return the new Bloom filter of the desired size
+   */
+  public static BloomFilterChunk createBySize(int byteSizeHint, double errorRate, int hashType,
+      int foldFactor, BloomType bloomType, BloomFilterFormat format) {
+    switch (format) {
+      case BLOCKED:
+        return createBlockedBySize(byteSizeHint, errorRate, hashType, foldFactor, bloomType);
+      case XOR:
+        return XorFilterChunk.createBySize(byteSizeHint, errorRate, hashType, bloomType);
+      default:
+        return createBySize(byteSizeHint, errorRate, hashType, foldFactor, bloomType);
+    }
+  }
+
+  private static BloomFilterChunk createBlockedBySize(int byteSizeHint, double errorRate,
+      int hashType, int foldFactor, BloomType bloomType) {
+    BlockedBloomFilterChunk bbf = new BlockedBloomFilterChunk(hashType, bloomType);
+
+    // a fold must keep whole blocks
+    int blockFoldFactor =
+        foldFactor + Integer.numberOfTrailingZeros(BlockedBloomFilterChunk.BLOCK_BYTES);
+    bbf.byteSize = computeFoldableByteSize(byteSizeHint * 8L, blockFoldFactor);
+    long bitSize = bbf.byteSize * 8;
+
+    // There is no closed form for the error rate of a blocked Bloom filter, so pick the hash
+    // count which lets the most keys in.
+    bbf.hashCount = 1;
+    bbf.maxKeys = 0;
+    int idealHashCount = optimalFunctionCount((int) idealMaxKeys(bitSize, errorRate), bitSize);
+    for (int hashCount = 1; hashCount <= idealHashCount + 1; hashCount++) {
+      int maxKeys = computeBlockedMaxKeys(bitSize, errorRate, hashCount);
+      if (maxKeys > bbf.maxKeys) {
+        bbf.hashCount = hashCount;
+        bbf.maxKeys = maxKeys;
+      }
+    }
+    bbf.maxKeys = Math.max(1, bbf.maxKeys);
+    return bbf;
+  }
+
+  private static int computeBlockedMaxKeys(long bitSize, double errorRate, int hashCount) {
+    long low = 0;
+    long high = Math.min(bitSize, Integer.MAX_VALUE);
+    while (low < high) {
+      long mid = (low + high + 1) >>> 1;
+      if (blockedErrorRate(mid, bitSize, hashCount) <= errorRate) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return (int) low;
+  }
+
   public static boolean contains(byte[] buf, int offset, int length,
       ByteBuff bloomBuf, int bloomOffset, int bloomSize, Hash hash,
       int hashCount) {
@@ -215,6 +304,26 @@ public final class BloomFilterUtil {
     return contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
   }
 
+  public static boolean contains(byte[] buf, int offset, int length, ByteBuff bloomBuf,
+      int bloomOffset, int bloomSize, Hash hash, int hashCount, BloomFilterFormat format) {
+    HashKey<byte[]> hashKey = new ByteArrayHashKey(buf, offset, length);
+    return contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey, format);
+  }
+
+  private static <T> boolean contains(ByteBuff bloomBuf, int bloomOffset, int bloomSize,
+      Hash hash, int hashCount, HashKey<T> hashKey, BloomFilterFormat format) {
+    if (format == BloomFilterFormat.CLASSIC) {
+      return contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
+    }
+    int hash1 = hash.hash(hashKey, 0);
+    int hash2 = hash.hash(hashKey, hash1);
+    if (format == BloomFilterFormat.BLOCKED) {
+      return BlockedBloomFilterChunk.contains(hash1, hash2, bloomBuf, bloomOffset, bloomSize,
+        hashCount);
+    }
+    return XorFilterChunk.contains(hash1, hash2, bloomBuf, bloomOffset);
+  }
+
   private static <T> boolean contains(ByteBuff bloomBuf, int bloomOffset, int bloomSize, Hash hash,
       int hashCount, HashKey<T> hashKey) {
     int hash1 = hash.hash(hashKey, 0);
@@ -250,6 +359,13 @@ public final class BloomFilterUtil {
     return contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
   }
 
+  public static boolean contains(Cell cell, ByteBuff bloomBuf, int bloomOffset, int bloomSize,
+      Hash hash, int hashCount, BloomType type, BloomFilterFormat format) {
+    HashKey<Cell> hashKey = type == BloomType.ROWCOL ? new RowColBloomHashKey(cell)
+        : new RowBloomHashKey(cell);
+    return contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey, format);
+  }
+
   /**
    * Check if bit at specified index is 1.
    *
@@ -288,7 +404,8 @@ public final class BloomFilterUtil {
 
   public static String toString(BloomFilterChunk bloomFilter) {
     return formatStats(bloomFilter) + STATS_RECORD_SEP + "Actual error rate: "
-        + String.format("%.8f", bloomFilter.actualErrorRate());
+        + String.format("%.8f", bloomFilter.actualErrorRate()) + STATS_RECORD_SEP + "Format: "
+        + bloomFilter.getFormat();
   }
 
   public static byte[] getBloomFilterParam(BloomType bloomFilterType, Configuration conf)
@@ -19,6 +19,7 @@
 
 package org.apache.hadoop.hbase.util;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -122,5 +123,17 @@ public class LossyCounting {
   public long getCurrentTerm() {
     return currentTerm;
   }
+
+  /**
+   * @return the elements kept with their counts, which miss at most the current term of the
+   *         occurrences of an element
+   */
+  public Map<String, Integer> getCounts() {
+    return Collections.unmodifiableMap(data);
+  }
+
+  public long getTotalDataCount() {
+    return totalDataCount;
+  }
 }
 
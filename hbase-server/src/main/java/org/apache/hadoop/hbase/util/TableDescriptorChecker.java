@@ -18,6 +18,7 @@
 package org.apache.hadoop.hbase.util;
 
 import java.io.IOException;
+import java.util.Locale;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.CompoundConfiguration;
@@ -28,6 +29,7 @@ import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
 import org.apache.hadoop.hbase.client.TableDescriptor;
 import org.apache.hadoop.hbase.regionserver.DefaultStoreEngine;
 import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.MutableSegment;
 import org.apache.hadoop.hbase.regionserver.RegionCoprocessorHost;
 import org.apache.hadoop.hbase.regionserver.RegionSplitPolicy;
 import org.apache.hadoop.hbase.regionserver.compactions.ExploringCompactionPolicy;
@@ -180,6 +182,19 @@ public final class TableDescriptorChecker {
       checkReplicationScope(hcd);
       // check bloom filter type
       checkBloomFilterType(hcd);
+      // check mutable segment index type
+      try {
+        checkEnumValue(td, hcd, MutableSegment.INDEX_TYPE_KEY, MutableSegment.IndexType.class);
+      } catch (IOException e) {
+        warnOrThrowExceptionForFailure(logWarn, e.getMessage(), e);
+      }
+      // check bloom filter format
+      try {
+        checkEnumValue(td, hcd, BloomFilterFactory.IO_STOREFILE_BLOOM_FORMAT,
+          BloomFilterFormat.class);
+      } catch (IOException e) {
+        warnOrThrowExceptionForFailure(logWarn, e.getMessage(), e);
+      }
 
       // check data replication factor, it can be 0(default value) when user has not explicitly
       // set the value, in this case we use default replication factor set in the file system.
@@ -269,6 +284,27 @@ public final class TableDescriptorChecker {
     }
   }
 
+  /**
+   * Checks that the value of the given key, set on the column family or else on the table, names
+   * a constant of the given enum. Unset values are fine, the default applies.
+   */
+  private static <E extends Enum<E>> void checkEnumValue(TableDescriptor td,
+      ColumnFamilyDescriptor cfd, String key, Class<E> enumType) throws IOException {
+    String value = cfd.getConfigurationValue(key);
+    if (value == null) {
+      value = td.getValue(key);
+    }
+    if (value == null) {
+      return;
+    }
+    try {
+      Enum.valueOf(enumType, value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new DoNotRetryIOException("Unknown " + key + " '" + value + "' for column family " +
+          cfd.getNameAsString(), e);
+    }
+  }
+
   private static void checkCompression(final TableDescriptor td) throws IOException {
     for (ColumnFamilyDescriptor cfd : td.getColumnFamilies()) {
       CompressionTest.testCompression(cfd.getCompressionType());
@@ -0,0 +1,275 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * A chunk holding an xor filter, see "Xor Filters: Faster and Smaller Than Bloom and Cuckoo
+ * Filters" by Graf and Lemire. A key is in the filter if the xor of the three fingerprints it
+ * hashes to is its own fingerprint, so a check of a key takes at most three cache misses and,
+ * with 8 bit fingerprints, the filter takes about 9.9 bits per key for an error rate of 0.4%
+ * where a Bloom filter takes 11.5.
+ * <p/>
+ * The filter can only be built once all the keys are known, so the chunk keeps the hashes of its
+ * keys and builds the filter in {@link #compactBloom()}. The built chunk starts with the seed of
+ * the hash, the length of the three blocks of fingerprints and the size of a fingerprint.
+ */
+@InterfaceAudience.Private
+public class XorFilterChunk extends BloomFilterChunk {
+
+  static final int HEADER_SIZE = Bytes.SIZEOF_LONG + Bytes.SIZEOF_INT + Bytes.SIZEOF_BYTE;
+
+  private static final int MAX_BUILD_ATTEMPTS = 100;
+
+  /** Bytes per fingerprint, 1 or 2 */
+  private final int fingerprintBytes;
+
+  /** The hashes of the keys, until the filter is built */
+  private long[] keyHashes;
+
+  public XorFilterChunk(int hashType, BloomType bloomType, int fingerprintBytes) {
+    super(hashType, bloomType);
+    if (fingerprintBytes != 1 && fingerprintBytes != 2) {
+      throw new IllegalArgumentException("Invalid fingerprint size: " + fingerprintBytes);
+    }
+    this.fingerprintBytes = fingerprintBytes;
+    this.hashCount = 3;
+  }
+
+  /**
+   * Creates an xor filter chunk holding as many keys as fit in the given size.
+   */
+  public static XorFilterChunk createBySize(int byteSize, double errorRate, int hashType,
+      BloomType bloomType) {
+    // 8 bit fingerprints give an error rate of 1/256
+    int fingerprintBytes = errorRate >= 1.0 / 256 ? 1 : 2;
+    XorFilterChunk chunk = new XorFilterChunk(hashType, bloomType, fingerprintBytes);
+    chunk.byteSize = byteSize;
+    chunk.maxKeys =
+        (int) Math.max(1, ((byteSize - HEADER_SIZE) / fingerprintBytes - 32 - 3) / 1.23);
+    return chunk;
+  }
+
+  @Override
+  public BloomFilterChunk createAnother() {
+    XorFilterChunk chunk = new XorFilterChunk(hashType, this.bloomType, fingerprintBytes);
+    chunk.byteSize = byteSize;
+    chunk.maxKeys = maxKeys;
+    return chunk;
+  }
+
+  @Override
+  public void allocBloom() {
+    if (this.keyHashes != null || this.bloom != null) {
+      throw new IllegalArgumentException("can only create bloom once.");
+    }
+    this.keyHashes = new long[maxKeys];
+  }
+
+  @Override
+  protected void setHashLoc(int hash1, int hash2) {
+    if (keyHashes == null) {
+      throw new IllegalStateException("The filter is already built");
+    }
+    if (keyCount == keyHashes.length) {
+      keyHashes = Arrays.copyOf(keyHashes, keyHashes.length * 2);
+    }
+    keyHashes[keyCount++] = toLong(hash1, hash2);
+  }
+
+  /**
+   * Builds the filter out of the added keys. There is no more key to add after.
+   */
+  @Override
+  public void compactBloom() {
+    if (keyHashes == null) {
+      return;
+    }
+    long[] keys = Arrays.copyOf(keyHashes, keyCount);
+    keyHashes = null;
+    Arrays.sort(keys);
+    int size = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (i == 0 || keys[i] != keys[i - 1]) {
+        keys[size++] = keys[i];
+      }
+    }
+    int capacity = (32 + (int) Math.ceil(1.23 * size) + 2) / 3 * 3;
+    int blockLength = capacity / 3;
+    int[] fingerprints = null;
+    long seed = 0;
+    for (int attempt = 0; fingerprints == null; attempt++) {
+      if (attempt == MAX_BUILD_ATTEMPTS) {
+        throw new IllegalStateException("Failed to build an xor filter of " + size + " keys");
+      }
+      seed = mix(seed + 0x9E3779B97F4A7C15L);
+      fingerprints = build(keys, size, blockLength, seed);
+    }
+
+    byte[] table = new byte[HEADER_SIZE + capacity * fingerprintBytes];
+    int offset = Bytes.putLong(table, 0, seed);
+    offset = Bytes.putInt(table, offset, blockLength);
+    offset = Bytes.putByte(table, offset, (byte) fingerprintBytes);
+    for (int fingerprint : fingerprints) {
+      if (fingerprintBytes == 1) {
+        offset = Bytes.putByte(table, offset, (byte) fingerprint);
+      } else {
+        offset = Bytes.putShort(table, offset, (short) fingerprint);
+      }
+    }
+    this.bloom = ByteBuffer.wrap(table);
+    this.byteSize = table.length;
+  }
+
+  /**
+   * @return the fingerprints of the filter, or null if the keys did not peel with this seed
+   */
+  private int[] build(long[] keys, int size, int blockLength, long seed) {
+    int capacity = blockLength * 3;
+    int[] counts = new int[capacity];
+    long[] xorHashes = new long[capacity];
+    for (int i = 0; i < size; i++) {
+      long hash = mix(keys[i] + seed);
+      for (int j = 0; j < 3; j++) {
+        int slot = slot(hash, j, blockLength);
+        counts[slot]++;
+        xorHashes[slot] ^= hash;
+      }
+    }
+
+    // peel the slots holding a single key, until every key got its own slot
+    int[] queue = new int[capacity];
+    int queueSize = 0;
+    for (int slot = 0; slot < capacity; slot++) {
+      if (counts[slot] == 1) {
+        queue[queueSize++] = slot;
+      }
+    }
+    long[] stackHashes = new long[size];
+    int[] stackSlots = new int[size];
+    int stackSize = 0;
+    while (queueSize > 0) {
+      int slot = queue[--queueSize];
+      if (counts[slot] != 1) {
+        continue;
+      }
+      long hash = xorHashes[slot];
+      stackHashes[stackSize] = hash;
+      stackSlots[stackSize] = slot;
+      stackSize++;
+      for (int j = 0; j < 3; j++) {
+        int other = slot(hash, j, blockLength);
+        counts[other]--;
+        xorHashes[other] ^= hash;
+        if (counts[other] == 1) {
+          queue[queueSize++] = other;
+        }
+      }
+    }
+    if (stackSize != size) {
+      return null;
+    }
+
+    int[] fingerprints = new int[capacity];
+    int mask = fingerprintMask(fingerprintBytes);
+    while (stackSize > 0) {
+      stackSize--;
+      long hash = stackHashes[stackSize];
+      int slot = stackSlots[stackSize];
+      int fingerprint = fingerprint(hash, mask);
+      for (int j = 0; j < 3; j++) {
+        int other = slot(hash, j, blockLength);
+        if (other != slot) {
+          fingerprint ^= fingerprints[other];
+        }
+      }
+      fingerprints[slot] = fingerprint;
+    }
+    return fingerprints;
+  }
+
+  /**
+   * Checks a key given its two hashes.
+   */
+  public static boolean contains(int hash1, int hash2, ByteBuff bloomBuf, int bloomOffset) {
+    long seed = bloomBuf.getLong(bloomOffset);
+    int blockLength = bloomBuf.getInt(bloomOffset + Bytes.SIZEOF_LONG);
+    int fingerprintBytes = bloomBuf.get(bloomOffset + Bytes.SIZEOF_LONG + Bytes.SIZEOF_INT);
+    int fingerprintsOffset = bloomOffset + HEADER_SIZE;
+    long hash = mix(toLong(hash1, hash2) + seed);
+    int fingerprint = 0;
+    for (int j = 0; j < 3; j++) {
+      int slot = slot(hash, j, blockLength);
+      if (fingerprintBytes == 1) {
+        fingerprint ^= bloomBuf.get(fingerprintsOffset + slot) & 0xff;
+      } else {
+        fingerprint ^= bloomBuf.getShort(fingerprintsOffset + 2 * slot) & 0xffff;
+      }
+    }
+    return fingerprint == fingerprint(hash, fingerprintMask(fingerprintBytes));
+  }
+
+  private static long toLong(int hash1, int hash2) {
+    return ((long) hash1 << 32) | (hash2 & 0xffffffffL);
+  }
+
+  /**
+   * The finalizer of MurmurHash3, so that the three slots and the fingerprint of a key are
+   * independent.
+   */
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * @return the slot of the key in the given block of fingerprints
+   */
+  private static int slot(long hash, int block, int blockLength) {
+    long bits = Long.rotateLeft(hash, 21 * block) & 0xffffffffL;
+    return (int) ((bits * blockLength) >>> 32) + block * blockLength;
+  }
+
+  private static int fingerprint(long hash, int mask) {
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private static int fingerprintMask(int fingerprintBytes) {
+    return fingerprintBytes == 1 ? 0xff : 0xffff;
+  }
+
+  @Override
+  public double actualErrorRate() {
+    return 1.0 / (1 << (8 * fingerprintBytes));
+  }
+
+  @Override
+  public BloomFilterFormat getFormat() {
+    return BloomFilterFormat.XOR;
+  }
+}
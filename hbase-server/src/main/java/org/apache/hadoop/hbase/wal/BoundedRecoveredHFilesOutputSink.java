@@ -0,0 +1,315 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.TableInfoMissingException;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.StoreFileWriter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.FSTableDescriptors;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.apache.hadoop.hbase.util.MD5Hash;
+import org.apache.hadoop.hbase.util.Threads;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hbase.thirdparty.org.apache.commons.collections4.MapUtils;
+
+/**
+ * An {@link OutputSink} which writes the edits of each region straight into HFiles, one per
+ * column family, under the family's {@link WALSplitUtil#RECOVERED_HFILES_DIR} directory. When the
+ * region is opened the HFiles are moved into the store as they are, so there are no recovered
+ * edits to replay through the memstore and nothing to flush afterwards.
+ * <p>
+ * Bounded means the edits are buffered until the heap limit of the {@link EntryBuffers} is hit, so
+ * the number of HFiles written for a region stays small.
+ * <p>
+ * The HFiles are named after the WAL and the highest sequence id they hold, so that a retried
+ * split of the same WAL does not add to what an earlier attempt left: the first time a split
+ * writes to a recovered hfiles directory, it deletes the files named after its WAL there.
+ */
+@InterfaceAudience.Private
+public class BoundedRecoveredHFilesOutputSink extends OutputSink {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(BoundedRecoveredHFilesOutputSink.class);
+
+  private static final String TMP_FILE_SUFFIX = ".tmp";
+
+  private final WALSplitter walSplitter;
+  private final Configuration conf;
+  private final Path rootDir;
+  private final FileSystem rootFS;
+
+  // Table descriptors read from the filesystem, so the HFiles honour the family settings
+  private final Map<TableName, TableDescriptor> tableDescriptors = new ConcurrentHashMap<>();
+
+  // Map encodedRegionName -> number of edits written out for the region
+  private final ConcurrentHashMap<String, Long> regionEditsWritten = new ConcurrentHashMap<>();
+
+  private final List<Path> paths = Collections.synchronizedList(new ArrayList<>());
+
+  // Prefix of the names of the HFiles written from the WAL being split
+  private final String walPrefix;
+
+  // Recovered hfiles directories already cleared of the files of earlier attempts
+  private final Set<Path> clearedDirs = ConcurrentHashMap.newKeySet();
+
+  public BoundedRecoveredHFilesOutputSink(WALSplitter walSplitter,
+      WALSplitter.PipelineController controller, EntryBuffers entryBuffers, int numWriters)
+      throws IOException {
+    super(controller, entryBuffers, numWriters);
+    this.walSplitter = walSplitter;
+    this.conf = walSplitter.conf;
+    this.rootDir = FSUtils.getRootDir(conf);
+    this.rootFS = rootDir.getFileSystem(conf);
+    // Hex, like the names of all store files
+    this.walPrefix = MD5Hash.getMD5AsHex(
+      Bytes.toBytes(walSplitter.getFileBeingSplit().getPath().getName()));
+  }
+
+  @Override
+  public void append(WALSplitter.RegionEntryBuffer buffer) throws IOException {
+    Map<byte[], List<Cell>> familyCells = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    Map<byte[], Long> familySeqIds = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    Map<byte[], Long> maxSeqIdInStores = walSplitter.getRegionMaxSeqIdInStores()
+        .get(Bytes.toString(buffer.encodedRegionName));
+    TableDescriptor tableDescriptor = getTableDescriptor(buffer.tableName);
+    long editsCount = 0;
+    for (WAL.Entry entry : buffer.entryBuffer) {
+      long seqId = entry.getKey().getSequenceId();
+      boolean written = false;
+      for (Cell cell : entry.getEdit().getCells()) {
+        if (CellUtil.matchingFamily(cell, WALEdit.METAFAMILY)) {
+          continue;
+        }
+        byte[] family = CellUtil.cloneFamily(cell);
+        if (tableDescriptor != null && !tableDescriptor.hasColumnFamily(family)) {
+          // The family has been removed, region open would skip these edits too
+          continue;
+        }
+        if (!MapUtils.isEmpty(maxSeqIdInStores)) {
+          Long maxSeqId = maxSeqIdInStores.get(family);
+          if (maxSeqId != null && maxSeqId.longValue() >= seqId) {
+            continue;
+          }
+        }
+        PrivateCellUtil.setSequenceId(cell, seqId);
+        familyCells.computeIfAbsent(family, f -> new ArrayList<>()).add(cell);
+        familySeqIds.merge(family, seqId, Math::max);
+        written = true;
+      }
+      if (written) {
+        updateRegionMaximumEditLogSeqNum(entry);
+        editsCount++;
+      } else {
+        skippedEdits.incrementAndGet();
+      }
+    }
+    if (familyCells.isEmpty()) {
+      return;
+    }
+
+    String encodedRegionName = Bytes.toString(buffer.encodedRegionName);
+    Path regionDir = new Path(FSUtils.getTableDir(rootDir, buffer.tableName), encodedRegionName);
+    for (Map.Entry<byte[], List<Cell>> entry : familyCells.entrySet()) {
+      ColumnFamilyDescriptor family = tableDescriptor != null ?
+          tableDescriptor.getColumnFamily(entry.getKey()) :
+          ColumnFamilyDescriptorBuilder.of(entry.getKey());
+      paths.add(writeHFile(regionDir, family, entry.getValue(), familySeqIds.get(entry.getKey())));
+    }
+    regionEditsWritten.merge(encodedRegionName, editsCount, Long::sum);
+  }
+
+  private Path writeHFile(Path regionDir, ColumnFamilyDescriptor family, List<Cell> cells,
+      long maxSeqId) throws IOException {
+    cells.sort(CellComparatorImpl.COMPARATOR);
+    Path dir = WALSplitUtil.getRecoveredHFilesDir(regionDir, family.getNameAsString());
+    if (clearedDirs.add(dir)) {
+      deleteEarlierAttempts(dir);
+    }
+    String name = walPrefix + String.format("%016x", maxSeqId);
+    // Written under a name which is not a valid store file name, so a region opening while we
+    // are still writing never picks up a partial file
+    Path tmpPath = new Path(dir, name + TMP_FILE_SUFFIX);
+    HFileContext hFileContext = new HFileContextBuilder()
+        .withIncludesMvcc(true)
+        .withIncludesTags(true)
+        .withCompression(family.getCompressionType())
+        .withCompressTags(family.isCompressTags())
+        .withChecksumType(HStore.getChecksumType(conf))
+        .withBytesPerCheckSum(HStore.getBytesPerChecksum(conf))
+        .withBlockSize(family.getBlocksize())
+        .withHBaseCheckSum(true)
+        .withDataBlockEncoding(family.getDataBlockEncoding())
+        .withCreateTime(EnvironmentEdgeManager.currentTime())
+        .build();
+    StoreFileWriter writer = new StoreFileWriter.Builder(conf, CacheConfig.DISABLED, rootFS)
+        .withFilePath(tmpPath)
+        .withComparator(CellComparatorImpl.COMPARATOR)
+        .withBloomType(family.getBloomFilterType())
+        .withMaxKeyCount(cells.size())
+        .withFileContext(hFileContext)
+        .build();
+    try {
+      for (Cell cell : cells) {
+        writer.append(cell);
+      }
+      writer.appendMetadata(maxSeqId, false);
+    } finally {
+      writer.close();
+    }
+    Path dst = new Path(dir, name);
+    if (!rootFS.rename(tmpPath, dst)) {
+      throw new IOException("Failed rename of " + tmpPath + " to " + dst);
+    }
+    LOG.debug("Wrote {} cells to recovered hfile {}, maxSeqId={}", cells.size(), dst, maxSeqId);
+    return dst;
+  }
+
+  /**
+   * Deletes the files an earlier attempt to split the same WAL wrote to the given directory.
+   */
+  private void deleteEarlierAttempts(Path dir) throws IOException {
+    FileStatus[] files = FSUtils.listStatus(rootFS, dir, p -> p.getName().startsWith(walPrefix));
+    if (files == null) {
+      return;
+    }
+    for (FileStatus file : files) {
+      LOG.info("Deleting {} left by an earlier attempt to split the same WAL", file.getPath());
+      if (!rootFS.delete(file.getPath(), false) && rootFS.exists(file.getPath())) {
+        throw new IOException("Failed delete of " + file.getPath());
+      }
+    }
+  }
+
+  private TableDescriptor getTableDescriptor(TableName tableName) throws IOException {
+    TableDescriptor tableDescriptor = tableDescriptors.get(tableName);
+    if (tableDescriptor == null) {
+      try {
+        tableDescriptor = FSTableDescriptors.getTableDescriptorFromFs(rootFS, rootDir, tableName);
+      } catch (TableInfoMissingException e) {
+        LOG.warn("No table descriptor for {}, writing recovered hfiles with default family "
+            + "settings", tableName, e);
+        return null;
+      }
+      tableDescriptors.put(tableName, tableDescriptor);
+    }
+    return tableDescriptor;
+  }
+
+  @Override
+  public List<Path> finishWritingAndClose() throws IOException {
+    boolean isSuccessful = finishWriting(false);
+    isSuccessful = writeRemainingEntryBuffers() && isSuccessful;
+    if (isSuccessful) {
+      splits = new ArrayList<>(paths);
+    }
+    return splits;
+  }
+
+  /**
+   * Write out the entries the writer threads left in the buffers, in parallel.
+   * @return false if failed to report progress
+   */
+  private boolean writeRemainingEntryBuffers() throws IOException {
+    ThreadPoolExecutor pool = Threads.getBoundedCachedThreadPool(numThreads, 30L,
+      TimeUnit.SECONDS, new ThreadFactoryBuilder().setNameFormat("split-log-hfile-writer-%d")
+          .setDaemon(true).setUncaughtExceptionHandler(Threads.LOGGING_EXCEPTION_HANDLER).build());
+    CompletionService<Void> completionService = new ExecutorCompletionService<>(pool);
+    boolean progressFailed = false;
+    try {
+      for (WALSplitter.RegionEntryBuffer buffer : entryBuffers.buffers.values()) {
+        completionService.submit(() -> {
+          append(buffer);
+          return null;
+        });
+      }
+      for (int i = 0, n = entryBuffers.buffers.size(); i < n; i++) {
+        completionService.take().get();
+        if (!progressFailed && reporter != null && !reporter.progress()) {
+          progressFailed = true;
+        }
+      }
+    } catch (InterruptedException e) {
+      IOException iie = new InterruptedIOException();
+      iie.initCause(e);
+      throw iie;
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    return !progressFailed;
+  }
+
+  @Override
+  public Map<byte[], Long> getOutputCounts() {
+    Map<byte[], Long> counts = new HashMap<>();
+    for (Map.Entry<String, Long> entry : regionEditsWritten.entrySet()) {
+      counts.put(Bytes.toBytes(entry.getKey()), entry.getValue());
+    }
+    return counts;
+  }
+
+  @Override
+  public int getNumberOfRecoveredRegions() {
+    return regionEditsWritten.size();
+  }
+
+  /**
+   * Region events (compaction, flush, open/close markers) only make sense when replayed through
+   * the region, so they are not written to the HFiles.
+   */
+  @Override
+  public boolean keepRegionEvent(WAL.Entry entry) {
+    return false;
+  }
+}
@@ -0,0 +1,305 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.CompatibilitySingletonFactory;
+import org.apache.hadoop.hbase.regionserver.wal.MetricsWALSource;
+import org.apache.hadoop.hbase.regionserver.wal.WALActionsListener;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.wal.RegionGroupingProvider.RegionGroupingStrategy;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A WAL grouping strategy that limits the number of wal groups to
+ * "hbase.wal.regiongrouping.numgroups", like {@link BoundedGroupingStrategy}, but assigns regions
+ * by the load of the groups rather than round-robin.
+ * <p>
+ * It registers a listener on the WAL of every group and counts the bytes each region appends and
+ * the time each group spends syncing. A region being opened goes to the group with the least
+ * load. The load is summed up over windows of "hbase.wal.regiongrouping.loadaware.window" ms,
+ * with the older windows decaying by half each time, and a new window is started at the first WAL
+ * roll after the previous one ended. When the most loaded group is above the average by more than
+ * "hbase.wal.regiongrouping.loadaware.imbalance", regions of the most loaded groups are planned
+ * onto the least loaded ones. The region server flushes the planned regions right after the roll,
+ * see {@link #drainMovedRegions()}, and a region goes over to the WAL of its new group with that
+ * flush, once none of its edits are left unflushed in the old one. A region with replicated
+ * families only moves when it is next opened.
+ */
+@InterfaceAudience.Private
+public class LoadAwareGroupingStrategy implements RegionGroupingStrategy {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoadAwareGroupingStrategy.class);
+
+  static final String LOAD_WINDOW = "hbase.wal.regiongrouping.loadaware.window";
+  static final long DEFAULT_LOAD_WINDOW = 5 * 60 * 1000L;
+
+  static final String IMBALANCE_THRESHOLD = "hbase.wal.regiongrouping.loadaware.imbalance";
+  static final float DEFAULT_IMBALANCE_THRESHOLD = 0.2f;
+
+  private static final class RegionLoad {
+
+    final byte[] encodedName;
+
+    // index of the group the region gets when it is opened or next flushed
+    volatile int group;
+
+    final LongAdder windowBytes = new LongAdder();
+
+    // bytes of the previous windows, each one weighing half the one after it
+    long load;
+
+    RegionLoad(byte[] encodedName, int group) {
+      this.encodedName = encodedName;
+      this.group = group;
+    }
+  }
+
+  private static final class GroupLoad {
+
+    final LongAdder windowBytes = new LongAdder();
+
+    final LongAdder windowSyncNanos = new LongAdder();
+
+    long load;
+
+    int regionCount;
+  }
+
+  private final ConcurrentSkipListMap<byte[], RegionLoad> regions =
+      new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+
+  // planned onto another group and not yet handed to the region server, guarded by this
+  private final Set<byte[]> movedRegions = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+
+  private final MetricsWALSource metrics;
+
+  private String[] groupNames;
+
+  private GroupLoad[] groupLoads;
+
+  private long loadWindow;
+
+  private float imbalanceThreshold;
+
+  private volatile long windowStart;
+
+  public LoadAwareGroupingStrategy() {
+    this(CompatibilitySingletonFactory.getInstance(MetricsWALSource.class));
+  }
+
+  @VisibleForTesting
+  LoadAwareGroupingStrategy(MetricsWALSource metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void init(Configuration config, String providerId) {
+    int regionGroupNumber = config.getInt(BoundedGroupingStrategy.NUM_REGION_GROUPS,
+      BoundedGroupingStrategy.DEFAULT_NUM_REGION_GROUPS);
+    groupNames = new String[regionGroupNumber];
+    groupLoads = new GroupLoad[regionGroupNumber];
+    for (int i = 0; i < regionGroupNumber; i++) {
+      groupNames[i] = providerId + GROUP_NAME_DELIMITER + "regiongroup-" + i;
+      groupLoads[i] = new GroupLoad();
+    }
+    loadWindow = config.getLong(LOAD_WINDOW, DEFAULT_LOAD_WINDOW);
+    imbalanceThreshold = config.getFloat(IMBALANCE_THRESHOLD, DEFAULT_IMBALANCE_THRESHOLD);
+    windowStart = EnvironmentEdgeManager.currentTime();
+  }
+
+  @Override
+  public String group(byte[] identifier, byte[] namespace) {
+    RegionLoad region = regions.get(identifier);
+    if (region == null) {
+      synchronized (this) {
+        region = regions.computeIfAbsent(identifier, k -> {
+          int group = leastLoadedGroup();
+          groupLoads[group].regionCount++;
+          return new RegionLoad(k, group);
+        });
+      }
+    }
+    return groupNames[region.group];
+  }
+
+  // Call with the lock held. The load of the groups is only updated at the end of each window, in
+  // between the region count spreads the regions being opened.
+  private int leastLoadedGroup() {
+    int least = 0;
+    for (int i = 1; i < groupLoads.length; i++) {
+      GroupLoad group = groupLoads[i];
+      GroupLoad leastGroup = groupLoads[least];
+      if (group.load < leastGroup.load ||
+        (group.load == leastGroup.load && group.regionCount < leastGroup.regionCount)) {
+        least = i;
+      }
+    }
+    return least;
+  }
+
+  private int mostLoadedGroup() {
+    int most = 0;
+    for (int i = 1; i < groupLoads.length; i++) {
+      if (groupLoads[i].load > groupLoads[most].load) {
+        most = i;
+      }
+    }
+    return most;
+  }
+
+  @Override
+  public WALActionsListener getWALActionsListener(String group) {
+    int index = -1;
+    for (int i = 0; i < groupNames.length; i++) {
+      if (groupNames[i].equals(group)) {
+        index = i;
+        break;
+      }
+    }
+    if (index < 0) {
+      // the meta group, nothing to balance
+      return null;
+    }
+    final int groupIndex = index;
+    final GroupLoad groupLoad = groupLoads[groupIndex];
+    return new WALActionsListener() {
+
+      @Override
+      public void postAppend(long entryLen, long elapsedTimeMillis, WALKey logKey,
+          WALEdit logEdit) {
+        groupLoad.windowBytes.add(entryLen);
+        RegionLoad region = regions.get(logKey.getEncodedRegionName());
+        if (region == null) {
+          // dropped while idle, it is still writing to this group
+          synchronized (LoadAwareGroupingStrategy.this) {
+            region = regions.computeIfAbsent(logKey.getEncodedRegionName(), k -> {
+              groupLoad.regionCount++;
+              return new RegionLoad(k, groupIndex);
+            });
+          }
+        }
+        region.windowBytes.add(entryLen);
+      }
+
+      @Override
+      public void postSync(long timeInNanos, int handlerSyncs) {
+        groupLoad.windowSyncNanos.add(timeInNanos);
+      }
+
+      @Override
+      public void postLogRoll(Path oldPath, Path newPath) {
+        if (EnvironmentEdgeManager.currentTime() - windowStart >= loadWindow) {
+          rebalance();
+        }
+      }
+    };
+  }
+
+  /**
+   * Closes the current load window, and plans regions away from the groups with too much load.
+   */
+  @VisibleForTesting
+  synchronized void rebalance() {
+    windowStart = EnvironmentEdgeManager.currentTime();
+    long[] windowBytes = new long[groupLoads.length];
+    long[] syncNanos = new long[groupLoads.length];
+    for (int i = 0; i < groupLoads.length; i++) {
+      GroupLoad group = groupLoads[i];
+      group.load = 0;
+      group.regionCount = 0;
+      windowBytes[i] = group.windowBytes.sumThenReset();
+      syncNanos[i] = group.windowSyncNanos.sumThenReset();
+    }
+    for (Iterator<RegionLoad> it = regions.values().iterator(); it.hasNext();) {
+      RegionLoad region = it.next();
+      region.load = region.load / 2 + region.windowBytes.sumThenReset();
+      if (region.load == 0) {
+        // idle, or closed. It comes back through group() or postAppend() if it was not closed
+        it.remove();
+        continue;
+      }
+      GroupLoad group = groupLoads[region.group];
+      group.load += region.load;
+      group.regionCount++;
+    }
+    for (int i = 0; i < groupLoads.length; i++) {
+      metrics.updateGroupLoad(groupNames[i], groupLoads[i].regionCount, windowBytes[i],
+        syncNanos[i] / 1000000L);
+    }
+    int moves = 0;
+    for (;;) {
+      int most = mostLoadedGroup();
+      int least = leastLoadedGroup();
+      long total = 0;
+      for (GroupLoad group : groupLoads) {
+        total += group.load;
+      }
+      long average = total / groupLoads.length;
+      long gap = groupLoads[most].load - groupLoads[least].load;
+      if (groupLoads[most].load <= average * (1 + imbalanceThreshold)) {
+        break;
+      }
+      // the largest region whose move brings the two groups closer together
+      RegionLoad candidate = null;
+      for (RegionLoad region : regions.values()) {
+        if (region.group == most && region.load < gap &&
+          (candidate == null || region.load > candidate.load)) {
+          candidate = region;
+        }
+      }
+      if (candidate == null) {
+        break;
+      }
+      candidate.group = least;
+      movedRegions.add(candidate.encodedName);
+      groupLoads[most].load -= candidate.load;
+      groupLoads[most].regionCount--;
+      groupLoads[least].load += candidate.load;
+      groupLoads[least].regionCount++;
+      moves++;
+    }
+    if (moves > 0) {
+      LOG.info("Planned {} region(s) onto other WAL groups, they move when next flushed", moves);
+    }
+  }
+
+  @Override
+  public synchronized List<byte[]> drainMovedRegions() {
+    if (movedRegions.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<byte[]> moved = new ArrayList<>(movedRegions);
+    movedRegions.clear();
+    return moved;
+  }
+}
@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.apache.hadoop.hbase.util.Threads;
+import org.apache.hadoop.hbase.wal.WAL.Entry;
+import org.apache.hadoop.hbase.wal.WAL.Reader;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * A {@link Reader} which reads and decodes the entries of a WAL on a thread of its own, a bounded
+ * number of entries ahead of its caller, so that a caller doing work on each entry, like replaying
+ * recovered edits into a region, does not wait for the file system nor the parsing.
+ * <p>
+ * {@link #seek(long)} and {@link #reset()} drop what was read ahead, and reading ahead starts over
+ * from where they leave the delegate. An exception thrown by the delegate is thrown by
+ * {@link #next()} once the entries before it have been returned.
+ */
+@InterfaceAudience.Private
+public class ReadAheadWALReader implements Reader {
+
+  // entries are handed over in chunks, one per entry would cost as much as decoding a small one
+  private static final int CHUNK_SIZE = 64;
+
+  private static final class Chunk {
+
+    final List<Entry> entries = new ArrayList<>(CHUNK_SIZE);
+
+    // position of the delegate after each entry
+    final long[] positions = new long[CHUNK_SIZE];
+
+    // set on the last chunk, when there are no more entries
+    boolean end;
+
+    // what the delegate threw, IOException, RuntimeException or Error
+    Throwable error;
+  }
+
+  private final Reader delegate;
+
+  private final BlockingQueue<Chunk> chunks;
+
+  private final String name;
+
+  private Thread readerThread;
+
+  // tells the reading thread to stop after the chunk it is reading
+  private volatile boolean stopping;
+
+  private volatile boolean closed;
+
+  private Chunk current;
+
+  private int index;
+
+  private long position;
+
+  /**
+   * @param delegate the reader to read from, closed with this one
+   * @param readAhead the number of entries to read ahead at most
+   * @param name the name of the reading thread
+   */
+  public ReadAheadWALReader(Reader delegate, int readAhead, String name) throws IOException {
+    this.delegate = delegate;
+    this.chunks = new ArrayBlockingQueue<>(Math.max(1, readAhead / CHUNK_SIZE));
+    this.name = name;
+    startReading();
+  }
+
+  private void startReading() throws IOException {
+    position = delegate.getPosition();
+    current = null;
+    index = 0;
+    stopping = false;
+    readerThread = new Thread(this::readAhead, name);
+    Threads.setDaemonThreadRunning(readerThread);
+  }
+
+  /**
+   * Waits for the reading thread to let go of the delegate, which is not thread safe, and drops
+   * what it read ahead.
+   * @param interrupt whether to interrupt the thread, which may leave the delegate unusable
+   */
+  private void stopReading(boolean interrupt) {
+    stopping = true;
+    boolean interrupted = false;
+    while (readerThread.isAlive()) {
+      // makes room for the chunk the thread may be waiting to put
+      chunks.clear();
+      if (interrupt) {
+        readerThread.interrupt();
+      }
+      try {
+        readerThread.join(100);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    chunks.clear();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void readAhead() {
+    try {
+      for (;;) {
+        Chunk chunk = new Chunk();
+        try {
+          while (chunk.entries.size() < CHUNK_SIZE) {
+            Entry entry = delegate.next();
+            if (entry == null) {
+              chunk.end = true;
+              break;
+            }
+            chunk.positions[chunk.entries.size()] = delegate.getPosition();
+            chunk.entries.add(entry);
+          }
+        } catch (IOException | RuntimeException | Error e) {
+          chunk.error = e;
+        }
+        chunks.put(chunk);
+        if (chunk.end || chunk.error != null || stopping) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // closed
+    }
+  }
+
+  @Override
+  public Entry next() throws IOException {
+    if (closed) {
+      throw new IOException("Reader closed");
+    }
+    for (;;) {
+      if (current != null) {
+        if (index < current.entries.size()) {
+          position = current.positions[index];
+          return current.entries.get(index++);
+        }
+        if (current.error instanceof IOException) {
+          throw (IOException) current.error;
+        } else if (current.error instanceof RuntimeException) {
+          throw (RuntimeException) current.error;
+        } else if (current.error != null) {
+          throw (Error) current.error;
+        }
+        if (current.end) {
+          return null;
+        }
+      }
+      try {
+        current = chunks.take();
+      } catch (InterruptedException e) {
+        throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+      }
+      index = 0;
+    }
+  }
+
+  @Override
+  public Entry next(Entry reuse) throws IOException {
+    return next();
+  }
+
+  @Override
+  public void seek(long pos) throws IOException {
+    if (closed) {
+      throw new IOException("Reader closed");
+    }
+    stopReading(false);
+    delegate.seek(pos);
+    startReading();
+  }
+
+  /**
+   * @return the position after the last entry returned by {@link #next()}
+   */
+  @Override
+  public long getPosition() throws IOException {
+    return position;
+  }
+
+  @Override
+  public void reset() throws IOException {
+    if (closed) {
+      throw new IOException("Reader closed");
+    }
+    stopReading(false);
+    delegate.reset();
+    startReading();
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    stopReading(true);
+    delegate.close();
+  }
+}
@@ -23,6 +23,7 @@ import static org.apache.hadoop.hbase.wal.AbstractFSWALProvider.WAL_FILE_NAME_DE
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -53,6 +54,8 @@ import org.slf4j.LoggerFactory;
  *                                  "bounded".</li>
  *   <li><em>identity</em> : each region belongs to its own group.</li>
  *   <li><em>bounded</em> : bounded number of groups and region evenly assigned to each group.</li>
+ *   <li><em>loadaware</em> : bounded number of groups and regions assigned by the load of each
+ *                            group.</li>
  * </ul>
  * Optionally, a FQCN to a custom implementation may be given.
  */
@@ -71,6 +74,22 @@ public class RegionGroupingProvider implements WALProvider {
      */
     String group(final byte[] identifier, byte[] namespace);
     void init(Configuration config, String providerId);
+
+    /**
+     * @return a listener to register on the WAL of the given group, for strategies which look at
+     *         what gets written, or null
+     */
+    default WALActionsListener getWALActionsListener(String group) {
+      return null;
+    }
+
+    /**
+     * @return encoded names of the regions planned onto another group since the last call
+     * @see WALProvider#drainMovedRegions()
+     */
+    default List<byte[]> drainMovedRegions() {
+      return Collections.emptyList();
+    }
   }
 
   /**
@@ -80,6 +99,7 @@ public class RegionGroupingProvider implements WALProvider {
     defaultStrategy(BoundedGroupingStrategy.class),
     identity(IdentityGroupingStrategy.class),
     bounded(BoundedGroupingStrategy.class),
+    loadaware(LoadAwareGroupingStrategy.class),
     namespace(NamespaceGroupingStrategy.class);
 
     final Class<? extends RegionGroupingStrategy> clazz;
@@ -169,6 +189,10 @@ public class RegionGroupingProvider implements WALProvider {
     provider.init(factory, conf,
       META_WAL_PROVIDER_ID.equals(providerId) ? META_WAL_PROVIDER_ID : group);
     provider.addWALActionsListener(new MetricsWAL());
+    WALActionsListener strategyListener = strategy.getWALActionsListener(group);
+    if (strategyListener != null) {
+      provider.addWALActionsListener(strategyListener);
+    }
     return provider;
   }
 
@@ -215,6 +239,11 @@ public class RegionGroupingProvider implements WALProvider {
     return getWAL(group);
   }
 
+  @Override
+  public List<byte[]> drainMovedRegions() {
+    return strategy.drainMovedRegions();
+  }
+
   @Override
   public void shutdown() throws IOException {
     // save the last exception and rethrow
@@ -276,6 +276,11 @@ public class SyncReplicationWALProvider implements WALProvider, PeerActionListen
     }
   }
 
+  @Override
+  public List<byte[]> drainMovedRegions() {
+    return provider.drainMovedRegions();
+  }
+
   @Override
   public void addWALActionsListener(WALActionsListener listener) {
     listeners.add(listener);
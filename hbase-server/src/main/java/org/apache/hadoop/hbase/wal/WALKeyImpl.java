@@ -335,6 +335,18 @@ public class WALKeyImpl implements WALKey {
         mvcc, replicationScope, extendedAttributes);
   }
 
+  /**
+   * Copies the given key. The copy has its own cluster ids, scopes and extended attributes, so
+   * changing them on one key leaves the other alone.
+   */
+  public WALKeyImpl(WALKeyImpl key) {
+    init(key.encodedRegionName, key.tablename, key.sequenceId, key.writeTime,
+        new ArrayList<>(key.clusterIds), key.nonceGroup, key.nonce, key.mvcc,
+        key.replicationScope == null ? null : new TreeMap<>(key.replicationScope),
+        key.extendedAttributes == null ? null : new HashMap<>(key.extendedAttributes));
+    this.origLogSeqNum = key.origLogSeqNum;
+  }
+
   @InterfaceAudience.Private
   protected void init(final byte[] encodedRegionName,
                       final TableName tablename,
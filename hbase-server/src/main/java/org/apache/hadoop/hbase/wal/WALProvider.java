@@ -20,6 +20,7 @@ package org.apache.hadoop.hbase.wal;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.OptionalLong;
 import java.util.concurrent.CompletableFuture;
@@ -109,6 +110,15 @@ public interface WALProvider {
    */
   void addWALActionsListener(WALActionsListener listener);
 
+  /**
+   * @return encoded names of the regions that {@link #getWAL(RegionInfo)} maps to another WAL than
+   *         the one they are writing to, planned since the last call. A region goes over to the
+   *         new WAL when it is next flushed.
+   */
+  default List<byte[]> drainMovedRegions() {
+    return Collections.emptyList();
+  }
+
   default WALFileLengthProvider getWALFileLengthProvider() {
     return path -> getWALs().stream().map(w -> w.getLogFileSizeIfBeingWritten(path))
         .filter(o -> o.isPresent()).findAny().orElse(OptionalLong.empty());
@@ -46,6 +46,7 @@ import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.StoreFileInfo;
 import org.apache.hadoop.hbase.regionserver.wal.AbstractFSWAL;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.ConcurrentMapUtils.IOExceptionSupplier;
@@ -71,6 +72,8 @@ public final class WALSplitUtil {
 
   private static final Pattern EDITFILES_NAME_PATTERN = Pattern.compile("-?[0-9]+");
   private static final String RECOVERED_LOG_TMPFILE_SUFFIX = ".temp";
+  /** Name of the directory under a family dir that holds HFiles written by WAL splitting */
+  public static final String RECOVERED_HFILES_DIR = "recovered.hfiles";
   private static final String SEQUENCE_ID_FILE_SUFFIX = ".seqid";
   private static final String OLD_SEQUENCE_ID_FILE_SUFFIX = "_seqid";
   private static final int SEQUENCE_ID_FILE_SUFFIX_LENGTH = SEQUENCE_ID_FILE_SUFFIX.length();
@@ -233,6 +236,62 @@ public final class WALSplitUtil {
     return new Path(regionDir, HConstants.RECOVERED_EDITS_DIR);
   }
 
+  /**
+   * @param regionDir This regions directory in the filesystem.
+   * @param familyName The column family name.
+   * @return The directory that holds the HFiles written for the family by WAL splitting, e.g.
+   *         /hbase/data/default/some_table/2323432434/some_family/recovered.hfiles
+   */
+  public static Path getRecoveredHFilesDir(final Path regionDir, String familyName) {
+    return new Path(new Path(regionDir, familyName), RECOVERED_HFILES_DIR);
+  }
+
+  /**
+   * Returns the completed HFiles written by WAL splitting for the family. Files which are still
+   * being written, whose names are not valid store file names, are skipped.
+   * @param rootFS the FileSystem of the hbase root dir
+   * @param regionDir This regions directory in the filesystem.
+   * @param familyName The column family name.
+   */
+  public static List<Path> getRecoveredHFiles(final FileSystem rootFS, final Path regionDir,
+      String familyName) throws IOException {
+    List<Path> hfiles = new ArrayList<>();
+    FileStatus[] files =
+        FSUtils.listStatus(rootFS, getRecoveredHFilesDir(regionDir, familyName));
+    if (files != null) {
+      for (FileStatus file : files) {
+        if (file.isFile() && StoreFileInfo.isHFile(file.getPath())) {
+          hfiles.add(file.getPath());
+        }
+      }
+    }
+    return hfiles;
+  }
+
+  /**
+   * Check whether there are HFiles written by WAL splitting in the region dir
+   * @param conf conf
+   * @param regionInfo the region to check
+   * @return true if recovered.hfiles exist in any family dir of the region
+   */
+  public static boolean hasRecoveredHFiles(final Configuration conf, final RegionInfo regionInfo)
+      throws IOException {
+    if (regionInfo.getReplicaId() != RegionInfo.DEFAULT_REPLICA_ID) {
+      return false;
+    }
+    Path regionDir = FSUtils.getRegionDirFromRootDir(FSUtils.getRootDir(conf), regionInfo);
+    FileSystem rootFs = FSUtils.getRootDirFileSystem(conf);
+    if (!rootFs.exists(regionDir)) {
+      return false;
+    }
+    for (Path familyDir : FSUtils.getFamilyDirs(rootFs, regionDir)) {
+      if (!getRecoveredHFiles(rootFs, regionDir, familyDir.getName()).isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Check whether there is recovered.edits in the region dir
    * @param conf conf
@@ -87,6 +87,8 @@ public class WALSplitter {
   // These are separated into inner classes to make testing easier.
   OutputSink outputSink;
   private EntryBuffers entryBuffers;
+  private final PipelineController controller;
+  private final int numWriterThreads;
 
   private SplitLogWorkerCoordination splitLogWorkerCoordination;
   private final WALFactory walFactory;
@@ -110,6 +112,11 @@ public class WALSplitter {
 
   public final static String SPLIT_WRITER_CREATION_BOUNDED = "hbase.split.writer.creation.bounded";
 
+  // if we write the edits of user regions straight into HFiles instead of recovered edits
+  private final boolean splitToHFile;
+
+  public final static String WAL_SPLIT_TO_HFILE = "hbase.wal.split.to.hfile";
+  public final static boolean DEFAULT_WAL_SPLIT_TO_HFILE = false;
 
   @VisibleForTesting
   WALSplitter(final WALFactory factory, Configuration conf, Path walDir, FileSystem walFS,
@@ -124,15 +131,17 @@ public class WALSplitter {
     this.splitLogWorkerCoordination = splitLogWorkerCoordination;
 
     this.walFactory = factory;
-    PipelineController controller = new PipelineController();
+    this.controller = new PipelineController();
 
+    this.splitToHFile = conf.getBoolean(WAL_SPLIT_TO_HFILE, DEFAULT_WAL_SPLIT_TO_HFILE);
     this.splitWriterCreationBounded = conf.getBoolean(SPLIT_WRITER_CREATION_BOUNDED, false);
 
     entryBuffers = new EntryBuffers(controller,
         this.conf.getLong("hbase.regionserver.hlog.splitlog.buffersize", 128 * 1024 * 1024),
         splitWriterCreationBounded);
 
-    int numWriterThreads = this.conf.getInt("hbase.regionserver.hlog.splitlog.writer.threads", 3);
+    this.numWriterThreads =
+        this.conf.getInt("hbase.regionserver.hlog.splitlog.writer.threads", 3);
     if (splitWriterCreationBounded) {
       outputSink =
           new BoundedLogWriterCreationOutputSink(this, controller, entryBuffers, numWriterThreads);
@@ -236,6 +245,16 @@ public class WALSplitter {
       }
       int numOpenedFilesBeforeReporting = conf.getInt("hbase.splitlog.report.openedfiles", 3);
       int numOpenedFilesLastCheck = 0;
+      // The meta region keeps going through recovered edits, it has to be readable before
+      // anything else comes online
+      if (splitToHFile && !AbstractFSWALProvider.isMetaFile(logPath)) {
+        // The HFile sink only writes the buffers out when they are full, as the bounded one does
+        entryBuffers = new EntryBuffers(controller,
+            this.conf.getLong("hbase.regionserver.hlog.splitlog.buffersize", 128 * 1024 * 1024),
+            true);
+        outputSink = new BoundedRecoveredHFilesOutputSink(this, controller, entryBuffers,
+            numWriterThreads);
+      }
       outputSink.setReporter(reporter);
       outputSink.startWriterThreads();
       outputSinkStarted = true;
@@ -38,6 +38,7 @@ import org.apache.hadoop.hbase.client.locking.EntityLock;
 import org.apache.hadoop.hbase.executor.ExecutorService;
 import org.apache.hadoop.hbase.fs.HFileSystem;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockReadAhead;
 import org.apache.hadoop.hbase.ipc.RpcServerInterface;
 import org.apache.hadoop.hbase.mob.MobFileCache;
 import org.apache.hadoop.hbase.quotas.RegionServerRpcQuotaManager;
@@ -359,6 +360,11 @@ public class MockRegionServerServices implements RegionServerServices {
     return Optional.empty();
   }
 
+  @Override
+  public Optional<BlockReadAhead.Pool> getBlockReadAheadPool() {
+    return Optional.empty();
+  }
+
   @Override
   public Optional<MobFileCache> getMobFileCache() {
     return Optional.empty();
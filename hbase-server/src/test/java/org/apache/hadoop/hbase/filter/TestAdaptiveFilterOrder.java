@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.client.metrics.ServerSideScanMetrics;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.filter.FilterList.Operator;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.testclassification.FilterTests;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({FilterTests.class, MediumTests.class})
+public class TestAdaptiveFilterOrder {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestAdaptiveFilterOrder.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final int NUM_ROWS = 300;
+  private static final int NUM_QUALIFIERS = 10;
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%04d", i));
+  }
+
+  private static byte[] qualifier(int i) {
+    return Bytes.toBytes("q" + i);
+  }
+
+  private static Filter matchAllValues() {
+    return new ValueFilter(CompareOperator.EQUAL, new RegexStringComparator("v.*"));
+  }
+
+  private static Filter oneQualifier(int i) {
+    return new QualifierFilter(CompareOperator.EQUAL, new BinaryComparator(qualifier(i)));
+  }
+
+  /**
+   * An expensive filter passing everything and a more selective one, a filter counting the cells
+   * it sees, then another such pair.
+   */
+  private static FilterList createFilterList() {
+    return new FilterList(Operator.MUST_PASS_ALL, matchAllValues(),
+        new ColumnRangeFilter(qualifier(0), true, qualifier(5), false), new ColumnCountGetFilter(2),
+        matchAllValues(), oneQualifier(1));
+  }
+
+  @Test
+  public void testReorderKeepsResults() throws IOException {
+    FilterList adaptive = createFilterList();
+    AdaptiveFilterOrder order = adaptive.enableAdaptiveOrder();
+    FilterList fixed = createFilterList();
+    assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, order.getOrder());
+
+    int included = 0;
+    for (int r = 0; r < NUM_ROWS; r++) {
+      adaptive.reset();
+      fixed.reset();
+      KeyValue first = new KeyValue(row(r), FAMILY, qualifier(0), 1, Bytes.toBytes("v"));
+      assertEquals(fixed.filterRowKey(first), adaptive.filterRowKey(first));
+      for (int q = 0; q < NUM_QUALIFIERS; q++) {
+        Cell cell = new KeyValue(row(r), FAMILY, qualifier(q), 1, Bytes.toBytes("v" + q));
+        boolean expected = isInclude(fixed.filterCell(cell));
+        assertEquals(expected, isInclude(adaptive.filterCell(cell)));
+        if (expected) {
+          included++;
+        }
+      }
+      assertEquals(fixed.filterRow(), adaptive.filterRow());
+    }
+    assertEquals(NUM_ROWS, included);
+    // The selective filters moved ahead, the counting one stayed in between and saw the same
+    // cells, so that only the second column of each row was included.
+    assertArrayEquals(new int[] { 1, 0, 2, 4, 3 }, order.getOrder());
+
+    ServerSideScanMetrics metrics = new ServerSideScanMetrics();
+    order.addToMetrics(metrics);
+    Map<String, Long> map = metrics.getMetricsMap();
+    long sampled = NUM_ROWS * NUM_QUALIFIERS / AdaptiveFilterOrder.SAMPLE_INTERVAL;
+    assertEquals(sampled, map.get("FILTER_4_QualifierFilter_SAMPLED_CELLS").longValue());
+    assertTrue(map.get("FILTER_4_QualifierFilter_PASSED_CELLS") < sampled);
+    assertEquals(sampled, map.get("FILTER_0_ValueFilter_PASSED_CELLS").longValue());
+    assertTrue(map.get("FILTER_0_ValueFilter_SAMPLED_NANOS") > 0);
+    assertTrue(!map.containsKey("FILTER_2_ColumnCountGetFilter_SAMPLED_CELLS"));
+  }
+
+  private static boolean isInclude(ReturnCode rc) {
+    return rc == ReturnCode.INCLUDE || rc == ReturnCode.INCLUDE_AND_NEXT_COL
+        || rc == ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW;
+  }
+
+  @Test
+  public void testRegionScanMetrics() throws IOException {
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TableName.valueOf("testAdaptiveOrder"))
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY))
+        .setValue(HRegion.ADAPTIVE_FILTER_ORDER_KEY, "true").build();
+    RegionInfo info = RegionInfoBuilder.newBuilder(td.getTableName()).build();
+    HRegion region = HBaseTestingUtility.createRegionAndWAL(info, TEST_UTIL.getDataTestDir(),
+      TEST_UTIL.getConfiguration(), td);
+    try {
+      for (int r = 0; r < NUM_ROWS; r++) {
+        Put put = new Put(row(r));
+        for (int q = 0; q < NUM_QUALIFIERS; q++) {
+          put.addColumn(FAMILY, qualifier(q), Bytes.toBytes("v" + q));
+        }
+        region.put(put);
+      }
+      Scan scan = new Scan().setFilter(
+        new FilterList(Operator.MUST_PASS_ALL, matchAllValues(), oneQualifier(3)));
+      ScannerContext context = ScannerContext.newBuilder().setTrackMetrics(true).build();
+      List<Cell> results = new ArrayList<>();
+      int rows = 0;
+      try (RegionScanner scanner = region.getScanner(scan)) {
+        boolean more;
+        do {
+          results.clear();
+          more = scanner.nextRaw(results, context);
+          if (!results.isEmpty()) {
+            assertEquals(1, results.size());
+            assertTrue(Arrays.equals(qualifier(3), CellUtil.cloneQualifier(results.get(0))));
+            rows++;
+          }
+        } while (more);
+      }
+      assertEquals(NUM_ROWS, rows);
+      Map<String, Long> metrics = context.getMetrics().getMetricsMap();
+      assertTrue(metrics.get("FILTER_0_ValueFilter_SAMPLED_CELLS") > 0);
+      assertTrue(metrics.get("FILTER_1_QualifierFilter_SAMPLED_CELLS") > 0);
+    } finally {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Threads;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({IOTests.class, MediumTests.class})
+public class TestBlockReadAhead {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestBlockReadAhead.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int MAX_BLOCKS = 4;
+  private static final int ROWS = 5000;
+
+  private static Configuration conf;
+  private static FileSystem fs;
+  private static Path path;
+  private static ThreadPoolExecutor executor;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    conf = TEST_UTIL.getConfiguration();
+    executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        Threads.newDaemonThreadFactory("TestBlockReadAhead"));
+    // Small index chunks so that leaf index blocks come between the data blocks
+    conf.setInt(HFileBlockIndex.MAX_CHUNK_SIZE_KEY, 256);
+    fs = TEST_UTIL.getTestFileSystem();
+    path = new Path(TEST_UTIL.getDataTestDir(), "TestBlockReadAhead");
+    HFileContext context = new HFileContextBuilder().withBlockSize(1024).build();
+    try (HFile.Writer writer = HFile.getWriterFactory(conf, new CacheConfig(conf))
+        .withPath(fs, path).withFileContext(context).create()) {
+      for (int i = 0; i < ROWS; i++) {
+        writer.append(new KeyValue(row(i), FAMILY, QUALIFIER, Bytes.toBytes(i)));
+      }
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static CacheConfig cacheConf(BlockReadAhead.Pool pool) {
+    return new CacheConfig(conf, null, null, ByteBuffAllocator.HEAP, pool);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row%05d", i));
+  }
+
+  private static void assertRow(int i, HFileScanner scanner) {
+    assertTrue(Bytes.equals(row(i), 0, row(i).length, scanner.getCell().getRowArray(),
+      scanner.getCell().getRowOffset(), scanner.getCell().getRowLength()));
+  }
+
+  @Test
+  public void testSequentialScan() throws Exception {
+    BlockReadAhead.Pool pool = new BlockReadAhead.Pool(executor, MAX_BLOCKS, Long.MAX_VALUE);
+    try (HFile.Reader reader = HFile.createReader(fs, path, cacheConf(pool), true, conf)) {
+      HFileReaderImpl.HFileScannerImpl scanner =
+          (HFileReaderImpl.HFileScannerImpl) reader.getScanner(false, true);
+      assertTrue(scanner.seekTo());
+      int count = 0;
+      do {
+        assertRow(count++, scanner);
+      } while (scanner.next());
+      assertEquals(ROWS, count);
+      BlockReadAhead readAhead = scanner.getReadAhead();
+      assertTrue(readAhead.getTakenCount() > 0);
+      assertTrue(readAhead.getWindow() >= 1 && readAhead.getWindow() <= MAX_BLOCKS);
+      scanner.close();
+      // Whatever was still read ahead is given back
+      TEST_UTIL.waitFor(10000, () -> pool.getReservedBytes() == 0);
+
+      // Compactions do not read ahead
+      scanner = (HFileReaderImpl.HFileScannerImpl) reader.getScanner(false, true, true);
+      assertNull(scanner.getReadAhead());
+      scanner.close();
+    }
+  }
+
+  @Test
+  public void testMemoryCap() throws Exception {
+    try (HFile.Reader reader = HFile.createReader(fs, path, cacheConf(null), true, conf)) {
+      HFileReaderImpl.HFileScannerImpl scanner =
+          (HFileReaderImpl.HFileScannerImpl) reader.getScanner(false, true);
+      assertNull(scanner.getReadAhead());
+      assertTrue(scanner.seekTo());
+      long blockSize = scanner.curBlock.heapSize();
+      scanner.close();
+      // Room for a single block read ahead, whatever the window of the scanner
+      long maxBytes = blockSize * 3 / 2;
+      BlockReadAhead.Pool pool = new BlockReadAhead.Pool(executor, MAX_BLOCKS, maxBytes);
+      try (HFile.Reader capped = HFile.createReader(fs, path, cacheConf(pool), true, conf)) {
+        scanner = (HFileReaderImpl.HFileScannerImpl) capped.getScanner(false, true);
+        assertTrue(scanner.seekTo());
+        int count = 0;
+        do {
+          assertRow(count++, scanner);
+          assertTrue(pool.getReservedBytes() <= maxBytes);
+        } while (scanner.next());
+        assertEquals(ROWS, count);
+        assertTrue(scanner.getReadAhead().getTakenCount() > 0);
+        scanner.close();
+      }
+      TEST_UTIL.waitFor(10000, () -> pool.getReservedBytes() == 0);
+    }
+  }
+
+  @Test
+  public void testRepositionedScan() throws IOException {
+    BlockReadAhead.Pool pool = new BlockReadAhead.Pool(executor, MAX_BLOCKS, Long.MAX_VALUE);
+    try (HFile.Reader reader = HFile.createReader(fs, path, cacheConf(pool), true, conf)) {
+      HFileScanner scanner = reader.getScanner(true, false);
+      assertTrue(scanner.seekTo());
+      for (int i = 0; i < 1000; i++) {
+        assertRow(i, scanner);
+        assertTrue(scanner.next());
+      }
+      // Going back drops what was read ahead
+      assertEquals(0,
+        scanner.seekTo(new KeyValue(row(200), FAMILY, QUALIFIER, Bytes.toBytes(200))));
+      for (int i = 200; i < 1500; i++) {
+        assertRow(i, scanner);
+        assertTrue(scanner.next());
+      }
+      // Going forward past the blocks read ahead as well
+      assertEquals(0,
+        scanner.reseekTo(new KeyValue(row(3000), FAMILY, QUALIFIER, Bytes.toBytes(3000))));
+      for (int i = 3000; i < ROWS; i++) {
+        assertRow(i, scanner);
+        assertEquals(i < ROWS - 1, scanner.next());
+      }
+      scanner.close();
+    }
+  }
+}
@@ -0,0 +1,370 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.io.util.MemorySizeUtil;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the lock-striped ClockBlockCache.
+ */
+@Category({IOTests.class, SmallTests.class})
+public class TestClockBlockCache {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestClockBlockCache.class);
+
+  private static final long BLOCK_SIZE = 1024;
+
+  private static ClockBlockCache newCache(long maxSize, int segments) {
+    return new ClockBlockCache(maxSize, BLOCK_SIZE, segments,
+        ClockBlockCache.DEFAULT_CLOCK_MIN_FACTOR, 16 * BLOCK_SIZE);
+  }
+
+  private static long entrySize(CachedItem item) {
+    return ClassSize.align(item.cacheKey.heapSize()) + item.heapSize()
+        + ClockBlockCache.ClockEntry.PER_BLOCK_OVERHEAD;
+  }
+
+  @Test
+  public void testCacheSimple() {
+    ClockBlockCache cache = newCache(1000 * BLOCK_SIZE, 4);
+    try {
+      CachedItem[] blocks = generateBlocks(100, "block");
+      long expectedCacheSize = 0;
+      for (CachedItem block : blocks) {
+        assertNull(cache.getBlock(block.cacheKey, true, false, true));
+        cache.cacheBlock(block.cacheKey, block);
+        expectedCacheSize += entrySize(block);
+      }
+      assertEquals(expectedCacheSize, cache.heapSize());
+      assertEquals(blocks.length, cache.getBlockCount());
+      assertEquals(blocks.length, cache.getDataBlockCount());
+      for (CachedItem block : blocks) {
+        assertSame(block, cache.getBlock(block.cacheKey, true, false, true));
+      }
+      // Re-caching the same blocks does not change anything
+      for (CachedItem block : blocks) {
+        cache.cacheBlock(block.cacheKey, block);
+      }
+      assertEquals(blocks.length, cache.getBlockCount());
+      assertEquals(expectedCacheSize, cache.heapSize());
+      assertEquals(0, cache.getStats().getEvictionCount());
+
+      assertTrue(cache.evictBlock(blocks[0].cacheKey));
+      assertFalse(cache.evictBlock(blocks[0].cacheKey));
+      assertFalse(cache.containsBlock(blocks[0].cacheKey));
+      assertEquals(expectedCacheSize - entrySize(blocks[0]), cache.heapSize());
+      assertEquals(blocks.length - 1, cache.getBlockCount());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testEvictionKeepsCacheUnderMaxSize() {
+    long maxSize = 200 * BLOCK_SIZE;
+    ClockBlockCache cache = newCache(maxSize, 1);
+    try {
+      CachedItem[] blocks = generateBlocks(1000, "block");
+      for (CachedItem block : blocks) {
+        cache.cacheBlock(block.cacheKey, block);
+        assertTrue(cache.heapSize() <= maxSize);
+      }
+      assertTrue(cache.getStats().getEvictionCount() > 0);
+      assertEquals(blocks.length - cache.getBlockCount(), cache.getStats().getEvictedCount());
+      // The most recently cached block survives the sweep that made room for it
+      assertTrue(cache.containsBlock(blocks[blocks.length - 1].cacheKey));
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testFrequentlyReadBlocksSurviveScan() {
+    long maxSize = 100 * BLOCK_SIZE;
+    ClockBlockCache cache = newCache(maxSize, 1);
+    try {
+      CachedItem[] hot = generateBlocks(20, "hot");
+      for (CachedItem block : hot) {
+        cache.cacheBlock(block.cacheKey, block);
+        cache.getBlock(block.cacheKey, true, false, true);
+      }
+      // A scan over many blocks which are each read once
+      for (CachedItem block : generateBlocks(500, "scan")) {
+        cache.cacheBlock(block.cacheKey, block);
+        for (CachedItem hotBlock : hot) {
+          assertNotNull(cache.getBlock(hotBlock.cacheKey, true, false, true));
+        }
+      }
+      for (CachedItem block : hot) {
+        assertTrue(cache.containsBlock(block.cacheKey));
+      }
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testInMemoryBlocksStartWithMaxFrequency() {
+    ClockBlockCache cache = newCache(100 * BLOCK_SIZE, 1);
+    try {
+      CachedItem single = new CachedItem("single", (int) BLOCK_SIZE);
+      CachedItem memory = new CachedItem("memory", (int) BLOCK_SIZE);
+      cache.cacheBlock(single.cacheKey, single, false);
+      cache.cacheBlock(memory.cacheKey, memory, true);
+      assertEquals(0, cache.getEntryForTests(single.cacheKey).getFrequency());
+      assertEquals(BlockPriority.SINGLE,
+          cache.getEntryForTests(single.cacheKey).getBlockPriority());
+      assertEquals(ClockBlockCache.MAX_FREQUENCY,
+          cache.getEntryForTests(memory.cacheKey).getFrequency());
+      assertEquals(BlockPriority.MEMORY,
+          cache.getEntryForTests(memory.cacheKey).getBlockPriority());
+      for (int i = 0; i < ClockBlockCache.MAX_FREQUENCY + 2; i++) {
+        cache.getBlock(single.cacheKey, true, false, true);
+      }
+      assertEquals(ClockBlockCache.MAX_FREQUENCY,
+          cache.getEntryForTests(single.cacheKey).getFrequency());
+      assertEquals(BlockPriority.MULTI,
+          cache.getEntryForTests(single.cacheKey).getBlockPriority());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testSetMaxSize() {
+    long maxSize = 200 * BLOCK_SIZE;
+    ClockBlockCache cache = newCache(maxSize, 2);
+    try {
+      for (CachedItem block : generateBlocks(150, "block")) {
+        cache.cacheBlock(block.cacheKey, block);
+      }
+      cache.setMaxSize(maxSize / 2);
+      assertEquals(maxSize / 2, cache.getMaxSize());
+      assertTrue(cache.heapSize() <= maxSize / 2);
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testTooLargeBlocksAreRejected() {
+    ClockBlockCache cache = newCache(100 * BLOCK_SIZE, 1);
+    try {
+      CachedItem tooLong = new CachedItem("tooLong", (int) (32 * BLOCK_SIZE));
+      cache.cacheBlock(tooLong.cacheKey, tooLong);
+      assertFalse(cache.containsBlock(tooLong.cacheKey));
+      assertEquals(1, cache.getStats().getFailedInserts());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testSegmentsShrinkForSmallCaches() {
+    ClockBlockCache small = newCache(16 * BLOCK_SIZE, 16);
+    ClockBlockCache large = newCache(16 * 16 * 16 * BLOCK_SIZE, 10);
+    try {
+      assertEquals(1, small.getSegmentCount());
+      assertEquals(16, large.getSegmentCount());
+    } finally {
+      small.shutdown();
+      large.shutdown();
+    }
+  }
+
+  @Test
+  public void testEvictedBlocksGoToVictimCache() {
+    ClockBlockCache cache = newCache(50 * BLOCK_SIZE, 1);
+    ClockBlockCache victim = newCache(1000 * BLOCK_SIZE, 1);
+    cache.setVictimCache(victim);
+    try {
+      CachedItem[] blocks = generateBlocks(100, "block");
+      for (CachedItem block : blocks) {
+        cache.cacheBlock(block.cacheKey, block);
+      }
+      assertEquals(cache.getStats().getEvictedCount(), victim.getBlockCount());
+      // A miss in the L1 is served, and promoted, from the victim cache
+      CachedItem first = blocks[0];
+      assertFalse(cache.containsBlock(first.cacheKey));
+      assertSame(first, cache.getBlock(first.cacheKey, true, false, true));
+      assertTrue(cache.containsBlock(first.cacheKey));
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testVictimCacheCalledWithoutSegmentLock() throws Exception {
+    ClockBlockCache cache = newCache(50 * BLOCK_SIZE, 1);
+    ExecutorService otherThread = Executors.newSingleThreadExecutor();
+    AtomicInteger handedOver = new AtomicInteger();
+    ClockBlockCache victim = new ClockBlockCache(1000 * BLOCK_SIZE, BLOCK_SIZE, 1,
+        ClockBlockCache.DEFAULT_CLOCK_MIN_FACTOR, 16 * BLOCK_SIZE) {
+      @Override
+      public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf) {
+        // Would wait for ever if the only segment of the L1 was still locked by the caller
+        Future<Boolean> evict =
+            otherThread.submit(() -> cache.evictBlock(new BlockCacheKey("missing", 0)));
+        try {
+          assertFalse(evict.get(30, TimeUnit.SECONDS));
+        } catch (Exception e) {
+          throw new AssertionError(e);
+        }
+        handedOver.incrementAndGet();
+        super.cacheBlock(cacheKey, buf);
+      }
+    };
+    cache.setVictimCache(victim);
+    try {
+      for (CachedItem block : generateBlocks(100, "block")) {
+        cache.cacheBlock(block.cacheKey, block);
+      }
+      assertTrue(handedOver.get() > 0);
+      assertEquals(cache.getStats().getEvictedCount(), handedOver.get());
+    } finally {
+      cache.shutdown();
+      otherThread.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    long maxSize = 500 * BLOCK_SIZE;
+    ClockBlockCache cache = newCache(maxSize, 8);
+    try {
+      CachedItem[] blocks = generateBlocks(2000, "block");
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        Thread thread = new Thread(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < 20000; i++) {
+            CachedItem block = blocks[random.nextInt(blocks.length)];
+            if (cache.getBlock(block.cacheKey, true, false, true) == null) {
+              cache.cacheBlock(block.cacheKey, block);
+            }
+            if (i % 100 == 0) {
+              cache.evictBlock(blocks[random.nextInt(blocks.length)].cacheKey);
+            }
+          }
+        });
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertTrue(cache.heapSize() <= maxSize);
+      long count = 0;
+      long size = 0;
+      for (CachedBlock block : cache) {
+        count++;
+        size += entrySize(new CachedItem(block.getFilename(), (int) block.getSize()));
+      }
+      assertEquals(count, cache.getBlockCount());
+      assertEquals(size, cache.heapSize());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testSelectedByBlockCacheFactory() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.set(BlockCacheFactory.BLOCKCACHE_POLICY_KEY, "Clock");
+    conf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, 0.01f);
+    assertTrue(MemorySizeUtil.getOnHeapCacheSize(conf) > 0);
+    BlockCache cache = BlockCacheFactory.createBlockCache(conf);
+    try {
+      assertTrue(cache instanceof ClockBlockCache);
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  private static CachedItem[] generateBlocks(int count, String prefix) {
+    CachedItem[] blocks = new CachedItem[count];
+    for (int i = 0; i < count; i++) {
+      blocks[i] = new CachedItem(prefix + i, (int) BLOCK_SIZE);
+    }
+    return blocks;
+  }
+
+  private static class CachedItem implements Cacheable {
+    BlockCacheKey cacheKey;
+    int size;
+
+    CachedItem(String blockName, int size) {
+      this.cacheKey = new BlockCacheKey(blockName, 0);
+      this.size = size;
+    }
+
+    /** The size of this item reported to the block cache layer */
+    @Override
+    public long heapSize() {
+      return ClassSize.align(size);
+    }
+
+    @Override
+    public int getSerializedLength() {
+      return 0;
+    }
+
+    @Override
+    public CacheableDeserializer<Cacheable> getDeserializer() {
+      return null;
+    }
+
+    @Override
+    public BlockType getBlockType() {
+      return BlockType.DATA;
+    }
+
+    @Override
+    public void serialize(ByteBuffer destination, boolean includeNextBlockMetadata) {
+    }
+  }
+}
@@ -38,6 +38,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -60,6 +63,7 @@ import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.Tag;
 import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.io.hfile.HFile.Reader;
 import org.apache.hadoop.hbase.io.hfile.HFile.Writer;
 import org.apache.hadoop.hbase.nio.ByteBuff;
@@ -67,6 +71,7 @@ import org.apache.hadoop.hbase.regionserver.StoreFileWriter;
 import org.apache.hadoop.hbase.testclassification.IOTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Threads;
 import org.apache.hadoop.io.Writable;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -486,6 +491,71 @@ public class TestHFile  {
     fs.delete(ncHFile, true);
   }
 
+  private Path writeCompressedRecords(Configuration conf, ThreadPoolExecutor compressionPool,
+      String name, int n, DataBlockEncoding encoding) throws IOException {
+    Path path = new Path(ROOT_DIR, name);
+    HFileContext meta = new HFileContextBuilder().withBlockSize(minBlockSize)
+        .withCompression(Compression.Algorithm.GZ).withDataBlockEncoding(encoding).build();
+    Writer writer = HFile.getWriterFactory(conf, new CacheConfig(conf)).withPath(fs, path)
+        .withFileContext(meta).withComparator(CellComparatorImpl.COMPARATOR)
+        .withCompressionPool(compressionPool).create();
+    writeSomeRecords(writer, 0, n, false);
+    writer.close();
+    return path;
+  }
+
+  /**
+   * Data blocks compressed by a pool must be written in order, with the same bytes as when
+   * compressed inline.
+   */
+  @Test
+  public void testPipelinedBlockCompression() throws IOException {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), Threads.newDaemonThreadFactory("block-compression"));
+    try {
+      testPipelinedBlockCompression(pool);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private void testPipelinedBlockCompression(ThreadPoolExecutor pool) throws IOException {
+    Configuration pipelinedConf = new Configuration(conf);
+    for (DataBlockEncoding encoding : new DataBlockEncoding[] { DataBlockEncoding.NONE,
+        DataBlockEncoding.FAST_DIFF }) {
+      Path inline = writeCompressedRecords(conf, null, "inline." + encoding, 100, encoding);
+      Path pipelined =
+          writeCompressedRecords(pipelinedConf, pool, "pipelined." + encoding, 100, encoding);
+      byte[] expected = new byte[(int) fs.getFileStatus(inline).getLen()];
+      byte[] actual = new byte[(int) fs.getFileStatus(pipelined).getLen()];
+      try (FSDataInputStream in = fs.open(inline)) {
+        in.readFully(expected);
+      }
+      try (FSDataInputStream in = fs.open(pipelined)) {
+        in.readFully(actual);
+      }
+      assertTrue(Arrays.equals(expected, actual));
+      Reader reader = HFile.createReader(fs, pipelined, cacheConf, true, conf);
+      HFileScanner scanner = reader.getScanner(false, false);
+      scanner.seekTo();
+      readAllRecords(scanner);
+      reader.close();
+    }
+    // Enough blocks for a multi-level index, whose leaf blocks wait for the data blocks before
+    pipelinedConf.setInt(HFileBlockIndex.MAX_CHUNK_SIZE_KEY, 256);
+    Path pipelined = writeCompressedRecords(pipelinedConf, pool, "pipelined.multilevel", 5000,
+      DataBlockEncoding.NONE);
+    Reader reader = HFile.createReader(fs, pipelined, cacheConf, true, conf);
+    assertTrue(reader.getTrailer().getNumDataIndexLevels() > 1);
+    HFileScanner scanner = reader.getScanner(false, false);
+    scanner.seekTo();
+    readAndCheckbytes(scanner, 0, 5000);
+    for (int i = 0; i < 5000; i += 97) {
+      assertEquals(0, scanner.seekTo(KeyValueUtil.createKeyValueFromKey(getSomeKey(i))));
+    }
+    reader.close();
+  }
+
   @Test
   public void testTFileFeatures() throws IOException {
     testHFilefeaturesInternals(false);
@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests reading a batch of HFile blocks with merged positional reads.
+ */
+@Category({ IOTests.class, SmallTests.class })
+public class TestHFileVectoredRead {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestHFileVectoredRead.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_ROWS = 2000;
+
+  private Configuration conf;
+  private FileSystem fs;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = TEST_UTIL.getConfiguration();
+    // Small index blocks give a multi-level index with leaf index blocks between data blocks
+    conf.setInt(HFileBlockIndex.MAX_CHUNK_SIZE_KEY, 512);
+    fs = FileSystem.get(conf);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%05d", i));
+  }
+
+  private Path writeHFile(String name, CacheConfig cacheConf) throws IOException {
+    Path path = new Path(TEST_UTIL.getDataTestDir(), name);
+    HFileContext meta = new HFileContextBuilder().withBlockSize(1024).build();
+    try (HFile.Writer writer = HFile.getWriterFactory(conf, cacheConf).withPath(fs, path)
+        .withFileContext(meta).create()) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        writer.append(new KeyValue(row(i), FAMILY, QUALIFIER, Bytes.toBytes("value-" + i)));
+      }
+    }
+    return path;
+  }
+
+  @Test
+  public void testReadBlocksDataMatchesSingleReads() throws Exception {
+    Path path = writeHFile("testReadBlocksData", CacheConfig.DISABLED);
+    try (HFile.Reader reader = HFile.createReader(fs, path, CacheConfig.DISABLED, true, conf)) {
+      HFileBlock.FSReader fsReader = reader.getUncachedBlockReader();
+      List<HFileBlock> expected = new ArrayList<>();
+      long offset = 0;
+      while (offset < reader.getTrailer().getLoadOnOpenDataOffset()) {
+        HFileBlock block = fsReader.readBlockData(offset, -1, true, false, true);
+        offset += block.getOnDiskSizeWithHeader();
+        if (block.getBlockType().isData()) {
+          expected.add(block);
+        } else {
+          block.release();
+        }
+      }
+      assertTrue(expected.size() > 10);
+      // Every third data block, passed in reverse order, with and without merging over gaps
+      List<HFileBlock> wanted = new ArrayList<>();
+      for (int i = expected.size() - 1; i >= 0; i -= 3) {
+        wanted.add(expected.get(i));
+      }
+      long[] offsets = new long[wanted.size()];
+      int[] onDiskSizes = new int[wanted.size()];
+      for (int i = 0; i < wanted.size(); i++) {
+        offsets[i] = wanted.get(i).getOffset();
+        onDiskSizes[i] = wanted.get(i).getOnDiskSizeWithHeader();
+      }
+      for (int maxGap : new int[] { 0, 64 * 1024 }) {
+        HFileBlock[] blocks = fsReader.readBlocksData(offsets, onDiskSizes, maxGap, 8 * 1024,
+          false, true);
+        assertEquals(wanted.size(), blocks.length);
+        for (int i = 0; i < blocks.length; i++) {
+          assertEquals(wanted.get(i).getOffset(), blocks[i].getOffset());
+          assertEquals(wanted.get(i).getBufferWithoutHeader(),
+            blocks[i].getBufferWithoutHeader());
+          blocks[i].release();
+        }
+      }
+      expected.forEach(HFileBlock::release);
+    }
+  }
+
+  @Test
+  public void testCacheDataBlocks() throws Exception {
+    BlockCache blockCache = BlockCacheFactory.createBlockCache(conf);
+    CacheConfig cacheConf = new CacheConfig(conf, blockCache);
+    Path path = writeHFile("testCacheDataBlocks", CacheConfig.DISABLED);
+    try (HFile.Reader reader = HFile.createReader(fs, path, cacheConf, true, conf)) {
+      List<Cell> keys = new ArrayList<>();
+      for (int i = 0; i < NUM_ROWS; i += 50) {
+        keys.add(PrivateCellUtil.createFirstOnRow(row(i)));
+      }
+      int read = reader.cacheDataBlocks(keys);
+      assertTrue(read > 0 && read <= keys.size());
+      // Everything the batch needs is cached now
+      assertEquals(0, reader.cacheDataBlocks(keys));
+
+      long missCount = blockCache.getStats().getMissCount();
+      HFileScanner scanner = reader.getScanner(true, true);
+      for (int i = 0; i < NUM_ROWS; i += 50) {
+        assertEquals(0,
+          scanner.seekTo(new KeyValue(row(i), FAMILY, QUALIFIER, Bytes.toBytes("value-" + i))));
+      }
+      assertEquals(missCount, blockCache.getStats().getMissCount());
+    } finally {
+      blockCache.shutdown();
+    }
+  }
+}
@@ -276,7 +276,8 @@ public class TestBucketCache {
     String persistencePath = testDir + "/bucket.persistence";
     BucketCache bucketCache = new BucketCache(ioEngineName, capacitySize, constructedBlockSize,
             smallBucketSizes, writeThreads, writerQLen, persistencePath);
-    assertFalse(new File(persistencePath).exists());
+    // Kept until the next checkpoint of the restored cache replaces it
+    assertTrue(new File(persistencePath).exists());
     assertEquals(0, bucketCache.getAllocator().getUsedSize());
     assertEquals(0, bucketCache.backingMap.size());
     HBASE_TESTING_UTILITY.cleanupTestDir();
@@ -298,7 +299,8 @@ public class TestBucketCache {
     String persistencePath = testDir + "/bucket.persistence";
     BucketCache bucketCache = new BucketCache(ioEngineName, capacitySize, constructedBlockSize,
             smallBucketSizes, writeThreads, writerQLen, persistencePath);
-    assertFalse(new File(persistencePath).exists());
+    // Kept until the next checkpoint of the restored cache replaces it
+    assertTrue(new File(persistencePath).exists());
     assertEquals(0, bucketCache.getAllocator().getUsedSize());
     assertEquals(0, bucketCache.backingMap.size());
     HBASE_TESTING_UTILITY.cleanupTestDir();
@@ -325,7 +327,8 @@ public class TestBucketCache {
       assertTrue(new File(persistencePath).exists());
       bucketCache = new BucketCache(ioEngineName, capacitySize, constructedBlockSize,
               constructedBlockSizes, writeThreads, writerQLen, persistencePath);
-      assertFalse(new File(persistencePath).exists());
+      // Kept until the next checkpoint of the restored cache replaces it
+      assertTrue(new File(persistencePath).exists());
       assertEquals(usedSize, bucketCache.getAllocator().getUsedSize());
     } finally {
       bucketCache.shutdown();
@@ -359,7 +362,8 @@ public class TestBucketCache {
     String persistencePath = testDirInitial + "/bucket.persistence";
     BucketCache bucketCache = new BucketCache(ioEngineName, capacitySize, constructedBlockSize,
             smallBucketSizes, writeThreads, writerQLen, persistencePath);
-    assertFalse(new File(persistencePath).exists());
+    // Kept until the next checkpoint of the restored cache replaces it
+    assertTrue(new File(persistencePath).exists());
     assertEquals(0, bucketCache.getAllocator().getUsedSize());
     assertEquals(0, bucketCache.backingMap.size());
     HBASE_TESTING_UTILITY.cleanupTestDir();
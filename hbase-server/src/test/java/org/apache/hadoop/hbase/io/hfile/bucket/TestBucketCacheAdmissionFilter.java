@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.CacheTestUtils;
+import org.apache.hadoop.hbase.io.hfile.CacheTestUtils.HFileBlockPair;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the frequency based admission filter of {@link BucketCache}.
+ */
+@Category({ IOTests.class, SmallTests.class })
+public class TestBucketCacheAdmissionFilter {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestBucketCacheAdmissionFilter.class);
+
+  private static final long CAPACITY_SIZE = 32 * 1024 * 1024;
+  private static final int BLOCK_SIZE = 8192;
+
+  private static BucketCache createCache(float usageThreshold) throws IOException {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setBoolean(BucketCache.ADMISSION_FILTER_ENABLED_CONFIG_NAME, true);
+    conf.setFloat(BucketCache.ADMISSION_FILTER_USAGE_THRESHOLD_CONFIG_NAME, usageThreshold);
+    return new BucketCache("offheap", CAPACITY_SIZE, BLOCK_SIZE, null,
+        BucketCache.DEFAULT_WRITER_THREADS, BucketCache.DEFAULT_WRITER_QUEUE_ITEMS, null,
+        BucketCache.DEFAULT_ERROR_TOLERATION_DURATION, conf);
+  }
+
+  private static void assertCached(BucketCache cache, BlockCacheKey key) {
+    Cacheable block = cache.getBlock(key, false, false, false);
+    assertNotNull(block);
+    block.release();
+  }
+
+  @Test
+  public void testSketchCountsRequests() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    BlockCacheKey hot = new BlockCacheKey("hot", 0);
+    BlockCacheKey cold = new BlockCacheKey("cold", 0);
+    assertEquals(0, sketch.frequency(hot));
+    for (int i = 0; i < 5; i++) {
+      sketch.increment(hot);
+    }
+    sketch.increment(cold);
+    assertEquals(5, sketch.frequency(hot));
+    assertEquals(1, sketch.frequency(cold));
+    for (int i = 0; i < 100; i++) {
+      sketch.increment(hot);
+    }
+    assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(hot));
+  }
+
+  @Test
+  public void testSketchAgesOutOldRequests() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    BlockCacheKey hot = new BlockCacheKey("hot", 0);
+    for (int i = 0; i < FrequencySketch.MAX_FREQUENCY; i++) {
+      sketch.increment(hot);
+    }
+    // A scan over many distinct blocks eventually halves all the counters
+    for (int i = 0; i < 100000 && sketch.frequency(hot) == FrequencySketch.MAX_FREQUENCY; i++) {
+      sketch.increment(new BlockCacheKey("scan", i));
+    }
+    assertTrue(sketch.frequency(hot) < FrequencySketch.MAX_FREQUENCY);
+  }
+
+  @Test
+  public void testConcurrentIncrementsAreNotLost() throws Exception {
+    // Large enough for the counters not to be halved during the test
+    FrequencySketch sketch = new FrequencySketch(1 << 20);
+    BlockCacheKey[] keys = new BlockCacheKey[FrequencySketch.MAX_FREQUENCY];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new BlockCacheKey("key", i);
+    }
+    Thread[] threads = new Thread[FrequencySketch.MAX_FREQUENCY];
+    for (int t = 0; t < threads.length; t++) {
+      // Every thread requests every key once
+      threads[t] = new Thread(() -> {
+        for (BlockCacheKey key : keys) {
+          sketch.increment(key);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (BlockCacheKey key : keys) {
+      assertEquals(threads.length, sketch.frequency(key));
+    }
+  }
+
+  @Test
+  public void testBlocksCachedAheadAdmittedUnderPressure() throws Exception {
+    BucketCache cache = createCache(0f);
+    try {
+      HFileBlockPair[] blocks = CacheTestUtils.generateHFileBlocks(BLOCK_SIZE, 1);
+      BlockCacheKey written = blocks[0].getBlockName();
+      // Cache-on-write and prefetch cache blocks nobody has asked for yet
+      cache.cacheBlockAhead(written, blocks[0].getBlock(), false);
+      TestBucketCache.waitUntilFlushedToBucket(cache, written);
+      assertCached(cache, written);
+      assertEquals(1, ((BucketCacheStats) cache.getStats()).getAdmittedCount());
+      assertEquals(0, ((BucketCacheStats) cache.getStats()).getRejectedAdmissionCount());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testOneOffBlocksRejectedUnderPressure() throws Exception {
+    BucketCache cache = createCache(0f);
+    try {
+      HFileBlockPair[] blocks = CacheTestUtils.generateHFileBlocks(BLOCK_SIZE, 3);
+      BlockCacheKey once = blocks[0].getBlockName();
+      BlockCacheKey twice = blocks[1].getBlockName();
+      BlockCacheKey inMemory = blocks[2].getBlockName();
+
+      assertNull(cache.getBlock(once, true, false, true));
+      cache.cacheBlock(once, blocks[0].getBlock());
+
+      assertNull(cache.getBlock(twice, true, false, true));
+      // A repeated lookup as done by double checked locking does not count as a new request
+      assertNull(cache.getBlock(twice, true, true, true));
+      assertNull(cache.getBlock(twice, true, false, true));
+      cache.cacheBlock(twice, blocks[1].getBlock());
+
+      cache.cacheBlock(inMemory, blocks[2].getBlock(), true);
+
+      TestBucketCache.waitUntilFlushedToBucket(cache, twice);
+      TestBucketCache.waitUntilFlushedToBucket(cache, inMemory);
+      assertCached(cache, twice);
+      assertCached(cache, inMemory);
+      assertNull(cache.getBlock(once, false, false, false));
+      assertEquals(2, ((BucketCacheStats) cache.getStats()).getAdmittedCount());
+      assertEquals(1, ((BucketCacheStats) cache.getStats()).getRejectedAdmissionCount());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testEverythingAdmittedBelowUsageThreshold() throws Exception {
+    BucketCache cache = createCache(0.8f);
+    try {
+      HFileBlockPair[] blocks = CacheTestUtils.generateHFileBlocks(BLOCK_SIZE, 10);
+      for (HFileBlockPair block : blocks) {
+        cache.cacheBlock(block.getBlockName(), block.getBlock());
+      }
+      TestBucketCache.waitUntilAllFlushedToBucket(cache);
+      for (HFileBlockPair block : blocks) {
+        assertCached(cache, block.getBlockName());
+      }
+      assertEquals(blocks.length, ((BucketCacheStats) cache.getStats()).getAdmittedCount());
+      assertEquals(0, ((BucketCacheStats) cache.getStats()).getRejectedAdmissionCount());
+    } finally {
+      cache.shutdown();
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.Waiter;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.CacheTestUtils;
+import org.apache.hadoop.hbase.io.hfile.CacheTestUtils.HFileBlockPair;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the periodic checkpoint of a file backed {@link BucketCache} and its recovery after the
+ * region server went away without a clean shutdown.
+ */
+@Category({ IOTests.class, MediumTests.class })
+public class TestBucketCachePersister {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestBucketCachePersister.class);
+
+  private static final HBaseTestingUtility HBASE_TESTING_UTILITY = new HBaseTestingUtility();
+
+  private static final long CAPACITY_SIZE = 32 * 1024 * 1024;
+  private static final int BLOCK_SIZE = 8192;
+  private static final int NUM_BLOCKS = 10;
+
+  private Configuration conf;
+  private String ioEngineName;
+  private String persistencePath;
+
+  @Before
+  public void setUp() throws IOException {
+    Path testDir = HBASE_TESTING_UTILITY.getDataTestDir();
+    HBASE_TESTING_UTILITY.getTestFileSystem().mkdirs(testDir);
+    ioEngineName = "file:" + testDir + "/bucket.cache";
+    persistencePath = testDir + "/bucket.persistence";
+    conf = HBaseConfiguration.create();
+    conf.setLong(BucketCache.PERSIST_INTERVAL_CONFIG_NAME, 100);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    HBASE_TESTING_UTILITY.cleanupTestDir();
+  }
+
+  private BucketCache createCache() throws IOException {
+    return new BucketCache(ioEngineName, CAPACITY_SIZE, BLOCK_SIZE, null,
+        BucketCache.DEFAULT_WRITER_THREADS, BucketCache.DEFAULT_WRITER_QUEUE_ITEMS,
+        persistencePath, BucketCache.DEFAULT_ERROR_TOLERATION_DURATION, conf);
+  }
+
+  private HFileBlockPair[] cacheBlocksAndWaitForCheckpoint(BucketCache cache) throws Exception {
+    HFileBlockPair[] blocks = CacheTestUtils.generateHFileBlocks(BLOCK_SIZE, NUM_BLOCKS);
+    for (HFileBlockPair block : blocks) {
+      cache.cacheBlock(block.getBlockName(), block.getBlock());
+    }
+    TestBucketCache.waitUntilAllFlushedToBucket(cache);
+    assertEquals(NUM_BLOCKS, cache.backingMap.size());
+    File persistenceFile = new File(persistencePath);
+    Waiter.waitFor(conf, 10000, () -> persistenceFile.exists());
+    // Make sure the checkpoint covers all the blocks, not only those cached when it ran
+    cache.checkpoint();
+    return blocks;
+  }
+
+  private static void assertCached(BucketCache cache, BlockCacheKey key) {
+    Cacheable block = cache.getBlock(key, false, false, false);
+    assertNotNull("Expected " + key + " to be served from the restored cache", block);
+    block.release();
+  }
+
+  @Test
+  public void testRecoverFromCheckpointWithoutShutdown() throws Exception {
+    BucketCache crashed = createCache();
+    BucketCache restarted = null;
+    try {
+      HFileBlockPair[] blocks = cacheBlocksAndWaitForCheckpoint(crashed);
+      long usedSize = crashed.getAllocator().getUsedSize();
+      // No shutdown of the first cache, as if the region server was killed
+      restarted = createCache();
+      assertEquals(usedSize, restarted.getAllocator().getUsedSize());
+      assertEquals(NUM_BLOCKS, restarted.getBlockCount());
+      for (HFileBlockPair block : blocks) {
+        assertCached(restarted, block.getBlockName());
+      }
+      // Restored blocks must still be found when their file goes away
+      assertEquals(1, restarted.evictBlocksByHfileName(blocks[0].getBlockName().getHfileName()));
+      assertEquals(NUM_BLOCKS - 1, restarted.getBlockCount());
+    } finally {
+      crashed.shutdown();
+      if (restarted != null) {
+        restarted.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testDropOverwrittenBlockOnRecovery() throws Exception {
+    BucketCache crashed = createCache();
+    BucketCache restarted = null;
+    try {
+      HFileBlockPair[] blocks = cacheBlocksAndWaitForCheckpoint(crashed);
+      BlockCacheKey overwritten = blocks[0].getBlockName();
+      BucketEntry entry = crashed.backingMap.get(overwritten);
+      // Simulate the area being reused by another block after the checkpoint was taken
+      try (RandomAccessFile raf = new RandomAccessFile(ioEngineName.substring(5), "rw")) {
+        raf.seek(entry.offset());
+        raf.write(new byte[entry.getLength()]);
+      }
+      restarted = createCache();
+      assertTrue(restarted.backingMap.containsKey(overwritten));
+      assertNull(restarted.getBlock(overwritten, false, false, false));
+      assertFalse(restarted.backingMap.containsKey(overwritten));
+      assertTrue(restarted.isCacheEnabled());
+      for (int i = 1; i < blocks.length; i++) {
+        assertCached(restarted, blocks[i].getBlockName());
+      }
+      assertTrue(restarted.backingMap.get(blocks[1].getBlockName()).isChecksumVerified());
+    } finally {
+      crashed.shutdown();
+      if (restarted != null) {
+        restarted.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testRecoverFromDeltas() throws Exception {
+    BucketCache crashed = createCache();
+    BucketCache restarted = null;
+    try {
+      HFileBlockPair[] blocks = cacheBlocksAndWaitForCheckpoint(crashed);
+      // Only checkpoint when asked to from now on
+      conf.setLong(BucketCache.PERSIST_INTERVAL_CONFIG_NAME, 0);
+      File persistenceFile = new File(persistencePath);
+      byte[] fullCheckpoint = Files.readAllBytes(persistenceFile.toPath());
+      assertTrue(crashed.evictBlock(blocks[0].getBlockName()));
+      HFileBlockPair[] added = CacheTestUtils.generateHFileBlocks(BLOCK_SIZE, 2);
+      for (HFileBlockPair block : added) {
+        crashed.cacheBlock(block.getBlockName(), block.getBlock());
+      }
+      TestBucketCache.waitUntilAllFlushedToBucket(crashed);
+      crashed.checkpoint();
+      // The changes went to the delta file, the full checkpoint was left alone
+      assertArrayEquals(fullCheckpoint, Files.readAllBytes(persistenceFile.toPath()));
+      File deltaFile = new File(persistencePath + BucketCache.DELTA_FILE_SUFFIX);
+      assertTrue(deltaFile.length() > 0);
+
+      restarted = createCache();
+      assertEquals(NUM_BLOCKS + 1, restarted.getBlockCount());
+      assertFalse(restarted.backingMap.containsKey(blocks[0].getBlockName()));
+      for (int i = 1; i < blocks.length; i++) {
+        assertCached(restarted, blocks[i].getBlockName());
+      }
+      for (HFileBlockPair block : added) {
+        assertCached(restarted, block.getBlockName());
+      }
+      // Still there for a crash before the restarted cache checkpoints
+      assertTrue(persistenceFile.exists());
+      assertTrue(deltaFile.exists());
+    } finally {
+      crashed.shutdown();
+      if (restarted != null) {
+        restarted.shutdown();
+      }
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import static org.apache.hadoop.hbase.io.hfile.bucket.TestByteBufferIOEngine.createBucketEntry;
+import static org.apache.hadoop.hbase.io.hfile.bucket.TestByteBufferIOEngine.getByteBuff;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.hfile.CacheTestUtils;
+import org.apache.hadoop.hbase.io.hfile.CacheTestUtils.HFileBlockPair;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Basic test for {@link DirectFileIOEngine}
+ */
+@Category({IOTests.class, SmallTests.class})
+public class TestDirectFileIOEngine {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestDirectFileIOEngine.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final long TOTAL_CAPACITY = 6 * 1024 * 1024; // 6 MB
+  private static final int FILE_COUNT = 3;
+  private static final long SIZE_PER_FILE = TOTAL_CAPACITY / FILE_COUNT; // 2 MB per file
+
+  private final Random random = new Random();
+  private Configuration conf;
+  private String[] filePaths;
+  private DirectFileIOEngine engine;
+
+  @Before
+  public void setUp() throws IOException {
+    Path testDir = TEST_UTIL.getDataTestDir();
+    new File(testDir.toString()).mkdirs();
+    filePaths = new String[FILE_COUNT];
+    for (int i = 0; i < FILE_COUNT; i++) {
+      filePaths[i] = testDir + "/testDirectFileIOEngine" + i;
+    }
+    conf = HBaseConfiguration.create();
+    engine = new DirectFileIOEngine(TOTAL_CAPACITY, false, conf, filePaths);
+  }
+
+  @After
+  public void cleanUp() throws IOException {
+    engine.shutdown();
+    TEST_UTIL.cleanupTestDir();
+  }
+
+  private byte[] randomBytes(int len) {
+    byte[] data = new byte[len];
+    random.nextBytes(data);
+    return data;
+  }
+
+  private byte[] read(long offset, int len) throws IOException {
+    BucketEntry be = createBucketEntry(offset, len);
+    engine.read(be);
+    return getByteBuff(be).array();
+  }
+
+  @Test
+  public void testReadWrite() throws IOException {
+    long[] offsets = new long[] { 0, 1, 4095, 4096, SIZE_PER_FILE - 1, SIZE_PER_FILE,
+      SIZE_PER_FILE - 100, 2 * SIZE_PER_FILE - 5000, TOTAL_CAPACITY - 100 };
+    for (int i = 0; i < 500; i++) {
+      int len = random.nextInt(10000) + 1;
+      long offset = i < offsets.length ? Math.min(offsets[i], TOTAL_CAPACITY - len)
+          : (long) (random.nextDouble() * (TOTAL_CAPACITY - len));
+      byte[] data = randomBytes(len);
+      engine.write(ByteBuffer.wrap(data), offset);
+      assertArrayEquals(data, read(offset, len));
+    }
+  }
+
+  @Test
+  public void testReadIntoAllocatorBuffers() throws IOException {
+    Configuration allocatorConf = HBaseConfiguration.create();
+    allocatorConf.setInt(ByteBuffAllocator.BUFFER_SIZE_KEY, 1024);
+    allocatorConf.setInt(ByteBuffAllocator.MIN_ALLOCATE_SIZE_KEY, 0);
+    ByteBuffAllocator allocator = ByteBuffAllocator.create(allocatorConf, true);
+    byte[] data = randomBytes(3000);
+    engine.write(ByteBuffer.wrap(data), 100);
+    BucketEntry be = createBucketEntry(100, data.length, allocator);
+    engine.read(be);
+    ByteBuff buf = getByteBuff(be);
+    // Served out of the pool, not copied onto the heap
+    assertFalse(buf.hasArray());
+    assertEquals(3, allocator.getUsedBufferCount());
+    assertEquals(0, allocator.getFreeBufferCount());
+    for (int i = 0; i < data.length; i++) {
+      assertEquals(data[i], buf.get(i));
+    }
+    buf.release();
+    assertEquals(3, allocator.getFreeBufferCount());
+  }
+
+  @Test
+  public void testZeroLengthInput() throws IOException {
+    engine.write(ByteBuffer.wrap(new byte[0]), 0);
+    assertArrayEquals(new byte[0], read(0, 0));
+  }
+
+  @Test
+  public void testConcurrentWritesToSharedPages() throws Exception {
+    // Blocks of 1000 bytes at 256 byte aligned offsets share their edge pages with neighbours
+    int blockLen = 1000;
+    int stride = 1024;
+    int blocks = 1024;
+    byte[][] data = new byte[blocks][];
+    for (int i = 0; i < blocks; i++) {
+      data[i] = randomBytes(blockLen);
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int first = t;
+        futures.add(pool.submit(() -> {
+          for (int i = first; i < blocks; i += 8) {
+            engine.write(ByteBuffer.wrap(data[i]), (long) i * stride);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      futures.clear();
+      // Concurrent readers of neighbouring blocks get their reads coalesced
+      for (int t = 0; t < 8; t++) {
+        int first = t;
+        futures.add(pool.submit(() -> {
+          for (int i = first; i < blocks; i += 8) {
+            assertArrayEquals(data[i], read((long) i * stride, blockLen));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBucketCacheOnDirectFile() throws Exception {
+    String persistencePath = TEST_UTIL.getDataTestDir() + "/bucket.persistence";
+    String ioEngineName = "directfile:" + filePaths[0] + "-cache";
+    BucketCache cache = new BucketCache(ioEngineName, 32 * 1024 * 1024, 8192, null,
+        BucketCache.DEFAULT_WRITER_THREADS, BucketCache.DEFAULT_WRITER_QUEUE_ITEMS, persistencePath,
+        BucketCache.DEFAULT_ERROR_TOLERATION_DURATION, conf);
+    try {
+      HFileBlockPair[] blocks = CacheTestUtils.generateHFileBlocks(8192, 20);
+      for (HFileBlockPair block : blocks) {
+        cache.cacheBlock(block.getBlockName(), block.getBlock());
+      }
+      TestBucketCache.waitUntilAllFlushedToBucket(cache);
+      for (HFileBlockPair block : blocks) {
+        Cacheable cached = cache.getBlock(block.getBlockName(), false, false, false);
+        assertNotNull(cached);
+        cached.release();
+      }
+    } finally {
+      cache.shutdown();
+    }
+  }
+}
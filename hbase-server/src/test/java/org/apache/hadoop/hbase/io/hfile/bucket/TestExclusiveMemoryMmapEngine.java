@@ -75,4 +75,40 @@ public class TestExclusiveMemoryMmapEngine {
       }
     }
   }
+
+  @Test
+  public void testChecksumOfRestoredEntry() throws IOException {
+    int size = 1024 * 1024;
+    int len = 100;
+    String filePath = "testChecksumOfRestoredEntry";
+    try {
+      ExclusiveMemoryMmapIOEngine fileMmapEngine = new ExclusiveMemoryMmapIOEngine(filePath, size);
+      ByteBuff src = TestByteBufferIOEngine.createByteBuffer(len, 1, true);
+      int checksum = BucketEntry.checksum(src.nioByteBuffers());
+      fileMmapEngine.write(src, 0);
+      BucketEntry be = createBucketEntry(0, len);
+      be.setChecksum(checksum);
+      be.setChecksumVerified(false);
+      fileMmapEngine.read(be);
+      Assert.assertTrue(be.isChecksumVerified());
+
+      // The area was reused after the checkpoint the entry was restored from
+      fileMmapEngine.write(TestByteBufferIOEngine.createByteBuffer(len, 2, true), 0);
+      be = createBucketEntry(0, len);
+      be.setChecksum(checksum);
+      be.setChecksumVerified(false);
+      try {
+        fileMmapEngine.read(be);
+        Assert.fail("Read of an overwritten entry should fail its checksum");
+      } catch (BucketEntryChecksumException e) {
+        Assert.assertFalse(be.isChecksumVerified());
+      }
+      fileMmapEngine.shutdown();
+    } finally {
+      File file = new File(filePath);
+      if (file.exists()) {
+        file.delete();
+      }
+    }
+  }
 }
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.namequeues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.SlowLogResponseRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.TooSlowLog.SlowLogPayload;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestSlowLogRecorder {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestSlowLogRecorder.class);
+
+  private static SlowLogPayload payload(int i, SlowLogPayload.Type type) {
+    return SlowLogPayload.newBuilder().setStartTime(i).setProcessingTime(i).setQueueTime(0)
+        .setResponseSize(i).setClientAddress("10.0.0." + (i % 4) + ":" + (50000 + i))
+        .setServerClass("HRegionServer").setMethodName("Get").setCallDetails("Get(GetRequest)")
+        .setRegionName("t" + (i % 2) + ",,1.abc.").setTableName("t" + (i % 2))
+        .setUserName("user" + (i % 3)).setType(type).build();
+  }
+
+  private static SlowLogResponseRequest.Builder request(int limit) {
+    return SlowLogResponseRequest.newBuilder().setLimit(limit);
+  }
+
+  @Test
+  public void testNewestFirstAndEviction() {
+    SlowLogRecorder recorder = new SlowLogRecorder(8);
+    for (int i = 0; i < 20; i++) {
+      recorder.addSlowLogPayload(payload(i, SlowLogPayload.Type.SLOW_LOG));
+    }
+    List<SlowLogPayload> payloads = recorder.getSlowLogPayloads(request(100).build());
+    assertEquals(8, payloads.size());
+    for (int i = 0; i < 8; i++) {
+      assertEquals(19 - i, payloads.get(i).getStartTime());
+    }
+    payloads = recorder.getSlowLogPayloads(request(3).build());
+    assertEquals(3, payloads.size());
+    assertEquals(19, payloads.get(0).getStartTime());
+  }
+
+  @Test
+  public void testFilters() {
+    SlowLogRecorder recorder = new SlowLogRecorder(100);
+    for (int i = 0; i < 60; i++) {
+      SlowLogPayload.Type type = i % 5 == 0 ? SlowLogPayload.Type.ALL
+          : i % 2 == 0 ? SlowLogPayload.Type.LARGE_LOG : SlowLogPayload.Type.SLOW_LOG;
+      recorder.addSlowLogPayload(payload(i, type));
+    }
+    assertEquals(30, recorder.getSlowLogPayloads(request(100).setTableName("t1").build()).size());
+    assertEquals(30,
+      recorder.getSlowLogPayloads(request(100).setRegionName("t0,,1.abc.").build()).size());
+    assertEquals(20, recorder.getSlowLogPayloads(request(100).setUserName("user2").build()).size());
+    // with or without the port
+    assertEquals(15,
+      recorder.getSlowLogPayloads(request(100).setClientAddress("10.0.0.1").build()).size());
+    assertEquals(1,
+      recorder.getSlowLogPayloads(request(100).setClientAddress("10.0.0.1:50001").build()).size());
+    assertEquals(0,
+      recorder.getSlowLogPayloads(request(100).setClientAddress("10.0.0.").build()).size());
+    // Calls that were both slow and large show up for either type
+    for (SlowLogPayload p : recorder
+        .getSlowLogPayloads(request(100).setLogType(SlowLogPayload.Type.LARGE_LOG).build())) {
+      assertTrue(p.getStartTime() % 2 == 0 || p.getStartTime() % 5 == 0);
+    }
+    assertEquals(36, recorder
+        .getSlowLogPayloads(request(100).setLogType(SlowLogPayload.Type.LARGE_LOG).build())
+        .size());
+    assertEquals(36, recorder
+        .getSlowLogPayloads(request(100).setLogType(SlowLogPayload.Type.SLOW_LOG).build())
+        .size());
+    // Filters are ANDed
+    assertEquals(10, recorder.getSlowLogPayloads(
+      request(100).setTableName("t1").setUserName("user2").build()).size());
+  }
+
+  @Test
+  public void testClear() {
+    SlowLogRecorder recorder = new SlowLogRecorder(16);
+    for (int i = 0; i < 10; i++) {
+      recorder.addSlowLogPayload(payload(i, SlowLogPayload.Type.SLOW_LOG));
+    }
+    recorder.clearSlowLogPayloads();
+    assertTrue(recorder.getSlowLogPayloads(request(100).build()).isEmpty());
+    recorder.addSlowLogPayload(payload(10, SlowLogPayload.Type.SLOW_LOG));
+    List<SlowLogPayload> payloads = recorder.getSlowLogPayloads(request(100).build());
+    assertEquals(1, payloads.size());
+    assertEquals(10, payloads.get(0).getStartTime());
+  }
+
+  @Test
+  public void testConcurrentWriters() throws Exception {
+    int size = 64;
+    SlowLogRecorder recorder = new SlowLogRecorder(size);
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(pool.submit(() -> {
+          for (int i = 0; i < 10000; i++) {
+            recorder.addSlowLogPayload(payload(i, SlowLogPayload.Type.SLOW_LOG));
+          }
+        }));
+      }
+      // Reads racing with the writers never return more than the ring holds
+      while (!futures.stream().allMatch(Future::isDone)) {
+        assertTrue(recorder.getSlowLogPayloads(request(1000).build()).size() <= size);
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdown();
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    assertEquals(size, recorder.getSlowLogPayloads(request(1000).build()).size());
+  }
+}
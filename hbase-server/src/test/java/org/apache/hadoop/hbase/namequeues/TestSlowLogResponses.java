@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.namequeues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.SlowLogQueryFilter;
+import org.apache.hadoop.hbase.client.SlowLogRecord;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests retrieving the slow/large RPC calls of RegionServers through the Admin API.
+ */
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestSlowLogResponses {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestSlowLogResponses.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final TableName TABLE_NAME = TableName.valueOf("TestSlowLogResponses");
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_GETS = 20;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    // Only responses carrying our large values are flagged as too large
+    TEST_UTIL.getConfiguration().setInt("hbase.ipc.warn.response.size", 4096);
+    TEST_UTIL.getConfiguration().setInt(SlowLogRecorder.SLOW_LOG_RING_BUFFER_SIZE_KEY, 1024);
+    TEST_UTIL.startMiniCluster(1);
+    TEST_UTIL.createTable(TABLE_NAME, FAMILY);
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    TEST_UTIL.shutdownMiniCluster();
+  }
+
+  @Test
+  public void testLargeResponses() throws Exception {
+    try (Table table = TEST_UTIL.getConnection().getTable(TABLE_NAME)) {
+      for (int i = 0; i < NUM_GETS; i++) {
+        table.put(new Put(Bytes.toBytes(i)).addColumn(FAMILY, QUALIFIER, new byte[8192]));
+      }
+      for (int i = 0; i < NUM_GETS; i++) {
+        table.get(new Get(Bytes.toBytes(i)));
+      }
+    }
+    Admin admin = TEST_UTIL.getAdmin();
+    Set<ServerName> servers = new HashSet<>(admin.getRegionServers());
+    String regionName =
+      TEST_UTIL.getHBaseCluster().getRegions(TABLE_NAME).get(0).getRegionInfo()
+          .getRegionNameAsString();
+
+    SlowLogQueryFilter filter = new SlowLogQueryFilter().setTableName(TABLE_NAME.getNameAsString())
+        .setType(SlowLogQueryFilter.Type.LARGE_LOG).setLimit(100);
+    List<SlowLogRecord> records = admin.getSlowLogResponses(servers, filter);
+    assertEquals(NUM_GETS, records.size());
+    long previousStartTime = Long.MAX_VALUE;
+    for (SlowLogRecord record : records) {
+      assertEquals("Get", record.getMethodName());
+      assertEquals(regionName, record.getRegionName());
+      assertEquals(TABLE_NAME.getNameAsString(), record.getTableName());
+      assertTrue(record.getResponseSize() > 8192);
+      assertTrue(record.getType() == SlowLogQueryFilter.Type.LARGE_LOG
+          || record.getType() == SlowLogQueryFilter.Type.ALL);
+      assertTrue(record.getStartTime() <= previousStartTime);
+      previousStartTime = record.getStartTime();
+    }
+    assertEquals(5, admin.getSlowLogResponses(servers, filter.setLimit(5)).size());
+    assertTrue(admin.getSlowLogResponses(servers, new SlowLogQueryFilter().setTableName("nosuch"))
+        .isEmpty());
+
+    List<Boolean> cleared = admin.clearSlowLogResponses(servers);
+    assertEquals(servers.size(), cleared.size());
+    assertTrue(cleared.stream().allMatch(Boolean::booleanValue));
+    assertTrue(admin.getSlowLogResponses(servers, filter).isEmpty());
+  }
+}
@@ -245,6 +245,16 @@ public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrappe
     return 0;
   }
 
+  @Override
+  public double getCompactionQueueMaxUrgency() {
+    return 12.5;
+  }
+
+  @Override
+  public long getLentCompactionsCount() {
+    return 3;
+  }
+
   @Override
   public int getFlushQueueSize() {
     return 412;
@@ -345,6 +355,16 @@ public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrappe
     return 200;
   }
 
+  @Override
+  public long getL2CacheAdmittedCount() {
+    return 300;
+  }
+
+  @Override
+  public long getL2CacheRejectedAdmissionCount() {
+    return 100;
+  }
+
   @Override
   public double getL2CacheHitRatio() {
     return 90;
@@ -0,0 +1,289 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueTestUtil;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Checks {@link CellBTreeMap} against a ConcurrentSkipListMap, with small leaves so that almost
+ * every operation crosses or splits one.
+ */
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestCellBTreeMap {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestCellBTreeMap.class);
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+  private final Random random = new Random(42);
+
+  private static KeyValue cell(int row) {
+    return new KeyValue(Bytes.toBytes(String.format("row-%06d", row)), FAMILY, QUALIFIER,
+        Bytes.toBytes(row));
+  }
+
+  private static NavigableMap<Cell, Cell> newSkipList() {
+    return new ConcurrentSkipListMap<>(CellComparatorImpl.COMPARATOR.getSimpleComparator());
+  }
+
+  private static void assertSameCells(Iterator<Cell> expected, Iterator<Cell> actual) {
+    while (expected.hasNext()) {
+      assertTrue(actual.hasNext());
+      assertTrue(expected.next() == actual.next());
+    }
+    assertTrue(!actual.hasNext());
+  }
+
+  private static void assertSameMap(NavigableMap<Cell, Cell> expected,
+      NavigableMap<Cell, Cell> actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.isEmpty(), actual.isEmpty());
+    assertSameCells(expected.values().iterator(), actual.values().iterator());
+    assertSameCells(expected.descendingMap().values().iterator(),
+      actual.descendingMap().values().iterator());
+    assertEquals(expected.firstEntry(), actual.firstEntry());
+    assertEquals(expected.lastEntry(), actual.lastEntry());
+  }
+
+  private void assertSameNavigation(NavigableMap<Cell, Cell> expected,
+      NavigableMap<Cell, Cell> actual, int rows) {
+    for (int i = 0; i < 50; i++) {
+      Cell probe = cell(random.nextInt(rows + 2) - 1);
+      assertEquals(expected.get(probe), actual.get(probe));
+      assertEquals(expected.containsKey(probe), actual.containsKey(probe));
+      assertEquals(expected.floorKey(probe), actual.floorKey(probe));
+      assertEquals(expected.lowerKey(probe), actual.lowerKey(probe));
+      assertEquals(expected.ceilingKey(probe), actual.ceilingKey(probe));
+      assertEquals(expected.higherKey(probe), actual.higherKey(probe));
+    }
+  }
+
+  @Test
+  public void testRandomOperations() {
+    int rows = 2000;
+    NavigableMap<Cell, Cell> expected = newSkipList();
+    NavigableMap<Cell, Cell> actual =
+        new CellBTreeMap(CellComparatorImpl.COMPARATOR.getSimpleComparator(), 4);
+    assertSameMap(expected, actual);
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < 500; i++) {
+        Cell c = cell(random.nextInt(rows));
+        if (random.nextInt(4) == 0) {
+          assertEquals(expected.remove(c), actual.remove(c));
+        } else {
+          assertEquals(expected.put(c, c), actual.put(c, c));
+        }
+      }
+      assertSameMap(expected, actual);
+      assertSameNavigation(expected, actual, rows);
+      // Views, and views of views, in both directions
+      int fromRow = random.nextInt(rows);
+      int toRow = rows / 2 + random.nextInt(rows / 2);
+      Cell from = cell(fromRow);
+      Cell to = cell(toRow);
+      boolean fromInclusive = random.nextBoolean();
+      boolean toInclusive = random.nextBoolean();
+      assertSameMap(expected.headMap(to, toInclusive), actual.headMap(to, toInclusive));
+      assertSameMap(expected.tailMap(from, fromInclusive), actual.tailMap(from, fromInclusive));
+      if (fromRow + 1 < toRow) {
+        NavigableMap<Cell, Cell> expectedSub = expected.subMap(from, fromInclusive, to, toInclusive);
+        NavigableMap<Cell, Cell> actualSub = actual.subMap(from, fromInclusive, to, toInclusive);
+        assertSameMap(expectedSub, actualSub);
+        assertSameNavigation(expectedSub, actualSub, rows);
+        Cell middle = cell((fromRow + toRow) / 2);
+        assertSameMap(expectedSub.descendingMap().headMap(middle, true),
+          actualSub.descendingMap().headMap(middle, true));
+        assertSameNavigation(expectedSub.descendingMap(), actualSub.descendingMap(), rows);
+      }
+    }
+  }
+
+  @Test
+  public void testAscendingInsertsFillLeaves() {
+    CellBTreeMap map = new CellBTreeMap(CellComparatorImpl.COMPARATOR.getSimpleComparator(), 8);
+    NavigableMap<Cell, Cell> expected = newSkipList();
+    for (int i = 0; i < 1000; i++) {
+      Cell c = cell(i);
+      map.put(c, c);
+      expected.put(c, c);
+    }
+    assertSameMap(expected, map);
+    // Removing through the iterator of a view removes from the map
+    Iterator<Cell> it = map.tailMap(cell(500), true).values().iterator();
+    while (it.hasNext()) {
+      it.next();
+      it.remove();
+    }
+    assertEquals(500, map.size());
+    assertEquals(cell(499), map.lastKey());
+    assertNull(map.get(cell(500)));
+  }
+
+  @Test
+  public void testConcurrentWritersAndReaders() throws Exception {
+    CellBTreeMap map = new CellBTreeMap(CellComparatorImpl.COMPARATOR.getSimpleComparator(), 4);
+    int writers = 4;
+    int rowsPerWriter = 5000;
+    AtomicBoolean done = new AtomicBoolean(false);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int w = 0; w < writers; w++) {
+      int writer = w;
+      threads.add(new Thread(() -> {
+        Random rand = new Random(writer);
+        for (int i = 0; i < rowsPerWriter; i++) {
+          // Interleaved rows, so writers split each other's leaves
+          Cell c = cell(rand.nextInt(rowsPerWriter) * writers + writer);
+          map.put(c, c);
+        }
+        for (int i = 0; i < rowsPerWriter; i++) {
+          Cell c = cell(i * writers + writer);
+          map.put(c, c);
+        }
+      }));
+    }
+    for (int r = 0; r < 2; r++) {
+      boolean descending = r == 1;
+      threads.add(new Thread(() -> {
+        try {
+          while (!done.get()) {
+            NavigableMap<Cell, Cell> view = descending ? map.descendingMap() : map;
+            Cell previous = null;
+            for (Cell c : view.values()) {
+              if (previous != null) {
+                int cmp = CellComparatorImpl.COMPARATOR.compare(previous, c);
+                assertTrue(descending ? cmp > 0 : cmp < 0);
+              }
+              previous = c;
+            }
+          }
+        } catch (Throwable t) {
+          error.set(t);
+        }
+      }));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (int w = 0; w < writers; w++) {
+      threads.get(w).join();
+    }
+    done.set(true);
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertNull(error.get());
+    assertEquals(writers * rowsPerWriter, map.size());
+    int row = 0;
+    for (Cell c : map.values()) {
+      assertEquals(0, CellComparatorImpl.COMPARATOR.compare(cell(row++), c));
+    }
+  }
+
+  @Test
+  public void testUnknownIndexTypeFallsBackToSkipList() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.set(MutableSegment.INDEX_TYPE_KEY, "btree");
+    assertEquals(MutableSegment.IndexType.CSLM_MAP, MutableSegment.getIndexType(conf));
+    conf.set(MutableSegment.INDEX_TYPE_KEY, "btree_map");
+    assertEquals(MutableSegment.IndexType.BTREE_MAP, MutableSegment.getIndexType(conf));
+    conf.set(MutableSegment.INDEX_TYPE_KEY, "B_TREE");
+    conf.setBoolean(MemStoreLAB.USEMSLAB_KEY, false);
+    DefaultMemStore memstore = new DefaultMemStore(conf, CellComparatorImpl.COMPARATOR);
+    assertFalse(memstore.getActive().getCellSet().getDelegatee() instanceof CellBTreeMap);
+  }
+
+  @Test
+  public void testMemStoreWithBTreeIndex() throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    conf.set(MutableSegment.INDEX_TYPE_KEY, MutableSegment.IndexType.BTREE_MAP.name());
+    conf.setBoolean(MemStoreLAB.USEMSLAB_KEY, false);
+    DefaultMemStore memstore = new DefaultMemStore(conf, CellComparatorImpl.COMPARATOR);
+    assertTrue(memstore.getActive().getCellSet().getDelegatee() instanceof CellBTreeMap);
+    Configuration skipListConf = new Configuration(conf);
+    skipListConf.set(MutableSegment.INDEX_TYPE_KEY, MutableSegment.IndexType.CSLM_MAP.name());
+    DefaultMemStore skipListMemstore =
+        new DefaultMemStore(skipListConf, CellComparatorImpl.COMPARATOR);
+
+    List<Cell> cells = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      KeyValue kv = KeyValueTestUtil.create("r", "f", "q", 100 + i, "v");
+      kv.setSequenceId(1);
+      cells.add(kv);
+    }
+    memstore.upsert(cells, 2, null);
+    skipListMemstore.upsert(cells, 2, null);
+    // Only the newest version visible to the oldest scanner and the one above it are kept
+    assertEquals(2, memstore.getActive().getCellsCount());
+    for (int i = 0; i < 100; i++) {
+      memstore.add(cell(i), null);
+      skipListMemstore.add(cell(i), null);
+    }
+    assertEquals(102, memstore.getActive().getCellsCount());
+    assertEquals(skipListMemstore.getActive().getDataSize(), memstore.getActive().getDataSize());
+    assertTrue(memstore.getActive().getHeapSize() < skipListMemstore.getActive().getHeapSize());
+
+    int count = 0;
+    for (KeyValueScanner scanner : memstore.getScanners(Long.MAX_VALUE)) {
+      scanner.seek(KeyValue.LOWESTKEY);
+      Cell previous = null;
+      Cell c;
+      while ((c = scanner.next()) != null) {
+        if (previous != null) {
+          assertTrue(CellComparatorImpl.COMPARATOR.compare(previous, c) < 0);
+        }
+        previous = c;
+        count++;
+      }
+      scanner.close();
+    }
+    assertEquals(102, count);
+
+    memstore.snapshot();
+    assertEquals(102, memstore.getSnapshot().getCellsCount());
+    assertTrue(memstore.getActive().getCellSet().getDelegatee() instanceof CellBTreeMap);
+  }
+}
@@ -26,6 +26,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -67,6 +68,8 @@ import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
 import org.apache.hadoop.hbase.testclassification.RegionServerTests;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
 import org.apache.hadoop.hbase.util.Threads;
 import org.apache.hadoop.hbase.wal.WAL;
 import org.junit.After;
@@ -689,6 +692,126 @@ public class TestCompaction {
     cst.interruptIfNecessary();
   }
 
+  /** Test that queued compactions are ranked by urgency, and that the urgency grows with age. */
+  @Test
+  public void testCompactionQueueUrgency() throws Exception {
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(EnvironmentEdgeManager.currentTime());
+    EnvironmentEdgeManager.injectEdge(edge);
+    try {
+      final Configuration conf = HBaseConfiguration.create();
+      HRegionServer mockServer = mock(HRegionServer.class);
+      when(mockServer.isStopped()).thenReturn(false);
+      when(mockServer.getConfiguration()).thenReturn(conf);
+      when(mockServer.getChoreService()).thenReturn(new ChoreService("test"));
+      CompactSplit cst = new CompactSplit(mockServer);
+      when(mockServer.getCompactSplitThread()).thenReturn(cst);
+      //prevent large compaction thread pool stealing job from small compaction queue.
+      cst.shutdownLongCompactions();
+      HRegion r = mock(HRegion.class);
+      when(r.compact(any(), any(), any(), any())).then(new Answer<Boolean>() {
+        @Override
+        public Boolean answer(InvocationOnMock invocation) throws Throwable {
+          invocation.<CompactionContext>getArgument(0).compact(invocation.getArgument(2), null);
+          return true;
+        }
+      });
+
+      // Block the compaction thread so that we could look at the queue.
+      BlockingStoreMockMaker blocker = new BlockingStoreMockMaker();
+      cst.requestSystemCompaction(r, blocker.createStoreMock(1, "b-pri1"), "b-pri1");
+      BlockingStoreMockMaker.BlockingCompactionContext currentBlock = blocker.waitForBlocking();
+      assertEquals(0, cst.getMaxQueuedUrgency(), 0);
+
+      HStore old = blocker.createStoreMock(5, "old");
+      when(old.getColumnFamilyName()).thenReturn("old");
+      cst.requestSystemCompaction(r, old, "old");
+      // The old compaction gets 10 more urgent while it waits for 10 minutes.
+      edge.incValue(TimeUnit.MINUTES.toMillis(10));
+      HStore blocking = blocker.createStoreMock(-2, "blocking");
+      when(blocking.getColumnFamilyName()).thenReturn("blocking");
+      when(blocking.getStorefilesCount()).thenReturn(10);
+      cst.requestSystemCompaction(r, blocking, "blocking");
+      HStore idle = blocker.createStoreMock(3, "idle");
+      when(idle.getColumnFamilyName()).thenReturn("idle");
+      cst.requestSystemCompaction(r, idle, "idle");
+
+      List<CompactSplit.QueuedCompaction> queued = cst.getQueuedCompactions();
+      assertEquals(3, queued.size());
+      // 2 files over the blocking limit, blocked writes and 10 files of read amplification.
+      assertEquals("blocking", queued.get(0).getStoreName());
+      assertEquals(2 + 10 + 1, queued.get(0).getUrgency(), 0.001);
+      assertEquals("old", queued.get(1).getStoreName());
+      assertEquals(-5 + 10, queued.get(1).getUrgency(), 0.001);
+      assertEquals(TimeUnit.MINUTES.toMillis(10), queued.get(1).getQueuedMillis());
+      assertEquals("idle", queued.get(2).getStoreName());
+      assertEquals(-3, queued.get(2).getUrgency(), 0.001);
+      assertEquals(-1, queued.get(2).getFileCount());
+      assertFalse(queued.get(2).isLarge());
+      assertEquals(2 + 10 + 1, cst.getMaxQueuedUrgency(), 0.001);
+
+      cst.clearShortCompactionsQueue();
+      currentBlock.unblock();
+      cst.interruptIfNecessary();
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
+  /**
+   * Test that a large compaction which waited long enough in the small queue while the large
+   * compaction threads are busy runs in a small compaction thread.
+   */
+  @Test
+  public void testUrgentCompactionIsLent() throws Exception {
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(EnvironmentEdgeManager.currentTime());
+    EnvironmentEdgeManager.injectEdge(edge);
+    try {
+      final Configuration conf = HBaseConfiguration.create();
+      HRegionServer mockServer = mock(HRegionServer.class);
+      when(mockServer.isStopped()).thenReturn(false);
+      when(mockServer.getConfiguration()).thenReturn(conf);
+      when(mockServer.getChoreService()).thenReturn(new ChoreService("test"));
+      CompactSplit cst = new CompactSplit(mockServer);
+      when(mockServer.getCompactSplitThread()).thenReturn(cst);
+      HRegion r = mock(HRegion.class);
+      when(r.compact(any(), any(), any(), any())).then(new Answer<Boolean>() {
+        @Override
+        public Boolean answer(InvocationOnMock invocation) throws Throwable {
+          invocation.<CompactionContext>getArgument(0).compact(invocation.getArgument(2), null);
+          return true;
+        }
+      });
+      BlockingStoreMockMaker blocker = new BlockingStoreMockMaker();
+
+      // A large compaction is not lent while a large compaction thread is free, it blocks it.
+      HStore large = blocker.createStoreMock(1, "large");
+      when(large.throttleCompaction(anyLong())).thenReturn(true);
+      cst.requestSystemCompaction(r, large, "large");
+      BlockingStoreMockMaker.BlockingCompactionContext largeBlock = blocker.waitForBlocking();
+      assertEquals(0, cst.getLentCompactionsCount());
+
+      // Block the small compaction thread so that the next one waits in the queue.
+      cst.requestSystemCompaction(r, blocker.createStoreMock(1, "small"), "small");
+      BlockingStoreMockMaker.BlockingCompactionContext smallBlock = blocker.waitForBlocking();
+      HStore waiting = blocker.createStoreMock(1, "waiting");
+      when(waiting.throttleCompaction(anyLong())).thenReturn(true);
+      cst.requestSystemCompaction(r, waiting, "waiting");
+      // Far from blocking, but 10 minutes in the queue make it urgent enough.
+      edge.incValue(TimeUnit.MINUTES.toMillis(10));
+      smallBlock.unblock();
+      BlockingStoreMockMaker.BlockingCompactionContext lentBlock = blocker.waitForBlocking();
+      assertEquals(1, cst.getLentCompactionsCount());
+
+      lentBlock.unblock();
+      largeBlock.unblock();
+      cst.interruptIfNecessary();
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
   /**
    * Firstly write 10 cells (with different time stamp) to a qualifier and flush
    * to hfile1, then write 10 cells (with different time stamp) to the same
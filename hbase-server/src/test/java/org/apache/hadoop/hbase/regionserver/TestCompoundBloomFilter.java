@@ -51,6 +51,7 @@ import org.apache.hadoop.hbase.io.hfile.RandomKeyValueUtil;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
 import org.apache.hadoop.hbase.testclassification.RegionServerTests;
 import org.apache.hadoop.hbase.util.BloomFilterFactory;
+import org.apache.hadoop.hbase.util.BloomFilterFormat;
 import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Before;
@@ -339,6 +340,54 @@ public class TestCompoundBloomFilter {
     return w.getPath();
   }
 
+  @Test
+  public void testBloomFilterFormats() throws IOException {
+    conf.setBoolean(BloomFilterFactory.IO_STOREFILE_BLOOM_ENABLED, true);
+    conf.setFloat(BloomFilterFactory.IO_STOREFILE_BLOOM_ERROR_RATE, 0.01f);
+    Random generationRand = new Random(GENERATION_SEED);
+    List<KeyValue> kvs = createSortedKeyValues(generationRand, 10000);
+    try {
+      for (BloomFilterFormat format : BloomFilterFormat.values()) {
+        conf.set(BloomFilterFactory.IO_STOREFILE_BLOOM_FORMAT, format.name());
+        testIdMsg = "in test of " + format + ":";
+        for (BloomType bt : new BloomType[] { BloomType.ROW, BloomType.ROWCOL }) {
+          // the write checks the key count of the Bloom filter
+          Path sfPath = writeStoreFile(2, bt, kvs);
+          HStoreFile sf = new HStoreFile(fs, sfPath, conf, cacheConf, bt, true);
+          sf.initReader();
+          StoreFileReader r = sf.getReader();
+          StoreFileScanner scanner = r.getStoreFileScanner(true, true, false, 0, 0, false);
+          CompoundBloomFilter cbf = (CompoundBloomFilter) r.getGeneralBloomFilter();
+          assertEquals(format, cbf.getFormat());
+          for (KeyValue kv : kvs) {
+            assertTrue(testIdMsg + " Bloom filter false negative on " + kv,
+              isInBloom(scanner, CellUtil.cloneRow(kv), CellUtil.cloneQualifier(kv)));
+          }
+          int numFalsePos = 0;
+          Random rand = new Random(EVALUATION_SEED);
+          int nTrials = kvs.size() * 10;
+          for (int i = 0; i < nTrials; ++i) {
+            if (isInBloom(scanner, RandomKeyValueUtil.randomRowOrQualifier(rand), bt, rand)) {
+              numFalsePos += 1;
+            }
+          }
+          double falsePosRate = numFalsePos * 1.0 / nTrials;
+          double bitsPerKey = cbf.getByteSize() * 8.0 / cbf.getKeyCount();
+          LOG.info(testIdMsg + " " + bt + " false positive rate " + falsePosRate
+              + ", bits per key " + bitsPerKey);
+          assertTrue(testIdMsg + " false positive rate " + falsePosRate, falsePosRate < 0.015);
+          if (format == BloomFilterFormat.XOR) {
+            // an 8 bit xor filter takes about 10 bits per key, for an error rate of 0.4%
+            assertTrue(testIdMsg + " bits per key " + bitsPerKey, bitsPerKey < 11);
+          }
+          r.close(true);
+        }
+      }
+    } finally {
+      conf.unset(BloomFilterFactory.IO_STOREFILE_BLOOM_FORMAT);
+    }
+  }
+
   @Test
   public void testCompoundBloomSizing() {
     int bloomBlockByteSize = 4096;
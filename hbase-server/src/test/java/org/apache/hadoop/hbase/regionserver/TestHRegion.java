@@ -178,6 +178,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TestName;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -732,6 +733,61 @@ public class TestHRegion {
     }
   }
 
+  @Test
+  public void testRecoveredEditsReplayStoresConcurrently() throws Exception {
+    byte[][] families = { Bytes.toBytes("f1"), Bytes.toBytes("f2"), Bytes.toBytes("f3") };
+    Configuration conf = new Configuration(CONF);
+    conf.setInt(HRegion.RECOVERED_EDITS_READ_AHEAD_KEY, 100);
+    conf.setInt(HRegion.RECOVERED_EDITS_REPLAY_STORE_THREADS_KEY, 3);
+    this.region = initHRegion(tableName, method, conf, families);
+    final WALFactory wals = new WALFactory(conf, method);
+    try {
+      Path regiondir = region.getRegionFileSystem().getRegionDir();
+      FileSystem fs = region.getRegionFileSystem().getFileSystem();
+      byte[] regionName = region.getRegionInfo().getEncodedNameAsBytes();
+      Path recoveredEditsDir = WALSplitUtil.getRegionDirRecoveredEditsDir(regiondir);
+
+      // more edits than replayed in a batch
+      long minSeqId = 1000;
+      long maxSeqId = 4000;
+      Path recoveredEdits = new Path(recoveredEditsDir, String.format("%019d", maxSeqId));
+      fs.create(recoveredEdits);
+      WALProvider.Writer writer = wals.createRecoveredEditsWriter(fs, recoveredEdits);
+      for (long i = minSeqId; i <= maxSeqId; i++) {
+        long time = System.nanoTime();
+        WALEdit edit = new WALEdit();
+        for (byte[] family : families) {
+          edit.add(new KeyValue(row, family, Bytes.toBytes(i), time, KeyValue.Type.Put,
+            Bytes.toBytes(i)));
+        }
+        writer.append(new WAL.Entry(new WALKeyImpl(regionName, tableName, i, time,
+          HConstants.DEFAULT_CLUSTER_ID), edit));
+      }
+      writer.close();
+
+      MonitoredTask status = TaskMonitor.get().createStatus(method);
+      Map<byte[], Long> maxSeqIdInStores = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (HStore store : region.getStores()) {
+        maxSeqIdInStores.put(Bytes.toBytes(store.getColumnFamilyName()), minSeqId - 1);
+      }
+      long seqId = region.replayRecoveredEditsIfAny(maxSeqIdInStores, null, status);
+      assertEquals(maxSeqId, seqId);
+      region.getMVCC().advanceTo(seqId);
+      Result result = region.get(new Get(row));
+      for (long i = minSeqId; i <= maxSeqId; i++) {
+        for (byte[] family : families) {
+          List<Cell> kvs = result.getColumnCells(family, Bytes.toBytes(i));
+          assertEquals(1, kvs.size());
+          assertArrayEquals(Bytes.toBytes(i), CellUtil.cloneValue(kvs.get(0)));
+        }
+      }
+    } finally {
+      HBaseTestingUtility.closeRegionAndWAL(this.region);
+      this.region = null;
+      wals.close();
+    }
+  }
+
   @Test
   public void testSkipRecoveredEditsReplaySomeIgnored() throws Exception {
     byte[] family = Bytes.toBytes("family");
@@ -5670,6 +5726,86 @@ public class TestHRegion {
     assertEquals(0, store.getStoreFileCount()); // no store files
   }
 
+  @Test
+  public void testFlushMovesRegionToPlannedWAL() throws Exception {
+    ChunkCreator.initialize(MemStoreLABImpl.CHUNK_SIZE_DEFAULT, false, 0, 0, 0, null);
+    final ServerName serverName = ServerName.valueOf(name.getMethodName(), 100, 42);
+    final RegionServerServices rss = spy(TEST_UTIL.createMockRegionServerService(serverName));
+
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(name.getMethodName()));
+    htd.addFamily(new HColumnDescriptor(fam1));
+    HRegionInfo hri = new HRegionInfo(htd.getTableName(),
+      HConstants.EMPTY_BYTE_ARRAY, HConstants.EMPTY_BYTE_ARRAY);
+
+    WAL openedWAL = mockWAL();
+    WAL plannedWAL = mockWAL();
+    for (WAL wal : new WAL[] { openedWAL, plannedWAL }) {
+      when(wal.startCacheFlush(any(), Mockito.<Map<byte[], Long>> any()))
+          .thenReturn(HConstants.NO_SEQNUM);
+    }
+    when(rss.getWAL((HRegionInfo) any())).thenReturn(openedWAL);
+    region = HRegion.openHRegion(hri, htd, openedWAL, TEST_UTIL.getConfiguration(), rss, null);
+
+    region.put(new Put(Bytes.toBytes("a")).addColumn(fam1, fam1, fam1));
+    region.flush(true);
+    assertTrue(openedWAL == region.getWAL());
+
+    // the WAL group of the region changed, it only moves once the provider hands it out
+    when(rss.getWAL((HRegionInfo) any())).thenReturn(plannedWAL);
+    region.put(new Put(Bytes.toBytes("b")).addColumn(fam1, fam1, fam1));
+    region.flush(true);
+    assertTrue(openedWAL == region.getWAL());
+
+    region.planWALSwitch();
+    region.put(new Put(Bytes.toBytes("b")).addColumn(fam1, fam1, fam1));
+    region.flush(true);
+    assertTrue(plannedWAL == region.getWAL());
+    // the old WAL is synced before the flush starts, and the flush of the edits written before the
+    // move completes on the WAL holding them
+    InOrder inOrder = Mockito.inOrder(openedWAL);
+    inOrder.verify(openedWAL).sync();
+    inOrder.verify(openedWAL).startCacheFlush(any(), Mockito.<Map<byte[], Long>> any());
+    verify(openedWAL, times(3)).completeCacheFlush(any());
+    verify(plannedWAL, never()).completeCacheFlush(any());
+    verify(plannedWAL, never()).append((HRegionInfo) any(), (WALKeyImpl) any(),
+      (WALEdit) any(), anyBoolean());
+
+    region.put(new Put(Bytes.toBytes("c")).addColumn(fam1, fam1, fam1));
+    verify(plannedWAL, times(1)).append((HRegionInfo) any(), (WALKeyImpl) any(),
+      (WALEdit) any(), anyBoolean());
+    assertEquals(3, region.get(new Get(Bytes.toBytes("c"))).size()
+        + region.get(new Get(Bytes.toBytes("a"))).size()
+        + region.get(new Get(Bytes.toBytes("b"))).size());
+  }
+
+  @Test
+  public void testReplicatedRegionStaysOnItsWAL() throws Exception {
+    ChunkCreator.initialize(MemStoreLABImpl.CHUNK_SIZE_DEFAULT, false, 0, 0, 0, null);
+    final ServerName serverName = ServerName.valueOf(name.getMethodName(), 100, 42);
+    final RegionServerServices rss = spy(TEST_UTIL.createMockRegionServerService(serverName));
+
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(name.getMethodName()));
+    htd.addFamily(
+      new HColumnDescriptor(fam1).setScope(HConstants.REPLICATION_SCOPE_GLOBAL));
+    HRegionInfo hri = new HRegionInfo(htd.getTableName(),
+      HConstants.EMPTY_BYTE_ARRAY, HConstants.EMPTY_BYTE_ARRAY);
+
+    WAL openedWAL = mockWAL();
+    WAL plannedWAL = mockWAL();
+    when(openedWAL.startCacheFlush(any(), Mockito.<Map<byte[], Long>> any()))
+        .thenReturn(HConstants.NO_SEQNUM);
+    when(rss.getWAL((HRegionInfo) any())).thenReturn(plannedWAL);
+    region = HRegion.openHRegion(hri, htd, openedWAL, TEST_UTIL.getConfiguration(), rss, null);
+
+    region.planWALSwitch();
+    region.put(new Put(Bytes.toBytes("a")).addColumn(fam1, fam1, fam1));
+    region.flush(true);
+    assertTrue(openedWAL == region.getWAL());
+    region.put(new Put(Bytes.toBytes("b")).addColumn(fam1, fam1, fam1));
+    verify(plannedWAL, never()).append((HRegionInfo) any(), (WALKeyImpl) any(),
+      (WALEdit) any(), anyBoolean());
+  }
+
   // Helper for test testOpenRegionWrittenToWALForLogReplay
   static class HRegionWithSeqId extends HRegion {
     public HRegionWithSeqId(final Path tableDir, final WAL wal, final FileSystem fs,
@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
+import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheFactory;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Tests that a batch of Gets sharing region scanners returns what the Gets return one by one.
+ */
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestHRegionBatchGet {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestHRegionBatchGet.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final byte[] FAMILY_ROW_BLOOM = Bytes.toBytes("r");
+  private static final byte[] FAMILY_NO_BLOOM = Bytes.toBytes("n");
+  private static final int NUM_ROWS = 500;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private final Random random = new Random(42);
+  private BlockCache blockCache;
+  private HRegion region;
+
+  @Before
+  public void setUp() throws IOException {
+    Configuration conf = TEST_UTIL.getConfiguration();
+    TableName tableName = TableName.valueOf(name.getMethodName());
+    TableDescriptorBuilder builder = TableDescriptorBuilder.newBuilder(tableName)
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(FAMILY_ROW_BLOOM)
+            .setBlocksize(1024).setBloomFilterType(BloomType.ROW).build())
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(FAMILY_NO_BLOOM)
+            .setBlocksize(1024).setBloomFilterType(BloomType.NONE).build());
+    RegionInfo info = RegionInfoBuilder.newBuilder(tableName).build();
+    Path path = TEST_UTIL.getDataTestDir(name.getMethodName());
+    blockCache = BlockCacheFactory.createBlockCache(conf);
+    region = HBaseTestingUtility.createRegionAndWAL(info, path, conf, builder.build(), blockCache);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    HBaseTestingUtility.closeRegionAndWAL(region);
+    blockCache.shutdown();
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%05d", i));
+  }
+
+  /**
+   * Writes the even rows, in two store files and the memstore, leaving the odd rows missing.
+   */
+  private void loadData() throws IOException {
+    for (int i = 0; i < NUM_ROWS; i += 2) {
+      Put put = new Put(row(i));
+      for (int q = 0; q < 3; q++) {
+        put.addColumn(FAMILY_ROW_BLOOM, Bytes.toBytes("q" + q), Bytes.toBytes("r" + i + q));
+        put.addColumn(FAMILY_NO_BLOOM, Bytes.toBytes("q" + q), Bytes.toBytes("n" + i + q));
+      }
+      region.put(put);
+      if (i == NUM_ROWS / 3 || i == 2 * NUM_ROWS / 3) {
+        region.flush(true);
+      }
+    }
+  }
+
+  private Get randomGet() {
+    Get get = new Get(row(random.nextInt(NUM_ROWS + 10)));
+    switch (random.nextInt(4)) {
+      case 0:
+        get.addFamily(FAMILY_ROW_BLOOM);
+        break;
+      case 1:
+        get.addColumn(FAMILY_NO_BLOOM, Bytes.toBytes("q1"));
+        break;
+      case 2:
+        get.setFilter(new ColumnPrefixFilter(Bytes.toBytes("q2")));
+        break;
+      default:
+        break;
+    }
+    return get;
+  }
+
+  private void assertSameCells(List<Cell> expected, List<Cell> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(0, CellComparator.getInstance().compare(expected.get(i), actual.get(i)));
+      assertTrue(Bytes.equals(expected.get(i).getValueArray(), expected.get(i).getValueOffset(),
+        expected.get(i).getValueLength(), actual.get(i).getValueArray(),
+        actual.get(i).getValueOffset(), actual.get(i).getValueLength()));
+    }
+  }
+
+  private void assertBatchMatchesSingleGets(List<Get> gets) throws IOException {
+    for (Get get : gets) {
+      region.prepareGet(get);
+    }
+    List<List<Cell>> results = region.get(gets, true, null);
+    assertEquals(gets.size(), results.size());
+    for (int i = 0; i < gets.size(); i++) {
+      assertSameCells(region.get(gets.get(i), true), results.get(i));
+    }
+  }
+
+  @Test
+  public void testRandomBatches() throws IOException {
+    loadData();
+    for (int batch = 0; batch < 20; batch++) {
+      List<Get> gets = new ArrayList<>();
+      int size = 1 + random.nextInt(100);
+      for (int i = 0; i < size; i++) {
+        gets.add(randomGet());
+      }
+      assertBatchMatchesSingleGets(gets);
+    }
+  }
+
+  @Test
+  public void testDuplicateAndMissingRows() throws IOException {
+    loadData();
+    List<Get> gets = new ArrayList<>();
+    for (int i = NUM_ROWS + 5; i >= 0; i -= 3) {
+      gets.add(new Get(row(i)));
+      gets.add(new Get(row(i)));
+    }
+    Collections.shuffle(gets, random);
+    assertBatchMatchesSingleGets(gets);
+  }
+
+  @Test
+  public void testStopsAtMaxResultSize() throws IOException {
+    loadData();
+    List<Get> gets = new ArrayList<>();
+    for (int i = 0; i < 20; i += 2) {
+      Get get = new Get(row(i));
+      region.prepareGet(get);
+      gets.add(get);
+    }
+    long rowSize = 0;
+    for (Cell cell : region.get(gets.get(0), true)) {
+      rowSize += PrivateCellUtil.estimatedSerializedSizeOf(cell);
+    }
+    // Every row has the same size, so the limit is reached with the third row
+    List<List<Cell>> results = region.get(gets, true, null, 2 * rowSize + 1);
+    for (int i = 0; i < gets.size(); i++) {
+      if (i < 3) {
+        assertSameCells(region.get(gets.get(i), true), results.get(i));
+      } else {
+        assertNull(results.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testEmptyRegion() throws IOException {
+    List<Get> gets = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      gets.add(new Get(row(i)));
+    }
+    List<List<Cell>> results = region.get(gets, true, null);
+    for (List<Cell> cells : results) {
+      assertTrue(cells.isEmpty());
+    }
+  }
+}
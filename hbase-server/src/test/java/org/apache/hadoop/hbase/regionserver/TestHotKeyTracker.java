@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.metrics.Gauge;
+import org.apache.hadoop.hbase.metrics.MetricRegistries;
+import org.apache.hadoop.hbase.metrics.MetricRegistry;
+import org.apache.hadoop.hbase.metrics.MetricRegistryInfo;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestHotKeyTracker {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestHotKeyTracker.class);
+
+  private static final long WINDOW = 1000;
+
+  private final ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+  private final MetricRegistryInfo registryInfo =
+      new MetricRegistryInfo("TestHotKeyTracker", "", "", "", false);
+  private MetricRegistry registry;
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    edge.setValue(1);
+    EnvironmentEdgeManager.injectEdge(edge);
+    registry = MetricRegistries.global().create(registryInfo);
+    conf = HBaseConfiguration.create();
+    conf.setBoolean(HotKeyTracker.HOT_KEY_ENABLED_KEY, true);
+    conf.setDouble(HotKeyTracker.HOT_KEY_SAMPLE_RATE_KEY, 1.0);
+    conf.setLong(HotKeyTracker.HOT_KEY_WINDOW_KEY, WINDOW);
+    conf.setInt(HotKeyTracker.HOT_KEY_TOP_K_KEY, 2);
+  }
+
+  @After
+  public void tearDown() {
+    MetricRegistries.global().remove(registryInfo);
+    EnvironmentEdgeManager.reset();
+  }
+
+  private static RegionInfo region(String table) {
+    return RegionInfoBuilder.newBuilder(TableName.valueOf(table)).build();
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    assertNull(HotKeyTracker.create(HBaseConfiguration.create(), registry));
+  }
+
+  @Test
+  public void testHotKeys() {
+    HotKeyTracker tracker = HotKeyTracker.create(conf, registry);
+    RegionInfo hot = region("hot");
+    RegionInfo cold = region("cold");
+    for (int i = 0; i < 500; i++) {
+      tracker.record(hot, Bytes.toBytes("row-a"));
+      if (i % 2 == 0) {
+        tracker.record(hot, Bytes.toBytes("row-b"));
+      }
+      tracker.record(cold, Bytes.toBytes("row-" + i));
+    }
+    // Nothing is reported before the first window ends
+    assertTrue(tracker.getHotRows().isEmpty());
+    edge.incValue(WINDOW);
+
+    List<HotKeyTracker.HotKey> rows = tracker.getHotRows();
+    assertEquals(2, rows.size());
+    assertArrayEquals(Bytes.toBytes("row-a"), rows.get(0).getRow());
+    assertArrayEquals(Bytes.toBytes("row-b"), rows.get(1).getRow());
+    assertEquals(hot, rows.get(0).getRegion());
+    assertEquals(500, rows.get(0).getRequestsPerSecond(), 10);
+    assertEquals(0.4, rows.get(0).getShare(), 0.02);
+    assertEquals(2, tracker.getHotRows(hot.getEncodedName()).size());
+    assertTrue(tracker.getHotRows(cold.getEncodedName()).isEmpty());
+
+    List<HotKeyTracker.HotKey> regions = tracker.getHotRegions();
+    assertEquals(hot, regions.get(0).getRegion());
+    assertNull(regions.get(0).getRow());
+    assertEquals(cold, regions.get(1).getRegion());
+
+    String gaugeName = "HotKeys_table_hot_region_" + hot.getEncodedName() + "_row_row-a" +
+        "_request_rate";
+    assertTrue(registry.get(gaugeName).isPresent());
+    assertEquals(500L, (long) ((Gauge<Long>) registry.get(gaugeName).get()).getValue(), 10);
+
+    // Keys that cool down are dropped, along with their gauges
+    edge.incValue(2 * WINDOW);
+    assertTrue(tracker.getHotRows().isEmpty());
+    assertTrue(tracker.getHotRegions().isEmpty());
+    assertTrue(registry.getMetrics().isEmpty());
+  }
+
+  @Test
+  public void testConcurrentRecords() throws Exception {
+    HotKeyTracker tracker = HotKeyTracker.create(conf, registry);
+    RegionInfo hot = region("hot");
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      int id = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          tracker.record(hot, Bytes.toBytes(i % 2 == 0 ? "row-a" : "row-" + id + "-" + i));
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    edge.incValue(WINDOW);
+    // No record is lost across the stripes of the handlers
+    List<HotKeyTracker.HotKey> rows = tracker.getHotRows();
+    assertArrayEquals(Bytes.toBytes("row-a"), rows.get(0).getRow());
+    assertEquals(4000, rows.get(0).getRequestsPerSecond(), 0.1);
+    assertEquals(0.5, rows.get(0).getShare(), 0.001);
+    assertEquals(8000, tracker.getHotRegions().get(0).getRequestsPerSecond(), 0.1);
+  }
+}
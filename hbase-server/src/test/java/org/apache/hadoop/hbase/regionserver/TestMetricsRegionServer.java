@@ -98,6 +98,8 @@ public class TestMetricsRegionServer {
     HELPER.assertGauge("percentFilesLocal", 99, serverSource);
     HELPER.assertGauge("percentFilesLocalSecondaryRegions", 99, serverSource);
     HELPER.assertGauge("compactionQueueLength", 411, serverSource);
+    HELPER.assertGauge("compactionQueueMaxUrgency", 12.5, serverSource);
+    HELPER.assertCounter("lentCompactionsCount", 3, serverSource);
     HELPER.assertGauge("flushQueueLength", 412, serverSource);
     HELPER.assertGauge("blockCacheFreeSize", 413, serverSource);
     HELPER.assertGauge("blockCacheCount", 414, serverSource);
@@ -199,6 +201,17 @@ public class TestMetricsRegionServer {
     HELPER.assertCounter("flushOutputSize_num_ops", 2, serverSource);
     HELPER.assertCounter("flushedMemstoreBytes", 22, serverSource);
     HELPER.assertCounter("flushedOutputBytes", 33, serverSource);
+
+    rsm.updateStoreFlush(5);
+    rsm.updateStoreFlush(7);
+    HELPER.assertCounter("flushStoreTime_num_ops", 2, serverSource);
+    HELPER.assertCounter("flushTime_num_ops", 2, serverSource);
+
+    rsm.incrRecoveredEditsReplayed(2000);
+    rsm.incrRecoveredEditsReplayed(500);
+    rsm.updateRecoveredEditsReplay(40);
+    HELPER.assertCounter("recoveredEditsReplayed", 2500, serverSource);
+    HELPER.assertCounter("recoveredEditsReplayTime_num_ops", 1, serverSource);
   }
 
   @Test
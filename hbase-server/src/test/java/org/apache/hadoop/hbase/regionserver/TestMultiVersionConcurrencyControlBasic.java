@@ -18,7 +18,13 @@
 package org.apache.hadoop.hbase.regionserver;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.testclassification.RegionServerTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
@@ -49,4 +55,53 @@ public class TestMultiVersionConcurrencyControlBasic {
     mvcc.complete(writeEntry);
     assertEquals(readPoint + 2, mvcc.getWritePoint());
   }
+
+  @Test
+  public void testOutOfOrderComplete() {
+    MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl(10);
+    MultiVersionConcurrencyControl.WriteEntry first = mvcc.begin();
+    MultiVersionConcurrencyControl.WriteEntry second = mvcc.begin();
+    MultiVersionConcurrencyControl.WriteEntry third = mvcc.begin();
+    assertFalse(mvcc.complete(third));
+    assertFalse(mvcc.complete(second));
+    assertEquals(10, mvcc.getReadPoint());
+    // Completing the oldest write makes all three visible at once
+    assertTrue(mvcc.complete(first));
+    assertEquals(13, mvcc.getReadPoint());
+  }
+
+  @Test
+  public void testMoreWritesInFlightThanRingSlots() {
+    MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl();
+    List<MultiVersionConcurrencyControl.WriteEntry> entries = new ArrayList<>();
+    int count = 3 * MultiVersionConcurrencyControl.RING_SIZE + 7;
+    for (int i = 0; i < count; i++) {
+      entries.add(mvcc.begin());
+    }
+    MultiVersionConcurrencyControl.WriteEntry oldest = entries.remove(0);
+    Collections.shuffle(entries, new Random(42));
+    for (MultiVersionConcurrencyControl.WriteEntry e : entries) {
+      assertFalse(mvcc.complete(e));
+    }
+    assertEquals(0, mvcc.getReadPoint());
+    assertTrue(mvcc.complete(oldest));
+    assertEquals(count, mvcc.getReadPoint());
+    // Slots are reused once the read point has moved past them
+    mvcc.completeAndWait(mvcc.begin());
+    assertEquals(count + 1, mvcc.getReadPoint());
+  }
+
+  @Test
+  public void testWaiterIsWokenByEarlierWrite() throws InterruptedException {
+    MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl();
+    MultiVersionConcurrencyControl.WriteEntry first = mvcc.begin();
+    MultiVersionConcurrencyControl.WriteEntry second = mvcc.begin();
+    Thread waiter = new Thread(() -> mvcc.completeAndWait(second));
+    waiter.start();
+    waiter.join(100);
+    assertTrue(waiter.isAlive());
+    mvcc.complete(first);
+    waiter.join();
+    assertEquals(2, mvcc.getReadPoint());
+  }
 }
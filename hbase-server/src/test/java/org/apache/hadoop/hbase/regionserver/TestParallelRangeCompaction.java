@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.regionserver.compactions.DefaultCompactor;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Tests that a major compaction split into row ranges compacted in parallel writes one file per
+ * range and keeps the same data as a single threaded one.
+ */
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestParallelRangeCompaction {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestParallelRangeCompaction.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final int NUM_ROWS = 2000;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @After
+  public void tearDown() throws IOException {
+    if (region != null) {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+
+  private void createRegion(int ranges) throws IOException {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(DefaultCompactor.PARALLEL_RANGES_KEY, ranges);
+    conf.setLong(DefaultCompactor.PARALLEL_MIN_SIZE_KEY, 0);
+    TableName tableName = TableName.valueOf(name.getMethodName());
+    TableDescriptorBuilder builder = TableDescriptorBuilder.newBuilder(tableName)
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(FAMILY).setBlocksize(1024)
+            .setMaxVersions(2).build());
+    RegionInfo info = RegionInfoBuilder.newBuilder(tableName).build();
+    Path path = TEST_UTIL.getDataTestDir(name.getMethodName());
+    region = HBaseTestingUtility.createRegionAndWAL(info, path, conf, builder.build());
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%05d", i));
+  }
+
+  /**
+   * Writes three versions of every row in three files, then deletes some rows and columns.
+   */
+  private void loadData() throws IOException {
+    for (int version = 0; version < 3; version++) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        Put put = new Put(row(i));
+        for (int q = 0; q < 3; q++) {
+          put.addColumn(FAMILY, Bytes.toBytes("q" + q), Bytes.toBytes("v" + version + i + q));
+        }
+        region.put(put);
+      }
+      region.flush(true);
+    }
+    for (int i = 0; i < NUM_ROWS; i += 7) {
+      Delete delete = new Delete(row(i));
+      if (i % 2 == 0) {
+        delete.addColumns(FAMILY, Bytes.toBytes("q1"));
+      }
+      region.delete(delete);
+    }
+    region.flush(true);
+  }
+
+  private List<Cell> scanAll() throws IOException {
+    List<Cell> cells = new ArrayList<>();
+    try (RegionScanner scanner = region.getScanner(new Scan().readAllVersions())) {
+      List<Cell> batch = new ArrayList<>();
+      boolean hasMore;
+      do {
+        hasMore = scanner.next(batch);
+        cells.addAll(batch);
+        batch.clear();
+      } while (hasMore);
+    }
+    return cells;
+  }
+
+  @Test
+  public void testCompactRanges() throws IOException {
+    createRegion(4);
+    loadData();
+    HStore store = region.getStore(FAMILY);
+    List<Cell> expected = scanAll();
+    region.compact(true);
+    assertEquals(4, store.getStorefilesCount());
+    List<Cell> actual = scanAll();
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertTrue(CellUtil.equals(expected.get(i), actual.get(i)));
+      assertTrue(CellUtil.matchingValue(expected.get(i), actual.get(i)));
+    }
+    // The files cover disjoint row ranges and the deletes are gone after the major compaction
+    List<HStoreFile> files = new ArrayList<>(store.getStorefiles());
+    files.sort((a, b) -> Bytes.compareTo(CellUtil.cloneRow(a.getFirstKey().get()),
+      CellUtil.cloneRow(b.getFirstKey().get())));
+    long entries = 0;
+    for (int i = 0; i < files.size(); i++) {
+      HStoreFile file = files.get(i);
+      entries += file.getReader().getEntries();
+      if (i > 0) {
+        assertTrue(Bytes.compareTo(CellUtil.cloneRow(files.get(i - 1).getLastKey().get()),
+          CellUtil.cloneRow(file.getFirstKey().get())) < 0);
+      }
+    }
+    assertEquals(expected.size(), entries);
+    // The next minor compaction does not pull the range files back in with the new flushes
+    for (HStoreFile file : files) {
+      assertTrue(file.excludeFromMinorCompaction());
+    }
+    for (int version = 0; version < 3; version++) {
+      region.put(new Put(row(version)).addColumn(FAMILY, Bytes.toBytes("q0"),
+        Bytes.toBytes("new" + version)));
+      region.flush(true);
+    }
+    region.compact(false);
+    assertEquals(5, store.getStorefilesCount());
+    assertEquals(4, store.getStorefiles().stream().filter(HStoreFile::excludeFromMinorCompaction)
+        .count());
+  }
+
+  @Test
+  public void testMinorCompactionOfAllFilesIsNotSplit() throws IOException {
+    createRegion(4);
+    loadData();
+    List<Cell> expected = scanAll();
+    region.compact(false);
+    HStore store = region.getStore(FAMILY);
+    assertEquals(1, store.getStorefilesCount());
+    assertFalse(store.getStorefiles().iterator().next().excludeFromMinorCompaction());
+    assertEquals(expected.size(), scanAll().size());
+  }
+
+  @Test
+  public void testSingleRange() throws IOException {
+    createRegion(1);
+    loadData();
+    List<Cell> expected = scanAll();
+    region.compact(true);
+    assertEquals(1, region.getStore(FAMILY).getStorefilesCount());
+    assertEquals(expected.size(), scanAll().size());
+  }
+}
@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.DroppedSnapshotException;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.MockRegionServerServices;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.executor.ExecutorService;
+import org.apache.hadoop.hbase.monitoring.MonitoredTask;
+import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Tests flushing the stores of a region concurrently on the region server's flush pool.
+ */
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestParallelStoreFlush {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestParallelStoreFlush.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final int NUM_FAMILIES = 4;
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_ROWS = 100;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private final Set<String> flushThreads = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger storesFlushed = new AtomicInteger();
+  // All the stores have to get into their flush before any of them can go on
+  private final CyclicBarrier barrier = new CyclicBarrier(NUM_FAMILIES);
+  private volatile byte[] failingFamily;
+
+  private ExecutorService executorService;
+  private WAL wal;
+  private HRegion region;
+
+  private static byte[] family(int i) {
+    return Bytes.toBytes("f" + i);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%04d", i));
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    Configuration conf = HBaseConfiguration.create(TEST_UTIL.getConfiguration());
+    conf.setInt(HRegion.FLUSH_STORES_THREADS_KEY, NUM_FAMILIES);
+    conf.setBoolean(MemStoreLAB.USEMSLAB_KEY, false);
+    executorService = new ExecutorService(name.getMethodName());
+    MockRegionServerServices rsServices = new MockRegionServerServices(conf) {
+      @Override
+      public ExecutorService getExecutorService() {
+        return executorService;
+      }
+    };
+    TableDescriptorBuilder builder =
+        TableDescriptorBuilder.newBuilder(TableName.valueOf(name.getMethodName()));
+    for (int i = 0; i < NUM_FAMILIES; i++) {
+      builder.setColumnFamily(ColumnFamilyDescriptorBuilder.of(family(i)));
+    }
+    TableDescriptor td = builder.build();
+    RegionInfo info = RegionInfoBuilder.newBuilder(td.getTableName()).build();
+    Path rootDir = TEST_UTIL.getDataTestDir(name.getMethodName());
+    HRegionFileSystem regionFs = HRegionFileSystem.createRegionOnFileSystem(conf,
+      FileSystem.get(conf), FSUtils.getTableDir(rootDir, td.getTableName()), info);
+    wal = HBaseTestingUtility.createWal(conf, rootDir, info);
+    region = new HRegion(regionFs, wal, conf, td, rsServices) {
+      @Override
+      protected HStore instantiateHStore(ColumnFamilyDescriptor family, boolean warmup)
+          throws IOException {
+        return new HStore(this, family, this.conf, warmup) {
+          @Override
+          protected List<Path> flushCache(long logCacheFlushId, MemStoreSnapshot snapshot,
+              MonitoredTask status, ThroughputController throughputController,
+              FlushLifeCycleTracker tracker) throws IOException {
+            flushThreads.add(Thread.currentThread().getName());
+            try {
+              barrier.await(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+              throw new IOException("Stores were not flushed concurrently", e);
+            }
+            if (Bytes.equals(failingFamily, getColumnFamilyDescriptor().getName())) {
+              throw new IOException("Injected flush failure");
+            }
+            List<Path> paths = super.flushCache(logCacheFlushId, snapshot, status,
+              throughputController, tracker);
+            storesFlushed.incrementAndGet();
+            return paths;
+          }
+        };
+      }
+    };
+    region.initialize();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try {
+      region.close(true);
+    } finally {
+      wal.close();
+      executorService.shutdown();
+    }
+  }
+
+  private void loadData() throws IOException {
+    for (int r = 0; r < NUM_ROWS; r++) {
+      Put put = new Put(row(r));
+      for (int i = 0; i < NUM_FAMILIES; i++) {
+        put.addColumn(family(i), QUALIFIER, Bytes.add(row(r), family(i)));
+      }
+      region.put(put);
+    }
+  }
+
+  @Test
+  public void testStoresFlushedConcurrently() throws IOException {
+    loadData();
+    HRegion.FlushResult result = region.flush(true);
+    assertTrue(result.isFlushSucceeded());
+    assertEquals(NUM_FAMILIES, storesFlushed.get());
+    // The flushing thread takes one store, the pool the others
+    assertEquals(NUM_FAMILIES, flushThreads.size());
+    assertEquals(0, region.getMemStoreDataSize());
+    for (int i = 0; i < NUM_FAMILIES; i++) {
+      assertEquals(1, region.getStore(family(i)).getStorefilesCount());
+    }
+    for (int r = 0; r < NUM_ROWS; r++) {
+      Result get = region.get(new Get(row(r)));
+      for (int i = 0; i < NUM_FAMILIES; i++) {
+        assertArrayEquals(Bytes.add(row(r), family(i)), get.getValue(family(i), QUALIFIER));
+      }
+    }
+  }
+
+  @Test
+  public void testFailedStoreFlush() throws IOException {
+    loadData();
+    failingFamily = family(NUM_FAMILIES - 1);
+    try {
+      region.flush(true);
+      fail("The flush should have failed");
+    } catch (DroppedSnapshotException e) {
+      // expected
+    }
+    // The other stores were done before the failure was reported, and nothing was committed
+    assertEquals(NUM_FAMILIES - 1, storesFlushed.get());
+    for (int i = 0; i < NUM_FAMILIES; i++) {
+      assertEquals(0, region.getStore(family(i)).getStorefilesCount());
+    }
+  }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.hbase.regionserver;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -37,6 +38,7 @@ import org.apache.hadoop.hbase.testclassification.RegionServerTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Rule;
@@ -210,6 +212,129 @@ public class TestRegionSplitPolicy {
     assertTrue(policy.shouldSplit());
   }
 
+  @Test
+  public void testLoadBasedRegionSplitPolicy() throws Exception {
+    conf.set(HConstants.HBASE_REGION_SPLIT_POLICY_KEY,
+        LoadBasedRegionSplitPolicy.class.getName());
+    conf.setLong("hbase.load.policy.minAge", 0L);
+    conf.setLong("hbase.load.policy.aggWindow", 1000L);
+    conf.setLong("hbase.load.policy.requestsPerSecond", 100L);
+    conf.setInt("hbase.load.policy.minSamples", 10);
+    conf.setInt("hbase.load.policy.maxSamples", 1000);
+
+    RegionServerServices rss = Mockito.mock(RegionServerServices.class);
+    Mockito.doReturn(new ArrayList<HRegion>()).when(rss).getRegions(TABLENAME);
+    Mockito.when(mockRegion.getRegionServerServices()).thenReturn(rss);
+    Mockito.when(mockRegion.getReadRequestsCount()).thenReturn(0L);
+    Mockito.when(mockRegion.getWriteRequestsCount()).thenReturn(0L);
+    HStore mockStore = Mockito.mock(HStore.class);
+    Mockito.doReturn(1L).when(mockStore).getSize();
+    Mockito.doReturn(true).when(mockStore).canSplit();
+    Mockito.doReturn(Optional.of(Bytes.toBytes("size median"))).when(mockStore).getSplitPoint();
+    stores.add(mockStore);
+
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(1);
+    EnvironmentEdgeManager.injectEdge(edge);
+    try {
+      LoadBasedRegionSplitPolicy policy =
+          (LoadBasedRegionSplitPolicy) RegionSplitPolicy.create(mockRegion, conf);
+      assertEquals(0.01, policy.getRowAccessSampleRate(), 0.0);
+      // Three quarters of the load is on the rows above "row-5"
+      for (int i = 0; i < 1000; i++) {
+        policy.sampleRowAccess(Bytes.toBytes("row-" + (i % 4 == 0 ? i % 5 : 5 + i % 5)));
+      }
+      Mockito.when(mockRegion.getReadRequestsCount()).thenReturn(1000L);
+      assertFalse(policy.shouldSplit());
+
+      // Busy for a whole window
+      edge.incValue(1000);
+      assertTrue(policy.shouldSplit());
+      assertEquals("row-6", Bytes.toString(policy.getSplitPoint()));
+
+      // Not busy enough in the next window
+      Mockito.when(mockRegion.getReadRequestsCount()).thenReturn(1050L);
+      for (int i = 0; i < 1000; i++) {
+        policy.sampleRowAccess(Bytes.toBytes("row-" + i % 10));
+      }
+      edge.incValue(1000);
+      assertFalse(policy.shouldSplit());
+
+      // Mostly a single row, which is cut off from the rows before it
+      for (int i = 0; i < 1000; i++) {
+        policy.sampleRowAccess(Bytes.toBytes(i % 10 == 0 ? "row-0" : "row-1"));
+      }
+      Mockito.when(mockRegion.getReadRequestsCount()).thenReturn(10000L);
+      edge.incValue(1000);
+      assertTrue(policy.shouldSplit());
+      assertEquals("row-1", Bytes.toString(policy.getSplitPoint()));
+
+      // Then, in the daughter starting with the hot row, from the rows after it
+      Mockito.doReturn(new HRegionInfo(TABLENAME, Bytes.toBytes("row-1"), HConstants.EMPTY_END_ROW))
+          .when(mockRegion).getRegionInfo();
+      for (int i = 0; i < 1000; i++) {
+        policy.sampleRowAccess(Bytes.toBytes(i % 10 == 0 ? "row-9" : "row-1"));
+      }
+      Mockito.when(mockRegion.getReadRequestsCount()).thenReturn(20000L);
+      edge.incValue(1000);
+      assertTrue(policy.shouldSplit());
+      assertArrayEquals(Bytes.add(Bytes.toBytes("row-1"), new byte[1]), policy.getSplitPoint());
+
+      // Until the hot row is alone in its region
+      Mockito.doReturn(new HRegionInfo(TABLENAME, Bytes.toBytes("row-1"),
+          Bytes.add(Bytes.toBytes("row-1"), new byte[1]))).when(mockRegion).getRegionInfo();
+      for (int i = 0; i < 1000; i++) {
+        policy.sampleRowAccess(Bytes.toBytes("row-1"));
+      }
+      Mockito.when(mockRegion.getReadRequestsCount()).thenReturn(30000L);
+      edge.incValue(1000);
+      assertFalse(policy.shouldSplit());
+      assertNull(policy.getLoadSplitPoint());
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
+  @Test
+  public void testLoadBasedSplitRequestedBySampling() throws Exception {
+    conf.set(HConstants.HBASE_REGION_SPLIT_POLICY_KEY,
+        LoadBasedRegionSplitPolicy.class.getName());
+    conf.setLong("hbase.load.policy.aggWindow", 1000L);
+    conf.setLong("hbase.load.policy.requestsPerSecond", 100L);
+    conf.setInt("hbase.load.policy.minSamples", 10);
+
+    HRegionServer rs = Mockito.mock(HRegionServer.class);
+    CompactSplit compactSplit = Mockito.mock(CompactSplit.class);
+    Mockito.doReturn(compactSplit).when(rs).getCompactSplitThread();
+    Mockito.when(mockRegion.getRegionServerServices()).thenReturn(rs);
+    Mockito.when(mockRegion.getReadRequestsCount()).thenReturn(0L);
+    Mockito.when(mockRegion.getWriteRequestsCount()).thenReturn(0L);
+
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(1);
+    EnvironmentEdgeManager.injectEdge(edge);
+    try {
+      LoadBasedRegionSplitPolicy policy =
+          (LoadBasedRegionSplitPolicy) RegionSplitPolicy.create(mockRegion, conf);
+      for (int i = 0; i < 100; i++) {
+        policy.sampleRowAccess(Bytes.toBytes("row-" + i));
+      }
+      // A busy window ends, without any flush or compaction of the region
+      Mockito.when(mockRegion.getReadRequestsCount()).thenReturn(1000L);
+      edge.incValue(1000);
+      Mockito.verify(compactSplit, Mockito.never()).requestSplit(mockRegion);
+      policy.sampleRowAccess(Bytes.toBytes("row-0"));
+      Mockito.verify(compactSplit).requestSplit(mockRegion);
+
+      // A quiet one does not ask for a check
+      edge.incValue(1000);
+      policy.sampleRowAccess(Bytes.toBytes("row-0"));
+      Mockito.verify(compactSplit).requestSplit(mockRegion);
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
   private void assertWithinJitter(long maxSplitSize, long sizeToCheck) {
     assertTrue("Size greater than lower bound of jitter",
         (long)(maxSplitSize * 0.75) <= sizeToCheck);
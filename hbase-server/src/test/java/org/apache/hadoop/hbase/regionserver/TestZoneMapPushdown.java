@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.filter.ValueFilter;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileZoneMap;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Checks that scans step over the data blocks and files their zone maps rule out, while
+ * returning what a family without zone maps returns.
+ */
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestZoneMapPushdown {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestZoneMapPushdown.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  /** Family with zone maps on {@link #TS}. */
+  private static final byte[] MAPPED = Bytes.toBytes("m");
+  /** Family without zone maps, holding the same data. */
+  private static final byte[] PLAIN = Bytes.toBytes("p");
+  private static final byte[] TS = Bytes.toBytes("ts");
+  private static final byte[] VALUE = Bytes.toBytes("v");
+  private static final int ROWS = 1000;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @Before
+  public void setUp() throws IOException {
+    TableName tableName = TableName.valueOf(name.getMethodName());
+    TableDescriptorBuilder builder = TableDescriptorBuilder.newBuilder(tableName)
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(MAPPED).setBlocksize(1024)
+            .setConfiguration(HFileZoneMap.ZONE_MAP_QUALIFIERS_KEY, Bytes.toString(TS)).build())
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(PLAIN).setBlocksize(1024)
+            .build());
+    RegionInfo info = RegionInfoBuilder.newBuilder(tableName).build();
+    Path path = TEST_UTIL.getDataTestDir(name.getMethodName());
+    region = HBaseTestingUtility.createRegionAndWAL(info, path, TEST_UTIL.getConfiguration(),
+      builder.build());
+    for (int i = 0; i < ROWS; i++) {
+      Put put = new Put(row(i));
+      for (byte[] family : new byte[][] { MAPPED, PLAIN }) {
+        put.addColumn(family, TS, Bytes.toBytes((long) i));
+        put.addColumn(family, VALUE, new byte[64]);
+      }
+      region.put(put);
+    }
+    region.flush(true);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    HBaseTestingUtility.closeRegionAndWAL(region);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row%04d", i));
+  }
+
+  @Test
+  public void testValueFilter() throws IOException {
+    Filter filter = new ValueFilter(CompareOperator.GREATER_OR_EQUAL,
+        new BinaryComparator(Bytes.toBytes(900L)));
+    long[] blocksRead = new long[2];
+    List<Cell> cells = scanBoth(filter, true, blocksRead);
+    assertEquals(100, cells.size());
+    assertTrue(blocksRead[0] + " vs " + blocksRead[1], blocksRead[0] * 4 < blocksRead[1]);
+
+    // A file that no value can come from is not read at all
+    filter = new ValueFilter(CompareOperator.GREATER, new BinaryComparator(Bytes.toBytes(5000L)));
+    assertEquals(0, scanBoth(filter, true, blocksRead).size());
+    assertEquals(0, blocksRead[0]);
+
+    // Deleting a column in a newer file hides the value of the older one
+    region.delete(new Delete(row(950)).addColumns(MAPPED, TS).addColumns(PLAIN, TS));
+    region.put(new Put(row(10)).addColumn(MAPPED, TS, Bytes.toBytes(2000L))
+        .addColumn(PLAIN, TS, Bytes.toBytes(2000L)));
+    region.flush(true);
+    filter = new ValueFilter(CompareOperator.GREATER_OR_EQUAL,
+        new BinaryComparator(Bytes.toBytes(900L)));
+    cells = scanBoth(filter, true, blocksRead);
+    assertEquals(100, cells.size());
+    assertTrue(CellUtil.matchingRows(cells.get(0), row(10)));
+  }
+
+  @Test
+  public void testSingleColumnValueFilter() throws IOException {
+    long[] blocksRead = new long[2];
+    List<Cell> cells = scanBoth(columnFilter(MAPPED, CompareOperator.LESS, 100L), false,
+      blocksRead);
+    assertEquals(200, cells.size());
+    assertTrue(blocksRead[0] + " vs " + blocksRead[1], blocksRead[0] * 4 < blocksRead[1]);
+
+    // A newer value of the column in another file makes the rest of the row come back, whether
+    // the two files are scanned without zone maps, or once compacted into one with them
+    region.put(new Put(row(950)).addColumn(MAPPED, TS, Bytes.toBytes(5L))
+        .addColumn(PLAIN, TS, Bytes.toBytes(5L)));
+    region.flush(true);
+    cells = scanBoth(columnFilter(MAPPED, CompareOperator.LESS, 100L), false, blocksRead);
+    assertEquals(202, cells.size());
+    assertTrue(CellUtil.matchingRows(cells.get(cells.size() - 1), row(950)));
+    region.compact(true);
+    assertEquals(1, region.getStore(MAPPED).getStorefilesCount());
+    cells = scanBoth(columnFilter(MAPPED, CompareOperator.LESS, 100L), false, blocksRead);
+    assertEquals(202, cells.size());
+    assertTrue(CellUtil.matchingRows(cells.get(cells.size() - 1), row(950)));
+    assertTrue(blocksRead[0] + " vs " + blocksRead[1], blocksRead[0] * 4 < blocksRead[1]);
+  }
+
+  @Test
+  public void testRowStraddlingBlocks() throws IOException {
+    // The column comes first in the row, the blocks holding the rest of the row start mid-row
+    // without it
+    Put put = new Put(row(50));
+    for (int i = 0; i < 10; i++) {
+      for (byte[] family : new byte[][] { MAPPED, PLAIN }) {
+        put.addColumn(family, Bytes.toBytes("x" + i), new byte[512]);
+      }
+    }
+    region.put(put);
+    region.flush(true);
+    region.compact(true);
+    assertEquals(1, region.getStore(MAPPED).getStorefilesCount());
+    long[] blocksRead = new long[2];
+    List<Cell> cells = scanBoth(columnFilter(MAPPED, CompareOperator.LESS, 100L), false,
+      blocksRead);
+    assertEquals(210, cells.size());
+    assertTrue(blocksRead[0] + " vs " + blocksRead[1], blocksRead[0] * 4 < blocksRead[1]);
+  }
+
+  private static Filter columnFilter(byte[] family, CompareOperator op, long value) {
+    SingleColumnValueFilter filter =
+        new SingleColumnValueFilter(family, TS, op, new BinaryComparator(Bytes.toBytes(value)));
+    filter.setFilterIfMissing(true);
+    return filter;
+  }
+
+  /**
+   * Runs the scan on both families, checking they return the same.
+   * @param blocksRead where to put the number of data blocks read for each family
+   * @return the cells of the family with zone maps
+   */
+  private List<Cell> scanBoth(Filter filter, boolean tsOnly, long[] blocksRead)
+      throws IOException {
+    List<Cell> mapped = scan(MAPPED, filter, tsOnly, blocksRead, 0);
+    if (filter instanceof SingleColumnValueFilter) {
+      filter = columnFilter(PLAIN, ((SingleColumnValueFilter) filter).getCompareOperator(),
+        Bytes.toLong(((SingleColumnValueFilter) filter).getComparator().getValue()));
+    }
+    List<Cell> plain = scan(PLAIN, filter, tsOnly, blocksRead, 1);
+    assertEquals(plain.size(), mapped.size());
+    for (int i = 0; i < plain.size(); i++) {
+      assertTrue(CellUtil.matchingRows(plain.get(i), mapped.get(i)));
+      assertTrue(CellUtil.matchingQualifier(plain.get(i), mapped.get(i)));
+      assertTrue(CellUtil.matchingValue(plain.get(i), mapped.get(i)));
+    }
+    return mapped;
+  }
+
+  private List<Cell> scan(byte[] family, Filter filter, boolean tsOnly, long[] blocksRead,
+      int index) throws IOException {
+    Scan scan = new Scan().setFilter(filter);
+    if (tsOnly) {
+      scan.addColumn(family, TS);
+    } else {
+      scan.addFamily(family);
+    }
+    long blocksBefore = HFile.DATABLOCK_READ_COUNT.sum();
+    List<Cell> cells = new ArrayList<>();
+    try (RegionScanner scanner = region.getScanner(scan)) {
+      List<Cell> row = new ArrayList<>();
+      boolean more;
+      do {
+        more = scanner.next(row);
+        cells.addAll(row);
+        row.clear();
+      } while (more);
+    }
+    blocksRead[index] = HFile.DATABLOCK_READ_COUNT.sum() - blocksBefore;
+    return cells;
+  }
+}
@@ -18,6 +18,8 @@
 package org.apache.hadoop.hbase.regionserver.wal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -25,9 +27,11 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.ArrayBackedTag;
 import org.apache.hadoop.hbase.ByteBufferKeyValue;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
@@ -35,6 +39,7 @@ import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.Tag;
 import org.apache.hadoop.hbase.codec.Codec.Decoder;
 import org.apache.hadoop.hbase.codec.Codec.Encoder;
+import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.util.LRUDictionary;
 import org.apache.hadoop.hbase.testclassification.RegionServerTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
@@ -65,11 +70,94 @@ public class TestWALCellCodecWithCompression {
     doTest(true, true);
   }
 
+  @Test
+  public void testEncodeDecodeKVsWithValueCompression() throws Exception {
+    doTest(false, false, Compression.Algorithm.GZ);
+  }
+
+  @Test
+  public void testEncodeDecodeOffKVsWithTagsAndValueCompression() throws Exception {
+    doTest(true, true, Compression.Algorithm.GZ);
+  }
+
+  @Test
+  public void testValueCompressionAcrossManyValues() throws Exception {
+    Configuration conf = new Configuration(false);
+    WALCellCodec codec = new WALCellCodec(conf, new CompressionContext(LRUDictionary.class, false,
+        false, Compression.Algorithm.GZ));
+    Random random = new Random(42);
+    List<KeyValue> kvs = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      // Mostly repetitive values, some of them empty and some larger than the codec buffers
+      int length = i % 100 == 0 ? 0 : i % 101 == 0 ? 200 * 1024 : random.nextInt(1024);
+      byte[] value = new byte[length];
+      for (int j = 0; j < length; j++) {
+        value[j] = (byte) ('a' + random.nextInt(4));
+      }
+      kvs.add(new KeyValue(Bytes.toBytes("row" + i), Bytes.toBytes("f"), Bytes.toBytes("q"),
+          i, value));
+    }
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+    Encoder encoder = codec.getEncoder(bos);
+    long rawSize = 0;
+    for (KeyValue kv : kvs) {
+      encoder.write(kv);
+      rawSize += kv.getValueLength();
+    }
+    assertTrue(bos.size() < rawSize / 2);
+
+    Decoder decoder = codec.getDecoder(new ByteArrayInputStream(bos.toByteArray()));
+    for (KeyValue kv : kvs) {
+      assertTrue(decoder.advance());
+      assertTrue(CellUtil.equals(kv, decoder.current()));
+      assertTrue(CellUtil.matchingValue(kv, decoder.current()));
+    }
+    assertFalse(decoder.advance());
+  }
+
+  @Test
+  public void testSmallRepetitiveValuesCompressAgainstEachOther() throws Exception {
+    CompressionContext.ValueCompressor compressor =
+        new CompressionContext.ValueCompressor(Compression.Algorithm.GZ);
+    CompressionContext.ValueCompressor decompressor =
+        new CompressionContext.ValueCompressor(Compression.Algorithm.GZ);
+    List<byte[]> values = new ArrayList<>();
+    ByteArrayOutputStream frames = new ByteArrayOutputStream();
+    List<Integer> frameLengths = new ArrayList<>();
+    long rawSize = 0;
+    for (int i = 0; i < 1000; i++) {
+      // Like the small status and counter values of a typical table
+      byte[] value = Bytes.toBytes("{\"status\":\"active\",\"count\":" + (i % 10) + "}");
+      byte[] frame = compressor.compress(value, 0, value.length);
+      values.add(value);
+      frames.write(frame);
+      frameLengths.add(frame.length);
+      rawSize += value.length;
+    }
+    // Compressed on their own, values this small would grow; against the previous ones they
+    // take a few bytes each
+    assertTrue("compressed " + frames.size() + " of " + rawSize + " bytes",
+      frames.size() < rawSize / 4);
+
+    InputStream in = new ByteArrayInputStream(frames.toByteArray());
+    for (int i = 0; i < values.size(); i++) {
+      byte[] value = new byte[values.get(i).length];
+      decompressor.decompress(in, frameLengths.get(i), value, 0, value.length);
+      assertTrue(Bytes.equals(values.get(i), value));
+    }
+    assertEquals(-1, in.read());
+  }
+
   private void doTest(boolean compressTags, boolean offheapKV) throws Exception {
+    doTest(compressTags, offheapKV, null);
+  }
+
+  private void doTest(boolean compressTags, boolean offheapKV,
+      Compression.Algorithm valueCompression) throws Exception {
     Configuration conf = new Configuration(false);
     conf.setBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, compressTags);
     WALCellCodec codec = new WALCellCodec(conf, new CompressionContext(LRUDictionary.class, false,
-        compressTags));
+        compressTags, valueCompression));
     ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
     Encoder encoder = codec.getEncoder(bos);
     if (offheapKV) {
@@ -99,6 +187,7 @@ public class TestWALCellCodecWithCompression {
     assertEquals(2, tags.size());
     assertEquals("tagValue1", Bytes.toString(Tag.cloneValue(tags.get(0))));
     assertEquals("tagValue2", Bytes.toString(Tag.cloneValue(tags.get(1))));
+    assertEquals("myValue", Bytes.toString(CellUtil.cloneValue(kv)));
   }
 
   private KeyValue createKV(int noOfTags) {
@@ -29,6 +29,7 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.OptionalLong;
@@ -341,6 +342,64 @@ public class TestWALEntryStream {
     }
   }
 
+  /**
+   * Tests that the streams of two peers decode each entry once, and that filtering the entries of
+   * one stream does not change those of the other
+   */
+  @Test
+  public void testSharedEntryCache() throws Exception {
+    // entries of compressed WALs are never shared
+    CONF.setBoolean(HConstants.ENABLE_WAL_COMPRESSION, false);
+    log.close();
+    setUp();
+    for (int i = 0; i < 10; i++) {
+      appendToLogAndSync(3);
+    }
+    SharedWALEntryCache cache = new SharedWALEntryCache(1024 * 1024, () -> true);
+    UUID peerClusterId = UUID.randomUUID();
+    long middlePosition = 0;
+    List<Long> positions = new ArrayList<>();
+    try (WALEntryStream entryStream =
+        new WALEntryStream(walQueue, CONF, 0, log, null, new MetricsSource("1"), cache)) {
+      for (int i = 0; i < 10; i++) {
+        Entry entry = entryStream.next();
+        assertEquals(3, entry.getEdit().size());
+        // what the filters of the first peer would do
+        entry.getEdit().getCells().clear();
+        entry.getKey().addClusterId(peerClusterId);
+        positions.add(entryStream.getPosition());
+        if (i == 4) {
+          middlePosition = entryStream.getPosition();
+        }
+      }
+      assertFalse(entryStream.hasNext());
+    }
+    assertEquals(0, cache.getHitCount());
+
+    try (WALEntryStream entryStream =
+        new WALEntryStream(walQueue, CONF, 0, log, null, new MetricsSource("2"), cache)) {
+      for (int i = 0; i < 10; i++) {
+        Entry entry = entryStream.next();
+        assertEquals(3, entry.getEdit().size());
+        assertFalse(entry.getKey().getClusterIds().contains(peerClusterId));
+        assertEquals(positions.get(i).longValue(), entryStream.getPosition());
+      }
+      assertFalse(entryStream.hasNext());
+    }
+    assertEquals(10, cache.getHitCount());
+
+    // a stream resuming in the middle of the file, which goes on reading new entries itself
+    appendToLogAndSync(3);
+    try (WALEntryStream entryStream = new WALEntryStream(walQueue, CONF, middlePosition, log,
+        null, new MetricsSource("3"), cache)) {
+      for (int i = 5; i < 11; i++) {
+        assertEquals(3, entryStream.next().getEdit().size());
+      }
+      assertFalse(entryStream.hasNext());
+    }
+    assertEquals(15, cache.getHitCount());
+  }
+
   @Test
   public void testWALKeySerialization() throws Exception {
     Map<String, byte[]> attributes = new HashMap<String, byte[]>();
@@ -21,6 +21,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.nio.ByteBuffer;
 import junit.framework.TestCase;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.nio.MultiByteBuff;
 import org.apache.hadoop.hbase.testclassification.MiscTests;
@@ -188,6 +189,78 @@ public class TestBloomFilterChunk extends TestCase {
     assertEquals(640, BloomFilterUtil.computeFoldableByteSize(5001, 4));
   }
 
+  /**
+   * Adds half of the given number of keys to the chunk, and returns the number of false positives
+   * among the other half.
+   */
+  private static int addAndCountFalsePositives(BloomFilterChunk b, int keys) {
+    for (int i = 0; i < keys / 2; ++i) {
+      byte[] ib = Bytes.toBytes(i);
+      b.add(ib, 0, ib.length);
+    }
+    b.compactBloom();
+    int falsePositives = 0;
+    for (int i = 0; i < keys; ++i) {
+      byte[] bytes = Bytes.toBytes(i);
+      if (BloomFilterUtil.contains(bytes, 0, bytes.length, new MultiByteBuff(b.bloom), 0,
+          (int) b.getByteSize(), b.hash, b.hashCount, b.getFormat())) {
+        if (i >= keys / 2) {
+          falsePositives++;
+        }
+      } else {
+        assertFalse(i < keys / 2);
+      }
+    }
+    return falsePositives;
+  }
+
+  public void testBlockedBloom() throws Exception {
+    float err = (float) 0.01;
+    BloomFilterChunk b = BloomFilterUtil.createBySize(64 * 1024, err, Hash.MURMUR_HASH, 3,
+      null, BloomFilterFormat.BLOCKED);
+    assertEquals(0, b.getByteSize() % (BlockedBloomFilterChunk.BLOCK_BYTES << 3));
+    assertTrue(b.getMaxKeys() < BloomFilterUtil.idealMaxKeys(b.getByteSize() * 8, err));
+    int keys = 2 * (int) b.getMaxKeys();
+    b.allocBloom();
+    int falsePositives = addAndCountFalsePositives(b, keys);
+    assertTrue(falsePositives <= keys / 2 * err * 1.2);
+
+    // a few keys, the chunk folds while keeping its blocks
+    b = b.createAnother();
+    b.allocBloom();
+    long origSize = b.getByteSize();
+    falsePositives = addAndCountFalsePositives(b, 1000);
+    assertTrue(b.getByteSize() < origSize);
+    assertEquals(0, b.getByteSize() % BlockedBloomFilterChunk.BLOCK_BYTES);
+    assertTrue(falsePositives <= 10);
+  }
+
+  public void testXorFilter() throws Exception {
+    for (float err : new float[] { 0.01f, 0.0001f }) {
+      BloomFilterChunk b = BloomFilterUtil.createBySize(64 * 1024, err, Hash.MURMUR_HASH, 3,
+        null, BloomFilterFormat.XOR);
+      int keys = 2 * (int) b.getMaxKeys();
+      b.allocBloom();
+      // a duplicated key
+      byte[] ib = Bytes.toBytes(0);
+      b.add(ib, 0, ib.length);
+      int falsePositives = addAndCountFalsePositives(b, keys);
+      assertTrue(b.getByteSize() <= 64 * 1024);
+      assertTrue(falsePositives <= keys / 2 * b.actualErrorRate() * 1.5 + 2);
+      assertTrue(b.actualErrorRate() <= err);
+    }
+  }
+
+  public void testBloomFormatFromConf() {
+    Configuration conf = new Configuration(false);
+    assertEquals(BloomFilterFormat.CLASSIC, BloomFilterFactory.getBloomFormat(conf));
+    conf.set(BloomFilterFactory.IO_STOREFILE_BLOOM_FORMAT, " xor ");
+    assertEquals(BloomFilterFormat.XOR, BloomFilterFactory.getBloomFormat(conf));
+    // a mistyped format must not fail the flushes
+    conf.set(BloomFilterFactory.IO_STOREFILE_BLOOM_FORMAT, "BLOKED");
+    assertEquals(BloomFilterFormat.CLASSIC, BloomFilterFactory.getBloomFormat(conf));
+  }
+
 
 }
 
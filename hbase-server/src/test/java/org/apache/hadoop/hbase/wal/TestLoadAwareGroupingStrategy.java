@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.regionserver.wal.MetricsWALSource;
+import org.apache.hadoop.hbase.regionserver.wal.WALActionsListener;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestLoadAwareGroupingStrategy {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestLoadAwareGroupingStrategy.class);
+
+  private static final TableName TABLE = TableName.valueOf("test");
+
+  private MetricsWALSource metrics;
+  private LoadAwareGroupingStrategy strategy;
+
+  @Before
+  public void setUp() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(BoundedGroupingStrategy.NUM_REGION_GROUPS, 3);
+    metrics = mock(MetricsWALSource.class);
+    strategy = new LoadAwareGroupingStrategy(metrics);
+    strategy.init(conf, "test");
+  }
+
+  private static byte[] region(int i) {
+    return Bytes.toBytes("region-" + i);
+  }
+
+  private String group(int i) {
+    return strategy.group(region(i), null);
+  }
+
+  private void append(int i, long size) throws Exception {
+    strategy.getWALActionsListener(group(i)).postAppend(size, 0,
+      new WALKeyImpl(region(i), TABLE, 0), new WALEdit());
+  }
+
+  @Test
+  public void testSpreadWithoutLoad() {
+    Set<String> groups = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      groups.add(group(i));
+    }
+    assertEquals(3, groups.size());
+    // stable once assigned
+    for (int i = 0; i < 3; i++) {
+      assertEquals(group(i), group(i));
+    }
+    assertNull(strategy.getWALActionsListener("meta"));
+  }
+
+  @Test
+  public void testRebalanceHotRegions() throws Exception {
+    for (int i = 0; i < 6; i++) {
+      group(i);
+    }
+    // the two hot regions share a group
+    assertEquals(group(0), group(3));
+    append(0, 1000);
+    append(3, 1000);
+    for (int i : new int[] { 1, 2, 4, 5 }) {
+      append(i, 10);
+    }
+    assertTrue(strategy.drainMovedRegions().isEmpty());
+    strategy.rebalance();
+    verify(metrics, times(3)).updateGroupLoad(anyString(), anyLong(), anyLong(), anyLong());
+    assertNotEquals(group(0), group(3));
+    // one of the hot regions is handed to the region server to be flushed onto its new WAL
+    List<byte[]> moved = strategy.drainMovedRegions();
+    assertTrue(moved.stream()
+        .anyMatch(r -> Bytes.equals(region(0), r) || Bytes.equals(region(3), r)));
+    assertTrue(strategy.drainMovedRegions().isEmpty());
+    // a new region goes to the group without a hot region
+    String coldGroup = group(6);
+    assertNotEquals(group(0), coldGroup);
+    assertNotEquals(group(3), coldGroup);
+  }
+
+  @Test
+  public void testBalancedLoadStays() throws Exception {
+    for (int i = 0; i < 6; i++) {
+      append(i, 100);
+    }
+    String[] before = new String[6];
+    for (int i = 0; i < 6; i++) {
+      before[i] = group(i);
+    }
+    strategy.rebalance();
+    for (int i = 0; i < 6; i++) {
+      assertEquals(before[i], group(i));
+    }
+    assertTrue(strategy.drainMovedRegions().isEmpty());
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseCommonTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestReadAheadWALReader {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestReadAheadWALReader.class);
+
+  private static final HBaseCommonTestingUtility UTIL = new HBaseCommonTestingUtility();
+
+  private static final TableName TABLE = TableName.valueOf("test");
+
+  private static final byte[] REGION = Bytes.toBytes("region");
+
+  private static final int ENTRIES = 500;
+
+  private static FileSystem fs;
+
+  private static WALFactory wals;
+
+  private static Path path;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    Configuration conf = UTIL.getConfiguration();
+    fs = FileSystem.getLocal(conf);
+    FSUtils.setRootDir(conf, UTIL.getDataTestDir());
+    wals = new WALFactory(conf, "TestReadAheadWALReader");
+    fs.mkdirs(UTIL.getDataTestDir());
+    path = new Path(UTIL.getDataTestDir(), "edits");
+    try (WALProvider.Writer writer = wals.createRecoveredEditsWriter(fs, path)) {
+      for (long i = 1; i <= ENTRIES; i++) {
+        WALEdit edit = new WALEdit();
+        edit.add(new KeyValue(Bytes.toBytes(i), Bytes.toBytes("f"), Bytes.toBytes("q"), i,
+          Bytes.toBytes(i)));
+        writer.append(new WAL.Entry(new WALKeyImpl(REGION, TABLE, i, i,
+          HConstants.DEFAULT_CLUSTER_ID), edit));
+      }
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() throws IOException {
+    wals.close();
+    UTIL.cleanupTestDir();
+  }
+
+  private static void assertNext(WAL.Reader reader, long expectedSeqId) throws IOException {
+    assertEquals(expectedSeqId, reader.next().getKey().getSequenceId());
+  }
+
+  @Test
+  public void testSequentialRead() throws IOException {
+    try (WAL.Reader reader = new ReadAheadWALReader(wals.createReader(fs, path), 100, "test")) {
+      for (long i = 1; i <= ENTRIES; i++) {
+        assertNext(reader, i);
+      }
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void testSeekAndReset() throws IOException {
+    try (WAL.Reader reader = new ReadAheadWALReader(wals.createReader(fs, path), 100, "test")) {
+      for (long i = 1; i <= 10; i++) {
+        assertNext(reader, i);
+      }
+      long afterTen = reader.getPosition();
+      // well past what was read ahead when the position was taken
+      for (long i = 11; i <= 300; i++) {
+        assertNext(reader, i);
+      }
+      reader.seek(afterTen);
+      assertEquals(afterTen, reader.getPosition());
+      for (long i = 11; i <= ENTRIES; i++) {
+        assertNext(reader, i);
+      }
+      assertNull(reader.next());
+
+      reader.reset();
+      for (long i = 1; i <= ENTRIES; i++) {
+        assertNext(reader, i);
+      }
+      assertNull(reader.next());
+    }
+  }
+}
@@ -0,0 +1,308 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.MemStoreLAB;
+import org.apache.hadoop.hbase.regionserver.wal.FSHLog;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSTableDescriptors;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Tests splitting WALs straight into HFiles and loading them when the region opens.
+ */
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestWALSplitToHFile {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestWALSplitToHFile.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final byte[][] FAMILIES =
+      { Bytes.toBytes("a"), Bytes.toBytes("b"), Bytes.toBytes("c") };
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_ROWS = 100;
+
+  @Rule
+  public final TestName name = new TestName();
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path rootDir;
+  private Path logDir;
+  private Path oldLogDir;
+  private String logName;
+  private WALFactory wals;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    Configuration conf = TEST_UTIL.getConfiguration();
+    conf.setBoolean(WALSplitter.WAL_SPLIT_TO_HFILE, true);
+    conf.setBoolean(MemStoreLAB.USEMSLAB_KEY, false);
+    TEST_UTIL.startMiniDFSCluster(3);
+    Path rootDir = TEST_UTIL.getDFSCluster().getFileSystem().makeQualified(new Path("/hbase"));
+    FSUtils.setRootDir(conf, rootDir);
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    TEST_UTIL.shutdownMiniDFSCluster();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    conf = HBaseConfiguration.create(TEST_UTIL.getConfiguration());
+    fs = TEST_UTIL.getDFSCluster().getFileSystem();
+    rootDir = FSUtils.getRootDir(conf);
+    oldLogDir = new Path(rootDir, HConstants.HREGION_OLDLOGDIR_NAME);
+    String serverName =
+        ServerName.valueOf(name.getMethodName(), 16010, System.currentTimeMillis()).toString();
+    logName = AbstractFSWALProvider.getWALDirectoryName(serverName);
+    logDir = new Path(rootDir, logName);
+    if (fs.exists(rootDir)) {
+      fs.delete(rootDir, true);
+    }
+    wals = new WALFactory(conf, name.getMethodName());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    wals.close();
+    fs.delete(rootDir, true);
+  }
+
+  private WAL createWAL() throws IOException {
+    FSHLog wal = new FSHLog(fs, rootDir, logName, conf);
+    wal.init();
+    return wal;
+  }
+
+  private TableDescriptor createTable() throws IOException {
+    TableDescriptorBuilder builder =
+        TableDescriptorBuilder.newBuilder(TableName.valueOf(name.getMethodName()));
+    for (byte[] family : FAMILIES) {
+      builder.setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(family)
+          .setCompressionType(Compression.Algorithm.GZ).build());
+    }
+    TableDescriptor td = builder.build();
+    new FSTableDescriptors(conf, fs, rootDir).createTableDescriptor(td);
+    return td;
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%04d", i));
+  }
+
+  private static byte[] value(int i, byte[] family) {
+    return Bytes.add(row(i), family);
+  }
+
+  /**
+   * Writes the rows to all families, flushing half way so the stores hold part of the data, and
+   * deletes a few rows. The region is then aborted, leaving the rest of the edits in the WAL only.
+   */
+  private void writeAndCrash(HRegion region, WAL wal) throws IOException {
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Put put = new Put(row(i));
+      for (byte[] family : FAMILIES) {
+        put.addColumn(family, QUALIFIER, value(i, family));
+      }
+      region.put(put);
+      if (i == NUM_ROWS / 2) {
+        region.flush(true);
+      }
+    }
+    for (int i = 0; i < NUM_ROWS; i += 10) {
+      region.delete(new Delete(row(i)));
+    }
+    region.close(true);
+    wal.shutdown();
+  }
+
+  private void verifyRows(HRegion region) throws IOException {
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Result result = region.get(new Get(row(i)));
+      if (i % 10 == 0) {
+        assertTrue(result.isEmpty());
+        continue;
+      }
+      for (byte[] family : FAMILIES) {
+        assertArrayEquals(value(i, family), result.getValue(family, QUALIFIER));
+      }
+    }
+  }
+
+  @Test
+  public void testSplitToHFilesAndReopen() throws Exception {
+    TableDescriptor td = createTable();
+    RegionInfo ri = RegionInfoBuilder.newBuilder(td.getTableName()).build();
+    WAL wal = createWAL();
+    HRegion region = HRegion.createHRegion(ri, rootDir, conf, td, wal);
+    writeAndCrash(region, wal);
+
+    List<Path> splits = WALSplitter.split(rootDir, logDir, oldLogDir, fs, conf, wals);
+    Path regionDir = FSUtils.getRegionDirFromRootDir(rootDir, ri);
+    assertEquals(FAMILIES.length, splits.size());
+    for (Path split : splits) {
+      assertEquals(WALSplitUtil.RECOVERED_HFILES_DIR, split.getParent().getName());
+      assertTrue(fs.exists(split));
+    }
+    assertTrue(WALSplitUtil.getSplitEditFilesSorted(fs, regionDir).isEmpty());
+    for (byte[] family : FAMILIES) {
+      assertEquals(1, WALSplitUtil.getRecoveredHFiles(fs, regionDir, Bytes.toString(family))
+          .size());
+    }
+    assertTrue(WALSplitUtil.hasRecoveredHFiles(conf, ri));
+
+    // A file left over by a split attempt which did not finish
+    Path leftOver = new Path(WALSplitUtil.getRecoveredHFilesDir(regionDir,
+      Bytes.toString(FAMILIES[0])), "0123456789abcdef.tmp");
+    fs.create(leftOver).close();
+
+    WAL wal2 = createWAL();
+    HRegion region2 = HRegion.openHRegion(conf, fs, rootDir, ri, td, wal2);
+    try {
+      verifyRows(region2);
+      assertFalse(WALSplitUtil.hasRecoveredHFiles(conf, ri));
+      assertFalse(fs.exists(leftOver));
+      for (byte[] family : FAMILIES) {
+        assertFalse(fs.exists(WALSplitUtil.getRecoveredHFilesDir(regionDir,
+          Bytes.toString(family))));
+        // the flushed file and the recovered one
+        assertEquals(2, region2.getStore(family).getStorefilesCount());
+        assertEquals(0, region2.getStore(family).getMemStoreSize().getDataSize());
+      }
+      // The region picks up the sequence ids of the recovered edits, so newer writes win
+      Put put = new Put(row(1)).addColumn(FAMILIES[0], QUALIFIER, Bytes.toBytes("new"));
+      region2.put(put);
+      assertArrayEquals(Bytes.toBytes("new"),
+        region2.get(new Get(row(1))).getValue(FAMILIES[0], QUALIFIER));
+    } finally {
+      region2.close();
+      wal2.close();
+    }
+  }
+
+  @Test
+  public void testRetriedSplitReplacesEarlierAttempt() throws Exception {
+    TableDescriptor td = createTable();
+    RegionInfo ri = RegionInfoBuilder.newBuilder(td.getTableName()).build();
+    WAL wal = createWAL();
+    HRegion region = HRegion.createHRegion(ri, rootDir, conf, td, wal);
+    writeAndCrash(region, wal);
+
+    FileStatus[] logFiles = fs.listStatus(logDir);
+    assertEquals(1, logFiles.length);
+    Path regionDir = FSUtils.getRegionDirFromRootDir(rootDir, ri);
+    List<Path> firstAttempt = null;
+    // The worker of the first attempt is assumed dead, and the split of the WAL done again
+    for (int attempt = 0; attempt < 2; attempt++) {
+      assertTrue(WALSplitter.splitLogFile(rootDir, logFiles[0], fs, conf, null, null, null, wals));
+      List<Path> files = new ArrayList<>();
+      for (byte[] family : FAMILIES) {
+        files.addAll(WALSplitUtil.getRecoveredHFiles(fs, regionDir, Bytes.toString(family)));
+      }
+      assertEquals(FAMILIES.length, files.size());
+      if (firstAttempt == null) {
+        firstAttempt = files;
+      } else {
+        assertEquals(firstAttempt, files);
+      }
+    }
+    fs.delete(logDir, true);
+
+    WAL wal2 = createWAL();
+    HRegion region2 = HRegion.openHRegion(conf, fs, rootDir, ri, td, wal2);
+    try {
+      verifyRows(region2);
+      for (byte[] family : FAMILIES) {
+        assertEquals(2, region2.getStore(family).getStorefilesCount());
+      }
+    } finally {
+      region2.close();
+      wal2.close();
+    }
+  }
+
+  @Test
+  public void testSkipDroppedFamily() throws Exception {
+    TableDescriptor td = createTable();
+    RegionInfo ri = RegionInfoBuilder.newBuilder(td.getTableName()).build();
+    WAL wal = createWAL();
+    HRegion region = HRegion.createHRegion(ri, rootDir, conf, td, wal);
+    writeAndCrash(region, wal);
+
+    // Drop the last family before splitting
+    TableDescriptor altered =
+        TableDescriptorBuilder.newBuilder(td).removeColumnFamily(FAMILIES[2]).build();
+    new FSTableDescriptors(conf, fs, rootDir).createTableDescriptor(altered, true);
+
+    List<Path> splits = WALSplitter.split(rootDir, logDir, oldLogDir, fs, conf, wals);
+    assertEquals(FAMILIES.length - 1, splits.size());
+    Path regionDir = FSUtils.getRegionDirFromRootDir(rootDir, ri);
+    assertTrue(WALSplitUtil.getRecoveredHFiles(fs, regionDir, Bytes.toString(FAMILIES[2]))
+        .isEmpty());
+    for (ColumnFamilyDescriptor family : altered.getColumnFamilies()) {
+      assertEquals(1,
+        WALSplitUtil.getRecoveredHFiles(fs, regionDir, family.getNameAsString()).size());
+    }
+  }
+}
@@ -1531,6 +1531,36 @@ module Hbase
     def stop_regionserver(hostport)
       @admin.stopRegionServer(hostport)
     end
+
+    #----------------------------------------------------------------------------------------------
+    # Retrieve the slow/large RPC calls kept in memory by the given RegionServers, '*' for all
+    def get_slowlog_responses(server_names, args)
+      unless server_names.is_a?(Array) || server_names.is_a?(String)
+        raise(ArgumentError,
+              "#{server_names.class} of #{server_names.inspect} is not of Array/String type")
+      end
+      server_names = server_names == '*' ? [] : [server_names].flatten
+      servers = java.util.HashSet.new(getServerNames(server_names, true))
+      filter = org.apache.hadoop.hbase.client.SlowLogQueryFilter.new
+      filter.setRegionName(args['REGION_NAME']) if args.key?('REGION_NAME')
+      filter.setTableName(args['TABLE_NAME']) if args.key?('TABLE_NAME')
+      filter.setClientAddress(args['CLIENT_IP']) if args.key?('CLIENT_IP')
+      filter.setUserName(args['USER']) if args.key?('USER')
+      filter.setLimit(args['LIMIT'].to_i) if args.key?('LIMIT')
+      if args.key?('LOG_TYPE')
+        filter.setType(org.apache.hadoop.hbase.client.SlowLogQueryFilter::Type.valueOf(
+          args['LOG_TYPE']))
+      end
+      @admin.getSlowLogResponses(servers, filter).to_a
+    end
+
+    #----------------------------------------------------------------------------------------------
+    # Clear the slow/large RPC calls kept in memory by the given RegionServers, all if none given
+    def clear_slowlog_responses(server_names)
+      server_names = server_names.nil? ? [] : [server_names].flatten
+      servers = java.util.HashSet.new(getServerNames(server_names, true))
+      @admin.clearSlowLogResponses(servers).to_a
+    end
   end
   # rubocop:enable Metrics/ClassLength
 end
@@ -356,6 +356,8 @@ Shell.load_command_group(
     splitormerge_switch
     splitormerge_enabled
     clear_compaction_queues
+    get_slowlog_responses
+    clear_slowlog_responses
     list_deadservers
     clear_deadservers
     clear_block_cache
@@ -0,0 +1,43 @@
+#
+#
+# Licensed to the Apache Software Foundation (ASF) under one
+# or more contributor license agreements.  See the NOTICE file
+# distributed with this work for additional information
+# regarding copyright ownership.  The ASF licenses this file
+# to you under the Apache License, Version 2.0 (the
+# "License"); you may not use this file except in compliance
+# with the License.  You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+module Shell
+  module Commands
+    class ClearSlowlogResponses < Command
+      def help
+        <<-EOF
+Clear the slow or large RPC calls kept in memory by RegionServers.
+Without arguments every online RegionServer is cleared.
+
+Examples:
+
+  hbase> clear_slowlog_responses
+  hbase> clear_slowlog_responses 'host187.example.com,60020'
+  hbase> clear_slowlog_responses ['host187.example.com,60020', 'host188.example.com,60020']
+        EOF
+      end
+
+      def command(server_names = nil)
+        cleared = admin.clear_slowlog_responses(server_names)
+        formatter.row(["Cleared the slow log of #{cleared.count(true)} of #{cleared.size} " \
+                       'RegionServers'])
+      end
+    end
+  end
+end
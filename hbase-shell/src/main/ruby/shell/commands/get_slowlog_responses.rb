@@ -0,0 +1,55 @@
+#
+#
+# Licensed to the Apache Software Foundation (ASF) under one
+# or more contributor license agreements.  See the NOTICE file
+# distributed with this work for additional information
+# regarding copyright ownership.  The ASF licenses this file
+# to you under the Apache License, Version 2.0 (the
+# "License"); you may not use this file except in compliance
+# with the License.  You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+module Shell
+  module Commands
+    class GetSlowlogResponses < Command
+      def help
+        <<-EOF
+Retrieve the slow or large RPC calls kept in memory by RegionServers, newest first.
+Pass '*' to query every online RegionServer, or one or more server names.
+The optional filters are REGION_NAME, TABLE_NAME, CLIENT_IP, USER, LIMIT (default 10
+per server) and LOG_TYPE ('SLOW_LOG', 'LARGE_LOG' or 'ALL', the default). All the
+given filters must match.
+
+Examples:
+
+  hbase> get_slowlog_responses '*'
+  hbase> get_slowlog_responses 'host187.example.com,60020'
+  hbase> get_slowlog_responses ['host187.example.com,60020', 'host188.example.com,60020']
+  hbase> get_slowlog_responses '*', {'TABLE_NAME' => 't1', 'LIMIT' => 50}
+  hbase> get_slowlog_responses '*', {'CLIENT_IP' => '10.1.2.3', 'LOG_TYPE' => 'LARGE_LOG'}
+  hbase> get_slowlog_responses '*', {'REGION_NAME' => 'hbase:meta,,1'}
+        EOF
+      end
+
+      def command(server_names, args = {})
+        unless args.is_a? Hash
+          raise 'Filter parameters are not Hash'
+        end
+
+        records = admin.get_slowlog_responses(server_names, args)
+        records.each do |record|
+          formatter.row([record.toJsonPrettyPrint])
+        end
+        formatter.footer(records.size)
+      end
+    end
+  end
+end
@@ -44,6 +44,8 @@ import org.apache.hadoop.hbase.client.CompactType;
 import org.apache.hadoop.hbase.client.CompactionState;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.SlowLogQueryFilter;
+import org.apache.hadoop.hbase.client.SlowLogRecord;
 import org.apache.hadoop.hbase.client.SnapshotDescription;
 import org.apache.hadoop.hbase.client.SnapshotType;
 import org.apache.hadoop.hbase.client.TableDescriptor;
@@ -1146,4 +1148,15 @@ public class ThriftAdmin implements Admin {
   public Future<Void> splitRegionAsync(byte[] regionName) throws IOException {
     return splitRegionAsync(regionName, null);
   }
+
+  @Override
+  public List<SlowLogRecord> getSlowLogResponses(Set<ServerName> serverNames,
+      SlowLogQueryFilter slowLogQueryFilter) {
+    throw new NotImplementedException("getSlowLogResponses not supported in ThriftAdmin");
+  }
+
+  @Override
+  public List<Boolean> clearSlowLogResponses(Set<ServerName> serverNames) {
+    throw new NotImplementedException("clearSlowLogResponses not supported in ThriftAdmin");
+  }
 }